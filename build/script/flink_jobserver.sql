@@ -141,9 +141,29 @@ CREATE TABLE `fjs_job_instance` (
   KEY `idx_workspace_index` (`workspace`) USING BTREE,
   KEY `idx_application_id_index` (`application_id`) USING BTREE,
   KEY `idx_name` (`name`(128)) USING BTREE,
-  KEY `idx_schedule_time` (`schedule_time`) USING BTREE
+  KEY `idx_schedule_time` (`schedule_time`, `id`) USING BTREE,
+  KEY `idx_gmt_created` (`gmt_created`, `id`) USING BTREE,
+  KEY `idx_status_gmt_created` (`status`, `gmt_created`, `id`) USING BTREE,
+  KEY `idx_status_schedule_time` (`status`, `schedule_time`, `id`) USING BTREE,
+  KEY `idx_client_gmt_created` (`client_name`, `gmt_created`, `id`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=9 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='作业实例表';
 
+-- ----------------------------
+-- Table structure for fjs_instance_statistics
+-- ----------------------------
+DROP TABLE IF EXISTS `fjs_instance_statistics`;
+CREATE TABLE `fjs_instance_statistics` (
+  `id` int unsigned NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `stat_time` datetime NOT NULL COMMENT '实例创建时间，按小时',
+  `cluster_code` varchar(64) NOT NULL,
+  `status` varchar(45) NOT NULL,
+  `instance_count` int NOT NULL DEFAULT '0',
+  `gmt_modified` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE KEY `uk_stat` (`stat_time`,`cluster_code`,`status`) USING BTREE,
+  KEY `idx_status` (`status`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='实例统计表';
+
 -- ----------------------------
 -- Table structure for fjs_job_instance_content
 -- ----------------------------
@@ -151,13 +171,31 @@ DROP TABLE IF EXISTS `fjs_job_instance_content`;
 CREATE TABLE `fjs_job_instance_content` (
   `id` int unsigned NOT NULL AUTO_INCREMENT COMMENT 'id',
   `code` varchar(45) NOT NULL COMMENT '实例code',
-  `job_text` longtext COMMENT '作业内容',
+  `job_text` longtext COMMENT '作业内容，历史数据，新数据存储在 fjs_job_text',
   `job_config` varchar(4000) DEFAULT NULL COMMENT '作业运行参数',
   `error_msg` longtext COMMENT '错误信息',
+  `text_hash` varchar(64) DEFAULT NULL COMMENT '作业内容 sha256',
   PRIMARY KEY (`id`) USING BTREE,
   UNIQUE KEY `uk_code` (`code`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=9 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='实例内容表';
 
+-- ----------------------------
+-- Table structure for fjs_job_text
+-- ----------------------------
+DROP TABLE IF EXISTS `fjs_job_text`;
+CREATE TABLE `fjs_job_text` (
+  `id` int unsigned NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `text_hash` varchar(64) NOT NULL COMMENT '作业内容 sha256',
+  `content` longblob COMMENT '作业内容，compressed 为 1 时 gzip 压缩',
+  `compressed` tinyint(1) NOT NULL DEFAULT '0',
+  `text_length` int NOT NULL DEFAULT '0' COMMENT '作业内容字符数',
+  `ref_count` int NOT NULL DEFAULT '0' COMMENT '引用实例数量',
+  `gmt_created` datetime NOT NULL,
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE KEY `uk_text_hash` (`text_hash`) USING BTREE,
+  KEY `idx_ref_count` (`ref_count`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='作业内容去重存储表';
+
 -- ----------------------------
 -- Table structure for fjs_job_instance_dependent
 -- ----------------------------
@@ -172,4 +210,14 @@ CREATE TABLE `fjs_job_instance_dependent` (
   KEY `idx_dependent_code` (`parent_code`) USING BTREE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='实例依赖表';
 
+-- ----------------------------
+-- Table structure for fjs_job_instance_archive, fjs_job_instance_content_archive
+-- 终态历史实例归档表，表结构与实例表一致
+-- ----------------------------
+DROP TABLE IF EXISTS `fjs_job_instance_archive`;
+CREATE TABLE `fjs_job_instance_archive` LIKE `fjs_job_instance`;
+
+DROP TABLE IF EXISTS `fjs_job_instance_content_archive`;
+CREATE TABLE `fjs_job_instance_content_archive` LIKE `fjs_job_instance_content`;
+
 SET FOREIGN_KEY_CHECKS = 1;
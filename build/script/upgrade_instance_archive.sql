@@ -0,0 +1,6 @@
+-- 已有环境开启实例归档：创建归档表，配置 jobserver.instance-archive-days 后，
+-- ArchiveJobInstanceScheduler 每天按批次把存量终态实例迁移到归档表
+
+CREATE TABLE IF NOT EXISTS `fjs_job_instance_archive` LIKE `fjs_job_instance`;
+
+CREATE TABLE IF NOT EXISTS `fjs_job_instance_content_archive` LIKE `fjs_job_instance_content`;
@@ -0,0 +1,29 @@
+-- 实例列表 keyset 分页：已有环境执行，添加排序和过滤使用的组合索引
+
+ALTER TABLE `fjs_job_instance`
+  DROP INDEX `idx_schedule_time`,
+  ADD INDEX `idx_schedule_time` (`schedule_time`, `id`) USING BTREE,
+  ADD INDEX `idx_gmt_created` (`gmt_created`, `id`) USING BTREE,
+  ADD INDEX `idx_status_gmt_created` (`status`, `gmt_created`, `id`) USING BTREE,
+  ADD INDEX `idx_status_schedule_time` (`status`, `schedule_time`, `id`) USING BTREE,
+  ADD INDEX `idx_client_gmt_created` (`client_name`, `gmt_created`, `id`) USING BTREE;
+
+-- 归档表(upgrade_instance_archive.sql)在本脚本之前创建时添加相同的索引。归档表不存在，
+-- 或者在本脚本之后复制实例表结构创建、已经包含这些索引时跳过
+SET @archive_index_sql = (
+  SELECT IF(COUNT(*) = 0, 'SELECT 1',
+    'ALTER TABLE `fjs_job_instance_archive`
+       DROP INDEX `idx_schedule_time`,
+       ADD INDEX `idx_schedule_time` (`schedule_time`, `id`) USING BTREE,
+       ADD INDEX `idx_gmt_created` (`gmt_created`, `id`) USING BTREE,
+       ADD INDEX `idx_status_gmt_created` (`status`, `gmt_created`, `id`) USING BTREE,
+       ADD INDEX `idx_status_schedule_time` (`status`, `schedule_time`, `id`) USING BTREE,
+       ADD INDEX `idx_client_gmt_created` (`client_name`, `gmt_created`, `id`) USING BTREE')
+  FROM information_schema.TABLES t
+  WHERE t.TABLE_SCHEMA = DATABASE() AND t.TABLE_NAME = 'fjs_job_instance_archive'
+    AND NOT EXISTS (SELECT 1 FROM information_schema.STATISTICS s
+      WHERE s.TABLE_SCHEMA = DATABASE() AND s.TABLE_NAME = 'fjs_job_instance_archive'
+        AND s.INDEX_NAME = 'idx_gmt_created'));
+PREPARE archive_index_stmt FROM @archive_index_sql;
+EXECUTE archive_index_stmt;
+DEALLOCATE PREPARE archive_index_stmt;
@@ -0,0 +1,29 @@
+-- 作业内容去重存储：已有环境执行，历史实例内容迁移到 fjs_job_text，实例内容表只保留 text_hash
+
+CREATE TABLE IF NOT EXISTS `fjs_job_text` (
+  `id` int unsigned NOT NULL AUTO_INCREMENT COMMENT 'id',
+  `text_hash` varchar(64) NOT NULL COMMENT '作业内容 sha256',
+  `content` longblob COMMENT '作业内容，compressed 为 1 时 gzip 压缩',
+  `compressed` tinyint(1) NOT NULL DEFAULT '0',
+  `text_length` int NOT NULL DEFAULT '0' COMMENT '作业内容字符数',
+  `ref_count` int NOT NULL DEFAULT '0' COMMENT '引用实例数量',
+  `gmt_created` datetime NOT NULL,
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE KEY `uk_text_hash` (`text_hash`) USING BTREE,
+  KEY `idx_ref_count` (`ref_count`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci COMMENT='作业内容去重存储表';
+
+ALTER TABLE `fjs_job_instance_content` ADD COLUMN `text_hash` varchar(64) DEFAULT NULL COMMENT '作业内容 sha256';
+ALTER TABLE `fjs_job_instance_content_archive` ADD COLUMN `text_hash` varchar(64) DEFAULT NULL COMMENT '作业内容 sha256';
+
+-- 可选：迁移历史数据，sha2 与 JobTextService.hash 一致(utf8mb4 字节的 sha256)，迁移数据不压缩
+INSERT INTO `fjs_job_text` (text_hash, content, compressed, text_length, ref_count, gmt_created)
+SELECT text_hash, any_value(job_text), 0, any_value(char_length(job_text)), count(*), now() FROM (
+    SELECT sha2(job_text, 256) text_hash, job_text FROM `fjs_job_instance_content` WHERE job_text IS NOT NULL
+    UNION ALL
+    SELECT sha2(job_text, 256) text_hash, job_text FROM `fjs_job_instance_content_archive` WHERE job_text IS NOT NULL
+) t GROUP BY text_hash
+ON DUPLICATE KEY UPDATE ref_count = `fjs_job_text`.ref_count + VALUES(ref_count);
+
+UPDATE `fjs_job_instance_content` SET text_hash = sha2(job_text, 256), job_text = NULL WHERE job_text IS NOT NULL;
+UPDATE `fjs_job_instance_content_archive` SET text_hash = sha2(job_text, 256), job_text = NULL WHERE job_text IS NOT NULL;
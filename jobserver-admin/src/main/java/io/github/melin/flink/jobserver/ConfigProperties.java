@@ -6,6 +6,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * huaixin 2022/4/3 2:36 PM
  */
@@ -36,13 +39,38 @@ public class ConfigProperties {
     private String instanceLogPath = SystemUtils.getUserHome() + "/instanceLogs";
 
     /**
-     * 提交driver 服务器本地最小可用内存(mb)
+     * 提交driver 服务器本地最小可用内存，支持单位 k、m、g，例如：2g，没有单位为 MB
      */
-    private int localMinMemoryMb = 2048;
+    private String localMinMemoryMb = "2048";
 
     /**
      * 实例最大保留天数，小于1, 不清理
      */
     private int maxInstanceDays = 30;
 
+    /**
+     * 实例日志超过天数后 gzip 压缩归档，默认 0 不归档，需要时开启，例如：7
+     */
+    private int instanceLogArchiveDays = 0;
+
+    /**
+     * 终态实例超过天数后迁移到归档表，小于1, 不归档。调度只扫描最近7天实例，最小8天
+     */
+    private int instanceArchiveDays = 0;
+
+    /**
+     * 数据库负载并发上限，key: scheduling, api, monitoring, web, reporting，未配置使用 WorkloadType 默认值，上限之和不要超过连接池大小
+     */
+    private Map<String, Integer> dbWorkloadLimits = new HashMap<>();
+
+    /**
+     * 数据库负载等待许可超时时间
+     */
+    private int dbWorkloadWaitSeconds = 30;
+
+    /**
+     * 实例日志脱敏关键字，例如：password,secret，为空不脱敏
+     */
+    private String[] logRedactKeywords = new String[0];
+
 }
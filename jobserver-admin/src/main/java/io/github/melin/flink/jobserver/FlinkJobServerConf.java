@@ -48,6 +48,34 @@ public class FlinkJobServerConf extends BeeConf {
                     .intConf()
                     .createWithDefault(60 * 10);
 
+    public static final ConfigEntry<Integer> JOBSERVER_DRIVER_MAX_HEAP_USED_PERCENT =
+            buildConf("jobserver.driver.max.heap.used.percent")
+                    .doc("driver gc 后堆内存使用百分比超过此值，不再分配作业并回收 driver")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(85);
+
+    public static final ConfigEntry<Integer> JOBSERVER_DRIVER_MAX_GC_TIME_PERCENT =
+            buildConf("jobserver.driver.max.gc.time.percent")
+                    .doc("driver 最近采样周期内 gc 时间百分比超过此值，不再分配作业并回收 driver")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(20);
+
+    public static final ConfigEntry<Integer> JOBSERVER_DRIVER_MAX_METASPACE_USED_PERCENT =
+            buildConf("jobserver.driver.max.metaspace.used.percent")
+                    .doc("driver Metaspace 使用百分比超过此值(设置了 MaxMetaspaceSize)，不再分配作业并回收 driver")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(90);
+
+    public static final ConfigEntry<Integer> JOBSERVER_DRIVER_MAX_LEAKED_CLASSLOADER_COUNT =
+            buildConf("jobserver.driver.max.leaked.classloader.count")
+                    .doc("driver 疑似泄漏的作业 classloader 数量超过此值，回收 driver")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(3);
+
     public static final ConfigEntry<String> JOBSERVER_DRIVER_HADOOP_USER_NAME =
             buildConf("jobserver.driver.hadoop.user.name")
                     .doc("driver hadoop user name, 默认为 jobserver 系统账号")
@@ -113,12 +141,12 @@ public class FlinkJobServerConf extends BeeConf {
                     .stringConf()
                     .createWithDefault("1.16.0");
 
-    public static final ConfigEntry<Integer> JOBSERVER_YARN_MIN_MEMORY_MB =
+    public static final ConfigEntry<String> JOBSERVER_YARN_MIN_MEMORY_MB =
             buildConf("jobserver.yarn.min.memory.mb")
-                    .doc("yarn 最小剩余内存")
+                    .doc("yarn 最小剩余内存，支持单位 k、m、g，例如：4g，没有单位为 MB")
                     .version("1.0.0")
-                    .intConf()
-                    .createWithDefault(4096);
+                    .stringConf()
+                    .createWithDefault("4096");
 
     public static final ConfigEntry<Integer> JOBSERVER_YARN_MIN_CPU_CORES =
             buildConf("jobserver.yarn.min.cpu.cores")
@@ -155,6 +183,56 @@ public class FlinkJobServerConf extends BeeConf {
                     .stringConf()
                     .createWithDefault("");
 
+    //--------------------------------streaming log config-----------------------------
+    public static final ConfigEntry<String> JOBSERVER_STREAMING_LOG_SAMPLING_INTERVAL =
+            buildConf("jobserver.streaming.log.sampling.interval")
+                    .doc("流任务日志采样间隔，支持 ms、s、min 等单位，没有单位为毫秒")
+                    .version("1.0.0")
+                    .stringConf()
+                    .createWithDefault("10s");
+
+    public static final ConfigEntry<String> JOBSERVER_STREAMING_LOG_MAX_SIZE_PER_MINUTE =
+            buildConf("jobserver.streaming.log.max.size.per.minute")
+                    .doc("流任务每分钟最多写入日志大小，超过部分丢弃，支持 k、m、g 等单位，没有单位为字节")
+                    .version("1.0.0")
+                    .stringConf()
+                    .createWithDefault("1m");
+
+    public static final ConfigEntry<String> JOBSERVER_STREAMING_LOG_FILE_MAX_SIZE =
+            buildConf("jobserver.streaming.log.file.max.size")
+                    .doc("流任务单个日志文件最大大小，超过后滚动，支持 k、m、g 等单位，没有单位为字节")
+                    .version("1.0.0")
+                    .stringConf()
+                    .createWithDefault("100m");
+
+    public static final ConfigEntry<Integer> JOBSERVER_STREAMING_LOG_MAX_FILES =
+            buildConf("jobserver.streaming.log.max.files")
+                    .doc("流任务保留滚动日志文件数量")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(5);
+
+    public static final ConfigEntry<String> JOBSERVER_STREAMING_LOG_HEARTBEAT_INTERVAL =
+            buildConf("jobserver.streaming.log.heartbeat.interval")
+                    .doc("流任务 driver 心跳检查间隔，支持 ms、s、min 等单位，没有单位为毫秒")
+                    .version("1.0.0")
+                    .stringConf()
+                    .createWithDefault("60s");
+
+    public static final ConfigEntry<Integer> JOBSERVER_DRIVER_LOG_CONNECT_TIMEOUT_SEC =
+            buildConf("jobserver.driver.log.connect.timeout.sec")
+                    .doc("下载 driver 容器日志连接超时时间")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(10);
+
+    public static final ConfigEntry<Integer> JOBSERVER_DRIVER_LOG_READ_TIMEOUT_SEC =
+            buildConf("jobserver.driver.log.read.timeout.sec")
+                    .doc("下载 driver 容器日志读取超时时间")
+                    .version("1.0.0")
+                    .intConf()
+                    .createWithDefault(120);
+
     //--------------------------------docker config-----------------------------
     public static final ConfigEntry<String> JOBSERVER_DOCKER_REGISTER_ADDRESS =
             buildConf("jobserver.docker.register.address")
@@ -5,6 +5,7 @@ import com.google.common.collect.Maps;
 import io.github.melin.flink.jobserver.ConfigProperties;
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
 import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.RuntimeMode;
 import io.github.melin.flink.jobserver.core.enums.SchedulerType;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
 import io.github.melin.flink.jobserver.core.service.JobInstanceService;
@@ -69,24 +70,29 @@ public class FlinkLogService implements ApplicationContextAware, InitializingBea
                         String flinkDriverUrl = driver.getFlinkDriverUrl();
                         boolean shareDriver = driver.isShareDriver();
 
-                        if (SchedulerType.YARN == schedulerType) {
+                        if (SchedulerType.YARN == schedulerType || SchedulerType.Kubernetes == schedulerType) {
                             JobInstance instance = instanceService.queryInstanceByAppId(appId);
-                            if (instance != null) {
+                            // 批任务日志线程依赖 yarn 状态，kubernetes 只支持流任务日志
+                            if (instance != null && SchedulerType.Kubernetes == schedulerType
+                                    && RuntimeMode.STREAMING != instance.getRuntimeMode()) {
+                                LOGGER.warn("scheduler type {} only support streaming job log, driver: {}", schedulerType, appId);
+                            } else if (instance != null) {
                                 JobInstanceInfo instanceInfo = new JobInstanceInfo();
                                 String instanceCode = instance.getCode();
                                 instanceInfo.setClusterCode(instance.getClusterCode());
                                 instanceInfo.setInstanceCode(instanceCode);
                                 instanceInfo.setScheduleTime(instance.getScheduleTime());
                                 instanceInfo.setInstanceType(instance.getInstanceType());
-                                instanceInfo.setSchedulerType(instance.getSchedulerType());
+                                instanceInfo.setSchedulerType(schedulerType);
                                 instanceInfo.setJobType(instance.getJobType());
+                                instanceInfo.setRuntimeMode(instance.getRuntimeMode());
                                 instanceInfo.setOwner(instance.getOwner());
 
                                 this.createFlinkJobLog(instanceInfo, appId, shareDriver, flinkDriverUrl);
                                 this.startJobLogThread(instanceCode);
                             }
                         } else {
-                            throw new UnsupportedOperationException("compute type not supported");
+                            LOGGER.warn("scheduler type {} not supported, driver: {}", schedulerType, appId);
                         }
                     }
 
@@ -123,12 +129,20 @@ public class FlinkLogService implements ApplicationContextAware, InitializingBea
                 .setInstanceCode(instanceCode)
                 .setInstanceType(instanceInfo.getInstanceType())
                 .setJobType(instanceInfo.getJobType())
+                .setRuntimeMode(instanceInfo.getRuntimeMode())
+                .setSchedulerType(instanceInfo.getSchedulerType())
                 .setShareDriver(shareDriver)
                 .setFlinkDriverUrl(flinkDriverUrl)
                 .setOwner(instanceInfo.getOwner())
                 .build();
-        FlinkTaskLogThread logThread = new FlinkTaskLogThread(applicationContext, logTaskDto);
-        logThread.setName("batch-" + applicationId);
+        Thread logThread;
+        if (RuntimeMode.STREAMING == instanceInfo.getRuntimeMode()) {
+            logThread = new FlinkStreamingLogThread(applicationContext, logTaskDto);
+            logThread.setName("streaming-" + applicationId);
+        } else {
+            logThread = new FlinkTaskLogThread(applicationContext, logTaskDto);
+            logThread.setName("batch-" + applicationId);
+        }
         logThreadMap.put(instanceCode, logThread);
         LOGGER.info("create instance log thread: {}", instanceCode);
     }
@@ -138,6 +152,7 @@ public class FlinkLogService implements ApplicationContextAware, InitializingBea
         if (jobLog != null) {
             jobLog.start();
             LOGGER.info("Start log thread, instanceCode: {}", instanceCode);
+            instanceService.refreshStatusEvent(instanceCode); // driver 已更新为运行状态
             return true;
         } else {
             LOGGER.warn("No log thread: {}", instanceCode);
@@ -148,5 +163,10 @@ public class FlinkLogService implements ApplicationContextAware, InitializingBea
     public void removeLogThread(String instanceCode) {
         LOGGER.info("clear log thread, instanceCode: {}", instanceCode);
         logThreadMap.remove(instanceCode);
+        try {
+            instanceService.refreshStatusEvent(instanceCode); // driver 已更新结束状态
+        } catch (Exception e) {
+            LOGGER.warn("refresh instance {} status event failed: {}", instanceCode, e.getMessage());
+        }
     }
 }
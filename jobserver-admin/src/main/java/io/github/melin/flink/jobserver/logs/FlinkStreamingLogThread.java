@@ -0,0 +1,285 @@
+package io.github.melin.flink.jobserver.logs;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.api.LogLevel;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import io.github.melin.flink.jobserver.core.enums.SchedulerType;
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.core.util.LogRecord;
+import io.github.melin.flink.jobserver.logs.filter.LogMessageSanitizer;
+import io.github.melin.flink.jobserver.support.ClusterConfig;
+import io.github.melin.flink.jobserver.support.DriverClientService;
+import io.github.melin.flink.jobserver.support.KubernetesClientService;
+import io.github.melin.flink.jobserver.support.YarnClientService;
+import io.github.melin.flink.jobserver.util.DateUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.melin.flink.jobserver.FlinkJobServerConf.*;
+import static io.github.melin.flink.jobserver.core.util.TaskStatusFlag.*;
+
+/**
+ * 流任务日志线程。流任务没有明确的结束标记，按固定间隔低频采样 driver 日志，
+ * 每个时间窗口限制写入字节数，日志按大小滚动；通过心跳检查 driver 存活和 flink 作业状态决定线程退出，
+ * 不依赖 yarn 接口，yarn 和 kubernetes driver 共用。
+ */
+public class FlinkStreamingLogThread extends Thread {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlinkStreamingLogThread.class);
+
+    // driver 每次最多返回 LogRecord.MAX_RECORDS_PER_FETCH 条日志，单次采样最多拉取批次
+    private static final int MAX_BATCHES_PER_SAMPLE = 100;
+
+    private static final long BUDGET_WINDOW_MILLIS = 60 * 1000L;
+
+    // 连续心跳失败次数，超过认为 driver 已经退出
+    private static final int MAX_HEARTBEAT_FAILURES = 3;
+
+    private final JobInstanceService instanceService;
+
+    private final ApplicationDriverService driverService;
+
+    private final YarnClientService yarnClientService;
+
+    private final KubernetesClientService kubernetesClientService;
+
+    private final FlinkLogService flinkLogService;
+
+    private final DriverClientService driverClient;
+
+    private final LogMessageSanitizer logMessageSanitizer;
+
+    private final LogTaskDto logTaskDto;
+
+    private final String instanceLogPath;
+
+    private final long samplingIntervalMillis;
+
+    private final long maxBytesPerMinute;
+
+    private final long logFileMaxBytes;
+
+    private final int logMaxFiles;
+
+    private final long heartbeatIntervalMillis;
+
+    private long windowStartTime = System.currentTimeMillis();
+
+    private long windowBytes = 0;
+
+    private long droppedCount = 0;
+
+    private long droppedBytes = 0;
+
+    public FlinkStreamingLogThread(ApplicationContext applicationContext, LogTaskDto logTaskDto) {
+        this.instanceService = applicationContext.getBean(JobInstanceService.class);
+        this.driverService = applicationContext.getBean(ApplicationDriverService.class);
+        this.yarnClientService = applicationContext.getBean(YarnClientService.class);
+        this.kubernetesClientService = applicationContext.getBean(KubernetesClientService.class);
+        this.flinkLogService = applicationContext.getBean(FlinkLogService.class);
+        this.driverClient = applicationContext.getBean(DriverClientService.class);
+        this.logMessageSanitizer = applicationContext.getBean(LogMessageSanitizer.class);
+        ConfigProperties configProperties = applicationContext.getBean(ConfigProperties.class);
+        ClusterConfig clusterConfig = applicationContext.getBean(ClusterConfig.class);
+        this.logTaskDto = logTaskDto;
+        this.instanceLogPath = configProperties.getInstanceLogPath();
+
+        String clusterCode = logTaskDto.getClusterCode();
+        this.samplingIntervalMillis = clusterConfig.getTimeMs(clusterCode, JOBSERVER_STREAMING_LOG_SAMPLING_INTERVAL);
+        this.maxBytesPerMinute = clusterConfig.getBytes(clusterCode, JOBSERVER_STREAMING_LOG_MAX_SIZE_PER_MINUTE);
+        this.logFileMaxBytes = clusterConfig.getBytes(clusterCode, JOBSERVER_STREAMING_LOG_FILE_MAX_SIZE);
+        this.logMaxFiles = clusterConfig.getInt(clusterCode, JOBSERVER_STREAMING_LOG_MAX_FILES);
+        this.heartbeatIntervalMillis = clusterConfig.getTimeMs(clusterCode, JOBSERVER_STREAMING_LOG_HEARTBEAT_INTERVAL);
+
+        LOG.info("build streaming log thread: {}", logTaskDto);
+    }
+
+    @Override
+    public void run() {
+        final String instanceCode = logTaskDto.getInstanceCode();
+        final String flinkDriverUrl = logTaskDto.getFlinkDriverUrl();
+        final String applicationId = logTaskDto.getApplicationId();
+        final String scheduleDate = DateUtils.formatDate(logTaskDto.getScheduleTime());
+        final String path = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
+
+        boolean driverAlive = true;
+        boolean jobFailed = false;
+        boolean jobFinished = false;
+        // 循环因终态结束且实例状态已更新，非预期异常时为 false，driver 继续运行
+        boolean terminated = false;
+        try (RollingLogFileWriter writer = new RollingLogFileWriter(path, logFileMaxBytes, logMaxFiles)) {
+            LOG.info("streaming instance {} log path: {}", instanceCode, path);
+
+            long lastHeartbeatTime = 0;
+            int heartbeatFailures = 0;
+
+            OUT:
+            while (true) {
+                for (int batch = 0; batch < MAX_BATCHES_PER_SAMPLE; batch++) {
+                    List<LogRecord> logs = driverClient.getServerLog(flinkDriverUrl, instanceCode);
+                    if (logs == null || logs.isEmpty()) {
+                        break;
+                    }
+
+                    for (LogRecord log : logs) {
+                        if (TASK_STOP_FLAG == log.getFlag()) {
+                            writer.write(LogLevel.INFO, "Instance " + instanceCode + " is stoped by user");
+                            break OUT;
+                        } else if (TASK_ERROR_FLAG == log.getFlag() || STAGE_ERROR_FLAG == log.getFlag()) {
+                            writer.write(LogLevel.ERROR, log.getMessage());
+                            break OUT;
+                        } else if (TASK_END_FLAG == log.getFlag()) {
+                            // 流任务提交完成，作业继续运行，通过心跳判断是否结束
+                            writer.write(LogLevel.INFO, "Instance " + instanceCode + " submitted, streaming job running");
+                        } else {
+                            appendLog(writer, log);
+                        }
+                    }
+
+                    if (logs.size() < LogRecord.MAX_RECORDS_PER_FETCH) {
+                        break;
+                    }
+                }
+                writer.flush();
+
+                long now = System.currentTimeMillis();
+                if (now - lastHeartbeatTime >= heartbeatIntervalMillis) {
+                    lastHeartbeatTime = now;
+                    if (isDriverAlive(flinkDriverUrl, applicationId)) {
+                        heartbeatFailures = 0;
+                        driverService.updateDriverHeartbeat(applicationId);
+
+                        JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
+                        InstanceStatus status = instance != null ? instance.getStatus() : null;
+                        writer.write(LogLevel.INFO, "[heartbeat] driver " + applicationId + " alive, instance status: " + status);
+                        if (InstanceStatus.KILLED == status) {
+                            break;
+                        }
+
+                        // driver 存活但 flink 作业可能已经结束，读取有界数据源的流作业会正常完成
+                        String jobStatus = driverClient.getFlinkJobStatus(flinkDriverUrl, instanceCode);
+                        if ("FAILED".equals(jobStatus) || "CANCELED".equals(jobStatus)) {
+                            writer.write(LogLevel.ERROR, "Flink job of instance " + instanceCode + " " + jobStatus);
+                            jobFailed = true;
+                            break;
+                        } else if ("FINISHED".equals(jobStatus)) {
+                            writer.write(LogLevel.INFO, "Flink job of instance " + instanceCode + " " + jobStatus);
+                            jobFinished = true;
+                            break;
+                        }
+                    } else {
+                        heartbeatFailures++;
+                        writer.write(LogLevel.WARN, "[heartbeat] driver " + applicationId + " not reachable, failures: "
+                                + heartbeatFailures + "/" + MAX_HEARTBEAT_FAILURES);
+                        if (heartbeatFailures >= MAX_HEARTBEAT_FAILURES) {
+                            driverAlive = false;
+                            break;
+                        }
+                    }
+                    writer.flush();
+                }
+
+                TimeUnit.MILLISECONDS.sleep(samplingIntervalMillis);
+            }
+
+            flushDropped(writer);
+            if (!driverAlive) {
+                writer.write(LogLevel.ERROR, "Streaming driver " + applicationId + " exited");
+                markInstanceFailed(instanceCode);
+            } else if (jobFailed) {
+                markInstanceFailed(instanceCode);
+            } else if (jobFinished) {
+                markInstanceFinished(instanceCode);
+            }
+            terminated = true;
+        } catch (Exception e) {
+            LOG.error("streaming instance {} log failure: {}", instanceCode, ExceptionUtils.getStackTrace(e));
+        } finally {
+            if (terminated) {
+                if (!driverAlive) {
+                    driverService.deleteJobServerByAppId(applicationId);
+                } else if (SchedulerType.YARN == logTaskDto.getSchedulerType()) {
+                    yarnClientService.closeJobServer(logTaskDto.getClusterCode(), applicationId, logTaskDto.isShareDriver());
+                } else if (SchedulerType.Kubernetes == logTaskDto.getSchedulerType()) {
+                    kubernetesClientService.closeJobServer(logTaskDto.getClusterCode(), applicationId, logTaskDto.isShareDriver());
+                }
+                flinkLogService.removeLogThread(instanceCode);
+            } else {
+                // 非预期异常(数据库、日志文件、中断)不关闭 driver，先移除日志线程再释放 log server，
+                // 由 FlinkLogService 重新创建日志线程
+                flinkLogService.removeLogThread(instanceCode);
+                driverService.releaseLogServer(applicationId);
+            }
+        }
+    }
+
+    private void appendLog(RollingLogFileWriter writer, LogRecord log) throws Exception {
+        String msg = logMessageSanitizer.sanitize(log.getMessage());
+        if (msg == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - windowStartTime >= BUDGET_WINDOW_MILLIS) {
+            flushDropped(writer);
+            windowStartTime = now;
+            windowBytes = 0;
+        }
+
+        int bytes = msg.getBytes(StandardCharsets.UTF_8).length;
+        if (windowBytes + bytes > maxBytesPerMinute) {
+            droppedCount++;
+            droppedBytes += bytes;
+            return;
+        }
+
+        windowBytes += bytes;
+        writer.write(log.getLevel() == null ? LogLevel.INFO : log.getLevel(), msg);
+    }
+
+    private void flushDropped(RollingLogFileWriter writer) throws Exception {
+        if (droppedCount > 0) {
+            writer.write(LogLevel.WARN, "log rate limit " + maxBytesPerMinute + " bytes/min exceeded, dropped "
+                    + droppedCount + " messages (" + droppedBytes + " bytes)");
+            droppedCount = 0;
+            droppedBytes = 0;
+        }
+    }
+
+    private boolean isDriverAlive(String flinkDriverUrl, String applicationId) {
+        if (driverClient.isDriverAlive(flinkDriverUrl)) {
+            return true;
+        }
+
+        if (SchedulerType.YARN == logTaskDto.getSchedulerType()) {
+            YarnApplicationState state = yarnClientService.getApplicationStatus(logTaskDto.getClusterCode(), applicationId);
+            return YarnApplicationState.RUNNING == state || YarnApplicationState.ACCEPTED == state;
+        }
+        return false;
+    }
+
+    private void markInstanceFailed(String instanceCode) {
+        if (instanceService.failRunningInstance(instanceCode)) {
+            LOG.warn("streaming instance {} driver exited or job failed, status updated to FAILED", instanceCode);
+        } else {
+            LOG.info("streaming instance {} is no longer running, status not updated", instanceCode);
+        }
+    }
+
+    private void markInstanceFinished(String instanceCode) {
+        if (instanceService.finishRunningInstance(instanceCode)) {
+            LOG.info("streaming instance {} job finished, status updated to FINISHED", instanceCode);
+        } else {
+            LOG.info("streaming instance {} is no longer running, status not updated", instanceCode);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import io.github.melin.flink.jobserver.core.enums.JobType;
 import io.github.melin.flink.jobserver.core.enums.RuntimeMode;
 import io.github.melin.flink.jobserver.core.service.JobInstanceService;
 import io.github.melin.flink.jobserver.core.util.LogRecord;
+import io.github.melin.flink.jobserver.logs.filter.LogMessageSanitizer;
 import io.github.melin.flink.jobserver.support.DriverClientService;
 import io.github.melin.flink.jobserver.support.YarnClientService;
 import io.github.melin.flink.jobserver.util.DateUtils;
@@ -36,6 +37,8 @@ public class FlinkTaskLogThread extends Thread {
 
     private final DriverClientService driverClient;
 
+    private final LogMessageSanitizer logMessageSanitizer;
+
     private final LogTaskDto logTaskDto;
 
     private final String instanceLogPath;
@@ -47,6 +50,7 @@ public class FlinkTaskLogThread extends Thread {
         this.yarnClientService = applicationContext.getBean(YarnClientService.class);
         this.flinkLogService = applicationContext.getBean(FlinkLogService.class);
         this.driverClient = applicationContext.getBean(DriverClientService.class);
+        this.logMessageSanitizer = applicationContext.getBean(LogMessageSanitizer.class);
         ConfigProperties configProperties = applicationContext.getBean(ConfigProperties.class);
         this.logTaskDto = logTaskDto;
         this.instanceLogPath = configProperties.getInstanceLogPath();
@@ -89,7 +93,7 @@ public class FlinkTaskLogThread extends Thread {
                             break OUT;
                         } else {
                             msgCount++;
-                            String msg = log.getMessage().replaceAll("\\<.*?>", ""); // 去掉html标签
+                            String msg = logMessageSanitizer.sanitize(log.getMessage()); // 去掉html标签、脱敏
                             if (log.getLevel() == LogLevel.WARN) {
                                 LOGGER.warn(msg);
                             } else if (log.getLevel() == LogLevel.ERROR) {
@@ -106,10 +110,9 @@ public class FlinkTaskLogThread extends Thread {
                     if (!isRun) {
                         LOGGER.info("{} spark job not running {}", instanceCode, flinkDriverUrl);
                         if (checkInstanceStatusCount >= 2) {
+                            // 流任务由 FlinkStreamingLogThread 处理
                             if (RuntimeMode.BATCH == runtimeMode) {
                                 checkInstanceStatus(instanceCode, applicationId);
-                            } else {
-                                //@TODO 支持流任务
                             }
                             break;
                         } else {
@@ -142,8 +145,6 @@ public class FlinkTaskLogThread extends Thread {
 
                 if (RuntimeMode.BATCH == runtimeMode) {
                     updateInstanceStatus(logTaskDto, instanceType, message);
-                } else {
-                    //@TODO 支持流任务
                 }
             }
         } catch (Exception e) {
@@ -174,9 +175,7 @@ public class FlinkTaskLogThread extends Thread {
             if (retryCount >= 1) {
                 instanceService.updateJobStatusByCode(instanceCode, FAILED);
             } else {
-                instance.setStatus(WAITING);
-                instance.setRetryCount(retryCount + 1);
-                instanceService.updateEntity(instance);
+                instanceService.retryInstance(instanceCode);
                 LOGGER.error("retry task {}", instanceCode);
             }
         }
@@ -190,8 +189,7 @@ public class FlinkTaskLogThread extends Thread {
         if (jobInstance.getStatus() == RUNNING) { //运行状态
             YarnApplicationState state = yarnClientService.getApplicationStatus(jobInstance.getClusterCode(), appId);
             if (YarnApplicationState.RUNNING != state && YarnApplicationState.ACCEPTED != state) {
-                jobInstance.setStatus(FAILED); //失败状态
-                instanceService.updateEntity(jobInstance);
+                instanceService.failRunningInstance(instanceCode); //失败状态
             }
         }
     }
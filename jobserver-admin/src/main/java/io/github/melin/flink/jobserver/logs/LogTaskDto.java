@@ -3,6 +3,7 @@ package io.github.melin.flink.jobserver.logs;
 import io.github.melin.flink.jobserver.core.enums.InstanceType;
 import io.github.melin.flink.jobserver.core.enums.JobType;
 import io.github.melin.flink.jobserver.core.enums.RuntimeMode;
+import io.github.melin.flink.jobserver.core.enums.SchedulerType;
 import lombok.Builder;
 import lombok.Data;
 
@@ -26,6 +27,8 @@ public class LogTaskDto {
 
     private RuntimeMode runtimeMode;
 
+    private SchedulerType schedulerType;
+
     private InstanceType instanceType;
 
     private String owner;
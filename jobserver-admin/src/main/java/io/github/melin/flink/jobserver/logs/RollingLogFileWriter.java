@@ -0,0 +1,96 @@
+package io.github.melin.flink.jobserver.logs;
+
+import io.github.melin.flink.jobserver.api.LogLevel;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 流任务实例日志文件，超过 maxBytes 后滚动为 instanceCode.log.1 ... instanceCode.log.N，
+ * 当前日志始终写入 instanceCode.log，日志查询、下载和归档按时间顺序拼接滚动日志。输出格式与 log4j2 实例日志一致。
+ */
+public class RollingLogFileWriter implements Closeable {
+
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final Path path;
+
+    private final long maxBytes;
+
+    private final int maxFiles;
+
+    private OutputStream outputStream;
+
+    private long currentBytes;
+
+    public RollingLogFileWriter(String logFile, long maxBytes, int maxFiles) throws IOException {
+        this.path = Paths.get(logFile);
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+
+        Files.createDirectories(path.getParent());
+        open();
+    }
+
+    public void write(LogLevel level, String message) throws IOException {
+        String levelName = LogLevel.STDOUT == level ? LogLevel.INFO.name() : level.name();
+        String line = "[" + TIME_FORMATTER.format(Instant.now()) + "] [" + levelName + "] - " + message + "\n";
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+        if (currentBytes > 0 && currentBytes + bytes.length > maxBytes) {
+            roll();
+        }
+
+        outputStream.write(bytes);
+        currentBytes += bytes.length;
+    }
+
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (outputStream != null) {
+            outputStream.close();
+            outputStream = null;
+        }
+    }
+
+    private void open() throws IOException {
+        outputStream = new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        currentBytes = Files.size(path);
+    }
+
+    private void roll() throws IOException {
+        close();
+
+        Files.deleteIfExists(rolledPath(maxFiles));
+        for (int index = maxFiles - 1; index >= 1; index--) {
+            Path source = rolledPath(index);
+            if (Files.exists(source)) {
+                Files.move(source, rolledPath(index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rolledPath(1), StandardCopyOption.REPLACE_EXISTING);
+
+        open();
+    }
+
+    private Path rolledPath(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.melin.flink.jobserver.logs.filter;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 去掉 driver 日志中的 html 标签，与 replaceAll("\\<.*?>", "") 语义一致：
+ * 删除 '<' 到同一行内最近 '>' 之间的内容。单次扫描，不含 '<' 的消息直接返回。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class HtmlTagLogFilter implements LogMessageFilter {
+
+    @Override
+    public String filter(String message) {
+        int start = message.indexOf('<');
+        if (start < 0) {
+            return message;
+        }
+
+        final int len = message.length();
+        StringBuilder sb = null;
+        int copyFrom = 0;
+        int i = start;
+        while (i < len) {
+            if (message.charAt(i) != '<') {
+                i++;
+                continue;
+            }
+
+            int end = findTagEnd(message, i + 1, len);
+            if (end < 0) {
+                i++;
+                continue;
+            }
+
+            if (sb == null) {
+                sb = new StringBuilder(len);
+            }
+            sb.append(message, copyFrom, i);
+            copyFrom = end + 1;
+            i = copyFrom;
+        }
+
+        if (sb == null) {
+            return message;
+        }
+        sb.append(message, copyFrom, len);
+        return sb.toString();
+    }
+
+    /**
+     * 查找同一行内的 '>'，'.' 不匹配换行符
+     */
+    private static int findTagEnd(String message, int from, int len) {
+        for (int j = from; j < len; j++) {
+            char ch = message.charAt(j);
+            if (ch == '>') {
+                return j;
+            } else if (ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
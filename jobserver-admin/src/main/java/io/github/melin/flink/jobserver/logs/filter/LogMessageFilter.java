@@ -0,0 +1,14 @@
+package io.github.melin.flink.jobserver.logs.filter;
+
+/**
+ * 实例日志消息过滤器，写入实例日志文件前依次执行。
+ * 消息无需处理时直接返回原字符串，避免额外分配。
+ */
+public interface LogMessageFilter {
+
+    /**
+     * @param message 日志消息，不为 null
+     * @return 处理后的消息
+     */
+    String filter(String message);
+}
@@ -0,0 +1,28 @@
+package io.github.melin.flink.jobserver.logs.filter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按 @Order 顺序执行所有 LogMessageFilter，新增过滤器只需注册为 Spring Bean
+ */
+@Component
+public class LogMessageSanitizer {
+
+    @Autowired(required = false)
+    private List<LogMessageFilter> filters = Collections.emptyList();
+
+    public String sanitize(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+
+        for (LogMessageFilter filter : filters) {
+            message = filter.filter(message);
+        }
+        return message;
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.melin.flink.jobserver.logs.filter;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 脱敏日志中 key=value、key: value 形式的敏感参数，关键字通过 jobserver.log-redact-keywords 配置，
+ * 未配置时不做处理。正则在启动时编译一次。
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class SecretRedactLogFilter implements LogMessageFilter, InitializingBean {
+
+    private static final String MASK = "******";
+
+    @Autowired
+    private ConfigProperties configProperties;
+
+    private Pattern pattern;
+
+    @Override
+    public void afterPropertiesSet() {
+        String[] keywords = configProperties.getLogRedactKeywords();
+        if (keywords == null || keywords.length == 0) {
+            return;
+        }
+
+        String words = Arrays.stream(keywords)
+                .filter(StringUtils::isNotBlank)
+                .map(keyword -> Pattern.quote(keyword.trim()))
+                .collect(Collectors.joining("|"));
+        if (StringUtils.isNotBlank(words)) {
+            pattern = Pattern.compile("((?:" + words + ")\\s*[=:]\\s*)(\"[^\"]*\"|'[^']*'|[^\\s,;&]+)",
+                    Pattern.CASE_INSENSITIVE);
+        }
+    }
+
+    @Override
+    public String filter(String message) {
+        if (pattern == null || (message.indexOf('=') < 0 && message.indexOf(':') < 0)) {
+            return message;
+        }
+
+        Matcher matcher = pattern.matcher(message);
+        if (!matcher.find()) {
+            return message;
+        }
+
+        StringBuilder sb = new StringBuilder(message.length());
+        int last = 0;
+        do {
+            sb.append(message, last, matcher.end(1)).append(MASK);
+            last = matcher.end();
+        } while (matcher.find());
+        sb.append(message, last, message.length());
+        return sb.toString();
+    }
+}
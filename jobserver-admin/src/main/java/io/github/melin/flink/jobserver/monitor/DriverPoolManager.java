@@ -1,15 +1,16 @@
 package io.github.melin.flink.jobserver.monitor;
 
 import com.gitee.melin.bee.util.ThreadUtils;
+import io.github.melin.flink.jobserver.core.dto.DriverMemoryStats;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
 import io.github.melin.flink.jobserver.core.enums.RuntimeMode;
 import io.github.melin.flink.jobserver.core.enums.SchedulerType;
-import io.github.melin.flink.jobserver.core.service.ClusterService;
-import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.service.MonitoringDbService;
 import io.github.melin.flink.jobserver.submit.deployer.KubernetesApplicationDriverDeployer;
 import io.github.melin.flink.jobserver.submit.deployer.YarnApplicationDriverDeployer;
 import io.github.melin.flink.jobserver.support.ClusterConfig;
+import io.github.melin.flink.jobserver.support.DriverHealthService;
 import io.github.melin.flink.jobserver.support.YarnClientService;
 import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
 import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
@@ -39,16 +40,16 @@ public class DriverPoolManager implements InitializingBean {
     private RedisLeaderElection redisLeaderElection;
 
     @Autowired
-    private ApplicationDriverService driverService;
+    private MonitoringDbService monitoringDbService;
 
     @Autowired
     private YarnClientService yarnClientService;
 
     @Autowired
-    private ClusterService clusterService;
+    private ClusterConfig clusterConfig;
 
     @Autowired
-    private ClusterConfig clusterConfig;
+    private DriverHealthService driverHealthService;
 
     @Autowired
     private YarnApplicationDriverDeployer yarnApplicationDriverDeployer;
@@ -66,11 +67,12 @@ public class DriverPoolManager implements InitializingBean {
         scheduledExecutorService.scheduleAtFixedRate(() -> {
             try {
                 if (redisLeaderElection.checkLeader(LeaderTypeEnum.DRIVER_POOL_MANAGER)) {
-                    List<Cluster> clusters = clusterService.findByNamedParam("status", true);
+                    List<Cluster> clusters = monitoringDbService.queryValidClusters();
                     for (Cluster cluster : clusters) {
                         LOG.debug("monitor driver pool: {}", cluster.getCode());
 
                         stopMaxIdleJobserver(cluster);
+                        recycleUnhealthyDrivers(cluster);
                         startMinJobServer(cluster);
                     }
                 }
@@ -87,7 +89,7 @@ public class DriverPoolManager implements InitializingBean {
     private void stopMaxIdleJobserver(Cluster cluster) {
         try {
             String clusterCode = cluster.getCode();
-            List<ApplicationDriver> allIdleDrivers = driverService.queryAllIdleDrivers(clusterCode);
+            List<ApplicationDriver> allIdleDrivers = monitoringDbService.queryAllIdleDrivers(clusterCode);
             int driverMinCount = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MIN_COUNT);
             int driverMaxCount = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MAX_COUNT);
             int removed = allIdleDrivers.size() - driverMaxCount;
@@ -111,7 +113,7 @@ public class DriverPoolManager implements InitializingBean {
             for (ApplicationDriver driver : allIdleDrivers) {
                 if (driver.getInstanceCount() >= maxInstanceCount) {
                     String appId = driver.getApplicationId();
-                    driverService.deleteJobServerByAppId(appId);
+                    monitoringDbService.deleteDriverByAppId(appId);
                     yarnClientService.killApplication(clusterCode, appId);
                     LOG.info("driver {} 运行次数超过最大次数: {}", appId, maxInstanceCount);
                 }
@@ -121,21 +123,49 @@ public class DriverPoolManager implements InitializingBean {
         }
     }
 
+    /**
+     * 回收内存压力大的空闲 driver：先锁定 driver 不再分配作业，再删除并终止，由 startMinJobServer 补充新的 driver
+     */
+    private void recycleUnhealthyDrivers(Cluster cluster) {
+        try {
+            String clusterCode = cluster.getCode();
+            List<ApplicationDriver> allIdleDrivers = monitoringDbService.queryAllIdleDrivers(clusterCode);
+            for (ApplicationDriver driver : allIdleDrivers) {
+                // 只使用缓存的统计，过期的统计在后台刷新，下一个周期生效
+                DriverMemoryStats stats = driverHealthService.getMemoryStats(driver);
+                String reason = driverHealthService.checkUnhealthy(clusterCode, stats);
+                if (reason == null) {
+                    continue;
+                }
+
+                String appId = driver.getApplicationId();
+                if (!monitoringDbService.lockAndDeleteIdleDriver(appId, driver.getVersion())) {
+                    continue; // 已经分配给作业
+                }
+                yarnClientService.killApplication(clusterCode, appId);
+                driverHealthService.invalidate(appId);
+                LOG.info("driver {} 内存压力过大，将被终止: {}", appId, reason);
+            }
+        } catch (Throwable e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
     /**
      * 预启动 jobserver
      */
     private void startMinJobServer(Cluster cluster) {
         try {
-            int minDriverCount = clusterConfig.getInt(cluster.getCode(), JOBSERVER_DRIVER_MIN_COUNT);
-            long driverCount = driverService.queryApplcationDriverCount(cluster.getCode());
+            String clusterCode = cluster.getCode();
+            int minDriverCount = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MIN_COUNT);
+            long driverCount = monitoringDbService.queryDriverCount(clusterCode);
             while (minDriverCount > driverCount) {
                 if (SchedulerType.YARN == cluster.getSchedulerType()) {
                     yarnApplicationDriverDeployer.buildJobServer(cluster, RuntimeMode.BATCH);
-                    driverCount = driverService.queryApplcationDriverCount(cluster.getCode());
                 } else {
                     kubernetesApplicationDriverDeployer.buildJobServer(cluster, RuntimeMode.BATCH);
-                    driverCount = driverService.queryApplcationDriverCount(cluster.getCode());
                 }
+                driverCount = monitoringDbService.queryDriverCount(clusterCode);
             }
         } catch (Throwable e) {
             LOG.error(e.getMessage());
@@ -2,8 +2,7 @@ package io.github.melin.flink.jobserver.monitor.task;
 
 import io.github.melin.flink.jobserver.FlinkJobServerConf;
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
-import io.github.melin.flink.jobserver.core.service.JobInstanceService;
-import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.service.MonitoringDbService;
 import io.github.melin.flink.jobserver.support.ClusterConfig;
 import io.github.melin.flink.jobserver.support.ClusterManager;
 import io.github.melin.flink.jobserver.support.YarnClientService;
@@ -16,13 +15,10 @@ import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 import org.apache.hadoop.yarn.util.ConverterUtils;
-import org.hibernate.criterion.Criterion;
-import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -32,7 +28,6 @@ import java.util.List;
 import java.util.Map;
 
 import static io.github.melin.flink.jobserver.core.enums.DriverStatus.*;
-import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.FAILED;
 
 /**
  * huaixin 2022/3/19 3:52 PM
@@ -49,20 +44,14 @@ public class CheckFlinkDriverTask implements Runnable {
     private YarnClientService yarnClientService;
 
     @Autowired
-    private ApplicationDriverService driverService;
+    private MonitoringDbService monitoringDbService;
 
     @Autowired
     private ClusterManager clusterManager;
 
-    @Autowired
-    private JobInstanceService instanceService;
-
     @Autowired
     private ClusterConfig clusterConfig;
 
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
-
     @Value("${spring.profiles.active}")
     protected String profiles;
 
@@ -89,7 +78,7 @@ public class CheckFlinkDriverTask implements Runnable {
 
                                 if ((System.currentTimeMillis() - createTime) > (10 * 60 * 1000)) {
                                     boolean deleteYarnApp = false;
-                                    ApplicationDriver driver = driverService.queryDriverByAppId(appId);
+                                    ApplicationDriver driver = monitoringDbService.queryDriverByAppId(appId);
 
                                     if (driver == null) {
                                         deleteYarnApp = true;
@@ -120,13 +109,12 @@ public class CheckFlinkDriverTask implements Runnable {
 
         // 清理僵死 driver 记录
         try {
-            Criterion statusCriterion = Restrictions.in("status", INIT, LOCKED);
-            List<ApplicationDriver> drivers = driverService.findByCriterions(statusCriterion);
+            List<ApplicationDriver> drivers = monitoringDbService.findDriversByStatus(INIT, LOCKED);
 
             final Instant instant = Instant.now().minus(15, ChronoUnit.MINUTES);
             for (ApplicationDriver driver : drivers) {
                 if (driver.getGmtModified().isBefore(instant)) {
-                    driverService.deleteEntity(driver);
+                    monitoringDbService.deleteDriver(driver);
                     String applicationId = driver.getApplicationId();
                     if (StringUtils.isNotBlank(applicationId)) {
                         LOG.warn("[DriverCheck] delete driver: {}, status: {}, gmtModified: {}",
@@ -140,7 +128,7 @@ public class CheckFlinkDriverTask implements Runnable {
 
         // 清理driver 记录存在，但applicationId 已经 终止 或 完成
         try {
-            List<ApplicationDriver> drivers = driverService.findAllEntity();
+            List<ApplicationDriver> drivers = monitoringDbService.findAllDrivers();
             for (ApplicationDriver driver : drivers) {
                 String applicationId = driver.getApplicationId();
                 if (StringUtils.isNotBlank(applicationId)) {
@@ -149,7 +137,7 @@ public class CheckFlinkDriverTask implements Runnable {
                             || YarnApplicationState.KILLED == state) {
                         LOG.warn("[DriverCheck] delete driver {} applicationId: {}, yarn status: {}",
                                 driver.getId(), applicationId, state.name());
-                        driverService.deleteEntity(driver);
+                        monitoringDbService.deleteDriver(driver);
                     }
                 }
             }
@@ -159,8 +147,7 @@ public class CheckFlinkDriverTask implements Runnable {
 
         // 修复 jobserver 完成状态，如果长期处于完成状态，关闭 driver
         try {
-            Criterion statusCrt = Restrictions.eq("status", FINISHED);
-            List<ApplicationDriver> drivers = driverService.findByCriterions(statusCrt);
+            List<ApplicationDriver> drivers = monitoringDbService.findDriversByStatus(FINISHED);
 
             final Instant instant = Instant.now().minus(3, ChronoUnit.MINUTES);
             for (ApplicationDriver driver : drivers) {
@@ -179,8 +166,7 @@ public class CheckFlinkDriverTask implements Runnable {
 
         // 非共享 driver，超过一定时间没有关闭，定期清理
         try {
-            List<ApplicationDriver> drivers = driverService.findByNamedParam(
-                    "status", IDLE, "shareDriver", false);
+            List<ApplicationDriver> drivers = monitoringDbService.findIdleDrivers(false);
 
             final Instant instant = Instant.now().minus(3, ChronoUnit.MINUTES);
             for (ApplicationDriver driver : drivers) {
@@ -202,9 +188,7 @@ public class CheckFlinkDriverTask implements Runnable {
                 // 关闭老版本jobserver
                 long minDriverId = clusterConfig.getLong(clusterCode, FlinkJobServerConf.JOBSERVER_DRIVER_MIN_PRIMARY_ID);
                 if (minDriverId > 0) {
-                    Criterion idCriterion = Restrictions.lt("id", minDriverId);
-                    List<ApplicationDriver> drivers = driverService.findByNamedParam("status", IDLE,
-                            "id", idCriterion, "clusterCode", clusterCode);
+                    List<ApplicationDriver> drivers = monitoringDbService.findOldIdleDrivers(clusterCode, minDriverId);
 
                     for (ApplicationDriver driver : drivers) {
                         String applicationId = driver.getApplicationId();
@@ -220,18 +204,13 @@ public class CheckFlinkDriverTask implements Runnable {
 
         //作业实例为运行 或 LOCKED 状态，jobserver 已经关闭，设置实例为失败状态
         try {
-            String sql = "select * from (SELECT a.code, b.application_id FROM (select id, code, application_id " +
-                    "from fjs_job_instance where instance_type<>'DEV' and status in ('RUNNING', 'LOCKED') and application_id is not null) a \n" +
-                    "left outer join fjs_application_driver b on a.application_id = b.application_id\n" +
-                    ") c where c.application_id is null";
-
-            List<Map<String, Object>> jobServers = jdbcTemplate.queryForList(sql);
+            List<Map<String, Object>> jobServers = monitoringDbService.findOrphanRunningInstances();
             for (Map<String, Object> map : jobServers) {
                 String code = (String) map.get("code");
                 String appId = (String) map.get("application_id");
 
                 LOG.warn("[DriverCheck]instance {} 为运行状态，jobserver {} 已经关闭", code, appId);
-                instanceService.updateJobStatusByCode(code, FAILED);
+                monitoringDbService.failInstance(code);
             }
         } catch (Throwable e) {
             LOG.info(e.getMessage(), e);
@@ -1,7 +1,6 @@
 package io.github.melin.flink.jobserver.monitor.task;
 
-import io.github.melin.flink.jobserver.core.entity.JobInstance;
-import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.service.MonitoringDbService;
 import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
 import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
 import org.slf4j.Logger;
@@ -11,9 +10,6 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.WAITING;
 
 /**
  * 作业提交超时，修复为等待提交状态
@@ -28,7 +24,7 @@ public class CheckJobSubmitTimoutTask implements Runnable {
     private RedisLeaderElection redisLeaderElection;
 
     @Autowired
-    private JobInstanceService instanceService;
+    private MonitoringDbService monitoringDbService;
 
     @Override
     public void run() {
@@ -38,13 +34,11 @@ public class CheckJobSubmitTimoutTask implements Runnable {
 
         try {
             int submitTimeOut = 60 * 10; // 60 秒
-            Instant dateTime = Instant.now();
-            dateTime = dateTime.minusSeconds(submitTimeOut);
-            List<JobInstance> instances = instanceService.findJobInstanceSubmitTimeOut(dateTime);
-            if (instances.size() > 0) {
-                String codes = instances.stream().map(JobInstance::getCode).collect(Collectors.joining(","));
-                LOG.info("[CheckJobSubmitTimout] start check Job: {}", codes);
-                instances.forEach(instance -> instanceService.updateJobStatusByCode(instance.getCode(), WAITING));
+            Instant timeoutTime = Instant.now().minusSeconds(submitTimeOut);
+            List<String> codes = monitoringDbService.findSubmitTimeoutInstanceCodes(timeoutTime);
+            if (codes.size() > 0) {
+                LOG.info("[CheckJobSubmitTimout] start check Job: {}", String.join(",", codes));
+                codes.forEach(monitoringDbService::resetSubmitTimeoutInstance);
             }
         } catch (Throwable e) {
             LOG.info(e.getMessage(), e);
@@ -1,7 +1,7 @@
 package io.github.melin.flink.jobserver.monitor.task;
 
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
-import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.service.MonitoringDbService;
 import io.github.melin.flink.jobserver.support.YarnClientService;
 import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
 import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
@@ -27,7 +27,7 @@ public class UpdateDriverResourceTask implements Runnable {
     private RedisLeaderElection redisLeaderElection;
 
     @Autowired
-    private ApplicationDriverService driverService;
+    private MonitoringDbService monitoringDbService;
 
     @Autowired
     private YarnClientService yarnClientService;
@@ -38,7 +38,7 @@ public class UpdateDriverResourceTask implements Runnable {
             return;
         }
 
-        List<ApplicationDriver> drivers = driverService.findAllEntity();
+        List<ApplicationDriver> drivers = monitoringDbService.findAllDrivers();
         drivers.forEach(driver -> {
             String applicationId = driver.getApplicationId();
             try {
@@ -50,7 +50,7 @@ public class UpdateDriverResourceTask implements Runnable {
                     if (resource != null) {
                         driver.setServerCores(resource.getVirtualCores());
                         driver.setServerMemory(resource.getMemorySize());
-                        driverService.updateEntity(driver);
+                        monitoringDbService.updateDriver(driver);
                     }
                 }
             } catch (Throwable e) {
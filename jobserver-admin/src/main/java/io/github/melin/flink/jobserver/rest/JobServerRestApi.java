@@ -1,8 +1,10 @@
 package io.github.melin.flink.jobserver.rest;
 
 import com.gitee.melin.bee.core.support.Result;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
 import io.github.melin.flink.jobserver.rest.dto.InstanceInfo;
 import io.github.melin.flink.jobserver.rest.dto.JobSubmitRequet;
+import io.github.melin.flink.jobserver.service.InstanceStatusFeed;
 import io.github.melin.flink.jobserver.service.JobServerServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,8 +15,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.List;
 
@@ -27,6 +32,9 @@ public class JobServerRestApi {
     @Autowired
     private JobServerServiceImpl jobServerService;
 
+    @Autowired
+    private InstanceStatusFeed instanceStatusFeed;
+
     @PostMapping("v1/jobserver/submitJobInstance")
     @Operation(summary = "提交作业实例")
     @ResponseBody
@@ -40,6 +48,20 @@ public class JobServerRestApi {
         }
     }
 
+    @PostMapping("v1/jobserver/batchSubmitJobInstance")
+    @Operation(summary = "批量提交作业实例")
+    @ResponseBody
+    public Result<List<String>> batchSubmitJobInstance(String accessKey, String accessSecret,
+                                                       @RequestBody List<JobSubmitRequet> requets) {
+        try {
+            List<String> instanceCodes = jobServerService.batchSubmitJobInstance(requets);
+            return Result.successDataResult(instanceCodes);
+        } catch (Throwable e) {
+            LOG.error(e.getMessage(), e);
+            return Result.failureResult(e.getMessage());
+        }
+    }
+
     @GetMapping("v1/jobserver/queryInstanceStatus")
     @Operation(summary = "查询作业实例状态")
     @ResponseBody
@@ -56,9 +78,11 @@ public class JobServerRestApi {
     @GetMapping("v1/jobserver/batchQueryInstanceStatus")
     @Operation(summary = "批量查询作业实例状态")
     @ResponseBody
-    public Result<List<InstanceInfo>> batchQueryInstanceStatus(String accessKey, String accessSecret, String[] instanceCode) {
+    public Result<List<InstanceInfo>> batchQueryInstanceStatus(
+            String accessKey, String accessSecret, String[] instanceCode,
+            @Parameter(description = "毫秒时间戳，只返回之后有变更的实例") Long since) {
         try {
-            List<InstanceInfo> infos = jobServerService.batchQueryInstanceStatus(instanceCode);
+            List<InstanceInfo> infos = jobServerService.batchQueryInstanceStatus(instanceCode, since);
             return Result.successDataResult(infos);
         } catch (Throwable e) {
             LOG.error(e.getMessage(), e);
@@ -66,6 +90,16 @@ public class JobServerRestApi {
         }
     }
 
+    @GetMapping("v1/jobserver/watchInstanceStatus")
+    @Operation(summary = "订阅作业实例状态(long-poll)，状态变化或者超时返回")
+    @ResponseBody
+    public DeferredResult<Result<InstanceInfo>> watchInstanceStatus(
+            String accessKey, String accessSecret, String instanceCode,
+            @Parameter(description = "客户端已知状态，与当前状态不同立即返回") InstanceStatus status,
+            @Parameter(description = "最长等待秒数，最大60秒") @RequestParam(defaultValue = "30") int timeout) {
+        return instanceStatusFeed.watch(instanceCode, status, timeout);
+    }
+
     @GetMapping("v1/jobserver/queryInstanceLog")
     @Operation(summary = "查询作业实例运行日志")
     @ResponseBody
@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.time.Instant;
+
 @Getter
 @Setter
 @ToString
@@ -19,4 +21,10 @@ public class InstanceInfo {
     private String applicationId;
 
     private String errorMsg;
+
+    private Instant startTime;
+
+    private Instant endTime;
+
+    private Instant gmtModified;
 }
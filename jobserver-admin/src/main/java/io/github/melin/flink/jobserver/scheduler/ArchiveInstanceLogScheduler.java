@@ -0,0 +1,153 @@
+package io.github.melin.flink.jobserver.scheduler;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
+import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
+import io.github.melin.flink.jobserver.util.JobServerUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 实例日志归档：超过 instanceLogArchiveDays 天的日志按天目录 gzip 压缩为 instanceCode.log.gz,
+ * 流任务滚动日志按时间顺序合并到同一个归档文件，查询和下载日志时透明解压。
+ * 默认不归档，配置 jobserver.instance-log-archive-days 开启
+ */
+@Service
+public class ArchiveInstanceLogScheduler implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArchiveInstanceLogScheduler.class);
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    @Autowired
+    private RedisLeaderElection redisLeaderElection;
+
+    @Autowired
+    private ConfigProperties configProperties;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        redisLeaderElection.buildLeader(LeaderTypeEnum.ARCHIVE_INSTANCE_LOG);
+    }
+
+    @Scheduled(cron = "0 30 1 ? * *") //每天凌晨01:30分
+    public void archiveInstanceLog() {
+        try {
+            if (!redisLeaderElection.checkLeader(LeaderTypeEnum.ARCHIVE_INSTANCE_LOG)) {
+                return;
+            }
+
+            int archiveDays = configProperties.getInstanceLogArchiveDays();
+            if (archiveDays < 1) {
+                return;
+            }
+
+            archiveInstanceLog(Paths.get(configProperties.getInstanceLogPath()), archiveDays);
+        } catch (Exception e) {
+            LOG.error("archive instance log failure", e);
+        }
+    }
+
+    /**
+     * @return 归档日志文件数
+     */
+    int archiveInstanceLog(Path logPath, int archiveDays) throws IOException {
+        if (!Files.isDirectory(logPath)) {
+            return 0;
+        }
+
+        LocalDate lastDay = LocalDate.now().minusDays(archiveDays);
+        Instant lastModified = Instant.now().minus(archiveDays, ChronoUnit.DAYS);
+        int count = 0;
+        long rawBytes = 0;
+        long archivedBytes = 0;
+        for (Path logDir : listPaths(logPath)) {
+            if (!Files.isDirectory(logDir) || !isExpireDir(logDir, lastDay)) {
+                continue;
+            }
+
+            for (Path logFile : listPaths(logDir)) {
+                String fileName = logFile.getFileName().toString();
+                if (!Files.isRegularFile(logFile) || fileName.endsWith(JobServerUtils.ARCHIVED_LOG_SUFFIX)) {
+                    continue;
+                }
+                if (fileName.endsWith(TMP_SUFFIX)) { // 上次归档中断残留
+                    Files.deleteIfExists(logFile);
+                    continue;
+                }
+                // 滚动日志和当前日志一起归档
+                if (JobServerUtils.isRolledLogFile(logFile.toFile())) {
+                    continue;
+                }
+                // 流任务持续写入调度日期目录下的日志，仍在写入的文件不归档
+                if (Files.getLastModifiedTime(logFile).toInstant().isAfter(lastModified)) {
+                    continue;
+                }
+
+                rawBytes += JobServerUtils.getLogFileLength(logFile.toFile());
+                archivedBytes += archiveLogFile(logFile);
+                count++;
+            }
+        }
+
+        LOG.info("archive instance log count: {}, raw bytes: {}, archived bytes: {}", count, rawBytes, archivedBytes);
+        return count;
+    }
+
+    private long archiveLogFile(Path logFile) throws IOException {
+        Path archivedFile = Paths.get(logFile + JobServerUtils.ARCHIVED_LOG_SUFFIX);
+        Path tmpFile = Paths.get(archivedFile + TMP_SUFFIX);
+        List<File> rolledFiles = JobServerUtils.getRolledLogFiles(logFile.toFile());
+        try (InputStream inputStream = JobServerUtils.openLogFile(logFile.toFile());
+             OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(tmpFile),
+                     JobServerUtils.LOG_BUFFER_SIZE)) {
+            byte[] buffer = new byte[JobServerUtils.LOG_BUFFER_SIZE];
+            int i;
+            while ((i = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, i);
+            }
+        }
+
+        Files.move(tmpFile, archivedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(logFile);
+        for (File rolledFile : rolledFiles) {
+            Files.deleteIfExists(rolledFile.toPath());
+        }
+        return Files.size(archivedFile);
+    }
+
+    private boolean isExpireDir(Path logDir, LocalDate lastDay) {
+        try {
+            return LocalDate.parse(logDir.getFileName().toString()).isBefore(lastDay);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private List<Path> listPaths(Path dir) throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.melin.flink.jobserver.scheduler;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.service.ReportingDbService;
+import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
+import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
+import io.github.melin.flink.jobserver.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实例冷热分离：超过 instanceArchiveDays 天的终态实例按 id 分批迁移到 fjs_job_instance_archive、
+ * fjs_job_instance_content_archive，每批一个事务。首次开启时也用于迁移存量数据
+ */
+@Service
+public class ArchiveJobInstanceScheduler implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArchiveJobInstanceScheduler.class);
+
+    private static final int MIN_ARCHIVE_DAYS = 8;
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private RedisLeaderElection redisLeaderElection;
+
+    @Autowired
+    private ReportingDbService reportingDbService;
+
+    @Autowired
+    private ConfigProperties configProperties;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        redisLeaderElection.buildLeader(LeaderTypeEnum.ARCHIVE_INSTANCE);
+    }
+
+    @Scheduled(cron = "0 0 2 ? * *") //每天凌晨02:00分
+    public void archiveInstance() {
+        try {
+            if (!redisLeaderElection.checkLeader(LeaderTypeEnum.ARCHIVE_INSTANCE)) {
+                return;
+            }
+
+            int archiveDays = configProperties.getInstanceArchiveDays();
+            if (archiveDays < 1) {
+                return;
+            }
+            if (archiveDays < MIN_ARCHIVE_DAYS) {
+                LOG.warn("instance archive days {} less than {}, use {}", archiveDays, MIN_ARCHIVE_DAYS, MIN_ARCHIVE_DAYS);
+                archiveDays = MIN_ARCHIVE_DAYS;
+            }
+
+            Instant before = Instant.now().minus(archiveDays, ChronoUnit.DAYS);
+            LOG.info("archive instance created before: {}", DateUtils.formatDateTime(before));
+
+            long start = System.currentTimeMillis();
+            int count = 0;
+            while (true) {
+                List<Long> ids = reportingDbService.findArchiveInstanceIds(before, BATCH_SIZE);
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                count += reportingDbService.archiveInstances(ids);
+                if (ids.size() < BATCH_SIZE || !redisLeaderElection.checkLeader(LeaderTypeEnum.ARCHIVE_INSTANCE)) {
+                    break;
+                }
+                TimeUnit.MILLISECONDS.sleep(100); // 批次间让出数据库
+            }
+
+            LOG.info("archive instance count: {}, times: {}ms", count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            LOG.error("archive instance failure", e);
+        }
+    }
+}
@@ -1,18 +1,10 @@
 package io.github.melin.flink.jobserver.scheduler;
 
-import com.google.common.collect.Sets;
 import io.github.melin.flink.jobserver.ConfigProperties;
-import io.github.melin.flink.jobserver.core.entity.JobInstance;
-import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
-import io.github.melin.flink.jobserver.core.service.JobInstanceContentService;
-import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.service.ReportingDbService;
 import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
 import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
 import io.github.melin.flink.jobserver.util.DateUtils;
-import io.github.melin.flink.jobserver.util.JobServerUtils;
-import org.hibernate.criterion.Criterion;
-import org.hibernate.criterion.Projections;
-import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -20,31 +12,46 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * 清理过期实例
+ * 清理过期实例：按 id 分批 set-based 删除实例、实例内容和依赖，每批一个事务，批次之间限流；
+ * 日志按 yyyy-MM-dd 目录整体删除。删除都是幂等的，中断后下次执行从剩余数据继续
  */
 @Service
 public class CleanExpireInstanceScheduler implements InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(CleanExpireInstanceScheduler.class);
 
-    @Autowired
-    private RedisLeaderElection redisLeaderElection;
+    private static final int BATCH_SIZE = 1000;
+
+    private static final long BATCH_INTERVAL_MS = 200;
+
+    private static final int FILE_BATCH_SIZE = 500;
+
+    private static final long FILE_BATCH_INTERVAL_MS = 50;
 
     @Autowired
-    private JobInstanceService instanceService;
+    private RedisLeaderElection redisLeaderElection;
 
     @Autowired
-    private JobInstanceContentService instanceContentService;
+    private ReportingDbService reportingDbService;
 
     @Autowired
     private ConfigProperties configProperties;
@@ -61,50 +68,128 @@ public class CleanExpireInstanceScheduler implements InitializingBean {
                 return;
             }
 
-            String logPath = configProperties.getInstanceLogPath();
-            List<Long> list = queryExpireInstances();
-            Set<String> scheduleDates = Sets.newHashSet();
-            for (Long instanceId : list) {
-                JobInstance instance = instanceService.getEntity(instanceId);
-                if (instance != null) {
-                    instanceService.deleteEntity(instance);
-
-                    JobInstanceContent instanceContent = instanceContentService.queryJobInstanceContentByCode(instance.getCode());
-                    if (instanceContent != null) {
-                        instanceContentService.deleteEntity(instanceContent);
-                    }
-
-                    String scheduleDate = JobServerUtils.deleteLogFile(logPath, instance);
-                    scheduleDates.add(scheduleDate);
-                }
+            int maxDays = configProperties.getMaxInstanceDays();
+            if (maxDays <= 0) {
+                return;
             }
 
-            for (String scheduleDate : scheduleDates) {
-                String logDir = logPath + "/" + scheduleDate;
-                Path path = Paths.get(logDir);
-                if (JobServerUtils.isEmptyDir(path)) {
-                    Files.delete(path);
-                    LOG.info("delete empty log dir: {}", logDir);
-                }
-            }
+            Instant lastDay = Instant.now().minus(maxDays, ChronoUnit.DAYS);
+            LOG.info("max instance day: {}, expire time: {}", maxDays, DateUtils.formatDateTime(lastDay));
 
-            LOG.info("clean expire instance count: {}", list.size());
+            long start = System.currentTimeMillis();
+            int[] instanceRows = purge(() -> reportingDbService.findExpireInstanceIds(lastDay, BATCH_SIZE),
+                    reportingDbService::purgeInstances);
+            int[] archivedRows = purge(() -> reportingDbService.findArchivedExpireInstanceIds(lastDay, BATCH_SIZE),
+                    reportingDbService::purgeArchivedInstances);
+            int textCount = purgeJobTexts();
+
+            // 调度日期早于过期日期的目录，目录下实例全部过期
+            long[] logStats = cleanLogDirs(LocalDate.now().minusDays(maxDays));
+
+            LOG.info("clean expire instance count: {}, archived instance count: {}, deleted rows: {}, " +
+                            "job texts: {}, log dirs: {}, log files: {}, log bytes: {}, times: {}ms",
+                    instanceRows[0], archivedRows[0], instanceRows[1] + archivedRows[1], textCount,
+                    logStats[0], logStats[1], logStats[2], System.currentTimeMillis() - start);
         } catch (Exception e) {
             LOG.error("clean job log failure", e);
         }
     }
 
-    private List<Long> queryExpireInstances() {
-        int maxDays = configProperties.getMaxInstanceDays();
-        LOG.info("max instance day: {}", maxDays);
-        if (maxDays > 0) {
-            Instant lastDay = Instant.now().minus(maxDays, ChronoUnit.DAYS);
-            LOG.info("max instance day: {}, expire time: {}", maxDays, DateUtils.formatDateTime(lastDay));
+    /**
+     * @return 实例数量、删除总行数
+     */
+    private int[] purge(Supplier<List<Long>> findIds, Function<List<Long>, Integer> purgeIds)
+            throws InterruptedException {
+        int count = 0;
+        int rows = 0;
+        while (true) {
+            List<Long> ids = findIds.get();
+            if (ids.isEmpty()) {
+                break;
+            }
 
-            Criterion beforeScheduleTimeCrt = Restrictions.lt("scheduleTime", lastDay);
-            return instanceService.findByCriterion(Projections.property("id"), beforeScheduleTimeCrt);
-        } else {
-            return Collections.emptyList();
+            rows += purgeIds.apply(ids);
+            count += ids.size();
+            if (ids.size() < BATCH_SIZE || !redisLeaderElection.checkLeader(LeaderTypeEnum.CLEAN_EXPIRE_INSTANCE)) {
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(BATCH_INTERVAL_MS);
+        }
+        return new int[]{count, rows};
+    }
+
+    /**
+     * 删除没有实例引用的作业内容
+     */
+    private int purgeJobTexts() throws InterruptedException {
+        int count = 0;
+        while (true) {
+            int rows = reportingDbService.deleteUnreferencedJobTexts(BATCH_SIZE);
+            count += rows;
+            if (rows < BATCH_SIZE) {
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(BATCH_INTERVAL_MS);
+        }
+        return count;
+    }
+
+    /**
+     * @return 删除目录数、文件数、字节数
+     */
+    private long[] cleanLogDirs(LocalDate lastDay) throws IOException {
+        long[] stats = new long[3];
+        Path logPath = Paths.get(configProperties.getInstanceLogPath());
+        if (!Files.isDirectory(logPath)) {
+            return stats;
+        }
+
+        List<Path> logDirs;
+        try (Stream<Path> entries = Files.list(logPath)) {
+            logDirs = entries.filter(Files::isDirectory)
+                    .filter(dir -> isExpireDir(dir, lastDay))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        for (Path logDir : logDirs) {
+            Files.walkFileTree(logDir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.deleteIfExists(file);
+                    stats[1]++;
+                    stats[2] += attrs.size();
+                    if (stats[1] % FILE_BATCH_SIZE == 0) {
+                        throttle();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            stats[0]++;
+            LOG.info("delete expire log dir: {}", logDir);
+        }
+        return stats;
+    }
+
+    private void throttle() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(FILE_BATCH_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isExpireDir(Path logDir, LocalDate lastDay) {
+        try {
+            return LocalDate.parse(logDir.getFileName().toString()).isBefore(lastDay);
+        } catch (DateTimeParseException e) {
+            return false;
         }
     }
 }
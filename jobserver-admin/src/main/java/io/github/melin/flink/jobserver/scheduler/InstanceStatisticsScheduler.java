@@ -0,0 +1,95 @@
+package io.github.melin.flink.jobserver.scheduler;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.core.entity.InstanceStatistics;
+import io.github.melin.flink.jobserver.service.ReportingDbService;
+import io.github.melin.flink.jobserver.support.leader.LeaderTypeEnum;
+import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校准实例统计：增量计数可能遗漏直接修改实例状态的场景，定时按实例表重新计算
+ */
+@Service
+public class InstanceStatisticsScheduler implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceStatisticsScheduler.class);
+
+    @Autowired
+    private RedisLeaderElection redisLeaderElection;
+
+    @Autowired
+    private ReportingDbService reportingDbService;
+
+    @Autowired
+    private ConfigProperties configProperties;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        redisLeaderElection.buildLeader(LeaderTypeEnum.INSTANCE_STATISTICS);
+    }
+
+    /**
+     * 最近两天实例状态变化频繁，每5分钟校准
+     */
+    @Scheduled(fixedDelay = 5 * 60 * 1000, initialDelay = 60 * 1000)
+    public void reconcileRecent() {
+        try {
+            if (!redisLeaderElection.checkLeader(LeaderTypeEnum.INSTANCE_STATISTICS)) {
+                return;
+            }
+
+            Instant since = Instant.now().minus(2, ChronoUnit.DAYS);
+            reconcile(since);
+        } catch (Exception e) {
+            LOG.error("reconcile instance statistics failure", e);
+        }
+    }
+
+    @Scheduled(cron = "0 10 0 ? * *") //每天凌晨00:10分
+    public void reconcileAll() {
+        try {
+            if (!redisLeaderElection.checkLeader(LeaderTypeEnum.INSTANCE_STATISTICS)) {
+                return;
+            }
+
+            int maxDays = configProperties.getMaxInstanceDays();
+            if (maxDays > 0) {
+                Instant lastDay = Instant.now().minus(maxDays, ChronoUnit.DAYS);
+                int count = reportingDbService.deleteStatisticsBefore(lastDay);
+                LOG.info("delete expire instance statistics count: {}", count);
+                reconcile(lastDay);
+            } else {
+                reconcile(Instant.EPOCH);
+            }
+        } catch (Exception e) {
+            LOG.error("reconcile instance statistics failure", e);
+        }
+    }
+
+    /**
+     * 先只读统计实例表，再按小时分别替换统计记录。读取实例表时不持有统计记录的锁，
+     * 每个小时一个小事务，不会和实例状态变更(先更新实例再更新统计)互相等待
+     */
+    private void reconcile(Instant startTime) {
+        long start = System.currentTimeMillis();
+        Map<Instant, List<InstanceStatistics>> hourStats = reportingDbService.computeStatistics(startTime);
+
+        int rows = 0;
+        for (Map.Entry<Instant, List<InstanceStatistics>> entry : hourStats.entrySet()) {
+            rows += reportingDbService.replaceStatistics(entry.getKey(), entry.getValue());
+        }
+        LOG.info("reconcile instance statistics since {}, hours: {}, rows: {}, times: {}ms",
+                startTime, hourStats.size(), rows, System.currentTimeMillis() - start);
+    }
+}
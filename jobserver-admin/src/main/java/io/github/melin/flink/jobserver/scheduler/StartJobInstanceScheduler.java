@@ -3,7 +3,7 @@ package io.github.melin.flink.jobserver.scheduler;
 import com.gitee.melin.bee.util.ThreadUtils;
 import io.github.melin.flink.jobserver.core.entity.JobInstance;
 import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
-import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.service.SchedulingDbService;
 import io.github.melin.flink.jobserver.submit.FlinkJobSubmitService;
 import io.github.melin.flink.jobserver.submit.dto.JobInstanceInfo;
 import io.github.melin.flink.jobserver.util.JobServerUtils;
@@ -35,7 +35,7 @@ public class StartJobInstanceScheduler {
     private static final int CPU_NUMS = 1; //Runtime.getRuntime().availableProcessors();
 
     @Autowired
-    private JobInstanceService jobInstanceService;
+    private SchedulingDbService schedulingDbService;
 
     @Autowired
     private FlinkJobSubmitService flinkJobSubmitService;
@@ -44,7 +44,7 @@ public class StartJobInstanceScheduler {
 
     @Scheduled(fixedDelay = 200) //200ms
     public void startJobExecute() {
-        List<Long> jobInstIds = jobInstanceService.findScheduleInstances();
+        List<Long> jobInstIds = schedulingDbService.findScheduleInstances();
 
         if (jobInstIds.size() > 0) {
             List<List<Long>> groups = JobServerUtils.partition(jobInstIds, CPU_NUMS);
@@ -54,10 +54,10 @@ public class StartJobInstanceScheduler {
                     try {
                         startInstanceExecutor.execute(() -> {
                             try {
-                                JobInstance instance = jobInstanceService.getEntity(instanceId);
+                                JobInstance instance = schedulingDbService.getInstance(instanceId);
                                 boolean startInstance = checkInstanceStart(instance);
                                 if (startInstance) {
-                                    JobInstanceContent content = jobInstanceService.queryJobTextByCode(instance.getCode());
+                                    JobInstanceContent content = schedulingDbService.queryJobTextByCode(instance.getCode());
                                     JobInstanceInfo instanceInfo = createJobParams(instance, content.getJobText(), content.getJobConfig());
                                     flinkJobSubmitService.submitJob(instanceInfo);
                                 }
@@ -113,7 +113,7 @@ public class StartJobInstanceScheduler {
 
             //起始节点
             if (!ROOT_SCHEDULE_NODE.equals(instance.getDependentCode())) {
-                long notSuccessCount = jobInstanceService.findParentInstanceNotSuccessCount(instance.getCode());
+                long notSuccessCount = schedulingDbService.findParentInstanceNotSuccessCount(instance.getCode());
                 // 上游节点没有全部运行成功，当前节点不能运行
                 return notSuccessCount <= 0;
             }
@@ -130,7 +130,7 @@ public class StartJobInstanceScheduler {
             if (interval.get(ChronoUnit.SECONDS) > 600) {
                 //增加重试次数
                 instance.setRetryCount(instance.getRetryCount() + 1);
-                jobInstanceService.insertEntity(instance);
+                schedulingDbService.saveInstance(instance);
                 return true;
             } else {
                 return false;
@@ -0,0 +1,110 @@
+package io.github.melin.flink.jobserver.service;
+
+import com.gitee.melin.bee.core.support.Result;
+import com.google.common.collect.Maps;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import io.github.melin.flink.jobserver.core.event.InstanceStatusEvent;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.rest.dto.InstanceInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 实例状态订阅(long-poll)：请求挂起直到实例状态变化或者超时，不占用 web 线程，
+ * 状态变化来自 JobInstanceService 事务提交后发布的 InstanceStatusEvent
+ */
+@Service
+public class InstanceStatusFeed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceStatusFeed.class);
+
+    public static final int MAX_TIMEOUT_SECONDS = 60;
+
+    @Autowired
+    private JobInstanceService instanceService;
+
+    private final ConcurrentMap<String, Set<DeferredResult<Result<InstanceInfo>>>> watchers = Maps.newConcurrentMap();
+
+    /**
+     * @param status 客户端已知状态，实例当前状态不同立即返回
+     * @param timeoutSeconds 最长等待时间，超时返回当前状态
+     */
+    public DeferredResult<Result<InstanceInfo>> watch(String instanceCode, InstanceStatus status, int timeoutSeconds) {
+        long timeout = Math.min(Math.max(timeoutSeconds, 1), MAX_TIMEOUT_SECONDS) * 1000L;
+        DeferredResult<Result<InstanceInfo>> deferredResult = new DeferredResult<>(timeout);
+        if (StringUtils.isBlank(instanceCode)) {
+            deferredResult.setResult(Result.failureResult("instanceCode can not blank"));
+            return deferredResult;
+        }
+
+        // 先注册再查询，避免查询和注册之间的状态变化丢失
+        watchers.computeIfAbsent(instanceCode, key -> new CopyOnWriteArraySet<>()).add(deferredResult);
+        deferredResult.onCompletion(() -> removeWatcher(instanceCode, deferredResult));
+        deferredResult.onTimeout(() -> deferredResult.setResult(queryCurrentStatus(instanceCode)));
+
+        Result<InstanceInfo> current = queryCurrentStatus(instanceCode);
+        if (!current.isSuccess() || current.getData().getStatus() != status) {
+            deferredResult.setResult(current);
+        }
+        return deferredResult;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(InstanceStatusEvent event) {
+        Set<DeferredResult<Result<InstanceInfo>>> results = watchers.remove(event.getInstanceCode());
+        if (results == null) {
+            return;
+        }
+
+        InstanceInfo info = new InstanceInfo();
+        info.setInstanceCode(event.getInstanceCode());
+        info.setStatus(event.getStatus());
+        if (StringUtils.isNotBlank(event.getApplicationId())) {
+            info.setApplicationId(event.getApplicationId());
+        }
+
+        Result<InstanceInfo> result = Result.successDataResult(info);
+        results.forEach(deferredResult -> deferredResult.setResult(result));
+        LOG.debug("notify instance {} status {}, watcher count: {}",
+                event.getInstanceCode(), event.getStatus(), results.size());
+    }
+
+    public int getWatcherCount() {
+        return watchers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private Result<InstanceInfo> queryCurrentStatus(String instanceCode) {
+        JobInstance instance = instanceService.queryInstanceWithArchive(instanceCode);
+        if (instance == null) {
+            return Result.failureResult("instanceCode " + instanceCode + " not exists");
+        }
+
+        InstanceInfo info = new InstanceInfo();
+        info.setInstanceCode(instanceCode);
+        info.setStatus(instance.getStatus());
+        if (StringUtils.isNotBlank(instance.getApplicationId())) {
+            info.setApplicationId(instance.getApplicationId());
+        }
+        info.setStartTime(instance.getStartTime());
+        info.setEndTime(instance.getEndTime());
+        info.setGmtModified(instance.getGmtModified());
+        return Result.successDataResult(info);
+    }
+
+    private void removeWatcher(String instanceCode, DeferredResult<Result<InstanceInfo>> deferredResult) {
+        watchers.computeIfPresent(instanceCode, (key, results) -> {
+            results.remove(deferredResult);
+            return results.isEmpty() ? null : results;
+        });
+    }
+}
@@ -3,6 +3,10 @@ package io.github.melin.flink.jobserver.service;
 import com.gitee.melin.bee.core.support.Result;
 import com.gitee.melin.bee.util.JsonUtils;
 import com.gitee.melin.bee.util.RestTemplateUtils;
+import com.gitee.melin.bee.core.enums.BaseStringEnum;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.github.melin.flink.jobserver.ConfigProperties;
 import io.github.melin.flink.jobserver.api.FlinkJobServerException;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
@@ -12,28 +16,39 @@ import io.github.melin.flink.jobserver.core.enums.DeployMode;
 import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
 import io.github.melin.flink.jobserver.core.service.ClusterService;
-import io.github.melin.flink.jobserver.core.service.JobInstanceContentService;
+import io.github.melin.flink.jobserver.core.service.InstanceStatisticsService;
 import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.core.service.JobTextService;
 import io.github.melin.flink.jobserver.util.DateUtils;
 import io.github.melin.flink.jobserver.util.JobServerUtils;
 import io.github.melin.flink.jobserver.util.RandomUniqueIdGenerator;
 import io.github.melin.flink.jobserver.rest.dto.InstanceInfo;
 import io.github.melin.flink.jobserver.rest.dto.JobSubmitRequet;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.File;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import static io.github.melin.flink.jobserver.util.Constant.ROOT_SCHEDULE_NODE;
 
@@ -46,11 +61,23 @@ public class JobServerServiceImpl implements InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(JobServerServiceImpl.class);
 
-    @Autowired
-    private JobInstanceService instanceService;
+    private static final int MAX_BATCH_SUBMIT_SIZE = 1000;
+
+    // 与 JobInstance 实体保存时写入的列一致，不能依赖表字段默认值(application_id 默认值不为空)
+    private static final String INSERT_INSTANCE_SQL = "insert into fjs_job_instance (workspace, code, name, " +
+            "cluster_code, deploy_mode, session_name, scheduler_type, yarn_queue, dependent_code, job_type, " +
+            "runtime_mode, instance_type, version, status, schedule_time, start_time, end_time, owner, runtimes, " +
+            "max_retry_count, retry_count, failure_count, application_id, client_name, gmt_created, gmt_modified, " +
+            "creater, modifier) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_CONTENT_SQL =
+            "insert into fjs_job_instance_content (code, text_hash, job_config) values (?, ?, ?)";
+
+    private static final String INSERT_DEPENDENT_SQL =
+            "insert into fjs_job_instance_dependent (code, parent_code) values (?, ?)";
 
     @Autowired
-    private JobInstanceContentService instanceContentService;
+    private JobInstanceService instanceService;
 
     @Autowired
     private ApplicationDriverService driverService;
@@ -61,6 +88,15 @@ public class JobServerServiceImpl implements InitializingBean {
     @Autowired
     private ClusterService clusterService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InstanceStatisticsService instanceStatisticsService;
+
+    @Autowired
+    private JobTextService jobTextService;
+
     private RestTemplate restTemplate;
 
     @Override
@@ -68,9 +104,123 @@ public class JobServerServiceImpl implements InitializingBean {
         restTemplate = new RestTemplate();
     }
 
+    @DbWorkload(WorkloadType.API)
     public String submitJobInstance(JobSubmitRequet request) {
         LOG.info("submit job: {}", JsonUtils.toJSONString(request));
 
+        Cluster cluster = validateRequest(request);
+        String instanceCode = StringUtils.isNotBlank(request.getInstanceCode()) ? request.getInstanceCode() :
+                RandomUniqueIdGenerator.getNewString(32);
+
+        JobInstance.Builder builder = buildJobInstance(request, instanceCode, cluster);
+        if (request.getDependentCodes() == null || request.getDependentCodes().length == 0) {
+            builder.setDependentCode(ROOT_SCHEDULE_NODE);
+            instanceService.insertJobInstance(builder.build());
+        } else {
+            instanceService.insertJobInstance(builder.build());
+            instanceService.saveInstanceDependent(instanceCode, request.getDependentCodes());
+        }
+
+        instanceService.saveJobText(instanceCode, request.getJobText(), request.getJobConfig());
+        return instanceCode;
+    }
+
+    /**
+     * 批量提交实例，先校验依赖关系(依赖实例在本批次或者已经存在，不能有环)，
+     * 实例、内容、依赖三张表分别 jdbc 批量写入，同一个事务
+     */
+    @DbWorkload(WorkloadType.API)
+    public List<String> batchSubmitJobInstance(List<JobSubmitRequet> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("requests can not empty");
+        }
+        if (requests.size() > MAX_BATCH_SUBMIT_SIZE) {
+            throw new IllegalArgumentException("batch submit size can not greater than " + MAX_BATCH_SUBMIT_SIZE);
+        }
+
+        Map<String, Cluster> clusters = Maps.newHashMap();
+        Map<String, JobSubmitRequet> requestMap = Maps.newLinkedHashMap();
+        for (JobSubmitRequet request : requests) {
+            if (!clusters.containsKey(request.getClusterCode())) {
+                clusters.put(request.getClusterCode(), validateRequest(request));
+            } else {
+                validateJobRequest(request);
+            }
+
+            if (StringUtils.isBlank(request.getInstanceCode())) {
+                request.setInstanceCode(RandomUniqueIdGenerator.getNewString(32));
+            }
+            if (requestMap.put(request.getInstanceCode(), request) != null) {
+                throw new IllegalArgumentException("duplicate instanceCode: " + request.getInstanceCode());
+            }
+        }
+
+        validateDependentGraph(requestMap);
+
+        Instant now = Instant.now();
+        List<Object[]> instanceArgs = Lists.newArrayListWithCapacity(requests.size());
+        List<Object[]> contentArgs = Lists.newArrayListWithCapacity(requests.size());
+        List<Object[]> dependentArgs = Lists.newArrayList();
+        for (JobSubmitRequet request : requestMap.values()) {
+            String instanceCode = request.getInstanceCode();
+            JobInstance instance = buildJobInstance(request, instanceCode, clusters.get(request.getClusterCode()))
+                    .setGmtCreated(now).build();
+            String[] dependentCodes = request.getDependentCodes();
+            if (dependentCodes == null || dependentCodes.length == 0) {
+                instance.setDependentCode(ROOT_SCHEDULE_NODE);
+            } else {
+                // 重复的依赖只保存一条
+                for (String dependentCode : Sets.newLinkedHashSet(Arrays.asList(dependentCodes))) {
+                    dependentArgs.add(new Object[]{instanceCode, dependentCode});
+                }
+            }
+
+            instanceArgs.add(new Object[]{instance.getWorkspace(), instance.getCode(), instance.getName(),
+                    instance.getClusterCode(), enumValue(instance.getDeployMode()), instance.getSessionName(),
+                    enumValue(instance.getSchedulerType()), instance.getYarnQueue(), instance.getDependentCode(),
+                    enumValue(instance.getJobType()), enumValue(instance.getRuntimeMode()),
+                    enumValue(instance.getInstanceType()), instance.getVersion(), enumValue(instance.getStatus()),
+                    timestamp(instance.getScheduleTime()), timestamp(instance.getStartTime()),
+                    timestamp(instance.getEndTime()), instance.getOwner(), instance.getRunTimes(),
+                    instance.getMaxRetryCount(), instance.getRetryCount(), instance.getFailureCount(),
+                    instance.getApplicationId(), instance.getClientName(), timestamp(instance.getGmtCreated()),
+                    timestamp(instance.getGmtModified()), instance.getCreater(), instance.getModifier()});
+            contentArgs.add(new Object[]{instanceCode, JobTextService.hash(request.getJobText()), request.getJobConfig()});
+        }
+
+        // 相同作业内容只保存一份
+        requestMap.values().stream()
+                .collect(Collectors.groupingBy(JobSubmitRequet::getJobText, Collectors.counting()))
+                .forEach((jobText, count) -> jobTextService.retain(jobText, count.intValue()));
+
+        jdbcTemplate.batchUpdate(INSERT_INSTANCE_SQL, instanceArgs);
+        jdbcTemplate.batchUpdate(INSERT_CONTENT_SQL, contentArgs);
+        if (!dependentArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DEPENDENT_SQL, dependentArgs);
+        }
+
+        // 按集群固定顺序更新统计记录，避免并发批量提交死锁
+        Map<String, Long> clusterCounts = requestMap.values().stream()
+                .collect(Collectors.groupingBy(JobSubmitRequet::getClusterCode, TreeMap::new, Collectors.counting()));
+        clusterCounts.forEach((clusterCode, count) ->
+                instanceStatisticsService.increment(now, clusterCode, InstanceStatus.WAITING, count));
+
+        LOG.info("batch submit instance count: {}, dependent count: {}", instanceArgs.size(), dependentArgs.size());
+        return Lists.newArrayList(requestMap.keySet());
+    }
+
+    private Cluster validateRequest(JobSubmitRequet request) {
+        String clusterCode = request.getClusterCode();
+        Cluster cluster = clusterService.getClusterByCode(clusterCode);
+        if (cluster == null) {
+            throw new IllegalArgumentException("cluster " + clusterCode + " not exists");
+        }
+
+        validateJobRequest(request);
+        return cluster;
+    }
+
+    private void validateJobRequest(JobSubmitRequet request) {
         String jobText = request.getJobText();
         if (StringUtils.isBlank(jobText)) {
             throw new FlinkJobServerException("jobText can not blank");
@@ -81,19 +231,76 @@ public class JobServerServiceImpl implements InitializingBean {
             throw new IllegalArgumentException("session mode, session name can not blank");
         }
 
-        String clusterCode = request.getClusterCode();
-        Cluster cluster = clusterService.getClusterByCode(clusterCode);
-        if (cluster != null) {
-            throw new IllegalArgumentException("cluster " + clusterCode + " not exists");
+        JobServerUtils.validateJobConfig(request.getJobConfig());
+    }
+
+    /**
+     * 依赖实例必须在本批次中或者已经存在，本批次实例不能已经存在，依赖关系不能有环
+     */
+    private void validateDependentGraph(Map<String, JobSubmitRequet> requestMap) {
+        List<String> codes = Lists.newArrayList(requestMap.keySet());
+        List<Object[]> existCodes = instanceService.findInstanceStatusByCodes(codes, null);
+        if (!existCodes.isEmpty()) {
+            throw new IllegalArgumentException("instanceCode already exists: " + existCodes.get(0)[0]);
         }
 
-        String jobConfig = request.getJobConfig();
-        JobServerUtils.validateJobConfig(jobConfig);
+        Set<String> externalCodes = Sets.newHashSet();
+        Map<String, Integer> inDegrees = Maps.newHashMap();
+        Map<String, List<String>> children = Maps.newHashMap();
+        for (JobSubmitRequet request : requestMap.values()) {
+            String instanceCode = request.getInstanceCode();
+            inDegrees.putIfAbsent(instanceCode, 0);
+            if (request.getDependentCodes() == null) {
+                continue;
+            }
 
-        String instanceCode = StringUtils.isNotBlank(request.getInstanceCode()) ? request.getInstanceCode() :
-                RandomUniqueIdGenerator.getNewString(32);
+            for (String dependentCode : Sets.newLinkedHashSet(Arrays.asList(request.getDependentCodes()))) {
+                if (instanceCode.equals(dependentCode)) {
+                    throw new IllegalArgumentException("instance " + instanceCode + " can not depend on itself");
+                }
+                if (requestMap.containsKey(dependentCode)) {
+                    inDegrees.merge(instanceCode, 1, Integer::sum);
+                    children.computeIfAbsent(dependentCode, key -> Lists.newArrayList()).add(instanceCode);
+                } else {
+                    externalCodes.add(dependentCode);
+                }
+            }
+        }
+
+        if (!externalCodes.isEmpty()) {
+            List<Object[]> rows = instanceService.findInstanceStatusByCodes(Lists.newArrayList(externalCodes), null);
+            rows.forEach(row -> externalCodes.remove((String) row[0]));
+            if (!externalCodes.isEmpty()) {
+                throw new IllegalArgumentException("dependent instance not exists: " + externalCodes);
+            }
+        }
 
-        JobInstance.Builder builder = JobInstance.builder()
+        // 拓扑排序，剩余节点存在环
+        LinkedList<String> queue = Lists.newLinkedList();
+        inDegrees.forEach((code, degree) -> {
+            if (degree == 0) {
+                queue.add(code);
+            }
+        });
+        int visitCount = 0;
+        while (!queue.isEmpty()) {
+            String code = queue.poll();
+            visitCount++;
+            for (String child : children.getOrDefault(code, Collections.emptyList())) {
+                if (inDegrees.merge(child, -1, Integer::sum) == 0) {
+                    queue.add(child);
+                }
+            }
+        }
+        if (visitCount < requestMap.size()) {
+            throw new IllegalArgumentException("instance dependency has cycle");
+        }
+    }
+
+    private JobInstance.Builder buildJobInstance(JobSubmitRequet request, String instanceCode, Cluster cluster) {
+        Instant scheduleTime = request.getScheduleTime() == null ? Instant.now() :
+                Instant.ofEpochSecond(request.getScheduleTime());
+        return JobInstance.builder()
                 .setCode(instanceCode)
                 .setName(request.getJobName())
                 .setJobType(request.getJobType())
@@ -105,25 +312,23 @@ public class JobServerServiceImpl implements InitializingBean {
                 .setSessionName(request.getSessionName())
                 .setMaxRetryCount(request.getMaxRetryCount())
                 .setStatus(InstanceStatus.WAITING)
-                .setScheduleTime(Instant.ofEpochSecond(request.getScheduleTime()))
+                .setScheduleTime(scheduleTime)
                 .setClientName(request.getClientName())
                 .setCreater(request.getOwner())
                 .setGmtCreated(Instant.now());
+    }
 
-        if (request.getDependentCodes() == null || request.getDependentCodes().length == 0) {
-            builder.setDependentCode(ROOT_SCHEDULE_NODE);
-            instanceService.insertEntity(builder.build());
-        } else {
-            instanceService.insertEntity(builder.build());
-            instanceService.saveInstanceDependent(instanceCode, request.getDependentCodes());
-        }
+    private static String enumValue(BaseStringEnum value) {
+        return value == null ? null : value.getValue();
+    }
 
-        instanceService.saveJobText(instanceCode, jobText, jobConfig);
-        return instanceCode;
+    private static Timestamp timestamp(Instant value) {
+        return value == null ? null : Timestamp.from(value);
     }
 
+    @DbWorkload(WorkloadType.API)
     public InstanceInfo queryInstanceStatus(String instanceCode) {
-        JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
+        JobInstance instance = instanceService.queryInstanceWithArchive(instanceCode);
 
         InstanceInfo instanceInfo = new InstanceInfo();
         instanceInfo.setInstanceCode(instanceCode);
@@ -133,7 +338,7 @@ public class JobServerServiceImpl implements InitializingBean {
                 instanceInfo.setApplicationId(instance.getApplicationId());
             }
 
-            JobInstanceContent instanceContent = instanceContentService.queryJobInstanceContentByCode(instanceCode);
+            JobInstanceContent instanceContent = instanceService.queryJobTextByCode(instanceCode);
             if (instanceContent != null && instanceContent.getErrorMsg() != null) {
                 instanceInfo.setErrorMsg(instanceContent.getErrorMsg());
             }
@@ -144,33 +349,51 @@ public class JobServerServiceImpl implements InitializingBean {
         return instanceInfo;
     }
 
-    public List<InstanceInfo> batchQueryInstanceStatus(String[] instanceCodes) {
+    /**
+     * @param since 毫秒时间戳，不为空只返回之后有变更的实例，客户端可以用返回实例最大 gmtModified 作为下次 since
+     */
+    @DbWorkload(WorkloadType.API)
+    @Transactional(readOnly = true)
+    public List<InstanceInfo> batchQueryInstanceStatus(String[] instanceCodes, Long since) {
         List<InstanceInfo> infos = new ArrayList<>();
+        if (instanceCodes == null || instanceCodes.length == 0) {
+            return infos;
+        }
+
+        Instant sinceTime = since == null ? null : Instant.ofEpochMilli(since);
+        List<Object[]> rows = instanceService.findInstanceStatusByCodes(Arrays.asList(instanceCodes), sinceTime);
+        Map<String, Object[]> rowMap = Maps.newHashMapWithExpectedSize(rows.size());
+        rows.forEach(row -> rowMap.put((String) row[0], row));
+
         for (String instanceCode : instanceCodes) {
-            JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
-            if (instance != null) {
+            Object[] row = rowMap.get(instanceCode);
+            if (row != null) {
                 InstanceInfo info = new InstanceInfo();
                 info.setInstanceCode(instanceCode);
-                info.setStatus(instance.getStatus());
-                if (StringUtils.isNotBlank(instance.getApplicationId())) {
-                    info.setApplicationId(instance.getApplicationId());
+                info.setStatus((InstanceStatus) row[1]);
+                info.setStartTime((Instant) row[2]);
+                info.setEndTime((Instant) row[3]);
+                info.setGmtModified((Instant) row[4]);
+                if (StringUtils.isNotBlank((String) row[5])) {
+                    info.setApplicationId((String) row[5]);
                 }
 
                 infos.add(info);
-            } else {
-                LOG.info("instanceCode {} not exists", instanceCode);
             }
         }
 
+        if (since == null && infos.size() < instanceCodes.length) {
+            LOG.info("instanceCode not exists count: {}", instanceCodes.length - infos.size());
+        }
         return infos;
     }
 
     public String queryInstanceLog(String instanceCode) {
-        JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
+        JobInstance instance = instanceService.queryInstanceWithArchive(instanceCode);
         final String scheduleDate = DateUtils.formatDate(instance.getScheduleTime());
 
-        String logFile = configProperties.getInstanceLogPath() + "/" + scheduleDate + "/" + instanceCode + ".log";
-        File file = new File(logFile);
+        File file = JobServerUtils.getInstanceLogFile(configProperties.getInstanceLogPath(), scheduleDate, instanceCode);
+        String logFile = file.getPath();
 
         if (!file.exists()) {
             return "访问文件不存在：" + logFile;
@@ -0,0 +1,151 @@
+package io.github.melin.flink.jobserver.service;
+
+import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import io.github.melin.flink.jobserver.core.entity.Cluster;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.DriverStatus;
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.service.ClusterService;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
+import org.hibernate.criterion.Restrictions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static io.github.melin.flink.jobserver.core.enums.DriverStatus.IDLE;
+import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.FAILED;
+import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.WAITING;
+
+/**
+ * driver 池管理和监控任务的数据库访问，按 MONITORING 负载占用许可。
+ * yarn、kubernetes、driver http 等远程调用留在监控任务中，不占用许可
+ */
+@Service
+public class MonitoringDbService {
+
+    // 实例为运行或 LOCKED 状态，driver 记录已经不存在
+    private static final String ORPHAN_INSTANCE_SQL = "select * from (SELECT a.code, b.application_id FROM (select id, code, application_id " +
+            "from fjs_job_instance where instance_type<>'DEV' and status in ('RUNNING', 'LOCKED') and application_id is not null) a \n" +
+            "left outer join fjs_application_driver b on a.application_id = b.application_id\n" +
+            ") c where c.application_id is null";
+
+    @Autowired
+    private ApplicationDriverService driverService;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private JobInstanceService instanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<Cluster> queryValidClusters() {
+        return clusterService.queryValidClusters();
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<ApplicationDriver> queryAllIdleDrivers(String clusterCode) {
+        return driverService.queryAllIdleDrivers(clusterCode);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public long queryDriverCount(String clusterCode) {
+        return driverService.queryApplcationDriverCount(clusterCode);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public ApplicationDriver queryDriverByAppId(String appId) {
+        return driverService.queryDriverByAppId(appId);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<ApplicationDriver> findAllDrivers() {
+        return driverService.findAllEntity();
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<ApplicationDriver> findDriversByStatus(DriverStatus... statuses) {
+        return driverService.findByCriterions(Restrictions.in("status", (Object[]) statuses));
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<ApplicationDriver> findIdleDrivers(boolean shareDriver) {
+        return driverService.findByNamedParam("status", IDLE, "shareDriver", shareDriver);
+    }
+
+    /**
+     * id 小于 minDriverId 的老版本空闲 driver
+     */
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<ApplicationDriver> findOldIdleDrivers(String clusterCode, long minDriverId) {
+        return driverService.findByNamedParam("status", IDLE,
+                "id", Restrictions.lt("id", minDriverId), "clusterCode", clusterCode);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public void updateDriver(ApplicationDriver driver) {
+        driverService.updateEntity(driver);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public void deleteDriver(ApplicationDriver driver) {
+        driverService.deleteDriver(driver);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public void deleteDriverByAppId(String appId) {
+        driverService.deleteJobServerByAppId(appId);
+    }
+
+    /**
+     * 锁定空闲 driver 不再分配作业并删除记录
+     * @return driver 已经分配给作业返回 false
+     */
+    @DbWorkload(WorkloadType.MONITORING)
+    @Transactional
+    public boolean lockAndDeleteIdleDriver(String appId, int version) {
+        if (driverService.updateServerLocked(appId, version) <= 0) {
+            return false;
+        }
+        driverService.deleteJobServerByAppId(appId);
+        return true;
+    }
+
+    /**
+     * @return 实例 code、driver applicationId
+     */
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<Map<String, Object>> findOrphanRunningInstances() {
+        return jdbcTemplate.queryForList(ORPHAN_INSTANCE_SQL);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public void failInstance(String instanceCode) {
+        instanceService.updateJobStatusByCode(instanceCode, FAILED);
+    }
+
+    @DbWorkload(WorkloadType.MONITORING)
+    public List<String> findSubmitTimeoutInstanceCodes(Instant timeoutTime) {
+        return instanceService.findJobInstanceSubmitTimeOut(timeoutTime).stream()
+                .map(JobInstance::getCode).collect(Collectors.toList());
+    }
+
+    /**
+     * 提交超时的实例恢复为等待提交状态，每个实例单独占用许可，积压实例多时不会长时间占用监控负载
+     */
+    @DbWorkload(WorkloadType.MONITORING)
+    public void resetSubmitTimeoutInstance(String instanceCode) {
+        instanceService.updateJobStatusByCode(instanceCode, WAITING);
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.melin.flink.jobserver.service;
+
+import io.github.melin.flink.jobserver.core.entity.InstanceStatistics;
+import io.github.melin.flink.jobserver.core.service.InstanceStatisticsService;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.core.service.JobTextService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 归档、清理、统计校准等后台批量任务的数据库访问，每个方法一个批次，按 REPORTING 负载占用许可，
+ * 批次之间的限流和 leader 检查留在调度任务中
+ */
+@Service
+public class ReportingDbService {
+
+    @Autowired
+    private JobInstanceService instanceService;
+
+    @Autowired
+    private JobTextService jobTextService;
+
+    @Autowired
+    private InstanceStatisticsService instanceStatisticsService;
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public List<Long> findExpireInstanceIds(Instant before, int limit) {
+        return instanceService.findExpireInstanceIds(before, limit);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public int purgeInstances(List<Long> ids) {
+        return instanceService.purgeInstances(ids);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public List<Long> findArchivedExpireInstanceIds(Instant before, int limit) {
+        return instanceService.findArchivedExpireInstanceIds(before, limit);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public int purgeArchivedInstances(List<Long> ids) {
+        return instanceService.purgeArchivedInstances(ids);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public int deleteUnreferencedJobTexts(int limit) {
+        return jobTextService.deleteUnreferenced(limit);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public List<Long> findArchiveInstanceIds(Instant before, int limit) {
+        return instanceService.findArchiveInstanceIds(before, limit);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public int archiveInstances(List<Long> ids) {
+        return instanceService.archiveInstances(ids);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public int deleteStatisticsBefore(Instant statTime) {
+        return instanceStatisticsService.deleteBefore(statTime);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public Map<Instant, List<InstanceStatistics>> computeStatistics(Instant startTime) {
+        return instanceStatisticsService.computeStatistics(startTime);
+    }
+
+    @DbWorkload(WorkloadType.REPORTING)
+    public int replaceStatistics(Instant statTime, List<InstanceStatistics> stats) {
+        return instanceStatisticsService.replaceStatistics(statTime, stats);
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.melin.flink.jobserver.service;
+
+import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
+import io.github.melin.flink.jobserver.core.enums.DriverStatus;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 调度分发和作业提交的数据库访问，按 SCHEDULING 负载占用许可。
+ * 提交 yarn/kubernetes、等待 driver 启动、调用 driver http 留在提交流程中，不占用许可
+ */
+@Service
+public class SchedulingDbService {
+
+    @Autowired
+    private JobInstanceService instanceService;
+
+    @Autowired
+    private ApplicationDriverService driverService;
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public List<Long> findScheduleInstances() {
+        return instanceService.findScheduleInstances();
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public JobInstance getInstance(Long instanceId) {
+        return instanceService.getEntity(instanceId);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public void saveInstance(JobInstance instance) {
+        instanceService.insertEntity(instance);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public JobInstance queryInstanceByCode(String instanceCode) {
+        return instanceService.queryJobInstanceByCode(instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public JobInstanceContent queryJobTextByCode(String instanceCode) {
+        return instanceService.queryJobTextByCode(instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public long findParentInstanceNotSuccessCount(String instanceCode) {
+        return instanceService.findParentInstanceNotSuccessCount(instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public JobInstance updateJobStatusByCode(String instanceCode, InstanceStatus status) {
+        return instanceService.updateJobStatusByCode(instanceCode, status);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public JobInstance retryInstance(String instanceCode) {
+        return instanceService.retryInstance(instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public JobInstance failSubmitInstance(String instanceCode) {
+        return instanceService.failSubmitInstance(instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public boolean lockInstance(String instanceCode) {
+        return instanceService.lockInstance(instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public void unLockInstance(String applicationId, String instanceCode) {
+        instanceService.unLockInstance(applicationId, instanceCode);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public List<ApplicationDriver> queryAvailableDrivers(int maxInstanceCount, Long minDriverId) {
+        return driverService.queryAvailableApplication(maxInstanceCount, minDriverId);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public int lockDriver(String applicationId, int version) {
+        return driverService.updateServerLocked(applicationId, version);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public long queryDriverCount() {
+        return driverService.queryCount();
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public long queryInitDriverCount() {
+        return driverService.queryCount("status", DriverStatus.INIT);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public Long insertDriver(ApplicationDriver driver) {
+        return driverService.insertEntity(driver);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public ApplicationDriver getDriver(Long driverId) {
+        return driverService.getEntity(driverId);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public ApplicationDriver queryDriverByAppId(String applicationId) {
+        return driverService.queryDriverByAppId(applicationId);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public void updateDriverStatusIdle(String applicationId) {
+        driverService.updateDriverStatusIdle(applicationId);
+    }
+
+    @DbWorkload(WorkloadType.SCHEDULING)
+    public void deleteDriver(Long driverId) {
+        driverService.deleteDriver(driverId);
+    }
+}
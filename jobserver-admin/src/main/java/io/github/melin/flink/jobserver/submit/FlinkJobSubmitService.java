@@ -13,8 +13,7 @@ import io.github.melin.flink.jobserver.core.exception.FlinkJobException;
 import io.github.melin.flink.jobserver.core.exception.HttpClientException;
 import io.github.melin.flink.jobserver.core.exception.ResouceLimitException;
 import io.github.melin.flink.jobserver.core.exception.SwitchYarnQueueException;
-import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
-import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.service.SchedulingDbService;
 import io.github.melin.flink.jobserver.submit.deployer.YarnApplicationDriverDeployer;
 import io.github.melin.flink.jobserver.submit.dto.DriverInfo;
 import io.github.melin.flink.jobserver.submit.dto.JobInstanceInfo;
@@ -53,14 +52,11 @@ public class FlinkJobSubmitService implements InitializingBean {
     private static final Logger INST_LOG = LoggerFactory.getLogger("jobinstancelogs");
 
     @Autowired
-    private JobInstanceService instanceService;
+    private SchedulingDbService schedulingDbService;
 
     @Autowired
     private YarnClientService yarnClientService;
 
-    @Autowired
-    private ApplicationDriverService applicationDriverService;
-
     @Autowired
     private YarnApplicationDriverDeployer driverDeployer;
 
@@ -121,7 +117,7 @@ public class FlinkJobSubmitService implements InitializingBean {
 
     private JobSubmitResult resolveSubmitError(String instanceCode, String errMsg) {
         LOG.error("task {} get server error: {}", instanceCode, errMsg);
-        JobInstance instance = instanceService.updateJobStatusByCode(instanceCode, InstanceStatus.FAILED);
+        JobInstance instance = schedulingDbService.updateJobStatusByCode(instanceCode, InstanceStatus.FAILED);
 
         final String scheduleDate = DateUtils.formatDate(instance.getScheduleTime());
         String path = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
@@ -158,11 +154,11 @@ public class FlinkJobSubmitService implements InitializingBean {
                 SubmitYarnResult result = new SubmitYarnResult(applicationId, driverAddress, yarnQueue);
                 postTaskToServer(instanceInfo, result, driverInfo);
             } catch (SwitchYarnQueueException e) {
-                applicationDriverService.updateDriverStatusIdle(applicationId);
+                schedulingDbService.updateDriverStatusIdle(applicationId);
                 flinkLogService.removeLogThread(instanceCode);
                 throw e;
             } catch (Exception e) {
-                applicationDriverService.updateDriverStatusIdle(applicationId);
+                schedulingDbService.updateDriverStatusIdle(applicationId);
                 flinkLogService.removeLogThread(instanceCode);
                 LOG.error("post task to server error: " + ExceptionUtils.getStackTrace(e));
                 if (ExceptionUtils.indexOfThrowable(e, SocketTimeoutException.class) > 0
@@ -180,7 +176,7 @@ public class FlinkJobSubmitService implements InitializingBean {
             return new JobSubmitResult(DriverInstance.SHARE_INSTANCE, driverAddress);
         } else if (status == NEW_INSTANCE) { //新的server正在提交
             Long jobserverId = driverInfo.getDriverId();
-            instanceService.updateJobStatusByCode(instanceCode, InstanceStatus.SUBMITTING);
+            schedulingDbService.updateJobStatusByCode(instanceCode, InstanceStatus.SUBMITTING);
             taskSubmitExecutor.submit(() -> {
                 try {
                     clusterManager.runSecured(clusterCode, () -> {
@@ -235,21 +231,18 @@ public class FlinkJobSubmitService implements InitializingBean {
      */
     private void submitFailureHandle(JobInstanceInfo instanceInfo, Long driverId, Exception e) {
         InstanceType instanceType = instanceInfo.getInstanceType();
-        JobInstance instance = instanceService.queryJobInstanceByCode(instanceInfo.getInstanceCode());
+        JobInstance instance = schedulingDbService.queryInstanceByCode(instanceInfo.getInstanceCode());
 
         LOG.info("delete driver: {}", driverId);
-        applicationDriverService.deleteEntity(driverId);
+        schedulingDbService.deleteDriver(driverId);
         int retryCount = instance.getRetryCount();
         if (InstanceType.DEV != instanceType && retryCount < 2) {
-            instance.setRetryCount(instance.getRetryCount() + 1);
-            instance.setStatus(InstanceStatus.WAITING);
+            schedulingDbService.retryInstance(instance.getCode());
             INST_LOG.info("提交作业失败: " + e.getMessage() + "，等待重试...");
         } else {
-            instance.setRetryCount(instance.getRetryCount() + 1);
-            instance.setStatus(InstanceStatus.FAILED);
+            schedulingDbService.failSubmitInstance(instance.getCode());
             INST_LOG.info("提交作业失败: " + e.getMessage());
         }
-        instanceService.updateEntity(instance);
     }
 
     /**
@@ -280,13 +273,13 @@ public class FlinkJobSubmitService implements InitializingBean {
             if (e instanceof ResouceLimitException) { //超过最大资源限制，继续等待运行
                 if (isDevTask) {
                     INST_LOG.warn("{}, job {} stopped ", e.getMessage(), instanceCode);
-                    instanceService.updateJobStatusByCode(instanceCode, InstanceStatus.KILLED);
+                    schedulingDbService.updateJobStatusByCode(instanceCode, InstanceStatus.KILLED);
                 } else {
                     INST_LOG.warn("{}, job {} waiting... ", e.getMessage(), instanceCode);
-                    instanceService.updateJobStatusByCode(instanceCode, InstanceStatus.WAITING);
+                    schedulingDbService.updateJobStatusByCode(instanceCode, InstanceStatus.WAITING);
                 }
             } else {
-                instanceService.updateJobStatusByCode(instanceCode, InstanceStatus.FAILED);
+                schedulingDbService.updateJobStatusByCode(instanceCode, InstanceStatus.FAILED);
                 String msg = ExceptionUtils.getStackTrace(e);
                 INST_LOG.error("Job {}, error: {}", instanceCode, msg);
             }
@@ -316,7 +309,7 @@ public class FlinkJobSubmitService implements InitializingBean {
 
         LOG.info("Task {} Get Server: {} at {}", instanceCode, applicationId, sparkDriverUrl);
 
-        boolean hasLocked = instanceService.lockInstance(instanceCode);
+        boolean hasLocked = schedulingDbService.lockInstance(instanceCode);
         if (!hasLocked) {
             LOG.warn("作业已经在运行: {}", instanceCode);
             return;
@@ -353,13 +346,13 @@ public class FlinkJobSubmitService implements InitializingBean {
             LOG.info("requet execute job times: {}ms, url : {}, params: {}",
                     watch.getTime(), url, JsonUtils.toJSONString(instanceDto));
         } catch (Exception e) {
-            instanceService.unLockInstance(applicationId, instanceCode);
+            schedulingDbService.unLockInstance(applicationId, instanceCode);
             throw new FlinkJobServerException("提交作业到 " + applicationId + " 失败: " + e.getMessage());
         }
 
         if (result != null && !result.isSuccess()) {
             flinkLogService.removeLogThread(instanceCode);
-            instanceService.unLockInstance(applicationId, instanceCode);
+            schedulingDbService.unLockInstance(applicationId, instanceCode);
             throw new FlinkJobServerException(result.getMessage());
         }
     }
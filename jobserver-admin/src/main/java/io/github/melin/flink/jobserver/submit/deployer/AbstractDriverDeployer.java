@@ -10,13 +10,16 @@ import io.github.melin.flink.jobserver.core.enums.DriverStatus;
 import io.github.melin.flink.jobserver.core.exception.FlinkJobException;
 import io.github.melin.flink.jobserver.core.exception.ResouceLimitException;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.util.ByteUnit;
 import io.github.melin.flink.jobserver.core.util.CommonUtils;
+import io.github.melin.flink.jobserver.service.SchedulingDbService;
 import io.github.melin.flink.jobserver.submit.dto.DeploymentInfo;
 import io.github.melin.flink.jobserver.submit.dto.DriverInfo;
 import io.github.melin.flink.jobserver.submit.dto.JobInstanceInfo;
 import io.github.melin.flink.jobserver.submit.dto.SubmitYarnResult;
 import io.github.melin.flink.jobserver.support.ClusterConfig;
 import io.github.melin.flink.jobserver.support.ClusterManager;
+import io.github.melin.flink.jobserver.support.DriverHealthService;
 import io.github.melin.flink.jobserver.support.KerberosInfo;
 import io.github.melin.flink.jobserver.support.leader.RedisLeaderElection;
 import io.github.melin.flink.jobserver.util.FSUtils;
@@ -65,9 +68,15 @@ abstract public class AbstractDriverDeployer<T> {
     @Autowired
     protected ApplicationDriverService driverService;
 
+    @Autowired
+    protected SchedulingDbService schedulingDbService;
+
     @Autowired
     protected RedisLeaderElection redisLeaderElection;
 
+    @Autowired
+    protected DriverHealthService driverHealthService;
+
     @Value("${spring.profiles.active}")
     protected String profiles;
 
@@ -227,7 +236,7 @@ abstract public class AbstractDriverDeployer<T> {
         int kb = 1024;
         long totalMemorySize = hal.getMemory().getTotal() / kb;
         long availableMemorySize = hal.getMemory().getAvailable() / kb;
-        long minAvailableMem = config.getLocalMinMemoryMb();
+        long minAvailableMem = CommonUtils.byteStringAsMb(config.getLocalMinMemoryMb());
 
         String totalMemorySizeRead = CommonUtils.convertUnit(totalMemorySize);
         String availableMemorySizeRead = CommonUtils.convertUnit(availableMemorySize);
@@ -235,14 +244,14 @@ abstract public class AbstractDriverDeployer<T> {
         if (availableMemorySize < (minAvailableMem * 1024)) {
             String msg = "当前系统总内存: " + totalMemorySizeRead + ", 可用内存: " + availableMemorySizeRead
                     + ", 要求最小可用内存: " + minAvailableMem + "m " + NetUtils.getLocalHost();
-            msg = msg + ", 可调整参数：jobserver.local-min-memory-mb, 单位兆";
+            msg = msg + ", 可调整参数：jobserver.local-min-memory-mb, 支持 m、g 等单位，没有单位为兆";
             LOG.warn(msg);
             throw new ResouceLimitException(msg);
         }
     }
 
     protected void checkMaxDriverCount(String clusterCode) {
-        long driverCount = driverService.queryCount();
+        long driverCount = schedulingDbService.queryDriverCount();
         int driverMaxCount = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MAX_COUNT);
         if (driverCount >= driverMaxCount) {
             String msg = "当前正在运行任务数量已达最大数量限制: " + driverMaxCount + "，请休息一会再重试！";
@@ -253,11 +262,13 @@ abstract public class AbstractDriverDeployer<T> {
     public DriverInfo allocateDriver(String clusterCode, boolean shareDriver) {
         int maxInstanceCount = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_RUN_MAX_INSTANCE_COUNT);
         long minDriverId = clusterConfig.getLong(clusterCode, JOBSERVER_DRIVER_MIN_PRIMARY_ID);
-        List<ApplicationDriver> drivers = driverService.queryAvailableApplication(maxInstanceCount, minDriverId);
+        List<ApplicationDriver> drivers = schedulingDbService.queryAvailableDrivers(maxInstanceCount, minDriverId);
+        // 优先分配内存压力最小的 driver，不健康的 driver 等待回收
+        drivers = driverHealthService.sortByHealth(clusterCode, drivers);
         if (drivers.size() > 0) {
             for (ApplicationDriver driver : drivers) {
                 int version = driver.getVersion();
-                int batch = driverService.updateServerLocked(driver.getApplicationId(), version);
+                int batch = schedulingDbService.lockDriver(driver.getApplicationId(), version);
                 if (batch <= 0) {
                     continue;
                 }
@@ -307,14 +318,14 @@ abstract public class AbstractDriverDeployer<T> {
             }
             LOG.info("Get redis lock");
 
-            long initDriverCount = driverService.queryCount("status", DriverStatus.INIT);
+            long initDriverCount = schedulingDbService.queryInitDriverCount();
             long maxConcurrentSubmitCount = clusterConfig.getInt(clusterCode, JOBSERVER_SUBMIT_DRIVER_MAX_CONCURRENT_COUNT);
             if (initDriverCount > maxConcurrentSubmitCount) {
                 String msg = "当前正在提交jobserver数量: " + initDriverCount + ", 最大提交数量: " + maxConcurrentSubmitCount
                         + ", 可调整参数: jobserver.concurrent.submit.max.num";
                 throw new ResouceLimitException(msg);
             }
-            driverId = driverService.insertEntity(driver);
+            driverId = schedulingDbService.insertDriver(driver);
         } catch (FlinkJobException jobException) {
             throw jobException;
         } catch (Exception e1) {
@@ -341,7 +352,7 @@ abstract public class AbstractDriverDeployer<T> {
         String applicationId = startDriver(job.buildDriverDeploymentInfo(), driverId);
         waitClusterStartup(job.getClusterCode(), applicationId, driverId);
 
-        ApplicationDriver driver = driverService.queryDriverByAppId(applicationId);
+        ApplicationDriver driver = schedulingDbService.queryDriverByAppId(applicationId);
         if (driver == null || driver.getServerPort() == -1) { // 默认值: -1
             int tryNum = 50;
             while (--tryNum > 0) {
@@ -351,7 +362,7 @@ abstract public class AbstractDriverDeployer<T> {
                 LOG.info("InstanceCode: " + jobInstanceCode + ", " + "waiting address for application: " + applicationId);
 
                 Thread.sleep(2000);
-                driver = driverService.queryDriverByAppId(applicationId);
+                driver = schedulingDbService.queryDriverByAppId(applicationId);
             }
             if (driver == null) {
                 throw new RuntimeException("Can not get Address about: " + applicationId);
@@ -370,8 +381,9 @@ abstract public class AbstractDriverDeployer<T> {
     protected void addSessionConfig(Configuration flinkConf, ApplicationDriver sessionCluster) {
         String config = sessionCluster.getConfig();
         Map<String, String> map = JsonUtils.toJavaMap(config);
-        long jobmanagerMemory = Long.parseLong(map.getOrDefault("jobmanagerMemory", "2")) * 1024 * 1024 * 1024;
-        long taskmanagerMemory = Long.parseLong(map.getOrDefault("taskmanagerMemory", "2")) * 1024 * 1024 * 1024;
+        // 没有单位为 GB
+        long jobmanagerMemory = CommonUtils.byteStringAs(map.getOrDefault("jobmanagerMemory", "2"), ByteUnit.GiB, ByteUnit.BYTE);
+        long taskmanagerMemory = CommonUtils.byteStringAs(map.getOrDefault("taskmanagerMemory", "2"), ByteUnit.GiB, ByteUnit.BYTE);
 
         flinkConf.setLong("jobmanager.memory.process.size", jobmanagerMemory);
         flinkConf.setString("taskmanager.numberOfTaskSlots", map.getOrDefault("numberOfTaskSlots", "1"));
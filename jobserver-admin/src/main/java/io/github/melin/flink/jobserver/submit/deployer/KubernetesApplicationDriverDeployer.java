@@ -98,7 +98,7 @@ public class KubernetesApplicationDriverDeployer extends AbstractKubernetesDeplo
             LOG.info("启动jobserver 失败: " + e.getMessage(), e);
             if (driverId != null) {
                 LOG.info("delete driverId: {}", driverId);
-                driverService.deleteEntity(driverId);
+                driverService.deleteDriver(driverId);
             }
 
             ApplicationDriverController.flinkLauncherFailedMsg = "启动jobserver 失败: " + e.getMessage();
@@ -145,14 +145,14 @@ public class KubernetesApplicationDriverDeployer extends AbstractKubernetesDeplo
             }
             LOG.info("Get redis lock");
 
-            long initDriverCount = driverService.queryCount("status", DriverStatus.INIT);
+            long initDriverCount = schedulingDbService.queryInitDriverCount();
             long maxConcurrentSubmitCount = clusterConfig.getInt(clusterCode, JOBSERVER_SUBMIT_DRIVER_MAX_CONCURRENT_COUNT);
             if (initDriverCount > maxConcurrentSubmitCount) {
                 String msg = "当前正在提交jobserver数量: " + initDriverCount + ", 最大提交数量: " + maxConcurrentSubmitCount
                         + ", 可调整参数: jobserver.concurrent.submit.max.num";
                 throw new ResouceLimitException(msg);
             }
-            driverId = driverService.insertEntity(driver);
+            driverId = schedulingDbService.insertDriver(driver);
         } catch (FlinkJobException jobException) {
             throw jobException;
         } catch (Exception ex) {
@@ -185,12 +185,12 @@ public class KubernetesApplicationDriverDeployer extends AbstractKubernetesDeplo
         // 等待 flink driver 启动中
         report = yarnClientService.getYarnApplicationReport(clusterCode, applicationId);
         state = report.getYarnApplicationState();
-        ApplicationDriver driver = driverService.getEntity(driverId);
+        ApplicationDriver driver = schedulingDbService.getDriver(driverId);
         while (state == RUNNING && driver.getStatus() == DriverStatus.INIT) {
             TimeUnit.SECONDS.sleep(1);
             report = yarnClientService.getYarnApplicationReport(clusterCode, applicationId);
             state = report.getYarnApplicationState();
-            driver = driverService.getEntity(driverId);
+            driver = schedulingDbService.getDriver(driverId);
         }
 
         if (state != RUNNING) {
@@ -4,6 +4,7 @@ import com.gitee.melin.bee.core.conf.ConfigEntry;
 import io.github.melin.flink.jobserver.FlinkJobServerConf;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
 import io.github.melin.flink.jobserver.core.service.ClusterService;
+import io.github.melin.flink.jobserver.core.util.CommonUtils;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -102,6 +103,27 @@ public class ClusterConfig implements InitializingBean {
         }
     }
 
+    /**
+     * 内存配置转换为 MB，没有单位为 MB
+     */
+    public long getMemoryMb(String clusterCode, ConfigEntry<String> confKey) {
+        return CommonUtils.byteStringAsMb(getValue(clusterCode, confKey));
+    }
+
+    /**
+     * 大小配置转换为字节，没有单位为字节
+     */
+    public long getBytes(String clusterCode, ConfigEntry<String> confKey) {
+        return CommonUtils.byteStringAsBytes(getValue(clusterCode, confKey));
+    }
+
+    /**
+     * 时间配置转换为毫秒，没有单位为毫秒
+     */
+    public long getTimeMs(String clusterCode, ConfigEntry<String> confKey) {
+        return CommonUtils.timeStringAsMs(getValue(clusterCode, confKey));
+    }
+
     public boolean getBoolean(String clusterCode, ConfigEntry<Boolean> confKey) {
         if (configMap.containsKey(clusterCode)) {
             PropertiesConfiguration conf = configurationMap.get(clusterCode);
@@ -100,6 +100,7 @@ public class ClusterManager implements InitializingBean {
                     Long cacheUpdateTime = clusterUpdateTimeMap.get(cluster.getCode());
                     if (cacheUpdateTime == null || cacheUpdateTime != updateTime) {
                         LOGGER.info("========================= reload {} ==============================", cluster.getCode());
+                        clusterService.invalidateCluster(cluster.getCode()); // 其它节点修改集群
                         downloadClusterConfig(cluster);
                     }
                 }
@@ -329,6 +330,7 @@ public class ClusterManager implements InitializingBean {
         Long cacheUpdateTime = clusterUpdateTimeMap.get(clusterCode);
         if (cacheUpdateTime != null && cacheUpdateTime.longValue() != updateTime.longValue()) {
             LOGGER.info("{} 重新加载 hadoop 配置文件，老配置md5: {}, 新配置md5: {}", clusterCode, cacheUpdateTime, updateTime);
+            clusterService.invalidateCluster(clusterCode);
             Cluster cluster = clusterService.getClusterByCode(clusterCode);
             downloadClusterConfig(cluster);
         }
@@ -387,14 +389,14 @@ public class ClusterManager implements InitializingBean {
     public void checkYarnResourceLimit(String clusterCode) {
         YarnResource yarnResource = yarnResourceMap.getOrDefault(clusterCode, null);
         if (yarnResource != null) {
-            int limitMemory = clusterConfig.getInt(clusterCode, JOBSERVER_YARN_MIN_MEMORY_MB);
+            long limitMemory = clusterConfig.getMemoryMb(clusterCode, JOBSERVER_YARN_MIN_MEMORY_MB);
             int limitCores = clusterConfig.getInt(clusterCode, JOBSERVER_YARN_MIN_CPU_CORES);
 
             int availableMemoryMB = yarnResource.getAvailableMemoryMB();
             int availableVirtualCores = yarnResource.getAvailableVirtualCores();
 
             String memoryMsg = "当前yarn 集群可用内存: " + availableMemoryMB +
-                    "MB, 最小需要内存: " + limitMemory + ", 可以调整参数(单位MB): " + JOBSERVER_YARN_MIN_MEMORY_MB.getKey();
+                    "MB, 最小需要内存: " + limitMemory + "MB, 可以调整参数: " + JOBSERVER_YARN_MIN_MEMORY_MB.getKey();
             String cpuMsg = "当前yarn 集群可用CPU数量: " + availableVirtualCores +
                     ", 最小需要CPU: " + limitCores + ", 可以调整参数: " + JOBSERVER_YARN_MIN_CPU_CORES.getKey();
             LOGGER.info(memoryMsg);
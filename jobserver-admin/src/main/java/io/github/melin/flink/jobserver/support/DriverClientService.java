@@ -1,15 +1,20 @@
 package io.github.melin.flink.jobserver.support;
 
+import com.gitee.melin.bee.core.support.Result;
+import io.github.melin.flink.jobserver.core.dto.DriverMemoryStats;
+import io.github.melin.flink.jobserver.core.dto.ResultPage;
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
 import io.github.melin.flink.jobserver.core.util.LogRecord;
 import org.apache.hadoop.yarn.api.records.YarnApplicationState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -19,7 +24,7 @@ import java.util.List;
  * huaixin 2022/4/14 20:35
  */
 @Service
-public class DriverClientService {
+public class DriverClientService implements InitializingBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(DriverClientService.class);
 
@@ -32,6 +37,18 @@ public class DriverClientService {
     @Autowired
     private RestTemplate restTemplate;
 
+    // driver 健康检查使用短超时，gc 卡住或者不可访问的 driver 不能阻塞调用方
+    private RestTemplate healthRestTemplate;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory();
+        httpRequestFactory.setConnectionRequestTimeout(1000);
+        httpRequestFactory.setConnectTimeout(1000);
+        httpRequestFactory.setReadTimeout(3000);
+        healthRestTemplate = new RestTemplate(httpRequestFactory);
+    }
+
     public List<LogRecord> getServerLog(String flinkDriverUrl, String instanceCode) {
         String uri = flinkDriverUrl + "/flinkDriver/getServerLog?instanceCode=" + instanceCode;
         try {
@@ -70,4 +87,65 @@ public class DriverClientService {
             return false;
         }
     }
+
+    /**
+     * driver 进程是否存活，流任务提交完成后 driver 为 IDLE 状态，不能通过 isJobRunning 判断
+     */
+    public boolean isDriverAlive(String flinkDriverUrl) {
+        try {
+            String result = healthRestTemplate.getForObject(flinkDriverUrl + "/ok", String.class);
+            return "ok".equals(result);
+        } catch (Exception e) {
+            LOG.warn("driver {} not reachable: {}", flinkDriverUrl, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * driver 上当前实例的 flink 作业状态(FAILED、CANCELED、FINISHED、RUNNING)，没有作业或者接口不可用返回 null
+     */
+    public String getFlinkJobStatus(String flinkDriverUrl, String instanceCode) {
+        String url = flinkDriverUrl + "/flinkDriver/jobStatus?instanceCode=" + instanceCode;
+        try {
+            return healthRestTemplate.getForObject(url, String.class);
+        } catch (Exception e) {
+            LOG.warn("get task {} job status failed: {}", instanceCode, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * driver 内存统计，接口不可用返回 null
+     */
+    public DriverMemoryStats getMemoryStats(String flinkDriverUrl) {
+        try {
+            return healthRestTemplate.getForObject(flinkDriverUrl + "/flinkDriver/memoryStats", DriverMemoryStats.class);
+        } catch (Exception e) {
+            LOG.warn("get driver {} memory stats failed: {}", flinkDriverUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 分页获取 driver 上的 select 查询结果
+     */
+    public Result<ResultPage> fetchResultPage(String flinkDriverUrl, String instanceCode, int statementId, int page) {
+        String uri = flinkDriverUrl + "/flinkDriver/fetchResult?instanceCode=" + instanceCode
+                + "&statementId=" + statementId + "&page=" + page;
+        try {
+            ResponseEntity<Result<ResultPage>> response = restTemplate.exchange(
+                    uri,
+                    HttpMethod.GET,
+                    null,
+                    new ParameterizedTypeReference<Result<ResultPage>>() {});
+            if (response.hasBody()) {
+                return response.getBody();
+            } else {
+                return Result.failureResult("driver 没有返回查询结果");
+            }
+        } catch (Exception e) {
+            LOG.error("fetch task {} result error: {}", instanceCode, e.getMessage());
+            return Result.failureResult(e.getMessage());
+        }
+    }
 }
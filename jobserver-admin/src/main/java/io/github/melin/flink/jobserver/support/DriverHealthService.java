@@ -0,0 +1,185 @@
+package io.github.melin.flink.jobserver.support;
+
+import io.github.melin.flink.jobserver.core.dto.DriverMemoryStats;
+import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static io.github.melin.flink.jobserver.FlinkJobServerConf.*;
+
+/**
+ * driver 健康检查：根据 driver 上报的堆内存、gc 时间、Metaspace 和 classloader 泄漏统计判断是否需要回收，
+ * 分配 driver 时优先选择内存压力最小的 driver。
+ * 只读取缓存的统计，过期后在后台线程刷新，作业提交和 driver 池管理不会等待 driver 响应
+ */
+@Service
+public class DriverHealthService {
+
+    @Autowired
+    private DriverClientService driverClientService;
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    private static final Logger LOG = LoggerFactory.getLogger(DriverHealthService.class);
+
+    // 统计超过该时间后台刷新
+    private static final long REFRESH_AFTER_MS = TimeUnit.SECONDS.toMillis(30);
+
+    // 超过该时间没有刷新成功，统计作废
+    private static final long EXPIRE_AFTER_MS = TimeUnit.MINUTES.toMillis(5);
+
+    // appId -> 最近一次获取的统计，获取失败也缓存(stats 为 null)，避免每次都访问不可用的 driver
+    private final Map<String, StatsSample> samples = new ConcurrentHashMap<>();
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService refreshExecutor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(200), runnable -> {
+                Thread thread = new Thread(runnable, "driver-health-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * 只返回缓存的统计，没有缓存或者已经过期时提交后台刷新
+     * @return 未知(还没有获取、driver 不支持或者不可访问)返回 null
+     */
+    public DriverMemoryStats getMemoryStats(ApplicationDriver driver) {
+        String appId = driver.getApplicationId();
+        long now = System.currentTimeMillis();
+        StatsSample sample = samples.get(appId);
+        if (sample == null || now - sample.fetchTime >= REFRESH_AFTER_MS) {
+            refreshAsync(appId, driver.getFlinkDriverUrl());
+        }
+        if (sample == null || now - sample.fetchTime >= EXPIRE_AFTER_MS) {
+            return null;
+        }
+        return sample.stats;
+    }
+
+    private void refreshAsync(String appId, String flinkDriverUrl) {
+        if (!refreshing.add(appId)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    DriverMemoryStats stats = driverClientService.getMemoryStats(flinkDriverUrl);
+                    samples.put(appId, new StatsSample(stats, System.currentTimeMillis()));
+                } finally {
+                    refreshing.remove(appId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(appId);
+            LOG.warn("refresh driver {} memory stats rejected", appId);
+        }
+
+        // 清理已经关闭的 driver
+        long expireTime = System.currentTimeMillis() - EXPIRE_AFTER_MS;
+        samples.values().removeIf(sample -> sample.fetchTime < expireTime);
+    }
+
+    /**
+     * 内存压力：gc 后老年代占比、Metaspace 占比和 gc 时间占比中的最大值，没有统计返回 1
+     */
+    public double getMemoryPressure(DriverMemoryStats stats) {
+        if (stats == null) {
+            return 1.0;
+        }
+
+        double pressure = stats.getGcTimeRatio();
+        if (stats.getHeapMax() > 0 && stats.getHeapUsedAfterGcAgeMs() >= 0) {
+            pressure = Math.max(pressure, (double) stats.getHeapUsedAfterGc() / stats.getHeapMax());
+        }
+        if (stats.getMetaspaceMax() > 0) {
+            pressure = Math.max(pressure, (double) stats.getMetaspaceUsed() / stats.getMetaspaceMax());
+        }
+        return pressure;
+    }
+
+    /**
+     * @return 不健康原因，健康或者没有统计返回 null
+     */
+    public String checkUnhealthy(String clusterCode, DriverMemoryStats stats) {
+        if (stats == null) {
+            return null;
+        }
+
+        int maxHeapPercent = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MAX_HEAP_USED_PERCENT);
+        // 还没有发生 gc 时 heapUsedAfterGc 包含垃圾对象，不作为判断依据
+        if (stats.getHeapMax() > 0 && stats.getHeapUsedAfterGcAgeMs() >= 0
+                && stats.getHeapUsedAfterGc() * 100 >= stats.getHeapMax() * maxHeapPercent) {
+            return "heap used after gc " + stats.getHeapUsedAfterGc() + "/" + stats.getHeapMax()
+                    + " (sampled " + stats.getHeapUsedAfterGcAgeMs() + "ms ago) exceeds " + maxHeapPercent + "%";
+        }
+
+        int maxGcPercent = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MAX_GC_TIME_PERCENT);
+        if (stats.getGcTimeRatio() * 100 >= maxGcPercent) {
+            return "gc time ratio " + String.format("%.2f", stats.getGcTimeRatio()) + " exceeds " + maxGcPercent + "%";
+        }
+
+        int maxMetaspacePercent = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MAX_METASPACE_USED_PERCENT);
+        if (stats.getMetaspaceMax() > 0 && stats.getMetaspaceUsed() * 100 >= stats.getMetaspaceMax() * maxMetaspacePercent) {
+            return "metaspace used " + stats.getMetaspaceUsed() + "/" + stats.getMetaspaceMax()
+                    + " exceeds " + maxMetaspacePercent + "%";
+        }
+
+        int maxLeakedCount = clusterConfig.getInt(clusterCode, JOBSERVER_DRIVER_MAX_LEAKED_CLASSLOADER_COUNT);
+        if (stats.getLeakedClassLoaderCount() > maxLeakedCount) {
+            return "leaked classloader count " + stats.getLeakedClassLoaderCount() + " exceeds " + maxLeakedCount;
+        }
+        return null;
+    }
+
+    /**
+     * 过滤掉不健康的 driver，按内存压力从小到大排序
+     */
+    public List<ApplicationDriver> sortByHealth(String clusterCode, List<ApplicationDriver> drivers) {
+        return drivers.stream()
+                .map(driver -> Pair.of(driver, getMemoryStats(driver)))
+                .filter(pair -> checkUnhealthy(clusterCode, pair.getRight()) == null)
+                .sorted(Comparator.comparingDouble(pair -> getMemoryPressure(pair.getRight())))
+                .map(Pair::getLeft)
+                .collect(Collectors.toList());
+    }
+
+    public void invalidate(String applicationId) {
+        samples.remove(applicationId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private static class StatsSample {
+
+        private final DriverMemoryStats stats;
+
+        private final long fetchTime;
+
+        StatsSample(DriverMemoryStats stats, long fetchTime) {
+            this.stats = stats;
+            this.fetchTime = fetchTime;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.melin.flink.jobserver.support;
+
+import io.github.melin.flink.jobserver.FlinkJobServerConf;
+import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import io.github.melin.flink.jobserver.core.entity.Cluster;
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.service.ClusterService;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.flink.client.deployment.ClusterClientFactory;
+import org.apache.flink.client.deployment.ClusterClientServiceLoader;
+import org.apache.flink.client.deployment.ClusterDescriptor;
+import org.apache.flink.client.deployment.DefaultClusterClientServiceLoader;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.DeploymentOptions;
+import org.apache.flink.kubernetes.configuration.KubernetesConfigOptions;
+import org.apache.flink.kubernetes.configuration.KubernetesDeploymentTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * kubernetes driver 关闭，和 YarnClientService.closeJobServer 一致：共享 driver 未超过运行次数时置为空闲，
+ * 否则删除 driver 对应的 flink kubernetes 集群(cluster-id 为 driver applicationId)和 driver 记录
+ */
+@Service
+public class KubernetesClientService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesClientService.class);
+
+    @Autowired
+    private ApplicationDriverService driverService;
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    private final ClusterClientServiceLoader clusterClientServiceLoader = new DefaultClusterClientServiceLoader();
+
+    @Transactional
+    public void closeJobServer(String clusterCode, String appId, boolean shareDriver) {
+        LOG.warn("close kubernetes jobserver: {}, shareDriver: {}", appId, shareDriver);
+        driverService.updateDriverStatusIdle(appId);
+        if (shareDriver) {
+            ApplicationDriver driver = driverService.queryDriverByAppId(appId);
+            if (driver != null) {
+                int runCount = driver.getInstanceCount();
+                int maxInstanceCount = clusterConfig.getInt(clusterCode, FlinkJobServerConf.JOBSERVER_DRIVER_RUN_MAX_INSTANCE_COUNT);
+                LOG.info("当前driver {} 超过运行次数 {}/{}", appId, runCount, maxInstanceCount);
+                if (runCount >= maxInstanceCount) {
+                    this.killApplication(clusterCode, appId);
+                }
+            } else {
+                this.killApplication(clusterCode, appId);
+            }
+        } else {
+            this.killApplication(clusterCode, appId);
+        }
+    }
+
+    @Transactional
+    public void killApplication(String clusterCode, String appId) {
+        try {
+            this.killCluster(clusterCode, appId);
+        } catch (Throwable e) {
+            LOG.info("kill kubernetes cluster error " + appId, e);
+        } finally {
+            driverService.deleteJobServerByAppId(appId);
+        }
+    }
+
+    protected void killCluster(String clusterCode, String clusterId) throws Exception {
+        Configuration flinkConf = new Configuration();
+        flinkConf.set(DeploymentOptions.TARGET, KubernetesDeploymentTarget.APPLICATION.getName());
+        flinkConf.set(KubernetesConfigOptions.CLUSTER_ID, clusterId);
+
+        Cluster cluster = clusterService.getClusterByCode(clusterCode);
+        if (cluster != null && StringUtils.isNotBlank(cluster.getKubernetesConfig())) {
+            File kubeConfig = new File(ClusterManager.LOCAL_CLUSTER_CONFIG_DIR + "/" + clusterCode + "/kube-config");
+            FileUtils.writeStringToFile(kubeConfig, cluster.getKubernetesConfig(), StandardCharsets.UTF_8);
+            flinkConf.set(KubernetesConfigOptions.KUBE_CONFIG_FILE, kubeConfig.getPath());
+        }
+
+        ClusterClientFactory<String> clientFactory = clusterClientServiceLoader.getClusterClientFactory(flinkConf);
+        try (ClusterDescriptor<String> clusterDescriptor = clientFactory.createClusterDescriptor(flinkConf)) {
+            clusterDescriptor.killCluster(clusterId);
+            LOG.info("killed kubernetes cluster: {}", clusterId);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.melin.flink.jobserver.support;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.logaggregation.ContainerLogsRequest;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileController;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileControllerFactory;
+import org.apache.hadoop.yarn.util.ConverterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 进程内读取 yarn 聚合日志(TFile、IndexedFormat)，替代 yarn logs 命令，日志直接写入输出流
+ */
+@Service
+@DependsOn("clusterManager")
+public class YarnAggregatedLogService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(YarnAggregatedLogService.class);
+
+    @Autowired
+    private ClusterManager clusterManager;
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    @Autowired
+    private YarnClientService yarnClientService;
+
+    /**
+     * @param containerId 为空读取所有 container
+     * @param nodeId 为空读取所有节点
+     * @param logTypes 日志文件名，例如：taskmanager.log，为空读取全部
+     * @param bytes 每个日志文件读取字节数，正数从头读取，负数读取末尾字节
+     * @return 是否读取到日志
+     */
+    public boolean readAggregatedLogs(String clusterCode, String applicationId, String containerId, String nodeId,
+                                      Set<String> logTypes, long bytes, OutputStream outputStream) {
+        String appOwner = getAppOwner(clusterCode, applicationId);
+        return clusterManager.runSecured(clusterCode, () -> readAggregatedLogs(clusterManager.getHadoopConf(clusterCode),
+                applicationId, appOwner, containerId, nodeId, logTypes, bytes, outputStream));
+    }
+
+    /**
+     * 按 hadoop 配置读取聚合日志，不依赖集群和 yarn 接口，可以指向本地 remote-app-log-dir
+     * @param appOwner 作业提交用户，聚合日志按用户目录存放
+     */
+    public boolean readAggregatedLogs(Configuration conf, String applicationId, String appOwner, String containerId,
+                                      String nodeId, Set<String> logTypes, long bytes, OutputStream outputStream)
+            throws IOException {
+        ApplicationId appId = ConverterUtils.toApplicationId(applicationId);
+
+        LogAggregationFileControllerFactory factory = new LogAggregationFileControllerFactory(conf);
+        LogAggregationFileController fileController = factory.getFileControllerForRead(appId, appOwner);
+
+        ContainerLogsRequest request = new ContainerLogsRequest();
+        request.setAppId(appId);
+        request.setAppOwner(appOwner);
+        request.setAppFinished(true);
+        request.setContainerId(StringUtils.trimToNull(containerId));
+        request.setNodeId(StringUtils.trimToNull(nodeId));
+        request.setLogTypes(logTypes == null ? Collections.emptySet() : logTypes);
+        request.setBytes(bytes);
+
+        LOG.info("read {} aggregated logs by {}, owner: {}, container: {}",
+                applicationId, fileController.getClass().getSimpleName(), appOwner, containerId);
+        return fileController.readAggregatedLogs(request, outputStream);
+    }
+
+    private String getAppOwner(String clusterCode, String applicationId) {
+        try {
+            ApplicationReport report = yarnClientService.getYarnApplicationReport(clusterCode, applicationId);
+            if (report != null && StringUtils.isNotBlank(report.getUser())) {
+                return report.getUser();
+            }
+        } catch (Exception e) {
+            LOG.warn("获取 {} 提交用户失败: {}", applicationId, e.getMessage());
+        }
+        return clusterConfig.getDriverHadoopUserName(clusterCode);
+    }
+}
@@ -5,7 +5,13 @@ public enum LeaderTypeEnum {
 
     DRIVER_POOL_MONITOR("leader_driver_pool_monitor"),
 
-    CLEAN_EXPIRE_INSTANCE("leader_clean_expire_instance");
+    CLEAN_EXPIRE_INSTANCE("leader_clean_expire_instance"),
+
+    ARCHIVE_INSTANCE_LOG("leader_archive_instance_log"),
+
+    ARCHIVE_INSTANCE("leader_archive_instance"),
+
+    INSTANCE_STATISTICS("leader_instance_statistics");
 
     private String redisKey;
 
@@ -0,0 +1,15 @@
+package io.github.melin.flink.jobserver.support.workload;
+
+import java.lang.annotation.*;
+
+/**
+ * 标注只访问数据库的方法的负载类型，方法执行期间占用许可，嵌套调用沿用最外层负载。
+ * 不能标注在包含远程调用(yarn、driver http、日志流)的方法和类上，混合逻辑把数据库访问抽取到标注的 service 方法中，如 MonitoringDbService、ReportingDbService
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DbWorkload {
+
+    WorkloadType value();
+}
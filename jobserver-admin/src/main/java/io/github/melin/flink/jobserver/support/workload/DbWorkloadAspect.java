@@ -0,0 +1,42 @@
+package io.github.melin.flink.jobserver.support.workload;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 在事务切面之前获取许可，等待许可时不占用数据库连接
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DbWorkloadAspect {
+
+    @Autowired
+    private DbWorkloadGate dbWorkloadGate;
+
+    @Around("@annotation(io.github.melin.flink.jobserver.support.workload.DbWorkload)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        DbWorkload dbWorkload = AnnotationUtils.findAnnotation(signature.getMethod(), DbWorkload.class);
+        if (dbWorkload == null) {
+            return joinPoint.proceed();
+        }
+
+        WorkloadType type = dbWorkload.value();
+        boolean acquired = dbWorkloadGate.acquire(type);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            if (acquired) {
+                dbWorkloadGate.release(type);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.melin.flink.jobserver.support.workload;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.api.FlinkJobServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按负载类型限制同时访问数据库的线程数，共用一个连接池，避免一类负载耗尽连接。
+ * 等待时间、当前并发、超时次数通过 actuator metrics 暴露: jobserver.db.workload.*
+ * 业务代码统一使用 {@link DbWorkload} 标注，许可由 {@link DbWorkloadAspect} 获取和释放
+ */
+@Component
+public class DbWorkloadGate implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DbWorkloadGate.class);
+
+    private static final ThreadLocal<WorkloadType> CURRENT_WORKLOAD = new ThreadLocal<>();
+
+    @Autowired
+    private ConfigProperties configProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<WorkloadType, Semaphore> semaphores = new EnumMap<>(WorkloadType.class);
+
+    private final Map<WorkloadType, Timer> waitTimers = new EnumMap<>(WorkloadType.class);
+
+    private final Map<WorkloadType, Counter> timeoutCounters = new EnumMap<>(WorkloadType.class);
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Map<String, Integer> limits = configProperties.getDbWorkloadLimits();
+        for (WorkloadType type : WorkloadType.values()) {
+            String name = type.name().toLowerCase();
+            int limit = limits.getOrDefault(name, type.getDefaultLimit());
+            Semaphore semaphore = new Semaphore(limit, true);
+            semaphores.put(type, semaphore);
+
+            waitTimers.put(type, Timer.builder("jobserver.db.workload.wait")
+                    .tag("workload", name).register(meterRegistry));
+            timeoutCounters.put(type, Counter.builder("jobserver.db.workload.timeout")
+                    .tag("workload", name).register(meterRegistry));
+            Gauge.builder("jobserver.db.workload.active", semaphore, s -> limit - s.availablePermits())
+                    .tag("workload", name).register(meterRegistry);
+            LOG.info("db workload {} limit: {}", name, limit);
+        }
+    }
+
+    /**
+     * @return 是否获取到许可，当前线程已经在负载中(嵌套调用)不重复获取，返回 false
+     */
+    public boolean acquire(WorkloadType type) throws InterruptedException {
+        if (CURRENT_WORKLOAD.get() != null) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean acquired = semaphores.get(type).tryAcquire(configProperties.getDbWorkloadWaitSeconds(), TimeUnit.SECONDS);
+        waitTimers.get(type).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            timeoutCounters.get(type).increment();
+            throw new FlinkJobServerException("db workload " + type + " busy, wait timeout");
+        }
+
+        CURRENT_WORKLOAD.set(type);
+        return true;
+    }
+
+    public void release(WorkloadType type) {
+        CURRENT_WORKLOAD.remove();
+        semaphores.get(type).release();
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.melin.flink.jobserver.support.workload;
+
+/**
+ * 数据库访问负载类型，所有负载默认并发上限之和等于连接池大小(15)，任何一类负载卡住都不会占用 web 的连接。
+ * SCHEDULING: 内部调度分发和作业提交；API: 外部客户端提交和查询实例状态
+ */
+public enum WorkloadType {
+    SCHEDULING(4),
+
+    API(2),
+
+    MONITORING(2),
+
+    WEB(5),
+
+    REPORTING(2);
+
+    private final int defaultLimit;
+
+    WorkloadType(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+}
@@ -9,17 +9,24 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.AbstractList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * huaixin 2022/4/2 5:38 PM
@@ -27,6 +34,13 @@ import java.util.stream.Stream;
 public class JobServerUtils {
     private static final Logger LOG = LoggerFactory.getLogger(JobServerUtils.class);
 
+    public static final String ARCHIVED_LOG_SUFFIX = ".gz";
+
+    public static final int LOG_BUFFER_SIZE = 64 * 1024;
+
+    // 流任务滚动日志 instanceCode.log.1 ... instanceCode.log.N
+    private static final Pattern ROLLED_LOG_PATTERN = Pattern.compile(".+\\.log\\.\\d+");
+
     public static <T> List<List<T>> partition(final List<T> list, final int size) {
         if (list == null) {
             throw new NullPointerException("List must not be null");
@@ -78,10 +92,97 @@ public class JobServerUtils {
         String instanceCode = instance.getCode();
         String logFile = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
         File file = new File(logFile);
+        getRolledLogFiles(file).forEach(FileUtils::deleteQuietly);
         FileUtils.deleteQuietly(file);
+        FileUtils.deleteQuietly(new File(logFile + ARCHIVED_LOG_SUFFIX));
         return scheduleDate;
     }
 
+    /**
+     * 实例日志文件，日志归档后为 gzip 压缩的 instanceCode.log.gz
+     */
+    public static File getInstanceLogFile(String instanceLogPath, String scheduleDate, String instanceCode) {
+        String logFile = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
+        File file = new File(logFile);
+        if (!file.exists()) {
+            File archivedFile = new File(logFile + ARCHIVED_LOG_SUFFIX);
+            if (archivedFile.exists()) {
+                return archivedFile;
+            }
+        }
+        return file;
+    }
+
+    public static boolean isArchivedLogFile(File file) {
+        return file.getName().endsWith(ARCHIVED_LOG_SUFFIX);
+    }
+
+    public static boolean isRolledLogFile(File file) {
+        return ROLLED_LOG_PATTERN.matcher(file.getName()).matches();
+    }
+
+    /**
+     * 流任务滚动日志，按时间从旧到新返回(instanceCode.log.N ... instanceCode.log.1)。
+     * 归档时滚动日志合并到 instanceCode.log.gz，归档文件没有滚动日志
+     */
+    public static List<File> getRolledLogFiles(File file) {
+        List<File> files = Lists.newArrayList();
+        if (isArchivedLogFile(file)) {
+            return files;
+        }
+
+        for (int index = 1; ; index++) {
+            File rolledFile = new File(file.getPath() + "." + index);
+            if (!rolledFile.exists()) {
+                break;
+            }
+            files.add(rolledFile);
+        }
+        Collections.reverse(files);
+        return files;
+    }
+
+    /**
+     * 日志总长度，包含滚动日志，归档日志为压缩后长度
+     */
+    public static long getLogFileLength(File file) {
+        long length = file.length();
+        for (File rolledFile : getRolledLogFiles(file)) {
+            length += rolledFile.length();
+        }
+        return length;
+    }
+
+    /**
+     * 打开日志文件，归档日志透明解压，流任务滚动日志按时间顺序拼接在当前日志之前
+     */
+    public static InputStream openLogFile(File file) throws IOException {
+        InputStream inputStream = Files.newInputStream(file.toPath());
+        if (isArchivedLogFile(file)) {
+            return new GZIPInputStream(inputStream, LOG_BUFFER_SIZE);
+        }
+
+        List<File> rolledFiles = getRolledLogFiles(file);
+        if (rolledFiles.isEmpty()) {
+            return inputStream;
+        }
+
+        List<InputStream> inputStreams = Lists.newArrayList();
+        try {
+            for (File rolledFile : rolledFiles) {
+                inputStreams.add(Files.newInputStream(rolledFile.toPath()));
+            }
+        } catch (IOException e) {
+            for (InputStream stream : inputStreams) {
+                stream.close();
+            }
+            inputStream.close();
+            throw e;
+        }
+        inputStreams.add(inputStream);
+        return new SequenceInputStream(Collections.enumeration(inputStreams));
+    }
+
     public static void validateJobConfig(String jobConfig) {
         if (StringUtils.isBlank(jobConfig)) {
             return;
@@ -92,8 +193,8 @@ public class JobServerUtils {
             properties.load(new StringReader(jobConfig));
             properties.keySet().forEach(key -> {
                 String propKey = (String) key;
-                if (!StringUtils.startsWith(propKey, "spark.")) {
-                    throw new IllegalArgumentException("只支持spark 参数设置，参数前缀为: spark.");
+                if (!StringUtils.startsWithAny(propKey, "spark.", "jobserver.driver.")) {
+                    throw new IllegalArgumentException("只支持spark 和 driver 参数设置，参数前缀为: spark., jobserver.driver.");
                 }
             });
         } catch (Exception e) {
@@ -103,20 +204,40 @@ public class JobServerUtils {
     }
 
     /**
-     * 读取日志文件最后 2000 行
+     * 读取日志文件最后 2000 行，当前日志不足 2000 行时继续读取流任务滚动日志
      */
     public static LinkedList<String> readLogFile(File file) throws IOException {
-        try (ReversedLinesFileReader fileReader = new ReversedLinesFileReader(file, Charset.defaultCharset())) {
-            LinkedList<String> lines = Lists.newLinkedList();
-            int counter = 0;
+        if (isArchivedLogFile(file)) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(openLogFile(file), Charset.defaultCharset()))) {
+                LinkedList<String> lines = Lists.newLinkedList();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (lines.size() >= 2000) {
+                        lines.removeFirst();
+                    }
+                    lines.addLast(line);
+                }
+                return lines;
+            }
+        }
+
+        LinkedList<String> lines = Lists.newLinkedList();
+        readLastLines(file, lines);
+        List<File> rolledFiles = getRolledLogFiles(file);
+        for (int index = rolledFiles.size() - 1; index >= 0 && lines.size() < 2000; index--) {
+            readLastLines(rolledFiles.get(index), lines);
+        }
+        return lines;
+    }
 
+    private static void readLastLines(File file, LinkedList<String> lines) throws IOException {
+        try (ReversedLinesFileReader fileReader = new ReversedLinesFileReader(file, Charset.defaultCharset())) {
             String line = fileReader.readLine();
-            while (counter < 2000 && line != null) {
+            while (lines.size() < 2000 && line != null) {
                 lines.addFirst(line);
                 line = fileReader.readLine();
-                counter++;
             }
-            return lines;
         }
     }
 
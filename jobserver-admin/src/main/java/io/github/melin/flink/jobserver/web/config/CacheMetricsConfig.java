@@ -0,0 +1,33 @@
+package io.github.melin.flink.jobserver.web.config;
+
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.service.ClusterService;
+import io.github.melin.flink.jobserver.core.service.DataConnectorService;
+import io.github.melin.flink.jobserver.core.util.EntityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 实体缓存命中率，/actuator/metrics/cache.gets?tag=cache:cluster&tag=result:hit
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder entityCacheMetrics(ClusterService clusterService,
+                                          ApplicationDriverService driverService,
+                                          DataConnectorService connectorService) {
+        return registry -> {
+            monitor(registry, clusterService.getClusterCache());
+            monitor(registry, driverService.getDriverAddressCache());
+            monitor(registry, connectorService.getConnectorCache());
+        };
+    }
+
+    private static void monitor(MeterRegistry registry, EntityCache<?, ?> entityCache) {
+        GuavaCacheMetrics.monitor(registry, entityCache.getCache(), entityCache.getName());
+    }
+}
@@ -1,31 +1,33 @@
 package io.github.melin.flink.jobserver.web.controller;
 
-import io.github.melin.flink.jobserver.ConfigProperties;
 import io.github.melin.flink.jobserver.FlinkJobServerConf;
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
 import io.github.melin.flink.jobserver.core.enums.DeployMode;
 import io.github.melin.flink.jobserver.logs.FlinkLogService;
 import io.github.melin.flink.jobserver.support.ClusterConfig;
+import io.github.melin.flink.jobserver.support.YarnAggregatedLogService;
 import io.github.melin.flink.jobserver.support.YarnClientService;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
 import io.github.melin.flink.jobserver.core.enums.DriverStatus;
 import io.github.melin.flink.jobserver.core.service.ClusterService;
 import io.github.melin.flink.jobserver.core.service.JobInstanceService;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
 import com.gitee.melin.bee.core.support.Pagination;
 import com.gitee.melin.bee.core.support.Result;
 import com.google.common.collect.Lists;
-import org.apache.commons.io.FileUtils;
+import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hibernate.criterion.Order;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -36,18 +38,17 @@ import org.springframework.web.client.RestTemplate;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
-import java.net.URLConnection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @Controller
-public class ApplicationDriverController implements InitializingBean {
+public class ApplicationDriverController {
 
     private static final Logger LOG = LoggerFactory.getLogger(ApplicationDriverController.class);
 
-    private static final String TMP_DIR = FileUtils.getUserDirectory() + "/tmp/";
-
     @Autowired
     private ApplicationDriverService driverService;
 
@@ -64,7 +65,7 @@ public class ApplicationDriverController implements InitializingBean {
     private FlinkLogService flinkLogService;
 
     @Autowired
-    private ConfigProperties configProperties;
+    private YarnAggregatedLogService yarnAggregatedLogService;
 
     @Autowired
     private ClusterService clusterService;
@@ -77,11 +78,6 @@ public class ApplicationDriverController implements InitializingBean {
 
     public static String flinkLauncherFailedMsg = "";
 
-    @Override
-    public void afterPropertiesSet() throws Exception {
-        FileUtils.forceMkdir(new File(TMP_DIR));
-    }
-
     @RequestMapping("/driver")
     public String home(ModelMap model) {
         List<Cluster> clusters = clusterService.queryValidClusters();
@@ -93,6 +89,7 @@ public class ApplicationDriverController implements InitializingBean {
 
     @RequestMapping("/driver/queryDrivers")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Pagination<ApplicationDriver> queryDrivers(String applicationId, int page, int limit, HttpServletRequest request) {
         String sort = request.getParameter("sort");
         String order = request.getParameter("order");
@@ -165,132 +162,145 @@ public class ApplicationDriverController implements InitializingBean {
             }
         }
 
-        driverService.deleteEntity(driverId);
+        driverService.deleteDriver(driverId);
         return Result.successResult();
     }
 
+    /**
+     * @param containerId 按 container 过滤，driver 结束后有效
+     * @param logType 日志文件名，多个逗号分隔，driver 结束后有效
+     * @param bytes 读取字节数，负数读取末尾字节。driver 运行中时只支持负数(tail)，也可以使用 Range 请求头
+     */
     @RequestMapping("/driver/downloadYarnLog")
-    public void downloadYarnLog(String applicationId, HttpServletResponse response) throws Exception {
+    public void downloadYarnLog(String applicationId, String clusterCode, String containerId, String nodeId,
+                                String logType, Long bytes, HttpServletRequest request,
+                                HttpServletResponse response) throws Exception {
         ApplicationDriver driver = driverService.queryDriverByAppId(applicationId);
         if (driver != null) {
-            String urlStr = driver.getFlinkDriverUrl() + "/flinkDriver/downloadYarnLog";
-            LOG.info("下载yarn log: {}", urlStr);
-            String downFilename = applicationId + ".log"; //要下载的文件名称
-            response.setContentType("application/x-download");
-            response.setHeader("Location", downFilename);
-            response.setHeader("Content-Disposition", "attachment; filename=" + downFilename);
-            OutputStream outputStream = null;
-            InputStream inputStream = null;
-            try {
-                outputStream = new BufferedOutputStream(response.getOutputStream());
-
-                URL url = new URL(urlStr);
-                URLConnection uc = url.openConnection();
-                inputStream = uc.getInputStream();
-
-                IOUtils.copyLarge(inputStream, outputStream);
-            } catch (IOException e) {
-                LOG.error("下载日志异常: " + applicationId, e);
-            } finally {
-                IOUtils.closeQuietly(outputStream);
-                IOUtils.closeQuietly(inputStream);
-            }
+            proxyDriverLog(driver, bytes, request, response);
         } else {
-            FileInputStream fileInputStream = null;
-            OutputStream outputStream = null;
-            File logFile = null;
-            try {
-                String fileName = applicationId + ".log";
-                String filePath = TMP_DIR + fileName;
-                logFile = new File(filePath);
-
-                String[] cmds = buildDownloadYarnCmd(applicationId, filePath);
-                String commandLine = StringUtils.join(cmds, " && ");
-                LOG.info("导出yarn 日志执行命令: " + commandLine);
-
-                execYarnLogsCommand(logFile, commandLine);
-
-                response.reset();
-                response.setContentType("application/x-download");
-                response.addHeader("Content-Disposition", "attachment;filename=" + fileName);
-                response.addHeader("Content-Length", "" + FileUtils.sizeOf(logFile));
-
-                outputStream = new BufferedOutputStream(response.getOutputStream());
-                fileInputStream = new FileInputStream(logFile);
-                IOUtils.copyLarge(fileInputStream, outputStream);
-            } catch (Throwable e) {
-                LOG.error("下载 " + applicationId + " yarn 日志失败: " + e.getMessage(), e);
-
-                String error = "";
-                if (e.getMessage() != null) {
-                    error = e.getMessage();
-                    if (StringUtils.containsIgnoreCase(error, "Invalid AppAttemptId")) {
-                        error = "该applicationId：" + applicationId + "，格式不正确";
-                    }
-                } else {
-                    if (e.getCause() == null) {
-                        error = e.getMessage();
-                    } else {
-                        error = e.getCause().getMessage();
-                    }
-                    if (StringUtils.containsIgnoreCase(e.getCause().getCause().toString(), "ApplicationNotFoundException")) {
-                        error = "applicationId：" + applicationId + " 不存在!";
-                    }
-                }
-                response.reset();
-                response.setCharacterEncoding("utf-8");
-                response.setContentType("text/html;charset=utf-8");
-                response.getWriter().append(error);
-            } finally {
-                IOUtils.closeQuietly(outputStream);
-                IOUtils.closeQuietly(fileInputStream);
-                FileUtils.deleteQuietly(logFile);
-            }
+            readAggregatedLogs(applicationId, clusterCode, containerId, nodeId, logType, bytes, response);
         }
     }
 
-    private void execYarnLogsCommand(File logFile, String commandLine) throws IOException, InterruptedException {
-        String[] cmd = {"sh", "-c", commandLine};
-        LOG.info(StringUtils.join(cmd, ";"));
-        Process process = Runtime.getRuntime().exec(cmd);
-        String errLog = processErrLog(process);
-        if (errLog != null) {
-            FileUtils.write(logFile, errLog);
+    /**
+     * driver 运行中，代理下载 driver 容器日志，透传 Range、tail 和 gzip 压缩
+     */
+    private void proxyDriverLog(ApplicationDriver driver, Long bytes, HttpServletRequest request,
+                                HttpServletResponse response) {
+        String applicationId = driver.getApplicationId();
+        String urlStr = driver.getFlinkDriverUrl() + "/flinkDriver/downloadYarnLog";
+        if (bytes != null && bytes < 0) {
+            urlStr = urlStr + "?tail=" + (-bytes);
         }
+        LOG.info("下载yarn log: {}", urlStr);
 
-        LOG.info("process exit value: " + process.exitValue() + ", filePath: " + logFile.getPath());
-    }
+        String clusterCode = driver.getClusterCode();
+        int connectTimeout = clusterConfig.getInt(clusterCode, FlinkJobServerConf.JOBSERVER_DRIVER_LOG_CONNECT_TIMEOUT_SEC);
+        int readTimeout = clusterConfig.getInt(clusterCode, FlinkJobServerConf.JOBSERVER_DRIVER_LOG_READ_TIMEOUT_SEC);
 
-    private String[] buildDownloadYarnCmd(String applicationId, String filePath) {
-        String yarnLocation = "/usr/bin/yarn";
-        String baseConf = configProperties.getJobserverConfDir();
-        String hadoopConf = "export HADOOP_CONF_DIR=" + baseConf;
-        String[] cmds = {hadoopConf};
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(urlStr).openConnection();
+            connection.setConnectTimeout(connectTimeout * 1000);
+            connection.setReadTimeout(readTimeout * 1000);
+            String range = request.getHeader(HttpHeaders.RANGE);
+            if (StringUtils.isNotBlank(range)) {
+                connection.setRequestProperty(HttpHeaders.RANGE, range);
+            }
+            // 压缩内容原样透传给客户端，不在 admin 解压
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (StringUtils.containsIgnoreCase(acceptEncoding, "gzip")) {
+                connection.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
 
-        String cmd = yarnLocation + " logs -applicationId " + applicationId + " > " + filePath;
-        cmds = ArrayUtils.add(cmds, cmd);
+            int status = connection.getResponseCode();
+            response.setStatus(status);
+            if (status >= 400) {
+                // 416 时 Content-Range(bytes */length) 返回文件长度，错误内容原样返回
+                String contentRange = connection.getHeaderField(HttpHeaders.CONTENT_RANGE);
+                if (contentRange != null) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange);
+                }
+                String contentType = connection.getContentType();
+                if (contentType != null) {
+                    response.setContentType(contentType);
+                }
+                try (InputStream errorStream = connection.getErrorStream()) {
+                    if (errorStream != null) {
+                        IOUtils.copyLarge(errorStream, response.getOutputStream());
+                    }
+                }
+                return;
+            }
+
+            String downFilename = applicationId + ".log"; //要下载的文件名称
+            response.setContentType("application/x-download");
+            response.setHeader("Content-Disposition", "attachment; filename=" + downFilename);
+            for (String header : new String[]{HttpHeaders.CONTENT_RANGE, HttpHeaders.CONTENT_LENGTH,
+                    HttpHeaders.CONTENT_ENCODING, HttpHeaders.ACCEPT_RANGES}) {
+                String value = connection.getHeaderField(header);
+                if (value != null) {
+                    response.setHeader(header, value);
+                }
+            }
 
-        return cmds;
+            try (InputStream inputStream = connection.getInputStream();
+                 OutputStream outputStream = new BufferedOutputStream(response.getOutputStream(), 64 * 1024)) {
+                IOUtils.copyLarge(inputStream, outputStream, new byte[64 * 1024]);
+            }
+        } catch (IOException e) {
+            LOG.error("下载日志异常: " + applicationId, e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
     }
 
-    private String processErrLog(Process process) {
+    /**
+     * driver 已经结束，直接读取 yarn 聚合日志
+     */
+    private void readAggregatedLogs(String applicationId, String clusterCode, String containerId, String nodeId,
+                                    String logType, Long bytes, HttpServletResponse response) throws IOException {
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            LinkedList<String> list = new LinkedList<>();
-            while (process.isAlive()) {
-                String line = reader.readLine();
-                if (StringUtils.isNotBlank(line)) {
-                    list.add(line);
+            if (StringUtils.isBlank(clusterCode)) {
+                JobInstance instance = jobInstanceService.queryInstanceByAppId(applicationId);
+                if (instance == null) {
+                    throw new IllegalArgumentException("applicationId：" + applicationId + " 不存在，请指定 clusterCode");
                 }
+                clusterCode = instance.getClusterCode();
             }
 
-            if (process.exitValue() != 0) {
-                return StringUtils.join(list, "\n");
-            } else {
-                return null;
+            String fileName = applicationId + ".log";
+            response.reset();
+            response.setContentType("application/x-download");
+            response.addHeader("Content-Disposition", "attachment;filename=" + fileName);
+
+            Set<String> logTypes = StringUtils.isBlank(logType) ? Collections.emptySet() :
+                    Sets.newHashSet(StringUtils.split(logType, ","));
+            long readBytes = bytes == null ? Long.MAX_VALUE : bytes;
+            OutputStream outputStream = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+            boolean found = yarnAggregatedLogService.readAggregatedLogs(clusterCode, applicationId,
+                    containerId, nodeId, logTypes, readBytes, outputStream);
+            if (!found && !response.isCommitted()) {
+                throw new IllegalStateException("applicationId：" + applicationId + " 聚合日志不存在!");
+            }
+            outputStream.flush();
+        } catch (Throwable e) {
+            LOG.error("下载 " + applicationId + " yarn 日志失败: " + e.getMessage(), e);
+            if (response.isCommitted()) {
+                return;
+            }
+
+            String error = ExceptionUtils.getRootCauseMessage(e);
+            if (StringUtils.containsIgnoreCase(error, "Invalid ApplicationId")) {
+                error = "该applicationId：" + applicationId + "，格式不正确";
             }
-        } catch (Exception e) {
-            return ExceptionUtils.getStackTrace(e);
+            response.reset();
+            response.setCharacterEncoding("utf-8");
+            response.setContentType("text/html;charset=utf-8");
+            response.getWriter().append(error);
         }
     }
 }
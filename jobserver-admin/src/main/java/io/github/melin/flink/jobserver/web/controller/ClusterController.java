@@ -6,6 +6,8 @@ import io.github.melin.flink.jobserver.core.entity.Cluster;
 import io.github.melin.flink.jobserver.core.enums.SchedulerType;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
 import io.github.melin.flink.jobserver.core.service.ClusterService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
 import com.gitee.melin.bee.core.support.Pagination;
 import com.gitee.melin.bee.core.support.Result;
 import com.google.common.collect.Lists;
@@ -53,6 +55,7 @@ public class ClusterController {
 
     @RequestMapping("/cluster/queryClusters")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Pagination<Cluster> queryClusters(String code, int page, int limit, HttpServletRequest request) {
         String sort = request.getParameter("sort");
         String order = request.getParameter("order");
@@ -79,6 +82,7 @@ public class ClusterController {
 
     @RequestMapping("/cluster/queryClusterNames")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public List<Cluster> queryClusters() {
         return clusterService.findAllEntity(
                 HibernateUtils.projectionList("code", "name", "schedulerType"));
@@ -86,6 +90,7 @@ public class ClusterController {
 
     @RequestMapping("/cluster/queryCluster")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Cluster> queryCluster(Long clusterId) {
         try {
             Cluster cluster = clusterService.getEntity(clusterId);
@@ -98,6 +103,7 @@ public class ClusterController {
 
     @RequestMapping("/cluster/saveCluster")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> saveCluster(Cluster cluster, String keytabBase64) {
         if (SchedulerType.YARN == cluster.getSchedulerType()) {
             if (!StringUtils.contains(cluster.getYarnConfig(), "yarn.resourcemanager.webapp.address")
@@ -131,7 +137,7 @@ public class ClusterController {
             if (cluster.getId() == null) {
                 cluster.setCreater("jobserver");
                 cluster.setModifier("jobserver");
-                clusterService.insertEntity(cluster);
+                clusterService.insertCluster(cluster);
             } else {
                 Cluster old = clusterService.getEntity(cluster.getId());
                 old.setName(cluster.getName());
@@ -153,7 +159,7 @@ public class ClusterController {
                 old.setKerberosKeytab(cluster.getKerberosKeytab());
                 old.setKerberosFileName(cluster.getKerberosFileName());
                 old.setGmtModified(Instant.now());
-                clusterService.updateEntity(old);
+                clusterService.updateCluster(old);
             }
             return Result.successResult();
         } catch (Exception e) {
@@ -176,6 +182,7 @@ public class ClusterController {
 
     @RequestMapping("/cluster/updateStatus")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> updateStatus(Long clusterId, Boolean status) {
         try {
             if (status == null) {
@@ -184,7 +191,7 @@ public class ClusterController {
 
             Cluster cluster = clusterService.getEntity(clusterId);
             cluster.setStatus(status);
-            clusterService.updateEntity(cluster);
+            clusterService.updateCluster(cluster);
             return Result.successResult();
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
@@ -194,6 +201,7 @@ public class ClusterController {
 
     @RequestMapping("/cluster/deleteCluster")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> deleteCluster(Long clusterId) {
         try {
             Cluster cluster = clusterService.getEntity(clusterId);
@@ -204,7 +212,7 @@ public class ClusterController {
                 return Result.failureResult("The cluster " + cluster.getCode() + " is used and cannot be deleted");
             }
 
-            clusterService.deleteEntity(cluster);
+            clusterService.deleteCluster(cluster);
             return Result.successResult();
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
@@ -7,6 +7,8 @@ import com.google.common.collect.Lists;
 import io.github.melin.flink.jobserver.core.entity.DataConnector;
 import io.github.melin.flink.jobserver.core.service.DataConnectorService;
 import io.github.melin.flink.jobserver.core.util.AESUtils;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
@@ -39,6 +41,7 @@ public class ConnectorController {
 
     @RequestMapping("/connector/queryConnectors")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Pagination<DataConnector> queryConnectors(String connectorType, String name,
                                                      int page, int limit, HttpServletRequest request) {
         String sort = request.getParameter("sort");
@@ -71,6 +74,7 @@ public class ConnectorController {
 
     @RequestMapping("/connector/queryConnector")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<DataConnector> queryConnector(Long connectorId) {
         try {
             DataConnector connector = connectorService.getEntity(connectorId);
@@ -95,6 +99,7 @@ public class ConnectorController {
 
     @RequestMapping("/connector/saveConnector")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> saveConnector(DataConnector connector) {
         try {
             connector.setGmtCreated(Instant.now());
@@ -104,14 +109,14 @@ public class ConnectorController {
                 connector.setCreater("jobserver");
                 connector.setModifier("jobserver");
                 connector.setPassword(AESUtils.encrypt(connector.getPassword()));
-                connectorService.insertEntity(connector);
+                connectorService.insertConnector(connector);
             } else {
                 DataConnector old = connectorService.getEntity(connector.getId());
                 old.setName(connector.getName());
                 old.setUsername(connector.getUsername());
                 old.setPassword(AESUtils.encrypt(connector.getPassword()));
                 old.setJdbcUrl(connector.getJdbcUrl());
-                connectorService.updateEntity(old);
+                connectorService.updateConnector(old);
             }
             return Result.successResult();
         } catch (Exception e) {
@@ -122,10 +127,11 @@ public class ConnectorController {
 
     @RequestMapping("/connector/deleteConnector")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> deleteConnector(Long connectorId) {
         try {
             DataConnector connector = connectorService.getEntity(connectorId);
-            connectorService.deleteEntity(connector);
+            connectorService.deleteConnector(connector);
             return Result.successResult();
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
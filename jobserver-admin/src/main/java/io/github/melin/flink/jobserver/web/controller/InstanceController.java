@@ -1,28 +1,38 @@
 package io.github.melin.flink.jobserver.web.controller;
 
 import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.core.dto.InstancePage;
+import io.github.melin.flink.jobserver.core.dto.InstanceQuery;
+import io.github.melin.flink.jobserver.core.dto.ResultPage;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
+import io.github.melin.flink.jobserver.core.entity.InstanceStatistics;
 import io.github.melin.flink.jobserver.core.entity.JobInstance;
 import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
 import io.github.melin.flink.jobserver.core.enums.*;
 import io.github.melin.flink.jobserver.core.service.ClusterService;
+import io.github.melin.flink.jobserver.core.service.InstanceStatisticsService;
 import io.github.melin.flink.jobserver.core.service.JobInstanceContentService;
 import io.github.melin.flink.jobserver.core.service.JobInstanceService;
 import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
-import com.gitee.melin.bee.core.support.Pagination;
 import com.gitee.melin.bee.core.support.Result;
 import com.google.common.collect.Lists;
-import com.google.common.io.ByteStreams;
+import com.google.common.collect.Sets;
 import io.github.melin.flink.jobserver.util.Constant;
 import io.github.melin.flink.jobserver.util.DateUtils;
 import io.github.melin.flink.jobserver.util.JobServerUtils;
 import io.github.melin.flink.jobserver.util.RandomUniqueIdGenerator;
+import io.github.melin.flink.jobserver.support.DriverClientService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hibernate.criterion.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.ModelMap;
@@ -30,15 +40,18 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.nio.file.Files;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -47,6 +60,9 @@ public class InstanceController {
 
     private static final Logger LOG = LoggerFactory.getLogger(InstanceController.class);
 
+    // 排序字段，fjs_job_instance 有对应索引
+    private static final Set<String> SORT_KEYS = Sets.newHashSet("id", "gmtCreated", "scheduleTime");
+
     @Autowired
     private JobInstanceService instanceService;
 
@@ -56,9 +72,15 @@ public class InstanceController {
     @Autowired
     private ClusterService clusterService;
 
+    @Autowired
+    private InstanceStatisticsService instanceStatisticsService;
+
     @Autowired
     private ApplicationDriverService driverService;
 
+    @Autowired
+    private DriverClientService driverClientService;
+
     @Autowired
     protected RestTemplate restTemplate;
 
@@ -80,6 +102,7 @@ public class InstanceController {
     @PostMapping("/instance/saveJobInstance")
     @ResponseBody
     @Transactional
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> saveJobInstance(Long id, JobType jobType, RuntimeMode runtimeMode,
                                         DeployMode deployMode, String sessionName, String name,
                                         String jobText, String clusterCode, String jobConfig, boolean isRun) {
@@ -108,7 +131,7 @@ public class InstanceController {
                     .setDependentCode(Constant.ROOT_SCHEDULE_NODE)
                     .setGmtCreated(Instant.now());
 
-            instanceService.insertEntity(builder.build());
+            instanceService.insertJobInstance(builder.build());
             instanceService.saveJobText(instanceCode, jobText, jobConfig);
         } else {
             JobInstance instance = instanceService.getEntity(id);
@@ -116,17 +139,12 @@ public class InstanceController {
             instance.setRuntimeMode(runtimeMode);
             instance.setName(name);
             instance.setGmtModified(Instant.now());
+            instanceService.updateEntity(instance);
+            instanceService.updateJobText(instance.getCode(), jobText, jobConfig);
             if (isRun) {
-                instance.setStatus(InstanceStatus.WAITING);
+                // 状态变更发布事件并更新统计
+                instanceService.restartInstance(instance.getCode());
             }
-            instanceService.updateEntity(instance);
-
-            JobInstanceContent instanceContent =
-                    instanceContentService.queryByNamedParam("code", instance.getCode());
-
-            instanceContent.setJobConfig(jobConfig);
-            instanceContent.setJobText(jobText);
-            instanceContentService.updateEntity(instanceContent);
         }
 
         return Result.successResult();
@@ -134,6 +152,7 @@ public class InstanceController {
 
     @RequestMapping("/instance/queryInstance")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<JobInstance> queryInstance(Long instanceId) {
         JobInstance instance = instanceService.getEntity(instanceId);
         return Result.successDataResult(instance);
@@ -141,63 +160,56 @@ public class InstanceController {
 
     @RequestMapping("/instance/queryInstanceContent")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<JobInstanceContent> queryInstanceContent(String code) {
-        JobInstanceContent instance = instanceContentService.queryByNamedParam("code", code);
+        JobInstanceContent instance = instanceService.queryJobTextByCode(code);
         return Result.successDataResult(instance);
     }
 
+    /**
+     * 只允许按有索引的字段排序，lastId 为上一页最后一条记录 id，不为空时 keyset 分页。列表包含归档实例
+     */
     @RequestMapping("/instance/queryInstances")
     @ResponseBody
-    public Pagination<JobInstance> queryInstances(String instanceCode, String instanceName,
-                                                  InstanceStatus status, String clientName,
-                                               int page, int limit, HttpServletRequest request) {
+    @DbWorkload(WorkloadType.REPORTING)
+    public InstancePage queryInstances(String instanceCode, String instanceName,
+                                       InstanceStatus status, String clientName,
+                                       int page, int limit, Long lastId, HttpServletRequest request) {
         String sort = request.getParameter("sort");
         String order = request.getParameter("order");
 
-        Order order1 = Order.desc("gmtCreated");
-        if (StringUtils.isNotEmpty(sort)) {
-            if ("asc".equals(order)) {
-                order1 = Order.asc(sort);
-            } else {
-                order1 = Order.desc(sort);
-            }
-        }
+        String sortKey = SORT_KEYS.contains(sort) ? sort : "gmtCreated";
+        boolean asc = SORT_KEYS.contains(sort) && "asc".equals(order);
 
-        List<String> params = Lists.newArrayList();
-        List<Object> values = Lists.newArrayList();
+        InstanceQuery query = new InstanceQuery();
         if (StringUtils.isNotBlank(instanceCode)) {
-            params.add("code");
-            values.add(StringUtils.trim(instanceCode));
+            query.setCode(StringUtils.trim(instanceCode));
         }
 
         if (StringUtils.isNotBlank(instanceName)) {
-            params.add("name");
-            values.add(Restrictions.like("name", StringUtils.trim(instanceName), MatchMode.ANYWHERE));
+            query.setName(StringUtils.trim(instanceName));
         }
 
         if (StringUtils.isNotBlank(clientName)) {
-            params.add("clientName");
-            values.add(StringUtils.trim(clientName));
+            query.setClientName(StringUtils.trim(clientName));
         }
 
-        if (status != null) {
-            params.add("status");
-            values.add(status);
-        }
-        return instanceService.findPageByNamedParamAndOrder(params, values,
-                Lists.newArrayList(order1), page, limit);
+        query.setStatus(status);
+        return instanceService.findInstancePage(query, sortKey, asc, lastId, page, limit);
     }
 
     @RequestMapping("/instance/queryJobText")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<String> queryJobText(String instanceCode) {
-        String jobText = instanceContentService.queryByCriterions(Projections.property("jobText"),
-                Restrictions.eq("code", instanceCode));
+        JobInstanceContent instanceContent = instanceService.queryJobTextByCode(instanceCode);
+        String jobText = instanceContent == null ? null : instanceContent.getJobText();
         return Result.successDataResult(jobText);
     }
 
     @RequestMapping("/instance/queryJobConfig")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<String> queryJobConfig(String instanceCode) {
         String jobConfig = instanceContentService.queryByCriterions(Projections.property("jobConfig"),
                 Restrictions.eq("code", instanceCode));
@@ -210,6 +222,7 @@ public class InstanceController {
 
     @PostMapping("/instance/saveJobConfig")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<String> saveJobConfig(String instanceCode, String jobConfig) {
         try {
             JobServerUtils.validateJobConfig(jobConfig);
@@ -222,15 +235,33 @@ public class InstanceController {
         }
     }
 
+    /**
+     * 分页获取 select 查询结果，结果保存在执行实例的 driver 上，statementId 为 select 语句所在行号，page 从 1 开始
+     */
+    @RequestMapping("/instance/queryResultPage")
+    @ResponseBody
+    public Result<ResultPage> queryResultPage(String instanceCode, int statementId, int page) {
+        JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
+        if (instance == null) {
+            return Result.failureResult("can not find job instance: " + instanceCode);
+        }
+
+        String driverUrl = StringUtils.isBlank(instance.getApplicationId()) ? null :
+                driverService.queryDriverAddressByAppId(instance.getApplicationId());
+        if (StringUtils.isBlank(driverUrl)) {
+            return Result.failureResult("实例 " + instanceCode + " 的 driver 已经关闭，查询结果不可用");
+        }
+        return driverClientService.fetchResultPage(driverUrl, instanceCode, statementId, page);
+    }
+
     @RequestMapping("/instance/queryInstanceLog")
     @ResponseBody
     public Result<String> queryInstanceLog(String scheduleDate, String instanceCode) {
         String instanceLogPath = configProperties.getInstanceLogPath();
-        String logFile = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
-        File file = new File(logFile);
+        File file = JobServerUtils.getInstanceLogFile(instanceLogPath, scheduleDate, instanceCode);
 
         if (!file.exists()) {
-            String msg = "访问文件不存在：" + logFile;
+            String msg = "访问文件不存在：" + file.getPath();
             LOG.error(msg);
 
             return Result.failureResult(msg);
@@ -240,7 +271,7 @@ public class InstanceController {
             LinkedList<String> lines = JobServerUtils.readLogFile(file);
             return Result.successDataResult(StringUtils.join(lines, "\n"));
         } catch (Exception e) {
-            LOG.error("访问文件失败：" + logFile, e);
+            LOG.error("访问文件失败：" + file.getPath(), e);
             return Result.failureResult(e.getMessage());
         }
     }
@@ -248,48 +279,69 @@ public class InstanceController {
     @RequestMapping("/instance/downloadInstanceLog")
     public void downloadInstanceLog(String scheduleDate, String instanceCode, HttpServletResponse response) {
         String instanceLogPath = configProperties.getInstanceLogPath();
-        String logFile = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
-        File file = new File(logFile);
+        File file = JobServerUtils.getInstanceLogFile(instanceLogPath, scheduleDate, instanceCode);
         outputFile(response, file);
     }
 
+    /**
+     * 日志直接边读边压缩写入响应流，不落临时文件，内存占用与实例数无关
+     */
     @RequestMapping("/instance/batchDownloadLogs")
-    public void batchDownloadLogs(String[] codes, HttpServletResponse response) throws IOException {
-        String fileName = "/tmp/logs-" + System.currentTimeMillis() + ".zip";
-        try (FileOutputStream fos = new FileOutputStream(fileName);
-             ZipOutputStream zipOut = new ZipOutputStream(fos)) {
-            for (String instanceCode : codes) {
-                JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
-                if (instance != null) {
-                    String instanceLogPath = configProperties.getInstanceLogPath();
-                    String scheduleDate = DateUtils.formatDate(instance.getScheduleTime());
-                    String logFile = instanceLogPath + "/" + scheduleDate + "/" + instanceCode + ".log";
-                    File fileToZip = new File(logFile);
-
-                    if (fileToZip.exists()) {
-                        try (FileInputStream fis = new FileInputStream(fileToZip)) {
-                            ZipEntry zipEntry = new ZipEntry(fileToZip.getName());
-                            zipOut.putNextEntry(zipEntry);
-                            ByteStreams.copy(fis, zipOut);
-                        }
-                    }
-                }
+    public ResponseEntity<StreamingResponseBody> batchDownloadLogs(String[] codes) {
+        List<JobInstance> instances = Lists.newArrayList();
+        if (codes != null && codes.length > 0) {
+            for (List<String> partCodes : JobServerUtils.partition(Arrays.asList(codes), 500)) {
+                instances.addAll(instanceService.findByCriterions(Restrictions.in("code", partCodes)));
             }
         }
 
-        File file = new File(fileName);
-        outputFile(response, file);
+        String instanceLogPath = configProperties.getInstanceLogPath();
+        StreamingResponseBody body = outputStream -> {
+            ZipOutputStream zipOut = new ZipOutputStream(
+                    new BufferedOutputStream(outputStream, JobServerUtils.LOG_BUFFER_SIZE));
+            byte[] buffer = new byte[JobServerUtils.LOG_BUFFER_SIZE];
+            for (JobInstance instance : instances) {
+                String scheduleDate = DateUtils.formatDate(instance.getScheduleTime());
+                File logFile = JobServerUtils.getInstanceLogFile(instanceLogPath, scheduleDate, instance.getCode());
+                if (!logFile.exists()) {
+                    continue;
+                }
+
+                zipOut.putNextEntry(new ZipEntry(instance.getCode() + ".log"));
+                try (InputStream inputStream = JobServerUtils.openLogFile(logFile)) {
+                    int i;
+                    while ((i = inputStream.read(buffer)) != -1) {
+                        zipOut.write(buffer, 0, i);
+                    }
+                }
+                zipOut.closeEntry();
+            }
+            zipOut.finish();
+            zipOut.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-download"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment;filename=logs-" + System.currentTimeMillis() + ".zip")
+                .body(body);
     }
 
     private void outputFile(HttpServletResponse response, File file) {
         response.reset();
         response.setContentType("application/x-download");
-        response.addHeader("Content-Disposition", "attachment;filename=" + file.getName());
-        response.addHeader("Content-Length", "" + file.length());
+        if (JobServerUtils.isArchivedLogFile(file)) {
+            // 归档日志解压输出，长度未知
+            String fileName = StringUtils.removeEnd(file.getName(), JobServerUtils.ARCHIVED_LOG_SUFFIX);
+            response.addHeader("Content-Disposition", "attachment;filename=" + fileName);
+        } else {
+            response.addHeader("Content-Disposition", "attachment;filename=" + file.getName());
+            response.addHeader("Content-Length", "" + JobServerUtils.getLogFileLength(file));
+        }
 
-        try (InputStream inputStream = Files.newInputStream(file.toPath());
-             OutputStream out = new BufferedOutputStream(response.getOutputStream())) {
-            byte[] buffer = new byte[1024 * 1024 * 2];
+        try (InputStream inputStream = JobServerUtils.openLogFile(file);
+             OutputStream out = new BufferedOutputStream(response.getOutputStream(), JobServerUtils.LOG_BUFFER_SIZE)) {
+            byte[] buffer = new byte[JobServerUtils.LOG_BUFFER_SIZE];
             int i;
             while ((i = inputStream.read(buffer)) != -1) {
                 out.write(buffer, 0, i);
@@ -302,23 +354,19 @@ public class InstanceController {
 
     @PostMapping("/instance/restart")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<String> restartInstance(String instanceCode) throws Exception {
-        JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
-        if (instance != null) {
-            instance.setGmtModified(Instant.now());
-            instance.setStatus(InstanceStatus.WAITING);
-            instance.setRunTimes(0L);
-            instanceService.updateEntity(instance);
-        }
+        instanceService.restartInstance(instanceCode);
         return Result.successResult();
     }
 
     @PostMapping("/instance/delete")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<String> deleteInstance(String instanceCode) throws Exception {
         JobInstance instance = instanceService.queryJobInstanceByCode(instanceCode);
         if (instance != null) {
-            instanceService.deleteEntity(instance);
+            instanceService.deleteInstance(instance);
 
             String logFile = configProperties.getInstanceLogPath();
             JobServerUtils.deleteLogFile(logFile, instance);
@@ -349,11 +397,28 @@ public class InstanceController {
 
     @PostMapping("/instance/queryInstanceStatistics")
     @ResponseBody
+    @DbWorkload(WorkloadType.REPORTING)
     public Result<Map<String, Long>> queryInstanceStatistics() {
         Map<String, Long> data = instanceService.queryInstanceStatistics();
         return Result.successDataResult(data);
     }
 
+    /**
+     * 按小时统计实例数量，默认最近7天
+     * @param startTime 毫秒时间戳
+     * @param endTime 毫秒时间戳
+     */
+    @RequestMapping("/instance/queryInstanceStatisticsHistory")
+    @ResponseBody
+    @DbWorkload(WorkloadType.REPORTING)
+    public Result<List<InstanceStatistics>> queryInstanceStatisticsHistory(Long startTime, Long endTime,
+                                                                           String clusterCode) {
+        Instant end = endTime == null ? Instant.now() : Instant.ofEpochMilli(endTime);
+        Instant start = startTime == null ? end.minus(7, ChronoUnit.DAYS) : Instant.ofEpochMilli(startTime);
+        List<InstanceStatistics> list = instanceStatisticsService.queryHistory(start, end, clusterCode);
+        return Result.successDataResult(list);
+    }
+
     private void killDriver(String appId, String instanceCode) {
         if (StringUtils.isNotBlank(appId)) {
             String driverUrl = driverService.queryDriverAddressByAppId(appId);
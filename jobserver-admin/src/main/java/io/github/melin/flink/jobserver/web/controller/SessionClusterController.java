@@ -14,6 +14,8 @@ import io.github.melin.flink.jobserver.core.service.ClusterService;
 import io.github.melin.flink.jobserver.submit.deployer.YarnSessionClusterDeployer;
 import io.github.melin.flink.jobserver.support.ClusterConfig;
 import io.github.melin.flink.jobserver.support.YarnClientService;
+import io.github.melin.flink.jobserver.support.workload.DbWorkload;
+import io.github.melin.flink.jobserver.support.workload.WorkloadType;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.criterion.Order;
 import org.slf4j.Logger;
@@ -59,6 +61,7 @@ public class SessionClusterController {
 
     @RequestMapping("/session/queryClusters")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Pagination<ApplicationDriver> queryClusters(String applicationId, int page, int limit, HttpServletRequest request) {
         String sort = request.getParameter("sort");
         String order = request.getParameter("order");
@@ -95,6 +98,7 @@ public class SessionClusterController {
 
     @RequestMapping("/session/queryCluster")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<ApplicationDriver> queryCluster(Long clusterId) {
         try {
             ApplicationDriver cluster = driverService.getEntity(clusterId);
@@ -107,6 +111,7 @@ public class SessionClusterController {
 
     @RequestMapping("/session/saveCluster")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> saveCluster(ApplicationDriver sessionDriver) {
         try {
             sessionDriver.setGmtCreated(Instant.now());
@@ -138,10 +143,11 @@ public class SessionClusterController {
 
     @RequestMapping("/session/deleteCluster")
     @ResponseBody
+    @DbWorkload(WorkloadType.WEB)
     public Result<Void> deleteCluster(Long clusterId) {
         try {
             ApplicationDriver cluster = driverService.getEntity(clusterId);
-            driverService.deleteEntity(cluster);
+            driverService.deleteDriver(cluster);
             return Result.successResult();
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
@@ -147,7 +147,18 @@ var Instance = function () {
                 page: true,
                 cols: cols,
                 skin: 'line',
+                before: function (options) {
+                    // 下一页使用 keyset 分页，其它跳页使用 offset 分页
+                    const curr = options.page ? options.page.curr : 1;
+                    options.where = options.where || {};
+                    if (Instance.lastPage && Instance.lastPage.nextLastId && curr === Instance.lastPage.curr + 1) {
+                        options.where.lastId = Instance.lastPage.nextLastId;
+                    } else {
+                        delete options.where.lastId;
+                    }
+                },
                 parseData: function (res) {
+                    Instance.nextLastId = res.nextLastId;
                     return {
                         "code": 0,
                         "count": res.total,
@@ -157,6 +168,7 @@ var Instance = function () {
                 toolbar: '#toolbarDemo',
                 defaultToolbar:[],
                 done: function(res, curr, count) {
+                    Instance.lastPage = {curr: curr, nextLastId: Instance.nextLastId};
                     for (var i = 0; i < res.data.length; i++) {
                         const row = res.data[i];
                         const menus = []
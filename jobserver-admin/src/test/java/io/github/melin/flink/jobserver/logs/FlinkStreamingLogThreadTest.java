@@ -0,0 +1,248 @@
+package io.github.melin.flink.jobserver.logs;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.api.LogLevel;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import io.github.melin.flink.jobserver.core.enums.RuntimeMode;
+import io.github.melin.flink.jobserver.core.enums.SchedulerType;
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.core.util.LogRecord;
+import io.github.melin.flink.jobserver.logs.filter.LogMessageSanitizer;
+import io.github.melin.flink.jobserver.support.ClusterConfig;
+import io.github.melin.flink.jobserver.support.DriverClientService;
+import io.github.melin.flink.jobserver.support.KubernetesClientService;
+import io.github.melin.flink.jobserver.support.YarnClientService;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationContext;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class FlinkStreamingLogThreadTest {
+
+    private static final String INSTANCE_CODE = "streaming_instance";
+
+    private static final String APP_ID = "application_1700000000000_0001";
+
+    private static final String DRIVER_URL = "http://driver:8080";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private JobInstanceService instanceService;
+
+    @Mock
+    private ApplicationDriverService driverService;
+
+    @Mock
+    private YarnClientService yarnClientService;
+
+    @Mock
+    private KubernetesClientService kubernetesClientService;
+
+    @Mock
+    private FlinkLogService flinkLogService;
+
+    @Mock
+    private DriverClientService driverClient;
+
+    @Mock
+    private LogMessageSanitizer logMessageSanitizer;
+
+    @Mock
+    private ClusterConfig clusterConfig;
+
+    private final JobInstance instance = new JobInstance();
+
+    @BeforeEach
+    public void setUp() {
+        ConfigProperties configProperties = new ConfigProperties();
+        configProperties.setInstanceLogPath(tempDir.toString());
+
+        when(applicationContext.getBean(JobInstanceService.class)).thenReturn(instanceService);
+        when(applicationContext.getBean(ApplicationDriverService.class)).thenReturn(driverService);
+        when(applicationContext.getBean(YarnClientService.class)).thenReturn(yarnClientService);
+        when(applicationContext.getBean(KubernetesClientService.class)).thenReturn(kubernetesClientService);
+        when(applicationContext.getBean(FlinkLogService.class)).thenReturn(flinkLogService);
+        when(applicationContext.getBean(DriverClientService.class)).thenReturn(driverClient);
+        when(applicationContext.getBean(LogMessageSanitizer.class)).thenReturn(logMessageSanitizer);
+        when(applicationContext.getBean(ConfigProperties.class)).thenReturn(configProperties);
+        when(applicationContext.getBean(ClusterConfig.class)).thenReturn(clusterConfig);
+
+        // getTimeMs 返回 0，采样和心跳间隔为 0，每轮循环都检查心跳
+        when(clusterConfig.getBytes(anyString(), any())).thenReturn(1024 * 1024L);
+        when(clusterConfig.getInt(anyString(), any())).thenReturn(2);
+
+        instance.setCode(INSTANCE_CODE);
+        instance.setStatus(InstanceStatus.RUNNING);
+        when(instanceService.queryJobInstanceByCode(INSTANCE_CODE)).thenReturn(instance);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"FAILED", "CANCELED"})
+    public void testJobFailed(String jobStatus) {
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(true);
+        when(driverClient.getFlinkJobStatus(DRIVER_URL, INSTANCE_CODE)).thenReturn(jobStatus);
+        when(instanceService.failRunningInstance(INSTANCE_CODE)).thenReturn(true);
+
+        newLogThread().run();
+
+        verify(instanceService).failRunningInstance(INSTANCE_CODE);
+        verify(instanceService, never()).finishRunningInstance(anyString());
+        verify(yarnClientService).closeJobServer("default", APP_ID, false);
+        verify(flinkLogService).removeLogThread(INSTANCE_CODE);
+        verify(driverService, never()).releaseLogServer(anyString());
+    }
+
+    @Test
+    public void testJobFinished() {
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(true);
+        when(driverClient.getFlinkJobStatus(DRIVER_URL, INSTANCE_CODE)).thenReturn("FINISHED");
+        when(instanceService.finishRunningInstance(INSTANCE_CODE)).thenReturn(true);
+
+        newLogThread().run();
+
+        verify(instanceService).finishRunningInstance(INSTANCE_CODE);
+        verify(instanceService, never()).failRunningInstance(anyString());
+        verify(yarnClientService).closeJobServer("default", APP_ID, false);
+        verify(flinkLogService).removeLogThread(INSTANCE_CODE);
+    }
+
+    @Test
+    public void testInstanceKilled() {
+        instance.setStatus(InstanceStatus.KILLED);
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(true);
+
+        newLogThread().run();
+
+        verify(instanceService, never()).failRunningInstance(anyString());
+        verify(instanceService, never()).finishRunningInstance(anyString());
+        verify(yarnClientService).closeJobServer("default", APP_ID, false);
+    }
+
+    @Test
+    public void testDriverExited() {
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(false);
+        when(yarnClientService.getApplicationStatus("default", APP_ID)).thenReturn(YarnApplicationState.FAILED);
+        when(instanceService.failRunningInstance(INSTANCE_CODE)).thenReturn(true);
+
+        newLogThread().run();
+
+        verify(instanceService).failRunningInstance(INSTANCE_CODE);
+        verify(driverService).deleteJobServerByAppId(APP_ID);
+        verify(yarnClientService, never()).closeJobServer(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void testUnexpectedExceptionKeepsDriver() {
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(true);
+        when(instanceService.queryJobInstanceByCode(INSTANCE_CODE)).thenThrow(new IllegalStateException("db down"));
+
+        newLogThread().run();
+
+        verify(yarnClientService, never()).closeJobServer(anyString(), anyString(), anyBoolean());
+        verify(driverService, never()).deleteJobServerByAppId(anyString());
+        verify(instanceService, never()).failRunningInstance(anyString());
+        verify(flinkLogService).removeLogThread(INSTANCE_CODE);
+        verify(driverService).releaseLogServer(APP_ID);
+    }
+
+    @Test
+    public void testKubernetesJobFinished() {
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(true);
+        when(driverClient.getFlinkJobStatus(DRIVER_URL, INSTANCE_CODE)).thenReturn("FINISHED");
+        when(instanceService.finishRunningInstance(INSTANCE_CODE)).thenReturn(true);
+
+        newLogThread(SchedulerType.Kubernetes).run();
+
+        verify(instanceService).finishRunningInstance(INSTANCE_CODE);
+        verify(kubernetesClientService).closeJobServer("default", APP_ID, false);
+        verify(yarnClientService, never()).closeJobServer(anyString(), anyString(), anyBoolean());
+        verify(flinkLogService).removeLogThread(INSTANCE_CODE);
+    }
+
+    @Test
+    public void testKubernetesDriverExited() {
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(false);
+        when(instanceService.failRunningInstance(INSTANCE_CODE)).thenReturn(true);
+
+        newLogThread(SchedulerType.Kubernetes).run();
+
+        // kubernetes 不查询 yarn 状态，driver 不可达即退出
+        verify(yarnClientService, never()).getApplicationStatus(anyString(), anyString());
+        verify(instanceService).failRunningInstance(INSTANCE_CODE);
+        verify(driverService).deleteJobServerByAppId(APP_ID);
+        verify(kubernetesClientService, never()).closeJobServer(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void testFetchUntilPartialBatch() {
+        when(driverClient.getServerLog(DRIVER_URL, INSTANCE_CODE))
+                .thenReturn(records(LogRecord.MAX_RECORDS_PER_FETCH))
+                .thenReturn(records(LogRecord.MAX_RECORDS_PER_FETCH))
+                .thenReturn(records(LogRecord.MAX_RECORDS_PER_FETCH - 1))
+                .thenReturn(records(LogRecord.MAX_RECORDS_PER_FETCH));
+        when(logMessageSanitizer.sanitize(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(driverClient.isDriverAlive(DRIVER_URL)).thenReturn(true);
+        when(driverClient.getFlinkJobStatus(DRIVER_URL, INSTANCE_CODE)).thenReturn("FINISHED");
+
+        newLogThread().run();
+
+        // 不足一批说明日志已经取完，等下一次采样
+        verify(driverClient, times(3)).getServerLog(DRIVER_URL, INSTANCE_CODE);
+    }
+
+    private static List<LogRecord> records(int count) {
+        List<LogRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(LogRecord.of(LogLevel.INFO, "log " + i));
+        }
+        return records;
+    }
+
+    private FlinkStreamingLogThread newLogThread() {
+        return newLogThread(SchedulerType.YARN);
+    }
+
+    private FlinkStreamingLogThread newLogThread(SchedulerType schedulerType) {
+        LogTaskDto logTaskDto = LogTaskDto.builder()
+                .setClusterCode("default")
+                .setApplicationId(APP_ID)
+                .setInstanceCode(INSTANCE_CODE)
+                .setRuntimeMode(RuntimeMode.STREAMING)
+                .setSchedulerType(schedulerType)
+                .setShareDriver(false)
+                .setFlinkDriverUrl(DRIVER_URL)
+                .setScheduleTime(Instant.now())
+                .build();
+        return new FlinkStreamingLogThread(applicationContext, logTaskDto);
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.melin.flink.jobserver.logs.filter;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志过滤耗时和内存分配：原来每条日志 replaceAll("\\<.*?>", "")，对比 HtmlTagLogFilter、SecretRedactLogFilter。
+ * 默认不执行: mvn test -pl jobserver-admin -Dtest=LogMessageFilterBenchmark -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogMessageFilterBenchmark {
+
+    @Param({"2023-03-01 10:00:00,123 INFO  org.apache.flink.runtime.taskmanager.Task - Source: kafka (1/4) switched to RUNNING",
+            "<span style=\"color:red\">ERROR</span> job failed, <b>jdbc:mysql://db/app?user=root&password=abc</b>"})
+    public String message;
+
+    private final HtmlTagLogFilter htmlFilter = new HtmlTagLogFilter();
+
+    private final SecretRedactLogFilter secretFilter = new SecretRedactLogFilter();
+
+    @Setup
+    public void setUp() throws Exception {
+        ConfigProperties configProperties = new ConfigProperties();
+        configProperties.setLogRedactKeywords(new String[]{"password", "token", "secret.key"});
+        Field field = SecretRedactLogFilter.class.getDeclaredField("configProperties");
+        field.setAccessible(true);
+        field.set(secretFilter, configProperties);
+        secretFilter.afterPropertiesSet();
+    }
+
+    @Benchmark
+    public String regexReplaceAll() {
+        return message.replaceAll("\\<.*?>", "");
+    }
+
+    @Benchmark
+    public String htmlTagFilter() {
+        return htmlFilter.filter(message);
+    }
+
+    @Benchmark
+    public String htmlTagAndSecretFilter() {
+        return secretFilter.filter(htmlFilter.filter(message));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void runBenchmark() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(LogMessageFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.melin.flink.jobserver.logs.filter;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * html 过滤器输出与原来的正则替换结果对比，脱敏过滤器与期望输出对比
+ */
+public class LogMessageFilterTest {
+
+    private static final Pattern OLD_HTML_PATTERN = Pattern.compile("\\<.*?>");
+
+    private static final String[] HTML_CASES = {
+            "",
+            "plain message",
+            "<b>bold</b> text",
+            "<div><span>nested</span></div>",
+            "<a<b>c>",
+            "<<>>",
+            "unclosed <tag",
+            "unclosed <tag and <b>closed</b>",
+            "a < b and c > d",
+            "1 < 2",
+            "x <= y >= z",
+            ">only close",
+            "<tag\nspans lines>",
+            "<a>line1\n<b>line2</b>\r\n<c",
+            "<p>中文日志</p> 结束 <未闭合",
+            "<span style=\"color:red\">ERROR</span> 作业失败 ✗",
+    };
+
+    // {原文, 脱敏结果}
+    private static final String[][] SECRET_CASES = {
+            {"password=abc123", "password=******"},
+            {"connect with password=abc123 trailing text", "connect with password=****** trailing text"},
+            {"user=a, password=abc, secret.key: xyz; other=1", "user=a, password=******, secret.key: ******; other=1"},
+            {"PASSWORD = \"quoted value\" and Secret.Key:'single quoted'", "PASSWORD = ****** and Secret.Key:******"},
+            {"token: eyJhbGciOiJIUzI1NiJ9.e30.abc-def_123", "token: ******"},
+            {"request Token:abc, expires=3600", "request Token:******, expires=3600"},
+            {"password=a&password=b&password=c", "password=******&password=******&password=******"},
+            {"line1 password=a\npassword=b line2", "line1 password=******\npassword=****** line2"},
+            {"jdbc:mysql://db:3306/app?user=root&password=s3cr3t&useSSL=false",
+                    "jdbc:mysql://db:3306/app?user=root&password=******&useSSL=false"},
+            {"jdbc:sqlserver://db:1433;user=sa;password=p@ss;loginTimeout=10",
+                    "jdbc:sqlserver://db:1433;user=sa;password=******;loginTimeout=10"},
+            {"密码 password=密文123 结束", "密码 password=****** 结束"},
+            {"secret.key=中文值,next", "secret.key=******,next"},
+    };
+
+    // 不含敏感参数，原样返回
+    private static final String[] NON_SECRET_CASES = {
+            "",
+            "no secret here",
+            "user=root, host=db:3306",
+            "jdbc:mysql://db:3306/app?user=root&useSSL=false",
+            "password_hint=birthday",
+            "reset password for user test",
+            "password:",
+            "token expired at 12:30:45",
+    };
+
+    private final HtmlTagLogFilter htmlFilter = new HtmlTagLogFilter();
+
+    private final SecretRedactLogFilter secretFilter = new SecretRedactLogFilter();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ConfigProperties configProperties = new ConfigProperties();
+        configProperties.setLogRedactKeywords(new String[]{"password", "token", " secret.key ", ""});
+        Field field = SecretRedactLogFilter.class.getDeclaredField("configProperties");
+        field.setAccessible(true);
+        field.set(secretFilter, configProperties);
+        secretFilter.afterPropertiesSet();
+    }
+
+    @Test
+    public void testHtmlTagFilter() {
+        for (String message : HTML_CASES) {
+            assertEquals(OLD_HTML_PATTERN.matcher(message).replaceAll(""), htmlFilter.filter(message), message);
+        }
+    }
+
+    @Test
+    public void testHtmlTagFilterNoTag() {
+        String message = "a < b, no tag";
+        assertSame(message, htmlFilter.filter(message));
+    }
+
+    @Test
+    public void testSecretRedactFilter() {
+        for (String[] item : SECRET_CASES) {
+            assertEquals(item[1], secretFilter.filter(item[0]), item[0]);
+        }
+    }
+
+    @Test
+    public void testSecretRedactFilterNoSecret() {
+        for (String message : NON_SECRET_CASES) {
+            assertSame(message, secretFilter.filter(message), message);
+        }
+    }
+
+    @Test
+    public void testSecretRedactFilterDisabled() throws Exception {
+        SecretRedactLogFilter filter = new SecretRedactLogFilter();
+        Field field = SecretRedactLogFilter.class.getDeclaredField("configProperties");
+        field.setAccessible(true);
+        field.set(filter, new ConfigProperties());
+        filter.afterPropertiesSet();
+
+        String message = "password=abc123";
+        assertSame(message, filter.filter(message));
+    }
+
+    @Test
+    public void testSanitizerChain() throws Exception {
+        LogMessageSanitizer sanitizer = new LogMessageSanitizer();
+        Field field = LogMessageSanitizer.class.getDeclaredField("filters");
+        field.setAccessible(true);
+        field.set(sanitizer, Arrays.asList(htmlFilter, secretFilter));
+
+        assertEquals("login password=****** ok", sanitizer.sanitize("<b>login</b> password=<i>abc</i> ok"));
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.melin.flink.jobserver.scheduler;
+
+import com.gitee.melin.bee.core.support.Result;
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import io.github.melin.flink.jobserver.web.controller.InstanceController;
+import org.apache.commons.io.IOUtils;
+import org.hibernate.criterion.Criterion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 过期日志归档为 instanceCode.log.gz，流任务滚动日志合并到同一个归档文件，归档后通过日志查询、下载接口读取内容不变
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ArchiveInstanceLogSchedulerTest {
+
+    @TempDir
+    Path logPath;
+
+    @Mock
+    private JobInstanceService instanceService;
+
+    private final ArchiveInstanceLogScheduler scheduler = new ArchiveInstanceLogScheduler();
+
+    private final InstanceController instanceController = new InstanceController();
+
+    private final LocalDate expireDay = LocalDate.now().minusDays(10);
+
+    private final LocalDate recentDay = LocalDate.now().minusDays(1);
+
+    private String expectedLog;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ConfigProperties configProperties = new ConfigProperties();
+        configProperties.setInstanceLogPath(logPath.toString());
+        inject(instanceController, "configProperties", configProperties);
+        inject(instanceController, "instanceService", instanceService);
+
+        // 滚动日志 .2 最早，当前日志最新
+        String rolled2 = lines("rolled-2", 3000);
+        String rolled1 = lines("rolled-1", 3000);
+        String current = lines("current", 100);
+        expectedLog = rolled2 + rolled1 + current;
+        writeLog(expireDay, "inst_stream.log.2", rolled2, 10);
+        writeLog(expireDay, "inst_stream.log.1", rolled1, 10);
+        writeLog(expireDay, "inst_stream.log", current, 10);
+
+        // 仍在写入的流任务日志、上次归档中断残留、未过期日志
+        writeLog(expireDay, "inst_writing.log", lines("writing", 10), 0);
+        writeLog(expireDay, "inst_broken.log.gz.tmp", "broken", 10);
+        writeLog(recentDay, "inst_recent.log", lines("recent", 10), 10);
+        Files.createDirectories(logPath.resolve("not_a_date"));
+    }
+
+    @Test
+    public void testArchiveInstanceLog() throws Exception {
+        assertEquals(1, scheduler.archiveInstanceLog(logPath, 7));
+
+        Path expireDir = logPath.resolve(expireDay.toString());
+        assertTrue(Files.exists(expireDir.resolve("inst_stream.log.gz")));
+        assertFalse(Files.exists(expireDir.resolve("inst_stream.log")));
+        assertFalse(Files.exists(expireDir.resolve("inst_stream.log.1")));
+        assertFalse(Files.exists(expireDir.resolve("inst_stream.log.2")));
+        assertFalse(Files.exists(expireDir.resolve("inst_broken.log.gz.tmp")));
+        assertTrue(Files.exists(expireDir.resolve("inst_writing.log")));
+        assertTrue(Files.exists(logPath.resolve(recentDay.toString()).resolve("inst_recent.log")));
+        assertTrue(Files.size(expireDir.resolve("inst_stream.log.gz")) < expectedLog.length() / 10);
+
+        // 已归档日志不重复归档
+        assertEquals(0, scheduler.archiveInstanceLog(logPath, 7));
+    }
+
+    @Test
+    public void testQueryArchivedLog() throws Exception {
+        scheduler.archiveInstanceLog(logPath, 7);
+
+        // 查询最后 2000 行
+        Result<String> result = instanceController.queryInstanceLog(expireDay.toString(), "inst_stream");
+        assertTrue(result.isSuccess());
+        String[] lines = expectedLog.split("\n");
+        String[] lastLines = new String[2000];
+        System.arraycopy(lines, lines.length - 2000, lastLines, 0, 2000);
+        assertEquals(String.join("\n", lastLines), result.getData());
+
+        assertFalse(instanceController.queryInstanceLog(expireDay.toString(), "inst_missing").isSuccess());
+    }
+
+    @Test
+    public void testDownloadArchivedLog() throws Exception {
+        scheduler.archiveInstanceLog(logPath, 7);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        instanceController.downloadInstanceLog(expireDay.toString(), "inst_stream", response);
+        assertEquals("attachment;filename=inst_stream.log", response.getHeader("Content-Disposition"));
+        assertNull(response.getHeader("Content-Length"));
+        assertEquals(expectedLog, response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBatchDownloadArchivedLog() throws Exception {
+        scheduler.archiveInstanceLog(logPath, 7);
+
+        JobInstance instance = new JobInstance();
+        instance.setCode("inst_stream");
+        instance.setScheduleTime(expireDay.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        when(instanceService.findByCriterions(any(Criterion.class))).thenReturn(Collections.singletonList(instance));
+
+        StreamingResponseBody body = instanceController.batchDownloadLogs(new String[]{"inst_stream"}).getBody();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        body.writeTo(output);
+
+        try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry = zipInput.getNextEntry();
+            assertEquals("inst_stream.log", entry.getName());
+            assertEquals(expectedLog, IOUtils.toString(zipInput, StandardCharsets.UTF_8));
+            assertNull(zipInput.getNextEntry());
+        }
+    }
+
+    private void writeLog(LocalDate day, String fileName, String content, int modifiedDaysAgo) throws Exception {
+        Path dir = Files.createDirectories(logPath.resolve(day.toString()));
+        Path file = Files.write(dir.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(modifiedDaysAgo, ChronoUnit.DAYS)));
+    }
+
+    private static String lines(String prefix, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(prefix).append(" INFO line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
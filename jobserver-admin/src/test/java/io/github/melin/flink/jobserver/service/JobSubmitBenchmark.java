@@ -0,0 +1,100 @@
+package io.github.melin.flink.jobserver.service;
+
+import io.github.melin.flink.jobserver.ConfigProperties;
+import io.github.melin.flink.jobserver.core.dao.MySQLTestConfig;
+import io.github.melin.flink.jobserver.core.enums.InstanceType;
+import io.github.melin.flink.jobserver.core.enums.JobType;
+import io.github.melin.flink.jobserver.rest.dto.JobSubmitRequet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 实例提交吞吐(实例/秒)：submitJobInstance 逐个提交，对比 batchSubmitJobInstance 每批 1000 个 jdbc 批量写入。
+ * 每 10 个实例一条依赖链，作业内容 100 种。
+ * 默认不执行: mvn test -pl jobserver-admin -am -Dtest=JobSubmitBenchmark -Dbenchmark=true
+ * -Dsurefire.failIfNoSpecifiedTests=false [-Dbenchmark.instances=10000]
+ */
+@SpringJUnitConfig({MySQLTestConfig.class, ConfigProperties.class, JobServerServiceImpl.class})
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class JobSubmitBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final List<String> TABLES = Arrays.asList("fjs_cluster", "fjs_job_instance",
+            "fjs_job_instance_content", "fjs_job_instance_dependent", "fjs_job_text", "fjs_instance_statistics");
+
+    @Autowired
+    private JobServerServiceImpl jobServerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void benchmarkSubmitThroughput() {
+        int instances = Integer.getInteger("benchmark.instances", 10000);
+
+        // 预热
+        run("warm-up single", BATCH_SIZE, requests -> requests.forEach(jobServerService::submitJobInstance));
+        run("warm-up batch", BATCH_SIZE, this::batchSubmit);
+
+        run("single submit", instances, requests -> requests.forEach(jobServerService::submitJobInstance));
+        run("batch submit", instances, this::batchSubmit);
+    }
+
+    private void batchSubmit(List<JobSubmitRequet> requests) {
+        for (int i = 0; i < requests.size(); i += BATCH_SIZE) {
+            jobServerService.batchSubmitJobInstance(requests.subList(i, Math.min(i + BATCH_SIZE, requests.size())));
+        }
+    }
+
+    private void run(String name, int instances, Consumer<List<JobSubmitRequet>> submitter) {
+        TABLES.forEach(table -> jdbcTemplate.execute("truncate table " + table));
+        jdbcTemplate.update("insert into fjs_cluster (code, name, scheduler_type, creater, gmt_created) " +
+                "values ('default', 'default', 'yarn', 'test', now())");
+
+        List<JobSubmitRequet> requests = requests(instances);
+        long start = System.nanoTime();
+        submitter.accept(requests);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(instances, jdbcTemplate.queryForObject("select count(*) from fjs_job_instance", Integer.class));
+        assertEquals(instances - instances / 10 - (instances % 10 == 0 ? 0 : 1), jdbcTemplate.queryForObject(
+                "select count(*) from fjs_job_instance_dependent", Integer.class));
+        System.out.printf("%-16s instances: %6d, elapsed: %8.2fms, throughput: %8.1f instances/s%n",
+                name, instances, elapsed / 1e6, instances * 1e9 / elapsed);
+    }
+
+    /**
+     * 每 10 个实例一条依赖链，批次大小是 10 的倍数，依赖实例在同一批次或者已经提交
+     */
+    private static List<JobSubmitRequet> requests(int instances) {
+        List<JobSubmitRequet> requests = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            JobSubmitRequet request = new JobSubmitRequet();
+            request.setInstanceCode("bench_" + i);
+            request.setJobName("job_" + i);
+            request.setJobType(JobType.FLINK_SQL);
+            request.setInstanceType(InstanceType.SCHEDULE);
+            request.setOwner("test");
+            request.setClientName("benchmark");
+            request.setJobText("insert into sink_" + (i % 100) + " select * from source_" + (i % 100));
+            if (i % 10 != 0) {
+                request.setDependentCodes(new String[]{"bench_" + (i - 1)});
+            }
+            requests.add(request);
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.melin.flink.jobserver.support;
+
+import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import io.github.melin.flink.jobserver.core.service.ApplicationDriverService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * kubernetes driver 关闭：共享 driver 未超过运行次数保留，否则删除 flink 集群和 driver 记录
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class KubernetesClientServiceTest {
+
+    private static final String APP_ID = "flink-jobserver-driver-1";
+
+    @Mock
+    private ApplicationDriverService driverService;
+
+    @Mock
+    private ClusterConfig clusterConfig;
+
+    @Spy
+    @InjectMocks
+    private KubernetesClientService kubernetesClientService;
+
+    @Test
+    public void testCloseDriver() throws Exception {
+        doNothing().when(kubernetesClientService).killCluster(anyString(), anyString());
+
+        kubernetesClientService.closeJobServer("default", APP_ID, false);
+
+        verify(driverService).updateDriverStatusIdle(APP_ID);
+        verify(kubernetesClientService).killCluster("default", APP_ID);
+        verify(driverService).deleteJobServerByAppId(APP_ID);
+    }
+
+    @Test
+    public void testKeepShareDriver() throws Exception {
+        doNothing().when(kubernetesClientService).killCluster(anyString(), anyString());
+        when(clusterConfig.getInt(eq("default"), any())).thenReturn(5);
+        when(driverService.queryDriverByAppId(APP_ID)).thenReturn(newDriver(2));
+
+        kubernetesClientService.closeJobServer("default", APP_ID, true);
+
+        verify(driverService).updateDriverStatusIdle(APP_ID);
+        verify(kubernetesClientService, never()).killCluster(anyString(), anyString());
+        verify(driverService, never()).deleteJobServerByAppId(anyString());
+    }
+
+    @Test
+    public void testCloseShareDriverOverMaxInstanceCount() throws Exception {
+        doNothing().when(kubernetesClientService).killCluster(anyString(), anyString());
+        when(clusterConfig.getInt(eq("default"), any())).thenReturn(5);
+        when(driverService.queryDriverByAppId(APP_ID)).thenReturn(newDriver(5));
+
+        kubernetesClientService.closeJobServer("default", APP_ID, true);
+
+        verify(kubernetesClientService).killCluster("default", APP_ID);
+        verify(driverService).deleteJobServerByAppId(APP_ID);
+    }
+
+    @Test
+    public void testKillFailureStillDeletesDriver() throws Exception {
+        doThrow(new IllegalStateException("kubernetes api unavailable"))
+                .when(kubernetesClientService).killCluster(anyString(), anyString());
+
+        kubernetesClientService.killApplication("default", APP_ID);
+
+        verify(driverService).deleteJobServerByAppId(APP_ID);
+    }
+
+    private static ApplicationDriver newDriver(int instanceCount) {
+        ApplicationDriver driver = new ApplicationDriver();
+        driver.setApplicationId(APP_ID);
+        driver.setInstanceCount(instanceCount);
+        return driver;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.melin.flink.jobserver.support;
+
+import com.google.common.collect.Sets;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.logaggregation.AggregatedLogFormat.LogKey;
+import org.apache.hadoop.yarn.logaggregation.AggregatedLogFormat.LogValue;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileController;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileControllerContext;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileControllerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地文件系统生成 TFile 聚合日志，读取全部日志、按日志类型读取、读取末尾字节。
+ * 未验证：编写时构建环境无法下载依赖，本测试还没有执行过，首次在完整环境运行时需要确认结果
+ */
+public class YarnAggregatedLogServiceTest {
+
+    @TempDir
+    java.nio.file.Path tempDir;
+
+    private final YarnAggregatedLogService logService = new YarnAggregatedLogService();
+
+    private final ApplicationId appId = ApplicationId.newInstance(1700000000000L, 1);
+
+    private final ContainerId containerId = ContainerId.newContainerId(ApplicationAttemptId.newInstance(appId, 1), 1);
+
+    private Configuration conf;
+
+    private String user;
+
+    // 本地 remote-app-log-dir 下生成 TFile 格式聚合日志
+    @BeforeEach
+    public void setUp() throws Exception {
+        conf = new Configuration();
+        conf.set(FileSystem.FS_DEFAULT_NAME_KEY, "file:///");
+        conf.set(YarnConfiguration.LOG_AGGREGATION_FILE_FORMATS, "TFile");
+        conf.set(YarnConfiguration.NM_REMOTE_APP_LOG_DIR, tempDir.resolve("app-logs").toUri().toString());
+
+        UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+        user = ugi.getShortUserName();
+
+        File localLogDir = tempDir.resolve("nm-logs").toFile();
+        File containerDir = new File(localLogDir, appId + "/" + containerId);
+        assertTrue(containerDir.mkdirs());
+        Files.write(new File(containerDir, "taskmanager.log").toPath(),
+                "hello taskmanager\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(containerDir, "jobmanager.log").toPath(),
+                "hello jobmanager\n".getBytes(StandardCharsets.UTF_8));
+
+        NodeId nodeId = NodeId.newInstance("localhost", 8041);
+        LogAggregationFileController fileController =
+                new LogAggregationFileControllerFactory(conf).getFileControllerForWrite();
+        Path remoteLogFile = fileController.getRemoteNodeLogFileForApp(appId, user, nodeId);
+        FileSystem.get(conf).mkdirs(remoteLogFile.getParent());
+
+        LogAggregationFileControllerContext context = new LogAggregationFileControllerContext(
+                remoteLogFile, remoteLogFile, false, 0L, appId, Collections.emptyMap(), nodeId, ugi);
+        fileController.initializeWriter(context);
+        try {
+            fileController.write(new LogKey(containerId),
+                    new LogValue(Collections.singletonList(localLogDir.getAbsolutePath()), containerId, user));
+        } finally {
+            fileController.closeWriter();
+        }
+    }
+
+    private String readLogs(String containerId, String logType, long bytes) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        boolean found = logService.readAggregatedLogs(conf, appId.toString(), user, containerId, null,
+                logType == null ? null : Sets.newHashSet(logType), bytes, outputStream);
+        return found ? outputStream.toString(StandardCharsets.UTF_8.name()) : null;
+    }
+
+    @Test
+    public void testReadAllLogs() throws Exception {
+        String logs = readLogs(null, null, Long.MAX_VALUE);
+        assertTrue(logs.contains("hello taskmanager"));
+        assertTrue(logs.contains("hello jobmanager"));
+    }
+
+    @Test
+    public void testReadLogType() throws Exception {
+        String logs = readLogs(containerId.toString(), "taskmanager.log", Long.MAX_VALUE);
+        assertTrue(logs.contains("hello taskmanager"));
+        assertFalse(logs.contains("hello jobmanager"));
+    }
+
+    @Test
+    public void testReadTailBytes() throws Exception {
+        String logs = readLogs(null, "taskmanager.log", -8);
+        assertTrue(logs.contains("manager\n"));
+        assertFalse(logs.contains("hello taskmanager"));
+    }
+
+    @Test
+    public void testContainerNotExists() throws Exception {
+        ContainerId otherId = ContainerId.newContainerId(ApplicationAttemptId.newInstance(appId, 1), 2);
+        assertNull(readLogs(otherId.toString(), null, Long.MAX_VALUE));
+    }
+}
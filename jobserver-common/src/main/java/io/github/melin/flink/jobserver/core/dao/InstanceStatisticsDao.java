@@ -0,0 +1,100 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import io.github.melin.flink.jobserver.core.entity.InstanceStatistics;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import com.gitee.melin.bee.core.hibernate5.HibernateBaseDaoImpl;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Repository
+public class InstanceStatisticsDao extends HibernateBaseDaoImpl<InstanceStatistics, Long> {
+
+    private static final String INCREMENT_SQL = "insert into fjs_instance_statistics " +
+            "(stat_time, cluster_code, status, instance_count, gmt_modified) " +
+            "values (:statTime, :clusterCode, :status, :delta, now()) " +
+            "on duplicate key update instance_count = instance_count + :delta, gmt_modified = now()";
+
+    // 终态实例会归档到 fjs_job_instance_archive，统计需要包含归档实例。普通 select 是一致性读，不加锁
+    private static final String COMPUTE_SQL = "select cast(date_format(gmt_created, '%Y-%m-%d %H:00:00') as datetime), " +
+            "ifnull(cluster_code, 'default'), status, count(*) from (" +
+            "select gmt_created, cluster_code, status from fjs_job_instance where gmt_created >= :startTime " +
+            "union all " +
+            "select gmt_created, cluster_code, status from fjs_job_instance_archive where gmt_created >= :startTime" +
+            ") t group by 1, 2, 3";
+
+    private static final String STAT_TIMES_SQL =
+            "select distinct stat_time from fjs_instance_statistics where stat_time >= :startTime";
+
+    private static final String REPLACE_SQL = "insert into fjs_instance_statistics " +
+            "(stat_time, cluster_code, status, instance_count, gmt_modified) " +
+            "values (:statTime, :clusterCode, :status, :count, now()) " +
+            "on duplicate key update instance_count = :count, gmt_modified = now()";
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    public void increment(Instant statTime, String clusterCode, InstanceStatus status, long delta) {
+        sessionFactory.getCurrentSession().createNativeQuery(INCREMENT_SQL)
+                .setParameter("statTime", Timestamp.from(statTime))
+                .setParameter("clusterCode", clusterCode)
+                .setParameter("status", status.getValue())
+                .setParameter("delta", delta)
+                .executeUpdate();
+    }
+
+    /**
+     * 按实例表和归档表统计 startTime 之后创建的实例，只读取不加锁
+     */
+    @SuppressWarnings("unchecked")
+    public List<InstanceStatistics> compute(Instant startTime) {
+        List<Object[]> rows = sessionFactory.getCurrentSession().createNativeQuery(COMPUTE_SQL)
+                .setParameter("startTime", Timestamp.from(startTime))
+                .list();
+        return rows.stream().map(row -> {
+            InstanceStatistics stat = new InstanceStatistics();
+            stat.setStatTime(((Timestamp) row[0]).toInstant());
+            stat.setClusterCode((String) row[1]);
+            stat.setStatus(InstanceStatus.valueOf((String) row[2]));
+            stat.setInstanceCount(((Number) row[3]).longValue());
+            return stat;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * startTime 之后已有统计记录的小时
+     */
+    @SuppressWarnings("unchecked")
+    public List<Instant> findStatTimes(Instant startTime) {
+        List<Timestamp> rows = sessionFactory.getCurrentSession().createNativeQuery(STAT_TIMES_SQL)
+                .setParameter("startTime", Timestamp.from(startTime))
+                .list();
+        return rows.stream().map(Timestamp::toInstant).collect(Collectors.toList());
+    }
+
+    /**
+     * 替换一个小时的统计记录，不读取实例表，只锁定这一个小时的统计记录
+     * @return 写入的记录数
+     */
+    public int replace(Instant statTime, List<InstanceStatistics> stats) {
+        this.deleteOrUpdateByHQL("delete from InstanceStatistics where statTime = :statTime",
+                new String[]{"statTime"}, statTime);
+
+        Session session = sessionFactory.getCurrentSession();
+        for (InstanceStatistics stat : stats) {
+            session.createNativeQuery(REPLACE_SQL)
+                    .setParameter("statTime", Timestamp.from(statTime))
+                    .setParameter("clusterCode", stat.getClusterCode())
+                    .setParameter("status", stat.getStatus().getValue())
+                    .setParameter("count", stat.getInstanceCount())
+                    .executeUpdate();
+        }
+        return stats.size();
+    }
+}
@@ -2,11 +2,31 @@ package io.github.melin.flink.jobserver.core.dao;
 
 import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
 import com.gitee.melin.bee.core.hibernate5.HibernateBaseDaoImpl;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * huaixin 2022/3/28 11:57 AM
  */
 @Repository
 public class JobInstanceContentDao extends HibernateBaseDaoImpl<JobInstanceContent, Long> {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    /**
+     * 查询归档实例内容，返回对象与 session 分离，只读
+     */
+    public JobInstanceContent queryArchivedContent(String code) {
+        Session session = sessionFactory.getCurrentSession();
+        List<JobInstanceContent> contents = session.createNativeQuery(
+                "select * from fjs_job_instance_content_archive where code = :code", JobInstanceContent.class)
+                .setParameter("code", code).list();
+        contents.forEach(session::evict);
+        return contents.isEmpty() ? null : contents.get(0);
+    }
 }
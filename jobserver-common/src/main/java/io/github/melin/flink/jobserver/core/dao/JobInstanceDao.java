@@ -1,12 +1,290 @@
 package io.github.melin.flink.jobserver.core.dao;
 
+import io.github.melin.flink.jobserver.core.dto.InstanceQuery;
 import io.github.melin.flink.jobserver.core.entity.JobInstance;
 import com.gitee.melin.bee.core.hibernate5.HibernateBaseDaoImpl;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 /**
  * huaixin 2022/3/28 11:57 AM
  */
 @Repository
 public class JobInstanceDao extends HibernateBaseDaoImpl<JobInstance, Long> {
+
+    // 归档表和实例表结构相同，显式列出字段，两张表字段顺序不一致时也能正确迁移
+    private static final String INSTANCE_COLUMNS = "id, workspace, code, name, cluster_code, deploy_mode, " +
+            "session_name, scheduler_type, yarn_queue, dependent_code, job_type, runtime_mode, instance_type, " +
+            "version, status, schedule_time, start_time, end_time, owner, runtimes, max_retry_count, retry_count, " +
+            "failure_count, application_id, client_name, gmt_created, gmt_modified, creater, modifier";
+
+    private static final String CONTENT_COLUMNS = "id, code, job_text, job_config, error_msg, text_hash";
+
+    private static final String ARCHIVE_INSTANCE_SQL = "insert into fjs_job_instance_archive (" + INSTANCE_COLUMNS +
+            ") select " + INSTANCE_COLUMNS + " from fjs_job_instance where id in (:ids)";
+
+    private static final String ARCHIVE_CONTENT_SQL = "insert into fjs_job_instance_content_archive (" +
+            CONTENT_COLUMNS + ") select " + CONTENT_COLUMNS + " from fjs_job_instance_content " +
+            "where code in (select code from fjs_job_instance where id in (:ids))";
+
+    private static final String DELETE_CONTENT_SQL = "delete c from fjs_job_instance_content c " +
+            "join fjs_job_instance i on c.code = i.code where i.id in (:ids)";
+
+    private static final String DELETE_INSTANCE_SQL = "delete from fjs_job_instance where id in (:ids)";
+
+    private static final String RESTORE_INSTANCE_SQL = "insert into fjs_job_instance (" + INSTANCE_COLUMNS +
+            ") select " + INSTANCE_COLUMNS + " from fjs_job_instance_archive where code = :code";
+
+    private static final String RESTORE_CONTENT_SQL = "insert into fjs_job_instance_content (" + CONTENT_COLUMNS +
+            ") select " + CONTENT_COLUMNS + " from fjs_job_instance_content_archive where code = :code";
+
+    private static final String DELETE_ARCHIVED_INSTANCE_SQL = "delete from fjs_job_instance_archive where code = :code";
+
+    private static final String DELETE_ARCHIVED_CONTENT_SQL =
+            "delete from fjs_job_instance_content_archive where code = :code";
+
+    private static final String ARCHIVED_STATUS_SQL = "select code, status, start_time, end_time, gmt_modified, " +
+            "application_id from fjs_job_instance_archive where code in (:codes)";
+
+    private static final String ARCHIVED_EXPIRE_SQL = "select id from fjs_job_instance_archive " +
+            "where schedule_time < :before order by id";
+
+    // 实例列表允许的排序字段，都有索引
+    static final Map<String, String> SORT_COLUMNS = ImmutableMap.of(
+            "id", "id", "gmtCreated", "gmt_created", "scheduleTime", "schedule_time");
+
+    // 不带 keyset 的 offset 分页最大深度，union all 每张表都要读取 offset + limit 条，更深的页只能逐页往后翻
+    static final int MAX_PAGE_OFFSET = 10000;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    /**
+     * 加行锁(select ... for update)读取实例，事务结束前状态不会被其它事务修改，
+     * 按读取的原状态更新统计
+     */
+    public JobInstance queryInstanceForUpdate(String code) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("from JobInstance where code = :code", JobInstance.class)
+                .setParameter("code", code)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .uniqueResult();
+    }
+
+    /**
+     * 实例列表 union all 实例表和归档表，归档实例对列表和搜索透明。排序字段加 id 保证顺序稳定，
+     * 每张表先按排序取前 offset + limit 条再合并排序，keyset 分页时 offset 为 0，两张表都只读取索引前 limit 条。
+     * lastId 为上一页最后一条记录 id，记录不存在时按 offset 分页，offset 不能超过 MAX_PAGE_OFFSET。返回对象与 session 分离，只读
+     * @param sortKey id, gmtCreated, scheduleTime
+     */
+    @SuppressWarnings("unchecked")
+    public List<JobInstance> findInstancePage(InstanceQuery query, String sortKey, boolean asc,
+                                              Long lastId, int offset, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        String column = SORT_COLUMNS.get(sortKey);
+        Map<String, Object> params = Maps.newHashMap();
+        String where = whereSql(query, params);
+        if (lastId != null) {
+            List<Object> lastValues = session.createNativeQuery("select " + column +
+                    " from fjs_job_instance where id = :lastId union all select " + column +
+                    " from fjs_job_instance_archive where id = :lastId").setParameter("lastId", lastId).list();
+            if (!lastValues.isEmpty()) {
+                where += " and " + seekSql(column, asc, lastValues.get(0), params);
+                params.put("lastId", lastId);
+                offset = 0;
+            }
+        }
+        if (offset > MAX_PAGE_OFFSET) {
+            throw new IllegalArgumentException("offset " + offset + " greater than " + MAX_PAGE_OFFSET
+                    + ", please narrow the filter or page forward by lastId");
+        }
+
+        NativeQuery<JobInstance> nativeQuery = session.createNativeQuery(pageSql(where, column, asc), JobInstance.class);
+        params.forEach(nativeQuery::setParameter);
+        List<JobInstance> instances = nativeQuery.setParameter("rowLimit", offset + limit)
+                .setFirstResult(offset).setMaxResults(limit).list();
+        instances.forEach(session::evict);
+        return instances;
+    }
+
+    /**
+     * 两张表分别按 (column, id) 排序取前 :rowLimit 条，再合并排序
+     */
+    static String pageSql(String where, String column, boolean asc) {
+        String direction = asc ? " asc" : " desc";
+        String orderBy = " order by " + column + direction + ("id".equals(column) ? "" : ", id" + direction);
+        return "select * from ((select " + INSTANCE_COLUMNS + " from fjs_job_instance where " + where +
+                orderBy + " limit :rowLimit) union all (select " + INSTANCE_COLUMNS +
+                " from fjs_job_instance_archive where " + where + orderBy + " limit :rowLimit)) t" + orderBy;
+    }
+
+    /**
+     * 实例表和归档表过滤总数
+     */
+    public long countInstances(InstanceQuery query) {
+        Map<String, Object> params = Maps.newHashMap();
+        String where = whereSql(query, params);
+        NativeQuery<?> nativeQuery = sessionFactory.getCurrentSession().createNativeQuery(
+                "select (select count(*) from fjs_job_instance where " + where + ") + " +
+                "(select count(*) from fjs_job_instance_archive where " + where + ")");
+        params.forEach(nativeQuery::setParameter);
+        Number count = (Number) nativeQuery.uniqueResult();
+        return count == null ? 0 : count.longValue();
+    }
+
+    private String whereSql(InstanceQuery query, Map<String, Object> params) {
+        StringBuilder sql = new StringBuilder("1 = 1");
+        if (query.getCode() != null) {
+            sql.append(" and code = :code");
+            params.put("code", query.getCode());
+        }
+        if (query.getName() != null) {
+            sql.append(" and name like :name");
+            params.put("name", "%" + query.getName() + "%");
+        }
+        if (query.getClientName() != null) {
+            sql.append(" and client_name = :clientName");
+            params.put("clientName", query.getClientName());
+        }
+        if (query.getStatus() != null) {
+            sql.append(" and status = :status");
+            params.put("status", query.getStatus().getValue());
+        }
+        return sql.toString();
+    }
+
+    /**
+     * (sortKey, id) 之后的记录。schedule_time 可以为空，mysql 升序时 null 在前，降序时 null 在后
+     */
+    private String seekSql(String column, boolean asc, Object lastValue, Map<String, Object> params) {
+        String idOp = asc ? " > " : " < ";
+        if (lastValue == null) {
+            String nullSql = "(" + column + " is null and id" + idOp + ":lastId)";
+            return asc ? "(" + nullSql + " or " + column + " is not null)" : nullSql;
+        }
+
+        params.put("lastValue", lastValue);
+        String seekSql = column + idOp + ":lastValue or (" + column + " = :lastValue and id" + idOp + ":lastId)";
+        if (!asc && "schedule_time".equals(column)) {
+            seekSql += " or " + column + " is null";
+        }
+        return "(" + seekSql + ")";
+    }
+
+    /**
+     * 按 id 顺序查询前 limit 个实例 id，用于分批迁移、清理
+     */
+    @SuppressWarnings({"unchecked", "deprecation"})
+    public List<Long> findIdsByCriterions(List<Criterion> criterions, int limit) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(JobInstance.class);
+        criterions.forEach(criteria::add);
+        criteria.setProjection(Projections.property("id"));
+        criteria.addOrder(Order.asc("id"));
+        criteria.setMaxResults(limit);
+        return criteria.list();
+    }
+
+    /**
+     * 实例和实例内容迁移到归档表，先复制再删除，需要在同一个事务中执行
+     * @return 迁移实例数量
+     */
+    public int moveToArchive(List<Long> ids) {
+        Session session = sessionFactory.getCurrentSession();
+        int count = session.createNativeQuery(ARCHIVE_INSTANCE_SQL).setParameterList("ids", ids).executeUpdate();
+        session.createNativeQuery(ARCHIVE_CONTENT_SQL).setParameterList("ids", ids).executeUpdate();
+        session.createNativeQuery(DELETE_CONTENT_SQL).setParameterList("ids", ids).executeUpdate();
+        session.createNativeQuery(DELETE_INSTANCE_SQL).setParameterList("ids", ids).executeUpdate();
+        return count;
+    }
+
+    /**
+     * 归档实例迁回实例表，用于重跑归档实例
+     */
+    public boolean restoreFromArchive(String code) {
+        Session session = sessionFactory.getCurrentSession();
+        int count = session.createNativeQuery(RESTORE_INSTANCE_SQL).setParameter("code", code).executeUpdate();
+        if (count == 0) {
+            return false;
+        }
+        session.createNativeQuery(RESTORE_CONTENT_SQL).setParameter("code", code).executeUpdate();
+        session.createNativeQuery(DELETE_ARCHIVED_CONTENT_SQL).setParameter("code", code).executeUpdate();
+        session.createNativeQuery(DELETE_ARCHIVED_INSTANCE_SQL).setParameter("code", code).executeUpdate();
+        return true;
+    }
+
+    /**
+     * 查询归档实例，返回对象与 session 分离，只读
+     */
+    public JobInstance queryArchivedInstance(String code) {
+        Session session = sessionFactory.getCurrentSession();
+        List<JobInstance> instances = session.createNativeQuery(
+                "select * from fjs_job_instance_archive where code = :code", JobInstance.class)
+                .setParameter("code", code).list();
+        instances.forEach(session::evict);
+        return instances.isEmpty() ? null : instances.get(0);
+    }
+
+    /**
+     * 归档实例状态，字段与 JobInstanceService.findInstanceStatusByCodes 一致，时间为 Timestamp，状态为字符串
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findArchivedInstanceStatus(List<String> codes) {
+        return sessionFactory.getCurrentSession().createNativeQuery(ARCHIVED_STATUS_SQL)
+                .setParameterList("codes", codes).list();
+    }
+
+    /**
+     * 过期归档实例 id
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> findArchivedExpireIds(Instant before, int limit) {
+        List<Number> ids = sessionFactory.getCurrentSession().createNativeQuery(ARCHIVED_EXPIRE_SQL)
+                .setParameter("before", Timestamp.from(before))
+                .setMaxResults(limit).list();
+        return ids.stream().map(Number::longValue).collect(Collectors.toList());
+    }
+
+    /**
+     * 按 id 删除实例及实例内容、依赖，释放作业内容引用，set-based sql，需要在同一个事务中执行
+     * @return 删除的总行数
+     */
+    public int purgeInstances(List<Long> ids) {
+        return purgeInstances("fjs_job_instance", "fjs_job_instance_content", ids);
+    }
+
+    public int purgeArchivedInstances(List<Long> ids) {
+        return purgeInstances("fjs_job_instance_archive", "fjs_job_instance_content_archive", ids);
+    }
+
+    private int purgeInstances(String instanceTable, String contentTable, List<Long> ids) {
+        Session session = sessionFactory.getCurrentSession();
+        session.createNativeQuery("update fjs_job_text t join (select c.text_hash, count(*) cnt from " +
+                contentTable + " c join " + instanceTable + " i on c.code = i.code where i.id in (:ids) " +
+                "and c.text_hash is not null group by c.text_hash) r on t.text_hash = r.text_hash " +
+                "set t.ref_count = t.ref_count - r.cnt").setParameterList("ids", ids).executeUpdate();
+        int rows = session.createNativeQuery("delete d from fjs_job_instance_dependent d join " + instanceTable +
+                " i on d.code = i.code where i.id in (:ids)").setParameterList("ids", ids).executeUpdate();
+        rows += session.createNativeQuery("delete c from " + contentTable + " c join " + instanceTable +
+                " i on c.code = i.code where i.id in (:ids)").setParameterList("ids", ids).executeUpdate();
+        rows += session.createNativeQuery("delete from " + instanceTable + " where id in (:ids)")
+                .setParameterList("ids", ids).executeUpdate();
+        return rows;
+    }
 }
@@ -0,0 +1,50 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import io.github.melin.flink.jobserver.core.entity.JobText;
+import com.gitee.melin.bee.core.hibernate5.HibernateBaseDaoImpl;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class JobTextDao extends HibernateBaseDaoImpl<JobText, Long> {
+
+    private static final String RETAIN_SQL = "insert into fjs_job_text " +
+            "(text_hash, content, compressed, text_length, ref_count, gmt_created) " +
+            "values (:textHash, :content, :compressed, :textLength, :count, now()) " +
+            "on duplicate key update ref_count = ref_count + :count";
+
+    private static final String RELEASE_SQL =
+            "update fjs_job_text set ref_count = ref_count - :count where text_hash = :textHash";
+
+    private static final String DELETE_UNREFERENCED_SQL = "delete from fjs_job_text where ref_count <= 0 limit :limit";
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    /**
+     * 内容不存在时写入，存在时增加引用数
+     */
+    public void retain(String textHash, byte[] content, boolean compressed, int textLength, int count) {
+        sessionFactory.getCurrentSession().createNativeQuery(RETAIN_SQL)
+                .setParameter("textHash", textHash)
+                .setParameter("content", content)
+                .setParameter("compressed", compressed)
+                .setParameter("textLength", textLength)
+                .setParameter("count", count)
+                .executeUpdate();
+    }
+
+    public void release(String textHash, int count) {
+        sessionFactory.getCurrentSession().createNativeQuery(RELEASE_SQL)
+                .setParameter("textHash", textHash)
+                .setParameter("count", count)
+                .executeUpdate();
+    }
+
+    public int deleteUnreferenced(int limit) {
+        return sessionFactory.getCurrentSession().createNativeQuery(DELETE_UNREFERENCED_SQL)
+                .setParameter("limit", limit)
+                .executeUpdate();
+    }
+}
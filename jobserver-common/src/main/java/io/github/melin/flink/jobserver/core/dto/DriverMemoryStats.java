@@ -0,0 +1,72 @@
+package io.github.melin.flink.jobserver.core.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * driver 内存统计，driver rest 接口返回，用于按内存压力回收 driver
+ */
+@Data
+public class DriverMemoryStats {
+
+    private long heapUsed;
+
+    /**
+     * 最近一次 gc 后老年代使用量，识别不到老年代时为整个堆
+     */
+    private long heapUsedAfterGc;
+
+    /**
+     * heapUsedAfterGc 采样距今时间，-1 表示还没有发生 gc(heapUsedAfterGc 为当前使用量)
+     */
+    private long heapUsedAfterGcAgeMs;
+
+    private long heapMax;
+
+    private long gcCount;
+
+    private long gcTimeMs;
+
+    /**
+     * 最近一个采样周期内 gc 时间占比
+     */
+    private double gcTimeRatio;
+
+    private long metaspaceUsed;
+
+    private long metaspaceCommitted;
+
+    /**
+     * -1 表示没有限制
+     */
+    private long metaspaceMax;
+
+    private int loadedClassCount;
+
+    private long unloadedClassCount;
+
+    /**
+     * 还没有被回收的作业 classloader 数量
+     */
+    private int liveClassLoaderCount;
+
+    /**
+     * 已关闭超过一段时间仍没有被回收的 classloader 数量，可能存在泄漏
+     */
+    private int leakedClassLoaderCount;
+
+    private List<JobMetaspace> recentJobs;
+
+    @Data
+    public static class JobMetaspace {
+
+        private String instanceCode;
+
+        private long metaspaceDelta;
+
+        private int loadedClassDelta;
+
+        private long endTime;
+    }
+}
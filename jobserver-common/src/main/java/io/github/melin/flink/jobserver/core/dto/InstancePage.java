@@ -0,0 +1,22 @@
+package io.github.melin.flink.jobserver.core.dto;
+
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 实例分页结果，nextLastId 作为下一页 lastId 参数(keyset 分页)
+ */
+@Data
+@AllArgsConstructor
+public class InstancePage {
+
+    private List<JobInstance> rows;
+
+    // 缓存的过滤总数，非实时
+    private long total;
+
+    private Long nextLastId;
+}
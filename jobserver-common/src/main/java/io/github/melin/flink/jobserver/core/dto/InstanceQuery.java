@@ -0,0 +1,22 @@
+package io.github.melin.flink.jobserver.core.dto;
+
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import lombok.Data;
+
+/**
+ * 实例列表过滤条件，同时作用于实例表和归档表，为空的条件不过滤。toString 作为总数缓存 key
+ */
+@Data
+public class InstanceQuery {
+
+    private String code;
+
+    /**
+     * 名称模糊匹配
+     */
+    private String name;
+
+    private String clientName;
+
+    private InstanceStatus status;
+}
@@ -0,0 +1,39 @@
+package io.github.melin.flink.jobserver.core.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * select 查询结果分页，结果保存在 driver 本地文件，driver 回收后不能再查询
+ */
+@Data
+public class ResultPage {
+
+    private String instanceCode;
+
+    /**
+     * 语句 id，select 语句在作业中的行号
+     */
+    private int statementId;
+
+    private List<String> columns;
+
+    /**
+     * 从 1 开始
+     */
+    private int page;
+
+    private int pageSize;
+
+    private long totalRows;
+
+    private int totalPages;
+
+    /**
+     * 结果超过最大行数被截断
+     */
+    private boolean truncated;
+
+    private List<List<String>> rows;
+}
@@ -0,0 +1,46 @@
+package io.github.melin.flink.jobserver.core.entity;
+
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import com.gitee.melin.bee.model.IEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * 实例统计：按实例创建时间(小时)、集群、状态汇总实例数量
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(name = "fjs_instance_statistics")
+public class InstanceStatistics implements IEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "stat_time", nullable = false)
+    private Instant statTime;
+
+    @Column(name = "cluster_code", nullable = false, length = 64)
+    private String clusterCode;
+
+    @Column(name = "status", nullable = false)
+    @Type(type = "com.gitee.melin.bee.core.enums.StringValuedEnumType",
+            parameters = {@org.hibernate.annotations.Parameter(name = "enumClass",
+                    value = "io.github.melin.flink.jobserver.core.enums.InstanceStatus")})
+    private InstanceStatus status;
+
+    @Column(name = "instance_count", nullable = false)
+    private Long instanceCount;
+
+    @Column(name = "gmt_modified")
+    private Instant gmtModified;
+}
@@ -1,5 +1,6 @@
 package io.github.melin.flink.jobserver.core.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.gitee.melin.bee.model.IEntity;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -23,8 +24,21 @@ public class JobInstanceContent implements IEntity {
     @Column(name = "code", nullable = false, length = 45)
     private String code;
 
+    /**
+     * 历史数据未去重，作业内容直接存储在实例内容表，新数据为空
+     */
+    @JsonIgnore
     @Lob
     @Column(name = "job_text")
+    private String legacyJobText;
+
+    /**
+     * 作业内容 hash，内容存储在 fjs_job_text
+     */
+    @Column(name = "text_hash", length = 64)
+    private String textHash;
+
+    @Transient
     private String jobText;
 
     @Column(name = "job_config")
@@ -0,0 +1,45 @@
+package io.github.melin.flink.jobserver.core.entity;
+
+import com.gitee.melin.bee.model.IEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * 作业内容去重存储：按内容 sha256 存储一份，实例内容通过 textHash 引用，refCount 为引用实例数量
+ */
+@Getter
+@Setter
+@ToString(exclude = "content")
+@NoArgsConstructor
+@Entity
+@Table(name = "fjs_job_text")
+public class JobText implements IEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "text_hash", nullable = false, length = 64)
+    private String textHash;
+
+    @Lob
+    @Column(name = "content")
+    private byte[] content;
+
+    @Column(name = "compressed", nullable = false)
+    private boolean compressed;
+
+    @Column(name = "text_length", nullable = false)
+    private Integer textLength;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "gmt_created", nullable = false)
+    private Instant gmtCreated;
+}
@@ -0,0 +1,21 @@
+package io.github.melin.flink.jobserver.core.event;
+
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 实例状态变更事件，事务提交后通知状态订阅者
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class InstanceStatusEvent {
+
+    private final String instanceCode;
+
+    private final InstanceStatus status;
+
+    private final String applicationId;
+}
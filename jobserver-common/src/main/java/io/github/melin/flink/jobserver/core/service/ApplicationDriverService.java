@@ -4,6 +4,7 @@ import io.github.melin.flink.jobserver.core.dao.ApplicationDriverDao;
 import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
 import io.github.melin.flink.jobserver.core.enums.DeployMode;
 import io.github.melin.flink.jobserver.core.enums.DriverStatus;
+import io.github.melin.flink.jobserver.core.util.EntityCache;
 import com.gitee.melin.bee.core.hibernate5.HibernateBaseDao;
 import com.gitee.melin.bee.core.service.BaseServiceImpl;
 import com.gitee.melin.bee.util.NetUtils;
@@ -16,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 
@@ -30,6 +32,10 @@ public class ApplicationDriverService extends BaseServiceImpl<ApplicationDriver,
 
     private String hostName = "";
 
+    // driver 注册后 applicationId 和地址不再变化，driver 删除时失效
+    private final EntityCache<String, String> driverAddressCache =
+            new EntityCache<>("driverAddress", 1000, Duration.ofMinutes(1));
+
     public ApplicationDriverService() {
         hostName = NetUtils.getLocalHost();
     }
@@ -54,14 +60,15 @@ public class ApplicationDriverService extends BaseServiceImpl<ApplicationDriver,
         return this.queryCount("clusterCode", clusterCode, "deployMode", DeployMode.SESSION);
     }
 
+    /**
+     * 查看日志、停止作业时多次读取，走缓存。driver 未注册时地址为 null，不缓存
+     */
     @Transactional(readOnly = true, rollbackFor = Exception.class)
     public String queryDriverAddressByAppId(String applicationId) {
-        ApplicationDriver driver = this.queryDriverByAppId(applicationId);
-        if (driver != null) {
-            return driver.getFlinkDriverUrl();
-        } else {
-            return null;
-        }
+        return driverAddressCache.get(applicationId, appId -> {
+            ApplicationDriver driver = this.queryDriverByAppId(appId);
+            return driver != null ? driver.getFlinkDriverUrl() : null;
+        });
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -116,15 +123,48 @@ public class ApplicationDriverService extends BaseServiceImpl<ApplicationDriver,
         }
     }
 
+    /**
+     * 流任务 driver 心跳，刷新 gmtModified，避免被当作空闲 driver 清理
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void updateDriverHeartbeat(String appId) {
+        try {
+            String hql = "update ApplicationDriver set gmtModified=:gmtModified where applicationId=:appId";
+            this.deleteOrUpdateByHQL(hql, new String[]{"gmtModified", "appId"}, new Object[]{Instant.now(), appId});
+        } catch (Exception e) {
+            LOG.error("update driver heartbeat error: " + e.getMessage());
+        }
+    }
+
     @Transactional(rollbackFor = Exception.class)
     public void deleteJobServerByAppId(String appId) {
         ApplicationDriver driver = queryDriverByAppId(appId);
         if (driver != null) {
             LOG.info("delete driver: {}, appId: {}", driver.getId(), driver.getApplicationId());
-            this.deleteEntity(driver);
+            deleteDriver(driver);
+        }
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteDriver(Long driverId) {
+        ApplicationDriver driver = this.getEntity(driverId);
+        if (driver != null) {
+            deleteDriver(driver);
+        }
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteDriver(ApplicationDriver driver) {
+        this.deleteEntity(driver);
+        if (driver.getApplicationId() != null) {
+            driverAddressCache.invalidateOnCommit(driver.getApplicationId());
         }
     }
 
+    public EntityCache<String, String> getDriverAddressCache() {
+        return driverAddressCache;
+    }
+
     /**
      * 清空driver logThread hostName
      */
@@ -139,6 +179,21 @@ public class ApplicationDriverService extends BaseServiceImpl<ApplicationDriver,
         }
     }
 
+    /**
+     * 释放当前节点持有的 driver 日志服务，由日志服务调度重新创建日志线程
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void releaseLogServer(String appId) {
+        try {
+            String hql = "update ApplicationDriver set logServer = null where logServer = :logServer and applicationId=:appId";
+            int count = this.deleteOrUpdateByHQL(hql, new String[]{"logServer", "appId"},
+                    new Object[]{hostName, appId});
+            LOG.info("释放 log server applicationId: {}, count: {}", appId, count);
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
     @Transactional(rollbackFor = Exception.class)
     public boolean lockCurrentLogServer(String appId) {
         try {
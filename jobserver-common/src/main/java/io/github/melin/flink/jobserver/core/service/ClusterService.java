@@ -2,6 +2,7 @@ package io.github.melin.flink.jobserver.core.service;
 
 import io.github.melin.flink.jobserver.core.dao.ClusterDao;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
+import io.github.melin.flink.jobserver.core.util.EntityCache;
 import com.gitee.melin.bee.core.hibernate5.HibernateBaseDao;
 import com.gitee.melin.bee.core.service.BaseServiceImpl;
 import org.apache.commons.lang3.StringUtils;
@@ -13,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 
@@ -25,14 +27,20 @@ public class ClusterService extends BaseServiceImpl<Cluster, Long> {
     @Autowired
     private ClusterDao clusterDao;
 
+    private final EntityCache<String, Cluster> clusterCache =
+            new EntityCache<>("cluster", 200, Duration.ofMinutes(1));
+
     @Override
     public HibernateBaseDao<Cluster, Long> getHibernateBaseDao() {
         return clusterDao;
     }
 
+    /**
+     * 提交作业时多次读取，走缓存，返回对象不能修改
+     */
     @Transactional
     public Cluster getClusterByCode(String clusterCode) {
-        Cluster cluster = this.queryByNamedParam("code", clusterCode);
+        Cluster cluster = clusterCache.get(clusterCode, code -> this.queryByNamedParam("code", code));
         if (cluster == null) {
             LOG.warn("compute cluster: {} not exists", clusterCode);
         }
@@ -58,8 +66,8 @@ public class ClusterService extends BaseServiceImpl<Cluster, Long> {
 
     @Transactional(readOnly = true)
     public String queryKerberosUser(String clusterCode) {
-        String kerberosUser = this.queryByCriterions(Projections.property("kerberosUser"),
-                Restrictions.eq("code", clusterCode));
+        Cluster cluster = this.getClusterByCode(clusterCode);
+        String kerberosUser = cluster == null ? null : cluster.getKerberosUser();
 
         if (StringUtils.isBlank(kerberosUser)) {
             throw new IllegalStateException(clusterCode + " 集群 kerberos user 为空");
@@ -68,6 +76,32 @@ public class ClusterService extends BaseServiceImpl<Cluster, Long> {
         return kerberosUser;
     }
 
+    public void insertCluster(Cluster cluster) {
+        this.insertEntity(cluster);
+        invalidateCluster(cluster.getCode());
+    }
+
+    public void updateCluster(Cluster cluster) {
+        this.updateEntity(cluster);
+        invalidateCluster(cluster.getCode());
+    }
+
+    public void deleteCluster(Cluster cluster) {
+        this.deleteEntity(cluster);
+        invalidateCluster(cluster.getCode());
+    }
+
+    /**
+     * 集群新增、修改、删除后调用
+     */
+    public void invalidateCluster(String clusterCode) {
+        clusterCache.invalidateOnCommit(clusterCode);
+    }
+
+    public EntityCache<String, Cluster> getClusterCache() {
+        return clusterCache;
+    }
+
     @Transactional(readOnly = true)
     public List<Cluster> queryValidClusters() {
         return this.findByNamedParam("status", true);
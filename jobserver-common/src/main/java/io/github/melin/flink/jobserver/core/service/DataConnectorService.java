@@ -8,12 +8,15 @@ import com.gitee.melin.bee.core.jdbc.relational.DataSourceInfo;
 import com.gitee.melin.bee.core.service.BaseServiceImpl;
 import io.github.melin.flink.jobserver.core.dao.DataConnectorDao;
 import io.github.melin.flink.jobserver.core.entity.DataConnector;
+import io.github.melin.flink.jobserver.core.util.EntityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.SQLException;
+import java.time.Duration;
 
 @Service
 public class DataConnectorService extends BaseServiceImpl<DataConnector, Long> {
@@ -23,11 +26,48 @@ public class DataConnectorService extends BaseServiceImpl<DataConnector, Long> {
     @Autowired
     private DataConnectorDao connectorDao;
 
+    private final EntityCache<String, DataConnector> connectorCache =
+            new EntityCache<>("connector", 200, Duration.ofMinutes(1));
+
     @Override
     public HibernateBaseDao<DataConnector, Long> getHibernateBaseDao() {
         return connectorDao;
     }
 
+    /**
+     * 作业按 code 读取数据源，走缓存，返回对象不能修改。编辑页面使用 getEntity 读取
+     */
+    @Transactional(readOnly = true)
+    public DataConnector getConnectorByCode(String code) {
+        DataConnector connector = connectorCache.get(code, key -> this.queryByNamedParam("code", key));
+        if (connector == null) {
+            LOG.warn("data connector: {} not exists", code);
+        }
+        return connector;
+    }
+
+    @Transactional
+    public void insertConnector(DataConnector connector) {
+        this.insertEntity(connector);
+        connectorCache.invalidateOnCommit(connector.getCode());
+    }
+
+    @Transactional
+    public void updateConnector(DataConnector connector) {
+        this.updateEntity(connector);
+        connectorCache.invalidateOnCommit(connector.getCode());
+    }
+
+    @Transactional
+    public void deleteConnector(DataConnector connector) {
+        this.deleteEntity(connector);
+        connectorCache.invalidateOnCommit(connector.getCode());
+    }
+
+    public EntityCache<String, DataConnector> getConnectorCache() {
+        return connectorCache;
+    }
+
     public DataSourceInfo testConnection(DataConnector dataConnector) throws SQLException {
         ConnectionInfo connector = dataConnector.buildDataConnector();
         JdbcDialect dialect = JdbcDialectHolder.getJdbcDialect(connector);
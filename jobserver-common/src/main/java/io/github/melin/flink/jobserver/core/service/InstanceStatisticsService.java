@@ -0,0 +1,140 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.InstanceStatisticsDao;
+import io.github.melin.flink.jobserver.core.entity.InstanceStatistics;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import com.gitee.melin.bee.core.hibernate5.HibernateBaseDao;
+import com.gitee.melin.bee.core.service.BaseServiceImpl;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.*;
+
+/**
+ * 实例统计计数，状态变更时增量更新，定时按实例表校准
+ */
+@Service
+@Transactional
+public class InstanceStatisticsService extends BaseServiceImpl<InstanceStatistics, Long> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceStatisticsService.class);
+
+    private static final String DEFAULT_CLUSTER = "default";
+
+    @Autowired
+    private InstanceStatisticsDao instanceStatisticsDao;
+
+    @Override
+    public HibernateBaseDao<InstanceStatistics, Long> getHibernateBaseDao() {
+        return instanceStatisticsDao;
+    }
+
+    /**
+     * 实例状态变更，from 为空表示新建实例。两条统计记录按状态值固定顺序更新，
+     * 避免并发的反向变更(例如 lock 和 unlock)互相等待行锁死锁
+     */
+    public void transition(Instant gmtCreated, String clusterCode, InstanceStatus from, InstanceStatus to) {
+        if (from == to || gmtCreated == null) {
+            return;
+        }
+
+        if (from != null && to != null && from.getValue().compareTo(to.getValue()) > 0) {
+            increment(gmtCreated, clusterCode, to, 1);
+            increment(gmtCreated, clusterCode, from, -1);
+        } else {
+            if (from != null) {
+                increment(gmtCreated, clusterCode, from, -1);
+            }
+            if (to != null) {
+                increment(gmtCreated, clusterCode, to, 1);
+            }
+        }
+    }
+
+    public void increment(Instant gmtCreated, String clusterCode, InstanceStatus status, long delta) {
+        String cluster = StringUtils.defaultIfBlank(clusterCode, DEFAULT_CLUSTER);
+        instanceStatisticsDao.increment(truncateToHour(gmtCreated), cluster, status, delta);
+    }
+
+    /**
+     * 按实例表和归档表统计 startTime 之后创建的实例，按小时分组，已有统计记录但没有实例的小时为空列表。
+     * 只读事务，不锁定实例和统计记录
+     */
+    @Transactional(readOnly = true)
+    public Map<Instant, List<InstanceStatistics>> computeStatistics(Instant startTime) {
+        Instant statTime = truncateToHour(startTime);
+        Map<Instant, List<InstanceStatistics>> hourStats = Maps.newTreeMap();
+        instanceStatisticsDao.findStatTimes(statTime).forEach(hour -> hourStats.put(hour, Lists.newArrayList()));
+        instanceStatisticsDao.compute(statTime).forEach(stat ->
+                hourStats.computeIfAbsent(stat.getStatTime(), hour -> Lists.newArrayList()).add(stat));
+        return hourStats;
+    }
+
+    /**
+     * 替换一个小时的统计，每个小时一个事务。校准期间的增量更新可能被覆盖，下次校准修正
+     */
+    public int replaceStatistics(Instant statTime, List<InstanceStatistics> stats) {
+        return instanceStatisticsDao.replace(statTime, stats);
+    }
+
+    public int deleteBefore(Instant statTime) {
+        return instanceStatisticsDao.deleteOrUpdateByHQL("delete from InstanceStatistics where statTime < :statTime",
+                new String[]{"statTime"}, statTime);
+    }
+
+    /**
+     * 运行中、等待实例数量，最近一天停止、失败、完成实例数量
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> queryStatistics() {
+        Instant lastDay = truncateToHour(Instant.now().minus(1, ChronoUnit.DAYS));
+        Criterion currentCrt = Restrictions.in("status", RUNNING, WAITING);
+        Criterion lastDayCrt = Restrictions.and(Restrictions.in("status", KILLED, FAILED, FINISHED),
+                Restrictions.ge("statTime", lastDay));
+        List<InstanceStatistics> list = this.findByCriterions(Restrictions.or(currentCrt, lastDayCrt));
+
+        Map<InstanceStatus, Long> counts = Maps.newEnumMap(InstanceStatus.class);
+        list.forEach(stat -> counts.merge(stat.getStatus(), stat.getInstanceCount(), Long::sum));
+
+        Map<String, Long> data = Maps.newHashMap();
+        data.put("runningCount", counts.getOrDefault(RUNNING, 0L));
+        data.put("waitingCount", counts.getOrDefault(WAITING, 0L));
+        data.put("lastDayStoppedCount", counts.getOrDefault(KILLED, 0L));
+        data.put("lastDayFailedCount", counts.getOrDefault(FAILED, 0L));
+        data.put("lastDayFinishedCount", counts.getOrDefault(FINISHED, 0L));
+        return data;
+    }
+
+    /**
+     * 按小时统计历史，用于图表
+     * @param clusterCode 为空统计所有集群
+     */
+    @Transactional(readOnly = true)
+    public List<InstanceStatistics> queryHistory(Instant startTime, Instant endTime, String clusterCode) {
+        List<Criterion> criterions = Lists.newArrayList(Restrictions.ge("statTime", truncateToHour(startTime)),
+                Restrictions.lt("statTime", endTime));
+        if (StringUtils.isNotBlank(clusterCode)) {
+            criterions.add(Restrictions.eq("clusterCode", clusterCode));
+        }
+        return this.findByCriterions(Order.asc("statTime"), criterions.toArray(new Criterion[0]));
+    }
+
+    private Instant truncateToHour(Instant time) {
+        return time.atZone(ZoneId.systemDefault()).truncatedTo(ChronoUnit.HOURS).toInstant();
+    }
+}
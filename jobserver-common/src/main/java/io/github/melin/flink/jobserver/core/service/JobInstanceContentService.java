@@ -34,6 +34,14 @@ public class JobInstanceContentService extends BaseServiceImpl<JobInstanceConten
         return queryByNamedParam("code", instanceCode);
     }
 
+    /**
+     * 查询归档实例内容
+     */
+    @Transactional(readOnly = true)
+    public JobInstanceContent queryArchivedContent(String instanceCode) {
+        return jobInstanceContentDao.queryArchivedContent(instanceCode);
+    }
+
     /**
      * 更新统计信息
      * @param instanceCode
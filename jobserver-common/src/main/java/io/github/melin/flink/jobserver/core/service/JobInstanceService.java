@@ -1,26 +1,39 @@
 package io.github.melin.flink.jobserver.core.service;
 
+import io.github.melin.flink.jobserver.core.dto.InstancePage;
+import io.github.melin.flink.jobserver.core.dto.InstanceQuery;
 import io.github.melin.flink.jobserver.core.entity.JobInstanceDependent;
 import io.github.melin.flink.jobserver.core.dao.JobInstanceDao;
 import io.github.melin.flink.jobserver.core.entity.JobInstance;
 import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
 import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import io.github.melin.flink.jobserver.core.event.InstanceStatusEvent;
 import com.gitee.melin.bee.core.hibernate5.HibernateBaseDao;
 import com.gitee.melin.bee.core.service.BaseServiceImpl;
-import com.google.common.collect.Maps;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.criterion.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.*;
 import static io.github.melin.flink.jobserver.core.enums.InstanceType.API;
@@ -41,21 +54,61 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
     @Autowired
     private JobInstanceContentService instanceContentService;
 
+    @Autowired
+    private InstanceStatisticsService instanceStatisticsService;
+
+    @Autowired
+    private JobTextService jobTextService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Cache<String, Long> instanceCountCache = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .build();
+
     @Override
     public HibernateBaseDao<JobInstance, Long> getHibernateBaseDao() {
         return jobInstanceDao;
     }
 
     /**
-     * 保存作业内容
+     * 新建作业实例，同时更新实例统计
+     */
+    public void insertJobInstance(JobInstance instance) {
+        this.insertEntity(instance);
+        instanceStatisticsService.transition(instance.getGmtCreated(), instance.getClusterCode(),
+                null, instance.getStatus());
+    }
+
+    /**
+     * 保存作业内容，作业内容按 hash 去重存储
      */
     public void saveJobText(String instanceCode, String jobText, String jobConfig) {
         JobInstanceContent instanceContent = new JobInstanceContent(instanceCode, jobText, jobConfig);
+        instanceContent.setTextHash(jobTextService.retain(jobText, 1));
         instanceContentService.insertEntity(instanceContent);
     }
 
+    /**
+     * 修改作业内容，内容变化时引用新内容，释放原内容
+     */
+    public void updateJobText(String instanceCode, String jobText, String jobConfig) {
+        JobInstanceContent instanceContent = instanceContentService.queryJobInstanceContentByCode(instanceCode);
+        instanceContent.setJobConfig(jobConfig);
+        String textHash = jobText == null ? null : JobTextService.hash(jobText);
+        if (instanceContent.getLegacyJobText() != null || !StringUtils.equals(textHash, instanceContent.getTextHash())) {
+            jobTextService.release(instanceContent.getTextHash(), 1);
+            instanceContent.setTextHash(jobTextService.retain(jobText, 1));
+            instanceContent.setLegacyJobText(null);
+        }
+        instanceContentService.updateEntity(instanceContent);
+    }
+
     public void startJobInstance(String instanceCode, String applicationId) {
-        JobInstance jobInstance = queryJobInstanceByCode(instanceCode);
+        JobInstance jobInstance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        InstanceStatus oldStatus = jobInstance.getStatus();
         jobInstance.setGmtModified(Instant.now());
         jobInstance.setStartTime(Instant.now());
         jobInstance.setEndTime(null);
@@ -65,11 +118,13 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
 
         instanceContentService.updateErrorMsg(instanceCode, null);
         LOG.info("update task {} status running", jobInstance.getCode());
+        statusChanged(jobInstance, oldStatus);
     }
 
     @Transactional
     public void instanceRunEnd(String instanceCode, InstanceStatus status, String errorMsg) {
-        JobInstance instance = queryJobInstanceByCode(instanceCode);
+        JobInstance instance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        InstanceStatus oldStatus = instance.getStatus();
         Instant nowDate = Instant.now();
         instance.setEndTime(nowDate);
         long times = nowDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() -
@@ -81,13 +136,14 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
         instance.setStatus(status);
         instance.setGmtModified(Instant.now());
         this.updateEntity(instance);
+        statusChanged(instance, oldStatus);
     }
 
     /**
      * 保存作业实例依赖信息
      */
     public void saveInstanceDependent(String instanceCode, String[] dependentCodes) {
-        Arrays.stream(dependentCodes).forEach(dependentCode ->
+        Arrays.stream(dependentCodes).distinct().forEach(dependentCode ->
                 dependentService.insertEntity(new JobInstanceDependent(instanceCode, dependentCode)));
     }
 
@@ -99,31 +155,131 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
         return queryByNamedParam("code", instanceCode);
     }
 
+    /**
+     * 实例 Code 查询 Job 实例，实例表不存在时查询归档表，归档实例只读
+     */
+    @Transactional(readOnly = true)
+    public JobInstance queryInstanceWithArchive(String instanceCode) {
+        JobInstance instance = queryJobInstanceByCode(instanceCode);
+        if (instance == null) {
+            instance = jobInstanceDao.queryArchivedInstance(instanceCode);
+        }
+        return instance;
+    }
+
     /**
      * 乐观锁 控制实例同时被提交一次
      */
     public boolean lockInstance(String instanceCode) {
-        int updateCount = jobInstanceDao.deleteOrUpdateByHQL("update JobInstance set status = :status " +
-                        "where code = :code and status in (:status1, :status2)",
-                new String[]{"status", "code", "status1", "status2"},
-                LOCKED, instanceCode, WAITING, SUBMITTING);
+        JobInstance instance = queryJobInstanceByCode(instanceCode);
+        if (instance == null) {
+            return false;
+        }
 
-        return updateCount > 0;
+        InstanceStatus from = updateStatus(instanceCode, LOCKED, WAITING, SUBMITTING);
+        if (from != null) {
+            instanceStatisticsService.transition(instance.getGmtCreated(), instance.getClusterCode(), from, LOCKED);
+            eventPublisher.publishEvent(new InstanceStatusEvent(instanceCode, LOCKED, null));
+        }
+        return from != null;
     }
 
     /**
      * 乐观锁 控制实例同时被提交一次
      */
     public void unLockInstance(String applicationId, String instanceCode) {
-        int updateCount = jobInstanceDao.deleteOrUpdateByHQL("update JobInstance set status = :status " +
-                        "where code = :code and status = :status1",
-                new String[]{"status", "code", "status1"}, WAITING, instanceCode, LOCKED);
+        JobInstance instance = queryJobInstanceByCode(instanceCode);
+        if (instance == null) {
+            return;
+        }
 
-        if (updateCount > 0) {
+        if (updateStatus(instanceCode, WAITING, LOCKED) != null) {
             LOG.info("driver: {}, instance: {} lock release success", applicationId, instanceCode);
+            instanceStatisticsService.transition(instance.getGmtCreated(), instance.getClusterCode(), LOCKED, WAITING);
+            eventPublisher.publishEvent(new InstanceStatusEvent(instanceCode, WAITING, null));
         }
     }
 
+    /**
+     * 实例处于 RUNNING 或 SUBMITTING 状态时更新为失败，不覆盖已经结束或重新提交的实例状态
+     */
+    public boolean failRunningInstance(String instanceCode) {
+        JobInstance instance = queryJobInstanceByCode(instanceCode);
+        if (instance == null) {
+            return false;
+        }
+
+        InstanceStatus from = updateStatus(instanceCode, FAILED, RUNNING, SUBMITTING);
+        if (from != null) {
+            instanceStatisticsService.transition(instance.getGmtCreated(), instance.getClusterCode(), from, FAILED);
+            eventPublisher.publishEvent(new InstanceStatusEvent(instanceCode, FAILED, instance.getApplicationId()));
+        }
+        return from != null;
+    }
+
+    /**
+     * 提交或运行失败后重试，重试次数加 1，更新为等待状态重新调度
+     */
+    public JobInstance retryInstance(String instanceCode) {
+        return updateStatusWithRetryCount(instanceCode, WAITING);
+    }
+
+    /**
+     * 提交失败不再重试，重试次数加 1，更新为失败状态
+     */
+    public JobInstance failSubmitInstance(String instanceCode) {
+        return updateStatusWithRetryCount(instanceCode, FAILED);
+    }
+
+    private JobInstance updateStatusWithRetryCount(String instanceCode, InstanceStatus status) {
+        JobInstance instance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        InstanceStatus oldStatus = instance.getStatus();
+        instance.setRetryCount(instance.getRetryCount() + 1);
+        instance.setStatus(status);
+        instance.setGmtModified(Instant.now());
+        this.updateEntity(instance);
+        statusChanged(instance, oldStatus);
+        return instance;
+    }
+
+    /**
+     * 实例处于 RUNNING 状态时更新为完成，流任务作业正常结束(例如读取有界数据源)时调用，不覆盖已经结束的实例状态
+     */
+    public boolean finishRunningInstance(String instanceCode) {
+        JobInstance instance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        if (instance == null || RUNNING != instance.getStatus()) {
+            return false;
+        }
+
+        Instant nowDate = Instant.now();
+        instance.setEndTime(nowDate);
+        if (instance.getStartTime() != null) {
+            instance.setRunTimes(nowDate.toEpochMilli() - instance.getStartTime().toEpochMilli());
+        }
+        instance.setStatus(FINISHED);
+        instance.setGmtModified(nowDate);
+        this.updateEntity(instance);
+        statusChanged(instance, RUNNING);
+        return true;
+    }
+
+    /**
+     * 每次只按一个原状态条件更新，更新成功的条件就是实例原状态，统计按实际原状态变更，
+     * 不依赖更新前不加锁读取的状态
+     * @return 更新前的状态，实例状态不在 froms 中返回 null
+     */
+    private InstanceStatus updateStatus(String instanceCode, InstanceStatus to, InstanceStatus... froms) {
+        for (InstanceStatus from : froms) {
+            int updateCount = jobInstanceDao.deleteOrUpdateByHQL("update JobInstance set status = :status, " +
+                            "gmtModified = :now where code = :code and status = :status1",
+                    new String[]{"status", "now", "code", "status1"}, to, Instant.now(), instanceCode, from);
+            if (updateCount > 0) {
+                return from;
+            }
+        }
+        return null;
+    }
+
     /**
      * 查询可以运行的调度实例ID
      * @return 调度实例
@@ -148,7 +304,162 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
     }
 
     /**
-     * 查找当前实例的上游实例，没有执行完成实例数量。
+     * 批量查询实例状态，只读取 code, status, startTime, endTime, gmtModified, applicationId,
+     * code 列表分批 IN 查询，实例表中不存在的 code 再查询归档表
+     * @param since 不为空，只返回 since 之后(含)有变更的实例，归档实例不再变更，不查询归档表
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> findInstanceStatusByCodes(List<String> codes, Instant since) {
+        Projection projection = Projections.projectionList()
+                .add(Projections.property("code"))
+                .add(Projections.property("status"))
+                .add(Projections.property("startTime"))
+                .add(Projections.property("endTime"))
+                .add(Projections.property("gmtModified"))
+                .add(Projections.property("applicationId"));
+
+        List<Object[]> rows = Lists.newArrayList();
+        for (List<String> partCodes : Lists.partition(codes, 500)) {
+            Criterion codeCrt = Restrictions.in("code", partCodes);
+            if (since == null) {
+                rows.addAll(this.findByCriterion(projection, codeCrt));
+            } else {
+                Criterion sinceCrt = Restrictions.or(Restrictions.ge("gmtModified", since),
+                        Restrictions.and(Restrictions.isNull("gmtModified"), Restrictions.ge("gmtCreated", since)));
+                rows.addAll(this.findByCriterion(projection, codeCrt, sinceCrt));
+            }
+        }
+
+        if (since == null && rows.size() < codes.size()) {
+            Set<String> foundCodes = rows.stream().map(row -> (String) row[0]).collect(Collectors.toSet());
+            List<String> missCodes = codes.stream().filter(code -> !foundCodes.contains(code))
+                    .distinct().collect(Collectors.toList());
+            for (List<String> partCodes : Lists.partition(missCodes, 500)) {
+                for (Object[] row : jobInstanceDao.findArchivedInstanceStatus(partCodes)) {
+                    rows.add(new Object[]{row[0], InstanceStatus.valueOf((String) row[1]), toInstant(row[2]),
+                            toInstant(row[3]), toInstant(row[4]), row[5]});
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Instant toInstant(Object value) {
+        return value == null ? null : ((Timestamp) value).toInstant();
+    }
+
+    /**
+     * 查询 before 之前创建的终态实例 id，用于迁移到归档表
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findArchiveInstanceIds(Instant before, int limit) {
+        List<Criterion> criterions = Lists.newArrayList(
+                Restrictions.lt("gmtCreated", before),
+                Restrictions.in("status", FINISHED, FAILED, KILLED));
+        return jobInstanceDao.findIdsByCriterions(criterions, limit);
+    }
+
+    /**
+     * 实例和实例内容迁移到归档表，一个批次一个事务
+     */
+    public int archiveInstances(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jobInstanceDao.moveToArchive(ids);
+    }
+
+    /**
+     * 归档实例迁回实例表。统计包含归档表，迁移本身不改变统计，迁回后的状态变更需要更新统计
+     * @return 归档表中不存在返回 false
+     */
+    public boolean restoreArchivedInstance(String instanceCode) {
+        boolean restored = jobInstanceDao.restoreFromArchive(instanceCode);
+        if (restored) {
+            LOG.info("restore archived instance: {}", instanceCode);
+        }
+        return restored;
+    }
+
+    /**
+     * 重跑实例，归档实例先迁回实例表，更新为等待状态并更新统计
+     * @return 实例不存在返回 false
+     */
+    public boolean restartInstance(String instanceCode) {
+        JobInstance instance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        if (instance == null && restoreArchivedInstance(instanceCode)) {
+            instance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        }
+        if (instance == null) {
+            return false;
+        }
+
+        InstanceStatus oldStatus = instance.getStatus();
+        instance.setGmtModified(Instant.now());
+        instance.setStatus(WAITING);
+        instance.setRunTimes(0L);
+        updateEntity(instance);
+        statusChanged(instance, oldStatus);
+        return true;
+    }
+
+    /**
+     * 查询调度时间在 before 之前的过期实例 id
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findExpireInstanceIds(Instant before, int limit) {
+        return jobInstanceDao.findIdsByCriterions(Lists.newArrayList(Restrictions.lt("scheduleTime", before)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findArchivedExpireInstanceIds(Instant before, int limit) {
+        return jobInstanceDao.findArchivedExpireIds(before, limit);
+    }
+
+    /**
+     * 批量删除实例、实例内容和依赖，一个批次一个事务
+     * @return 删除的总行数
+     */
+    public int purgeInstances(List<Long> ids) {
+        return ids.isEmpty() ? 0 : jobInstanceDao.purgeInstances(ids);
+    }
+
+    /**
+     * 删除实例、实例内容和依赖，释放作业内容引用，同时扣减统计
+     */
+    public void deleteInstance(JobInstance instance) {
+        jobInstanceDao.purgeInstances(Collections.singletonList(instance.getId()));
+        instanceStatisticsService.transition(instance.getGmtCreated(), instance.getClusterCode(),
+                instance.getStatus(), null);
+    }
+
+    public int purgeArchivedInstances(List<Long> ids) {
+        return ids.isEmpty() ? 0 : jobInstanceDao.purgeArchivedInstances(ids);
+    }
+
+    /**
+     * 实例分页查询，同时查询归档实例，lastId 不为空时按 (sortKey, id) keyset 分页，避免深分页 offset 扫描；
+     * 总数按过滤条件缓存 30 秒
+     * @param sortKey 必须是有索引的非空字段: id, gmtCreated, scheduleTime
+     */
+    @Transactional(readOnly = true)
+    public InstancePage findInstancePage(InstanceQuery query, String sortKey, boolean asc,
+                                         Long lastId, int page, int limit) {
+        int offset = Math.max(page - 1, 0) * limit;
+        List<JobInstance> rows = jobInstanceDao.findInstancePage(query, sortKey, asc, lastId, offset, limit);
+        long total;
+        try {
+            total = instanceCountCache.get(query.toString(), () -> jobInstanceDao.countInstances(query));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        Long nextLastId = rows.size() < limit ? null : rows.get(rows.size() - 1).getId();
+        return new InstancePage(rows, total, nextLastId);
+    }
+
+    /**
+     * 查找当前实例的上游实例，没有执行完成实例数量，上游实例可能已经归档
      * @return 没有执行完成实例数量
      */
     @Transactional(readOnly = true)
@@ -156,12 +467,12 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
         Criterion codeCrt = Restrictions.eq("code", instanceCode);
         Projection projection = Projections.property("parentCode");
         List<String> parentCodes = dependentService.findByCriterion(projection, codeCrt);
+        if (parentCodes.isEmpty()) {
+            return 0;
+        }
 
-        Criterion parentCodesCrt = Restrictions.in("code", parentCodes);
-        Criterion statusCrt = Restrictions.ne("status", FINISHED);
-        projection = Projections.count("code");
-        List<Long> counts = this.findByCriterion(projection, parentCodesCrt, statusCrt);
-        return counts.get(0);
+        return findInstanceStatusByCodes(parentCodes, null).stream()
+                .filter(row -> FINISHED != row[1]).count();
     }
 
     /**
@@ -171,7 +482,11 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
      */
     @Transactional(readOnly = true)
     public JobInstanceContent queryJobTextByCode(String code) {
-        return instanceContentService.queryByCriterions(Restrictions.eq("code", code));
+        JobInstanceContent content = instanceContentService.queryByCriterions(Restrictions.eq("code", code));
+        if (content == null) {
+            content = instanceContentService.queryArchivedContent(code);
+        }
+        return jobTextService.resolve(content);
     }
 
     /**
@@ -185,13 +500,37 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
 
     @Transactional
     public JobInstance updateJobStatusByCode(String instanceCode, InstanceStatus status) {
-        JobInstance instance = this.queryJobInstanceByCode(instanceCode);
+        JobInstance instance = jobInstanceDao.queryInstanceForUpdate(instanceCode);
+        InstanceStatus oldStatus = instance.getStatus();
         instance.setStatus(status);
         instance.setGmtModified(Instant.now());
         this.updateEntity(instance);
+        statusChanged(instance, oldStatus);
         return instance;
     }
 
+    /**
+     * 状态在其它进程(driver)中更新，重新读取实例状态并发布事件
+     */
+    @Transactional(readOnly = true)
+    public void refreshStatusEvent(String instanceCode) {
+        JobInstance instance = queryJobInstanceByCode(instanceCode);
+        if (instance != null) {
+            publishStatusEvent(instance);
+        }
+    }
+
+    private void statusChanged(JobInstance instance, InstanceStatus oldStatus) {
+        instanceStatisticsService.transition(instance.getGmtCreated(), instance.getClusterCode(),
+                oldStatus, instance.getStatus());
+        publishStatusEvent(instance);
+    }
+
+    private void publishStatusEvent(JobInstance instance) {
+        eventPublisher.publishEvent(new InstanceStatusEvent(instance.getCode(),
+                instance.getStatus(), instance.getApplicationId()));
+    }
+
     @Transactional(readOnly = true)
     public List<JobInstance> findJobInstanceSubmitTimeOut(Instant date) {
         Criterion gmtModifiedCrt = Restrictions.lt("gmtModified", date);
@@ -201,23 +540,6 @@ public class JobInstanceService extends BaseServiceImpl<JobInstance, Long> {
 
     @Transactional(readOnly = true)
     public Map<String, Long> queryInstanceStatistics() {
-        long runningCount = this.queryCount("status", InstanceStatus.RUNNING);
-        long waitingCount = this.queryCount("status", InstanceStatus.WAITING);
-
-        Instant lastDay = Instant.now().minus(1, ChronoUnit.DAYS);
-        Criterion lastCreateTimeCrt = Restrictions.gt("gmtCreated", lastDay); //最近1天实例
-
-        long lastDayStoppedCount = this.queryCount("status", InstanceStatus.KILLED, "gmtCreated", lastCreateTimeCrt);
-        long lastDayFailedCount = this.queryCount("status", InstanceStatus.FAILED, "gmtCreated", lastCreateTimeCrt);
-        long lastDayFinishedCount = this.queryCount("status", InstanceStatus.FINISHED, "gmtCreated", lastCreateTimeCrt);
-
-        Map<String, Long> data = Maps.newHashMap();
-        data.put("runningCount", runningCount);
-        data.put("waitingCount", waitingCount);
-        data.put("lastDayStoppedCount", lastDayStoppedCount);
-        data.put("lastDayFailedCount", lastDayFailedCount);
-        data.put("lastDayFinishedCount", lastDayFinishedCount);
-
-        return data;
+        return instanceStatisticsService.queryStatistics();
     }
 }
@@ -0,0 +1,149 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.JobTextDao;
+import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
+import io.github.melin.flink.jobserver.core.entity.JobText;
+import com.gitee.melin.bee.core.hibernate5.HibernateBaseDao;
+import com.gitee.melin.bee.core.service.BaseServiceImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 作业内容按 sha256 去重存储，超过 4KB 的内容 gzip 压缩；内容不可变，按 hash LRU 缓存
+ */
+@Service
+@Transactional
+public class JobTextService extends BaseServiceImpl<JobText, Long> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobTextService.class);
+
+    private static final int COMPRESS_MIN_BYTES = 4 * 1024;
+
+    private static final long CACHE_MAX_CHARS = 32 * 1024 * 1024;
+
+    @Autowired
+    private JobTextDao jobTextDao;
+
+    private final Cache<String, String> textCache = CacheBuilder.newBuilder()
+            .maximumWeight(CACHE_MAX_CHARS)
+            .weigher((String textHash, String text) -> text.length())
+            .build();
+
+    @Override
+    public HibernateBaseDao<JobText, Long> getHibernateBaseDao() {
+        return jobTextDao;
+    }
+
+    public static String hash(String jobText) {
+        return Hashing.sha256().hashString(jobText, UTF_8).toString();
+    }
+
+    /**
+     * 保存作业内容，已存在增加引用数
+     * @param count 引用实例数量
+     * @return 内容 hash，jobText 为空返回 null
+     */
+    public String retain(String jobText, int count) {
+        if (jobText == null) {
+            return null;
+        }
+
+        String textHash = hash(jobText);
+        byte[] bytes = jobText.getBytes(UTF_8);
+        boolean compressed = false;
+        if (bytes.length >= COMPRESS_MIN_BYTES) {
+            byte[] compressedBytes = compress(bytes);
+            if (compressedBytes.length < bytes.length) {
+                bytes = compressedBytes;
+                compressed = true;
+            }
+        }
+
+        jobTextDao.retain(textHash, bytes, compressed, jobText.length(), count);
+        return textHash;
+    }
+
+    public void release(String textHash, int count) {
+        if (textHash != null) {
+            jobTextDao.release(textHash, count);
+        }
+    }
+
+    /**
+     * 删除没有实例引用的作业内容
+     */
+    public int deleteUnreferenced(int limit) {
+        return jobTextDao.deleteUnreferenced(limit);
+    }
+
+    @Transactional(readOnly = true)
+    public String queryText(String textHash) {
+        String text = textCache.getIfPresent(textHash);
+        if (text == null) {
+            JobText jobText = queryByNamedParam("textHash", textHash);
+            if (jobText == null) {
+                LOG.warn("job text {} not exists", textHash);
+                return null;
+            }
+
+            byte[] bytes = jobText.isCompressed() ? decompress(jobText.getContent()) : jobText.getContent();
+            text = new String(bytes, UTF_8);
+            textCache.put(textHash, text);
+        }
+        return text;
+    }
+
+    /**
+     * 填充实例内容 jobText，历史数据直接存储在实例内容表
+     */
+    @Transactional(readOnly = true)
+    public JobInstanceContent resolve(JobInstanceContent content) {
+        if (content != null && content.getJobText() == null) {
+            if (content.getLegacyJobText() != null) {
+                content.setJobText(content.getLegacyJobText());
+            } else if (content.getTextHash() != null) {
+                content.setJobText(queryText(content.getTextHash()));
+            }
+        }
+        return content;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length * 4);
+        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[8192];
+            int i;
+            while ((i = gzipStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, i);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+}
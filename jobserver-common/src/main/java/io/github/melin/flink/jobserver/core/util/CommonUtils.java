@@ -1,15 +1,19 @@
 package io.github.melin.flink.jobserver.core.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
 import java.text.DecimalFormat;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * huaixin 2022/4/7 12:32 PM
@@ -33,16 +37,57 @@ public class CommonUtils {
                     .put("pb", ByteUnit.PiB)
                     .build();
 
+    private static final ImmutableMap<String, TimeUnit> timeSuffixes =
+            ImmutableMap.<String, TimeUnit>builder()
+                    .put("us", TimeUnit.MICROSECONDS)
+                    .put("ms", TimeUnit.MILLISECONDS)
+                    .put("s", TimeUnit.SECONDS)
+                    .put("m", TimeUnit.MINUTES)
+                    .put("min", TimeUnit.MINUTES)
+                    .put("h", TimeUnit.HOURS)
+                    .put("d", TimeUnit.DAYS)
+                    .build();
+
+    private static final Pattern SIZE_PATTERN = Pattern.compile("([0-9]+)([a-z]+)?");
+
+    private static final Pattern FRACTION_PATTERN = Pattern.compile("([0-9]+\\.[0-9]+)([a-z]+)?");
+
+    // 配置中的大小、时间字符串种类很少，缓存解析结果(数值和单位)，没有单位时单位为 null
+    private static final Cache<String, Pair<Long, ByteUnit>> BYTE_STRING_CACHE =
+            CacheBuilder.newBuilder().maximumSize(256).build();
+
+    private static final Cache<String, Pair<Long, TimeUnit>> TIME_STRING_CACHE =
+            CacheBuilder.newBuilder().maximumSize(256).build();
+
     /**
      * Convert a passed byte string (e.g. 50b, 100kb, or 250mb) to the given. If no suffix is
      * provided, a direct conversion to the provided unit is attempted.
      */
     public static long byteStringAs(String str, ByteUnit unit) {
-        String lower = str.toLowerCase(Locale.ROOT).trim();
+        return byteStringAs(str, unit, unit);
+    }
+
+    /**
+     * @param defaultUnit 没有单位时数值的单位
+     * @param unit 转换后的单位
+     */
+    public static long byteStringAs(String str, ByteUnit defaultUnit, ByteUnit unit) {
+        Pair<Long, ByteUnit> size = str == null ? null : BYTE_STRING_CACHE.getIfPresent(str);
+        if (size == null) {
+            size = parseByteString(str);
+            BYTE_STRING_CACHE.put(str, size);
+        }
+        ByteUnit sizeUnit = size.getRight() != null ? size.getRight() : defaultUnit;
+        return unit.convertFrom(size.getLeft(), sizeUnit);
+    }
 
+    private static Pair<Long, ByteUnit> parseByteString(String str) {
         try {
-            Matcher m = Pattern.compile("([0-9]+)([a-z]+)?").matcher(lower);
-            Matcher fractionMatcher = Pattern.compile("([0-9]+\\.[0-9]+)([a-z]+)?").matcher(lower);
+            if (str == null) {
+                throw new NumberFormatException("Size string is null");
+            }
+            String lower = str.toLowerCase(Locale.ROOT).trim();
+            Matcher m = SIZE_PATTERN.matcher(lower);
 
             if (m.matches()) {
                 long val = Long.parseLong(m.group(1));
@@ -54,8 +99,11 @@ public class CommonUtils {
                 }
 
                 // If suffix is valid use that, otherwise none was provided and use the default passed
-                return unit.convertFrom(val, suffix != null ? byteSuffixes.get(suffix) : unit);
-            } else if (fractionMatcher.matches()) {
+                return Pair.of(val, suffix != null ? byteSuffixes.get(suffix) : null);
+            }
+
+            Matcher fractionMatcher = FRACTION_PATTERN.matcher(lower);
+            if (fractionMatcher.matches()) {
                 throw new NumberFormatException("Fractional values are not supported. Input was: "
                         + fractionMatcher.group(1));
             } else {
@@ -71,6 +119,55 @@ public class CommonUtils {
         }
     }
 
+    /**
+     * Convert a passed time string (e.g. 50s, 100ms, or 250us) to a time count in the given unit.
+     * If no suffix is provided, the passed number is assumed to be in the given unit.
+     */
+    public static long timeStringAs(String str, TimeUnit unit) {
+        Pair<Long, TimeUnit> time = str == null ? null : TIME_STRING_CACHE.getIfPresent(str);
+        if (time == null) {
+            time = parseTimeString(str);
+            TIME_STRING_CACHE.put(str, time);
+        }
+        TimeUnit timeUnit = time.getRight() != null ? time.getRight() : unit;
+        return unit.convert(time.getLeft(), timeUnit);
+    }
+
+    private static Pair<Long, TimeUnit> parseTimeString(String str) {
+        if (str == null) {
+            throw new NumberFormatException("Time string is null");
+        }
+        String lower = str.toLowerCase(Locale.ROOT).trim();
+        Matcher m = SIZE_PATTERN.matcher(lower);
+        if (!m.matches()) {
+            throw new NumberFormatException("Failed to parse time string: " + str
+                    + ", time must be specified as us, ms, s, m/min, h or d. E.g. 50s, 100ms, or 5min.");
+        }
+
+        long val = Long.parseLong(m.group(1));
+        String suffix = m.group(2);
+        if (suffix != null && !timeSuffixes.containsKey(suffix)) {
+            throw new NumberFormatException("Invalid suffix: \"" + suffix + "\"");
+        }
+        return Pair.of(val, suffix != null ? timeSuffixes.get(suffix) : null);
+    }
+
+    /**
+     * Convert a time parameter such as (50s, 100ms, or 250us) to milliseconds for internal use.
+     * If no suffix is provided, the passed number is assumed to be in ms.
+     */
+    public static long timeStringAsMs(String str) {
+        return timeStringAs(str, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Convert a time parameter such as (50s, 100ms, or 250us) to seconds for internal use.
+     * If no suffix is provided, the passed number is assumed to be in seconds.
+     */
+    public static long timeStringAsSec(String str) {
+        return timeStringAs(str, TimeUnit.SECONDS);
+    }
+
     /**
      * Convert a passed byte string (e.g. 50b, 100k, or 250m) to bytes for
      * internal use.
@@ -144,137 +241,19 @@ public class CommonUtils {
     }
 
     /**
-     * 清除sql中多行和单行注释
-     * http://daimojingdeyu.iteye.com/blog/382720
+     * 清除sql中多行和单行注释，保留 hint 和换行
      */
-    public static String cleanSqlComment(String sql) {
-        boolean singleLineComment = false;
-        List<Character> chars = Lists.newArrayList();
-        List<Character> delChars = Lists.newArrayList();
-
-        for (int i = 0, len = sql.length(); i < len; i++) {
-            char ch = sql.charAt(i);
-
-            if ((i + 1) < len) {
-                char nextCh = sql.charAt(i + 1);
-                if (ch == '-' && nextCh == '-' && !singleLineComment) {
-                    singleLineComment = true;
-                }
-            }
-
-            if (!singleLineComment) {
-                chars.add(ch);
-            }
-
-            if (singleLineComment && ch == '\n') {
-                singleLineComment = false;
-                chars.add(ch);
-            }
-        }
-
-        sql = StringUtils.join(chars, "");
-
-        chars = Lists.newArrayList();
-        boolean mutilLineComment = false;
-        for (int i = 0, len = sql.length(); i < len; i++) {
-            char ch = sql.charAt(i);
-
-            if ((i + 2) < len) {
-                char nextCh1 = sql.charAt(i + 1);
-                char nextCh2 = sql.charAt(i + 2);
-                if (ch == '/' && nextCh1 == '*' && nextCh2 != '+' && !mutilLineComment) {
-                    mutilLineComment = true;
-                }
-            }
-
-            if (!mutilLineComment) {
-                chars.add(ch);
-
-                if (delChars.size() > 0) {
-                    delChars.clear();
-                }
-            } else {
-                delChars.add(ch);
-            }
-
-            if ((i + 1) < len) {
-                char nextCh1 = sql.charAt(i + 1);
-                if (mutilLineComment && ch == '*' && nextCh1 == '/') {
-                    mutilLineComment = false;
-                    i++;
-                }
-            }
-        }
-
-        if (mutilLineComment) {
-            chars.addAll(delChars);
-            delChars.clear();
-        }
-
-        return StringUtils.join(chars, "");
+    public static String cleanSqlComment(CharSequence sql) {
+        return SqlSplitter.stripComments(sql);
     }
 
-    private static final String[] SQL_SPLIT_WORDKEYS =
-            new String[] {"delete", "update", "drop", "create", "explain",
-                    "alter", "use", "set", "replace", "analyze", "show", "desc", "truncate",
-                    "merge", "call", "sync", "msck", "with", "load", "datatunnel"};
-
     /**
      * 多个sql语句逗号分隔拆开
      */
     public static List<String> splitMultiSql(String sql) {
-        List<String> sqls = Lists.newArrayList();
-
-        Character quote = null;
-        Character lastChar = null;
-        int lastIndex = 0;
-        for (int i = 0, len = sql.length(); i < len; i++) {
-            char ch = sql.charAt(i);
-            if (i != 0) {
-                lastChar = sql.charAt(i - 1);
-            }
-
-            if (ch == '\'') {
-                if (quote == null) {
-                    quote = ch;
-                } else if (quote == '\'' && lastChar != '\\') {
-                    quote = null;
-                }
-            } else if (ch == '"') {
-                if (quote == null) {
-                    quote = ch;
-                } else if (quote == '"' && lastChar != '\\') {
-                    quote = null;
-                }
-            } else if (ch == ';' && quote == null) {
-                String content = StringUtils.substring(sql, lastIndex, i).trim();
-                if (StringUtils.isNotBlank(content)) {
-                    sqls.add(content);
-                }
-                lastIndex = i + 1;
-            } else if (ch == '\n') {
-                // 增强体验，如果用户没有用分号分隔多个sql语句，通过每行首个单词判断是否分隔
-                for (String wordkey : SQL_SPLIT_WORDKEYS) {
-                    int index = StringUtils.indexOfIgnoreCase(sql, wordkey, i);
-                    if ((i + 1) == index) {
-                        String content = StringUtils.substring(sql, lastIndex, i).trim();
-                        if (StringUtils.isNotBlank(content)) {
-                            sqls.add(content);
-                        }
-                        lastIndex = i + 1;
-
-                        break;
-                    }
-                }
-            }
-        }
-
-        String content = StringUtils.substring(sql, lastIndex).trim();
-        if (StringUtils.isNotBlank(content)) {
-            sqls.add(content);
-        }
-
-        return sqls;
+        return SqlSplitter.split(sql).stream()
+                .map(SqlSplitter.SqlStatement::getSql)
+                .collect(Collectors.toList());
     }
 
     public static void checkDirExists(String path) {
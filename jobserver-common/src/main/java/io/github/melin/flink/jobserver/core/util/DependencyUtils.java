@@ -2,6 +2,7 @@ package io.github.melin.flink.jobserver.core.util;
 
 
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.LogOptions;
@@ -20,9 +21,19 @@ import org.apache.ivy.plugins.resolver.FileSystemResolver;
 import org.apache.ivy.plugins.resolver.IBiblioResolver;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -39,6 +50,8 @@ public class DependencyUtils {
 
     private static final PrintStream printStream = System.err;
 
+    private static final String RESOLUTION_CACHE_DIR = "resolution-cache";
+
     private static DefaultModuleDescriptor getModuleDescriptor() {
         return DefaultModuleDescriptor.newDefaultInstance(
                 ModuleRevisionId.newInstance("com.datacyber.cybermeta", "flink-submit-parent-" + UUID.randomUUID().toString(), "1.0"));
@@ -49,13 +62,189 @@ public class DependencyUtils {
             String packagesExclusions,
             String packages,
             String repositories) throws Exception {
+        return resolveMavenDependencies(packagesTransitive, packagesExclusions, packages, repositories, false);
+    }
+
+    /**
+     * 解析结果按坐标、排除项、仓库列表缓存到 ivy 目录，缓存命中且 jar 校验通过时不再解析。
+     * SNAPSHOT 和版本范围(动态版本)每次解析结果可能不同，不使用缓存
+     *
+     * @param offline 离线解析，只使用本地 maven 仓库、ivy 本地仓库和本地目录仓库
+     */
+    public static List<String> resolveMavenDependencies(
+            boolean packagesTransitive,
+            String packagesExclusions,
+            String packages,
+            String repositories,
+            boolean offline) throws Exception {
+        if (StringUtils.isBlank(packages)) {
+            return Collections.emptyList();
+        }
+
         List<String> exclusions = Lists.newArrayList();
         if (!StringUtils.isBlank(packagesExclusions)) {
             exclusions = Arrays.asList(packagesExclusions.split(","));
         }
 
-        IvySettings ivySettings = buildIvySettings(repositories);
-        return resolveMavenCoordinates(packages, ivySettings, packagesTransitive, exclusions, false);
+        long start = System.currentTimeMillis();
+        boolean cacheable = isCacheable(packages);
+        File cacheFile = getResolutionCacheFile(packagesTransitive, exclusions, packages, repositories, offline);
+        List<String> jars = cacheable ? readResolutionCache(cacheFile) : null;
+        if (jars != null) {
+            printStream.println("Resolved " + packages + " from cache " + cacheFile.getName()
+                    + ", jars: " + jars.size() + ", times: " + (System.currentTimeMillis() - start) + "ms");
+            return jars;
+        }
+
+        IvySettings ivySettings = buildIvySettings(repositories, offline);
+        jars = resolveMavenCoordinates(packages, ivySettings, packagesTransitive, exclusions, false);
+        if (cacheable) {
+            writeResolutionCache(cacheFile, jars);
+        }
+        printStream.println("Resolved " + packages + (offline ? " offline" : "") + ", jars: " + jars.size()
+                + ", times: " + (System.currentTimeMillis() - start) + "ms");
+        return jars;
+    }
+
+    /**
+     * SNAPSHOT、版本范围([1.0,2.0)、(,1.0])、前缀匹配(1.+)和 latest.xxx 版本不缓存
+     */
+    private static boolean isCacheable(String packages) {
+        return Arrays.stream(StringUtils.split(packages, ",")).noneMatch(p -> {
+            String version = StringUtils.trim(StringUtils.substringAfterLast(p.replace("/", ":"), ":"));
+            return StringUtils.endsWith(version, "-SNAPSHOT")
+                    || StringUtils.startsWithAny(version, "[", "(", "]", "latest.")
+                    || StringUtils.endsWithAny(version, "]", ")", "[", "+");
+        });
+    }
+
+    /**
+     * 缓存 key：排序去重后的坐标和排除项，仓库列表保持顺序(决定解析优先级)
+     */
+    private static File getResolutionCacheFile(
+            boolean transitive,
+            List<String> exclusions,
+            String packages,
+            String repositories,
+            boolean offline) {
+        String coordinates = Arrays.stream(StringUtils.split(packages, ","))
+                .map(p -> StringUtils.trim(p).replace("/", ":"))
+                .filter(StringUtils::isNotBlank)
+                .distinct().sorted()
+                .collect(Collectors.joining(","));
+        String excludes = exclusions.stream()
+                .map(StringUtils::trim)
+                .filter(StringUtils::isNotBlank)
+                .distinct().sorted()
+                .collect(Collectors.joining(","));
+        String repos = StringUtils.isBlank(repositories) ? "" : Arrays.stream(StringUtils.split(repositories, ","))
+                .map(StringUtils::trim)
+                .collect(Collectors.joining(","));
+
+        String key = coordinates + "|" + excludes + "|" + repos + "|" + transitive + "|" + offline;
+        String hash = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+        return new File(getIvyUserDir(), RESOLUTION_CACHE_DIR + File.separator + hash + ".properties");
+    }
+
+    /**
+     * 读取解析缓存，jar 不存在或者大小变化缓存失效；修改时间变化时重新计算 sha256 校验，
+     * 校验通过后回写新的修改时间，下次不再重复计算
+     *
+     * @return 缓存不存在或者失效返回 null
+     */
+    private static List<String> readResolutionCache(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (InputStream input = new FileInputStream(cacheFile)) {
+            Properties properties = new Properties();
+            properties.load(input);
+            int count = Integer.parseInt(properties.getProperty("count", "-1"));
+            if (count < 0) {
+                return null;
+            }
+
+            List<String> jars = Lists.newArrayListWithCapacity(count);
+            boolean modifiedChanged = false;
+            for (int i = 0; i < count; i++) {
+                String path = properties.getProperty("jar." + i + ".path");
+                long size = Long.parseLong(properties.getProperty("jar." + i + ".size"));
+                long modified = Long.parseLong(properties.getProperty("jar." + i + ".modified"));
+                String sha256 = properties.getProperty("jar." + i + ".sha256");
+
+                File jar = new File(path);
+                if (!jar.isFile() || jar.length() != size) {
+                    return null;
+                }
+                if (jar.lastModified() != modified) {
+                    if (!sha256.equals(sha256(jar))) {
+                        return null;
+                    }
+                    properties.setProperty("jar." + i + ".modified", String.valueOf(jar.lastModified()));
+                    modifiedChanged = true;
+                }
+                jars.add(path);
+            }
+
+            if (modifiedChanged) {
+                try {
+                    storeResolutionCache(cacheFile, properties);
+                } catch (IOException e) {
+                    printStream.println("update resolution cache " + cacheFile + " failed: " + e.getMessage());
+                }
+            }
+            return jars;
+        } catch (Exception e) {
+            printStream.println("read resolution cache " + cacheFile + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeResolutionCache(File cacheFile, List<String> jars) {
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("count", String.valueOf(jars.size()));
+            for (int i = 0; i < jars.size(); i++) {
+                File jar = new File(jars.get(i));
+                if (!jar.isFile()) { // 没有 jar 的依赖(例如 pom)，不缓存
+                    return;
+                }
+                properties.setProperty("jar." + i + ".path", jars.get(i));
+                properties.setProperty("jar." + i + ".size", String.valueOf(jar.length()));
+                properties.setProperty("jar." + i + ".modified", String.valueOf(jar.lastModified()));
+                properties.setProperty("jar." + i + ".sha256", sha256(jar));
+            }
+            storeResolutionCache(cacheFile, properties);
+        } catch (Exception e) {
+            printStream.println("write resolution cache " + cacheFile + " failed: " + e.getMessage());
+        }
+    }
+
+    private static void storeResolutionCache(File cacheFile, Properties properties) throws IOException {
+        File cacheDir = cacheFile.getParentFile();
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            return;
+        }
+        // 先写临时文件再改名，并发解析时不会读到不完整的缓存
+        File tmpFile = new File(cacheDir, cacheFile.getName() + "." + UUID.randomUUID() + ".tmp");
+        try (OutputStream output = new FileOutputStream(tmpFile)) {
+            properties.store(output, null);
+        }
+        Files.move(tmpFile.toPath(), cacheFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String sha256(File file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+    }
+
+    private static File getIvyUserDir() {
+        String ivyHome = System.getProperty("ivy.home");
+        if (StringUtils.isNotBlank(ivyHome)) {
+            return new File(ivyHome);
+        }
+        return new File(System.getProperty("user.home"), ".ivy2");
     }
 
     /**
@@ -64,15 +253,22 @@ public class DependencyUtils {
      * @return An IvySettings object
      */
     public static IvySettings buildIvySettings(String remoteRepos) {
+        return buildIvySettings(remoteRepos, false);
+    }
+
+    /**
+     * @param offline 不添加远程仓库，remoteRepos 中只使用本地目录
+     */
+    public static IvySettings buildIvySettings(String remoteRepos, boolean offline) {
         IvySettings ivySettings = new IvySettings();
 
         // create a pattern matcher
         ivySettings.addMatcher(new GlobPatternMatcher());
         // create the dependency resolvers
-        ChainResolver repoResolver = createRepoResolvers(ivySettings.getDefaultIvyUserDir());
+        ChainResolver repoResolver = createRepoResolvers(ivySettings.getDefaultIvyUserDir(), offline);
         ivySettings.addResolver(repoResolver);
         ivySettings.setDefaultResolver(repoResolver.getName());
-        processRemoteRepoArg(ivySettings, remoteRepos);
+        processRemoteRepoArg(ivySettings, remoteRepos, offline);
         // (since 2.5) Setting the property ivy.maven.lookup.sources to false
         // disables the lookup of the sources artifact.
         // And setting the property ivy.maven.lookup.javadoc to false
@@ -87,7 +283,7 @@ public class DependencyUtils {
      * @param defaultIvyUserDir The default user path for Ivy
      * @return A ChainResolver used by Ivy to search for and resolve dependencies.
      */
-    private static ChainResolver createRepoResolvers(File defaultIvyUserDir) {
+    private static ChainResolver createRepoResolvers(File defaultIvyUserDir, boolean offline) {
         // We need a chain resolver if we want to check multiple repositories
         ChainResolver cr = new ChainResolver();
         cr.setName("spark-list");
@@ -116,6 +312,10 @@ public class DependencyUtils {
         localIvy.setName("local-ivy-cache");
         cr.add(localIvy);
 
+        if (offline) {
+            return cr;
+        }
+
         // the biblio resolver resolves POM declared dependencies
         IBiblioResolver br = new IBiblioResolver();
         br.setM2compatible(true);
@@ -135,8 +335,8 @@ public class DependencyUtils {
         return cr;
     }
 
-    /* Add any optional additional remote repositories */
-    private static void processRemoteRepoArg(IvySettings ivySettings, String remoteRepos) {
+    /* Add any optional additional remote repositories, a repository without scheme is a local directory */
+    private static void processRemoteRepoArg(IvySettings ivySettings, String remoteRepos, boolean offline) {
         if (StringUtils.isNotBlank(remoteRepos)) {
             String[] items = StringUtils.split(remoteRepos, ",");
 
@@ -145,10 +345,16 @@ public class DependencyUtils {
             cr.add(ivySettings.getDefaultResolver());
             int index = 0;
             for (String repo : items) {
+                repo = StringUtils.trim(repo);
+                boolean url = repo.contains("://") || StringUtils.startsWith(repo, "file:");
+                if (offline && url && !StringUtils.startsWith(repo, "file:")) {
+                    continue;
+                }
+
                 IBiblioResolver brr = new IBiblioResolver();
                 brr.setM2compatible(true);
                 brr.setUsepoms(true);
-                brr.setRoot(repo);
+                brr.setRoot(url ? repo : new File(repo).toURI().toString());
                 brr.setName(repo + "-" + (++index));
                 cr.add(brr);
             }
@@ -173,7 +379,7 @@ public class DependencyUtils {
             List<String> exclusions,
             boolean isTest) throws Exception {
         if (StringUtils.isBlank(coordinates)) {
-            return null;
+            return Collections.emptyList();
         } else {
             PrintStream sysOut = System.out;
             // Default configuration name for ivy
@@ -0,0 +1,90 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 进程内实体缓存，写操作显式失效，ttl 兜底其它进程的修改；不缓存 null 值。
+ * 缓存对象在多个调用方之间共享，调用方不能修改缓存对象。
+ * 失效时递增版本号，失效前开始的加载结果即使写入缓存也会被移除，避免旧值在 ttl 内一直有效
+ */
+public class EntityCache<K, V> {
+
+    private final String name;
+
+    private final Cache<K, V> cache;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public EntityCache(String name, long maximumSize, Duration ttl) {
+        this.name = name;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        long loadGeneration = generation.get();
+        V value;
+        try {
+            value = cache.get(key, () -> loader.apply(key));
+        } catch (InvalidCacheLoadException e) {
+            return null; // loader 返回 null
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (generation.get() != loadGeneration) {
+            cache.invalidate(key); // 加载期间有失效，值可能是旧值，不保留
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        cache.invalidate(key);
+    }
+
+    /**
+     * 实体新增、修改、删除后调用。事务中调用时提交后再失效一次，
+     * 避免提交前其它线程读取到旧记录重新写入缓存
+     */
+    public void invalidateOnCommit(K key) {
+        invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(key);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Cache<K, V> getCache() {
+        return cache;
+    }
+}
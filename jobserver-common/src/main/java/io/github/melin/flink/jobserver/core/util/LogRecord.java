@@ -7,6 +7,11 @@ import io.github.melin.flink.jobserver.api.LogLevel;
  */
 public class LogRecord {
 
+    /**
+     * driver getServerLog 每次最多返回日志条数，少于该条数说明 driver 日志已经取完
+     */
+    public static final int MAX_RECORDS_PER_FETCH = 10;
+
     private LogLevel level;
 
     private TaskStatusFlag flag;
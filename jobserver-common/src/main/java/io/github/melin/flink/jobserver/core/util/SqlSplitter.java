@@ -0,0 +1,428 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * 单遍扫描拆分多条 sql，识别单双引号、反引号、单行和多行注释、BEGIN ... END 块，
+ * 只在顶层分号处拆分，时间复杂度 O(n)。返回语句在原文中的偏移和行号，用于错误定位。
+ * 拆分时可以同时清除注释，一次扫描完成
+ */
+public class SqlSplitter {
+
+    /**
+     * 没有用分号分隔时，换行后以这些关键字开头认为是新语句
+     */
+    private static final String[] SQL_SPLIT_WORDKEYS =
+            new String[] {"delete", "update", "drop", "create", "explain",
+                    "alter", "use", "set", "replace", "analyze", "show", "desc", "truncate",
+                    "merge", "call", "sync", "msck", "with", "load", "datatunnel"};
+
+    /**
+     * BEGIN、CASE 后面是这些关键字时，作为标识符使用，例如：select begin from t; begin transaction
+     */
+    private static final String[] IDENTIFIER_FOLLOW_WORDS =
+            new String[] {"from", "as", "is", "in", "and", "or", "where", "like", "between",
+                    "transaction", "work"};
+
+    private final CharSequence sql;
+
+    private final int len;
+
+    private final boolean stripComments;
+
+    private final List<SqlStatement> statements = Lists.newArrayList();
+
+    // 清除注释时当前语句内容，只追加注释之外的字符
+    private final StringBuilder buffer;
+
+    private int copyFrom = 0;
+
+    private int line = 1;
+
+    // BEGIN、CASE 和 END 配对的嵌套深度，大于 0 时不拆分
+    private int blockDepth = 0;
+
+    private int stmtStart = 0;
+
+    private int stmtLine = 1;
+
+    private SqlSplitter(CharSequence sql, boolean stripComments) {
+        this.sql = sql;
+        this.len = sql.length();
+        this.stripComments = stripComments;
+        this.buffer = stripComments ? new StringBuilder(256) : null;
+    }
+
+    public static List<SqlStatement> split(CharSequence sql) {
+        return split(sql, false);
+    }
+
+    /**
+     * @param stripComments 是否清除注释(保留 hint)，偏移和行号都是相对原文
+     */
+    public static List<SqlStatement> split(CharSequence sql, boolean stripComments) {
+        SqlSplitter splitter = new SqlSplitter(sql, stripComments);
+        splitter.scan();
+        return splitter.statements;
+    }
+
+    /**
+     * 清除单行和多行注释，保留 hint(/*+ ... *&#47;) 和引号中的内容，多行注释中的换行保留，行号不变
+     */
+    public static String stripComments(CharSequence sql) {
+        int len = sql.length();
+        StringBuilder builder = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            char ch = sql.charAt(i);
+            int end;
+            if (ch == '\'' || ch == '"' || ch == '`') {
+                end = quoteEnd(sql, i, ch);
+                builder.append(sql, i, end);
+            } else if (isLineComment(sql, i)) {
+                end = lineCommentEnd(sql, i);
+            } else if (isBlockComment(sql, i) && !isHint(sql, i) && (end = blockCommentEnd(sql, i)) > 0) {
+                appendNewlines(builder, sql, i, end);
+            } else {
+                builder.append(ch);
+                end = i + 1;
+            }
+            i = end;
+        }
+        return builder.toString();
+    }
+
+    private void scan() {
+        int i = 0;
+        while (i < len) {
+            char ch = sql.charAt(i);
+            if (ch == '\'' || ch == '"' || ch == '`') {
+                int end = quoteEnd(sql, i, ch);
+                line += countNewlines(sql, i, end);
+                i = end;
+            } else if (isLineComment(sql, i)) {
+                int end = lineCommentEnd(sql, i);
+                skip(i, end);
+                i = end; // 换行交给主循环处理
+            } else if (isBlockComment(sql, i)) {
+                int end = blockCommentEnd(sql, i);
+                if (end < 0) { // 没有结束的注释作为普通文本
+                    end = len;
+                } else if (!isHint(sql, i)) {
+                    skip(i, end);
+                    appendNewlines(buffer, sql, i, end);
+                }
+                line += countNewlines(sql, i, end);
+                i = end;
+            } else if (ch == ';') {
+                if (blockDepth == 0) {
+                    addStatement(i);
+                    newStatement(i + 1);
+                }
+                i++;
+            } else if (ch == '\n') {
+                line++;
+                // 增强体验，如果用户没有用分号分隔多个sql语句，通过每行首个单词判断是否分隔
+                if (blockDepth == 0 && startsWithWordKey(i + 1)) {
+                    addStatement(i);
+                    newStatement(i + 1);
+                }
+                i++;
+            } else if (Character.isLetter(ch) && !isIdentifierChar(charAt(i - 1))) {
+                i = scanWord(i);
+            } else {
+                i++;
+            }
+        }
+        addStatement(len);
+    }
+
+    /**
+     * 跳过注释 [start, end)，之前的内容追加到当前语句
+     */
+    private void skip(int start, int end) {
+        if (stripComments) {
+            buffer.append(sql, copyFrom, start);
+            copyFrom = end;
+        }
+    }
+
+    private void newStatement(int start) {
+        stmtStart = start;
+        stmtLine = line;
+        if (stripComments) {
+            buffer.setLength(0);
+            copyFrom = start;
+        }
+    }
+
+    /**
+     * BEGIN、CASE 作为列名等标识符使用时(select begin, case from t)不计入块深度；
+     * END IF/LOOP/WHILE/REPEAT 对应的开始关键字没有计数，不减少块深度
+     */
+    private int scanWord(int start) {
+        int i = start;
+        while (i < len && isIdentifierChar(sql.charAt(i))) {
+            i++;
+        }
+
+        if (charAt(prevNonWhitespace(start - 1)) == '.') { // t.begin
+            return i;
+        }
+
+        int wordLen = i - start;
+        if ((wordLen == 5 && regionMatches(sql, start, "begin"))
+                || (wordLen == 4 && regionMatches(sql, start, "case"))) {
+            if (!isIdentifierUse(i)) {
+                blockDepth++;
+            }
+        } else if (wordLen == 3 && regionMatches(sql, start, "end") && blockDepth > 0) {
+            int next = nextNonWhitespace(i);
+            if (isWord(next, "if") || isWord(next, "loop") || isWord(next, "while") || isWord(next, "repeat")) {
+                return i;
+            }
+            blockDepth--;
+            if (isWord(next, "case")) { // END CASE
+                return next + 4;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 关键字后面是分隔符、运算符或者 from 等关键字时，作为标识符使用
+     */
+    private boolean isIdentifierUse(int end) {
+        int next = nextNonWhitespace(end);
+        if (next >= len) {
+            return true;
+        }
+        if (isLineComment(sql, next) || isBlockComment(sql, next)) {
+            return false;
+        }
+        if (",;).=<>!|".indexOf(sql.charAt(next)) >= 0) {
+            return true;
+        }
+        for (String word : IDENTIFIER_FOLLOW_WORDS) {
+            if (isWord(next, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWord(int start, String word) {
+        return start < len && regionMatches(sql, start, word) && !isIdentifierChar(charAt(start + word.length()));
+    }
+
+    private int nextNonWhitespace(int start) {
+        int i = start;
+        while (i < len && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int prevNonWhitespace(int start) {
+        int i = start;
+        while (i >= 0 && Character.isWhitespace(sql.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private boolean startsWithWordKey(int start) {
+        if (start >= len || !Character.isLetter(sql.charAt(start))) {
+            return false;
+        }
+        for (String wordkey : SQL_SPLIT_WORDKEYS) {
+            if (regionMatches(sql, start, wordkey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addStatement(int end) {
+        int start = stmtStart;
+        int startLine = stmtLine;
+        while (start < end && Character.isWhitespace(sql.charAt(start))) {
+            if (sql.charAt(start) == '\n') {
+                startLine++;
+            }
+            start++;
+        }
+        while (end > start && Character.isWhitespace(sql.charAt(end - 1))) {
+            end--;
+        }
+        if (start >= end) {
+            return;
+        }
+
+        String text;
+        if (stripComments) {
+            if (copyFrom < end) {
+                buffer.append(sql, copyFrom, end);
+            }
+            text = buffer.toString().trim();
+            if (text.isEmpty()) { // 只有注释
+                return;
+            }
+            // 行号从注释之后的第一行内容开始计算，注释中的换行保留在 buffer 中
+            startLine = stmtLine;
+            for (int i = 0; i < buffer.length() && Character.isWhitespace(buffer.charAt(i)); i++) {
+                if (buffer.charAt(i) == '\n') {
+                    startLine++;
+                }
+            }
+        } else {
+            text = sql.subSequence(start, end).toString();
+        }
+        statements.add(new SqlStatement(text, start, end, startLine));
+    }
+
+    private char charAt(int index) {
+        return index >= 0 && index < len ? sql.charAt(index) : 0;
+    }
+
+    private static int quoteEnd(CharSequence sql, int start, char quote) {
+        int len = sql.length();
+        int i = start + 1;
+        while (i < len) {
+            char ch = sql.charAt(i);
+            if (ch == '\\' && quote != '`') {
+                i += 2;
+            } else if (ch == quote) {
+                if (i + 1 < len && sql.charAt(i + 1) == quote) { // '' 转义
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return len;
+    }
+
+    private static boolean isLineComment(CharSequence sql, int i) {
+        return sql.charAt(i) == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-';
+    }
+
+    private static boolean isBlockComment(CharSequence sql, int i) {
+        return sql.charAt(i) == '/' && i + 1 < sql.length() && sql.charAt(i + 1) == '*';
+    }
+
+    private static boolean isHint(CharSequence sql, int i) {
+        return i + 2 < sql.length() && sql.charAt(i + 2) == '+';
+    }
+
+    private static int lineCommentEnd(CharSequence sql, int start) {
+        int len = sql.length();
+        int i = start + 2;
+        while (i < len && sql.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return 注释结束位置(不包含)，没有结束返回 -1
+     */
+    private static int blockCommentEnd(CharSequence sql, int start) {
+        int len = sql.length();
+        for (int i = start + 2; i + 1 < len; i++) {
+            if (sql.charAt(i) == '*' && sql.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    private static int countNewlines(CharSequence sql, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (sql.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void appendNewlines(StringBuilder builder, CharSequence sql, int start, int end) {
+        if (builder == null) {
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (sql.charAt(i) == '\n') {
+                builder.append('\n');
+            }
+        }
+    }
+
+    private static boolean regionMatches(CharSequence sql, int start, String word) {
+        if (start + word.length() > sql.length()) {
+            return false;
+        }
+        for (int j = 0; j < word.length(); j++) {
+            if (Character.toLowerCase(sql.charAt(start + j)) != word.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdentifierChar(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+
+    public static class SqlStatement {
+
+        private final String sql;
+
+        private final int startOffset;
+
+        private final int endOffset;
+
+        private final int lineNumber;
+
+        public SqlStatement(String sql, int startOffset, int endOffset, int lineNumber) {
+            this.sql = sql;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.lineNumber = lineNumber;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * 语句在原文中的起始偏移(包含)
+         */
+        public int getStartOffset() {
+            return startOffset;
+        }
+
+        /**
+         * 语句在原文中的结束偏移(不包含)
+         */
+        public int getEndOffset() {
+            return endOffset;
+        }
+
+        /**
+         * 语句首行行号，从 1 开始
+         */
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + sql;
+        }
+    }
+}
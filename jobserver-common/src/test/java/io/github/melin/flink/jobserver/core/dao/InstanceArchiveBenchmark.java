@@ -0,0 +1,101 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 调度查询(JobInstanceService.findScheduleInstances)耗时：实例全部在实例表，和 7 天前终态实例迁移到归档表后对比。
+ * 实例均匀分布在最近 90 天，每 10000 条有一条 WAITING，其余 FINISHED/FAILED 且不重试。
+ * 默认不执行: mvn test -pl jobserver-common -Dtest=InstanceArchiveBenchmark -Dbenchmark=true [-Dbenchmark.rows=1000000,50000000]
+ */
+@SpringJUnitConfig(MySQLTestConfig.class)
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class InstanceArchiveBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    // 每条 sql 写入、迁移的行数
+    private static final int CHUNK = 1000000;
+
+    private static final int SPAN_MINUTES = 90 * 24 * 60;
+
+    private static final String INSERT_SQL = "insert /*+ SET_VAR(cte_max_recursion_depth = " + CHUNK + ") */ " +
+            "into fjs_job_instance (id, code, job_type, instance_type, status, schedule_time, owner, retry_count, " +
+            "failure_count, gmt_created, gmt_modified, creater) " +
+            "with recursive seq(n) as (select ? union all select n + 1 from seq where n < ?) " +
+            "select n + 1, concat('inst_', n + 1), 'FLINK_SQL', 'SCHEDULE', " +
+            "case when n % 10000 = 0 then 'WAITING' when n % 2 = 0 then 'FINISHED' else 'FAILED' end, " +
+            "timestampadd(minute, -(n % " + SPAN_MINUTES + "), ?), 'test', 0, 0, " +
+            "timestampadd(minute, -(n % " + SPAN_MINUTES + "), ?), " +
+            "timestampadd(minute, -(n % " + SPAN_MINUTES + "), ?), 'test' from seq";
+
+    private static final String ARCHIVE_SQL = "insert into fjs_job_instance_archive select * from fjs_job_instance " +
+            "where id between ? and ? and gmt_created < ? and status in ('FINISHED', 'FAILED', 'KILLED')";
+
+    private static final String DELETE_SQL = "delete from fjs_job_instance " +
+            "where id between ? and ? and gmt_created < ? and status in ('FINISHED', 'FAILED', 'KILLED')";
+
+    @Autowired
+    private JobInstanceService jobInstanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void benchmarkScheduleQuery() {
+        for (String value : System.getProperty("benchmark.rows", "1000000,50000000").split(",")) {
+            int rows = Integer.parseInt(value.trim());
+            Timestamp now = Timestamp.from(Instant.now());
+            InstanceTestData.truncate(jdbcTemplate);
+            for (int start = 0; start < rows; start += CHUNK) {
+                int end = Math.min(start + CHUNK, rows) - 1;
+                jdbcTemplate.update(INSERT_SQL, start, end, now, now, now);
+            }
+            jdbcTemplate.execute("analyze table fjs_job_instance");
+
+            int due = jobInstanceService.findScheduleInstances().size();
+            System.out.printf("rows: %d, due instances: %d%n", rows, due);
+            report("all in hot table", jobInstanceService::findScheduleInstances);
+
+            Timestamp before = Timestamp.from(now.toInstant().minus(7, ChronoUnit.DAYS));
+            for (int start = 1; start <= rows; start += CHUNK) {
+                int end = start + CHUNK - 1;
+                jdbcTemplate.update(ARCHIVE_SQL, start, end, before);
+                jdbcTemplate.update(DELETE_SQL, start, end, before);
+            }
+            jdbcTemplate.execute("analyze table fjs_job_instance, fjs_job_instance_archive");
+
+            long hot = jdbcTemplate.queryForObject("select count(*) from fjs_job_instance", Long.class);
+            // 迁移的都是 7 天前的终态实例，调度结果不变
+            assertEquals(due, jobInstanceService.findScheduleInstances().size());
+            report(hot + " in hot table", jobInstanceService::findScheduleInstances);
+        }
+    }
+
+    private static void report(String name, Supplier<?> supplier) {
+        supplier.get(); // 预热
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            supplier.get();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-30s p50: %8.2fms, p90: %8.2fms%n", name,
+                times[ITERATIONS / 2] / 1e6, times[ITERATIONS * 9 / 10] / 1e6);
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批量查询实例状态耗时：逐个 code 读取完整实例，对比 findInstanceStatusByCodes 分批 IN 投影查询，以及带 since 的增量查询。
+ * 实例表、归档表各 benchmark.rows 条，查询 500 个 code，其中 100 个在归档表，10 个最近有变更。
+ * 默认不执行: mvn test -pl jobserver-common -Dtest=InstanceStatusBenchmark -Dbenchmark=true [-Dbenchmark.rows=500000]
+ */
+@SpringJUnitConfig(MySQLTestConfig.class)
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class InstanceStatusBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private JobInstanceService jobInstanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void benchmarkBatchQueryStatus() {
+        int rowsPerTable = Integer.getInteger("benchmark.rows", 500000);
+        InstanceTestData.truncate(jdbcTemplate);
+        InstanceTestData.seed(jdbcTemplate, rowsPerTable);
+
+        // 实例表 id 为奇数，归档表 id 为偶数，前 100 个取归档实例
+        int[] numbers = new Random(0).ints(0, rowsPerTable).distinct().limit(500).toArray();
+        List<String> codes = IntStream.range(0, numbers.length)
+                .mapToObj(i -> "inst_" + (i < 100 ? 2 * numbers[i] + 2 : 2 * numbers[i] + 1))
+                .collect(Collectors.toList());
+        List<String> changed = codes.subList(100, 110);
+        Instant since = Instant.now().minus(1, ChronoUnit.MINUTES);
+        jdbcTemplate.batchUpdate("update fjs_job_instance set gmt_modified = ? where code = ?",
+                changed.stream().map(code -> new Object[]{Timestamp.from(Instant.now()), code})
+                        .collect(Collectors.toList()));
+
+        assertEquals(codes.size(), jobInstanceService.findInstanceStatusByCodes(codes, null).size());
+        assertEquals(changed.size(), jobInstanceService.findInstanceStatusByCodes(codes, since).size());
+
+        System.out.printf("rows per table: %d, codes: %d%n", rowsPerTable, codes.size());
+        report("query one by one", () -> {
+            List<Object> instances = new ArrayList<>(codes.size());
+            codes.forEach(code -> instances.add(jobInstanceService.queryInstanceWithArchive(code)));
+            return instances;
+        });
+        report("batch projection", () -> jobInstanceService.findInstanceStatusByCodes(codes, null));
+        report("batch since", () -> jobInstanceService.findInstanceStatusByCodes(codes, since));
+    }
+
+    private static void report(String name, Supplier<?> supplier) {
+        supplier.get(); // 预热
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            supplier.get();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-20s p50: %8.2fms, p90: %8.2fms%n", name,
+                times[ITERATIONS / 2] / 1e6, times[ITERATIONS * 9 / 10] / 1e6);
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 用递归 cte 一条 sql 批量生成实例数据。实例表 id 为奇数，归档表 id 为偶数，两张表的记录交错。
+ * gmt_created、schedule_time 有大量重复值，验证按 id 稳定排序；每 7 条有一条 schedule_time 为空
+ */
+final class InstanceTestData {
+
+    static final List<String> INSTANCE_TABLES = Arrays.asList("fjs_job_instance", "fjs_job_instance_archive",
+            "fjs_job_instance_content", "fjs_job_instance_content_archive", "fjs_job_instance_dependent", "fjs_job_text");
+
+    private static final String INSERT_SQL = "insert /*+ SET_VAR(cte_max_recursion_depth = %d) */ into %s " +
+            "(id, code, name, job_type, instance_type, status, schedule_time, owner, client_name, gmt_created, creater) " +
+            "with recursive seq(n) as (select 0 union all select n + 1 from seq where n < ?) " +
+            "select ? + n * 2, concat('inst_', ? + n * 2), concat('job_', n), 'FLINK_SQL', 'SCHEDULE', " +
+            "if(n % 2 = 0, 'FINISHED', 'FAILED'), " +
+            "if(n % 7 = 3, null, timestampadd(minute, n % 40, '2023-01-01 00:00:00')), 'test', " +
+            "if(n % 3 = 0, 'client_a', 'client_b'), timestampadd(minute, n % 50, '2023-01-01 00:00:00'), 'test' " +
+            "from seq";
+
+    private InstanceTestData() {
+    }
+
+    static void truncate(JdbcTemplate jdbcTemplate) {
+        INSTANCE_TABLES.forEach(table -> jdbcTemplate.execute("truncate table " + table));
+    }
+
+    /**
+     * 实例表、归档表各写入 rowsPerTable 条
+     */
+    static void seed(JdbcTemplate jdbcTemplate, int rowsPerTable) {
+        int depth = Math.max(rowsPerTable, 1000);
+        jdbcTemplate.update(String.format(INSERT_SQL, depth, "fjs_job_instance"), rowsPerTable - 1, 1, 1);
+        jdbcTemplate.update(String.format(INSERT_SQL, depth, "fjs_job_instance_archive"), rowsPerTable - 1, 2, 2);
+        jdbcTemplate.execute("analyze table fjs_job_instance, fjs_job_instance_archive");
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 实例归档、恢复、清理：迁移前后字段一致，清理按引用次数释放 fjs_job_text，依赖、内容、实例一起删除。
+ * 实例表 id 为奇数 1~19，归档表 id 为偶数 2~20，code 为 inst_{id}
+ */
+@SpringJUnitConfig(MySQLTestConfig.class)
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+public class JobInstanceArchiveDaoTest {
+
+    @Autowired
+    private JobInstanceDao jobInstanceDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        InstanceTestData.truncate(jdbcTemplate);
+        InstanceTestData.seed(jdbcTemplate, 10);
+
+        // hash_a 被 inst_1、inst_3 和归档的 inst_2 引用，hash_b 被 inst_5 引用，inst_7 为历史数据没有 text_hash
+        insertText("hash_a", 3);
+        insertText("hash_b", 1);
+        insertContent("fjs_job_instance_content", 1L, "hash_a");
+        insertContent("fjs_job_instance_content", 3L, "hash_a");
+        insertContent("fjs_job_instance_content", 5L, "hash_b");
+        insertContent("fjs_job_instance_content", 7L, null);
+        insertContent("fjs_job_instance_content_archive", 2L, "hash_a");
+
+        jdbcTemplate.update("insert into fjs_job_instance_dependent (code, parent_code) values " +
+                "('inst_1', 'inst_9'), ('inst_1', 'inst_11'), ('inst_9', 'inst_1')");
+    }
+
+    @Test
+    public void testArchiveRoundTrip() {
+        Map<String, Object> instance = row("fjs_job_instance", "inst_1");
+        Map<String, Object> content = contentRow("fjs_job_instance_content", "inst_1");
+
+        int count = transactionTemplate.execute(status -> jobInstanceDao.moveToArchive(Arrays.asList(1L, 3L)));
+        assertEquals(2, count);
+        assertEquals(0, count("fjs_job_instance", "code in ('inst_1', 'inst_3')"));
+        assertEquals(0, count("fjs_job_instance_content", "code in ('inst_1', 'inst_3')"));
+        assertEquals(instance, row("fjs_job_instance_archive", "inst_1"));
+        assertEquals(content, contentRow("fjs_job_instance_content_archive", "inst_1"));
+        assertEquals(8, count("fjs_job_instance", "1 = 1"));
+        assertEquals(12, count("fjs_job_instance_archive", "1 = 1"));
+        // 归档只迁移实例和内容，作业内容引用不变
+        assertEquals(3, refCount("hash_a"));
+
+        assertTrue(transactionTemplate.execute(status -> jobInstanceDao.restoreFromArchive("inst_1")));
+        assertEquals(instance, row("fjs_job_instance", "inst_1"));
+        assertEquals(content, contentRow("fjs_job_instance_content", "inst_1"));
+        assertEquals(0, count("fjs_job_instance_archive", "code = 'inst_1'"));
+        assertEquals(0, count("fjs_job_instance_content_archive", "code = 'inst_1'"));
+        assertEquals(1, count("fjs_job_instance_archive", "code = 'inst_3'"));
+
+        assertFalse(transactionTemplate.execute(status -> jobInstanceDao.restoreFromArchive("inst_1")));
+        assertFalse(transactionTemplate.execute(status -> jobInstanceDao.restoreFromArchive("inst_999")));
+    }
+
+    @Test
+    public void testPurgeReleasesTextRefs() {
+        // 2 条依赖 + 3 条内容 + 3 条实例，inst_9 依赖 inst_1 的记录属于 inst_9，保留
+        int rows = transactionTemplate.execute(status -> jobInstanceDao.purgeInstances(Arrays.asList(1L, 3L, 7L)));
+        assertEquals(8, rows);
+        assertEquals(1, refCount("hash_a"));
+        assertEquals(1, refCount("hash_b"));
+        assertEquals(0, count("fjs_job_instance", "code in ('inst_1', 'inst_3', 'inst_7')"));
+        assertEquals(0, count("fjs_job_instance_content", "code in ('inst_1', 'inst_3', 'inst_7')"));
+        assertEquals(0, count("fjs_job_instance_dependent", "code = 'inst_1'"));
+        assertEquals(1, count("fjs_job_instance_dependent", "code = 'inst_9'"));
+        assertEquals(1, count("fjs_job_instance_content", "code = 'inst_5'"));
+        assertEquals(7, count("fjs_job_instance", "1 = 1"));
+
+        // 重复清理(任务重试)不会重复释放引用
+        assertEquals(0, transactionTemplate.execute(status -> jobInstanceDao.purgeInstances(Arrays.asList(1L, 3L, 7L))));
+        assertEquals(1, refCount("hash_a"));
+
+        rows = transactionTemplate.execute(status -> jobInstanceDao.purgeArchivedInstances(Collections.singletonList(2L)));
+        assertEquals(2, rows);
+        assertEquals(0, refCount("hash_a"));
+        assertEquals(0, count("fjs_job_instance_archive", "code = 'inst_2'"));
+        assertEquals(0, count("fjs_job_instance_content_archive", "code = 'inst_2'"));
+        assertEquals(9, count("fjs_job_instance_archive", "1 = 1"));
+    }
+
+    @Test
+    public void testPurgeArchivedInstanceAfterArchive() {
+        transactionTemplate.execute(status -> jobInstanceDao.moveToArchive(Arrays.asList(1L, 5L)));
+        // 归档后清理：2 条依赖 + 2 条内容 + 2 条实例
+        int rows = transactionTemplate.execute(status -> jobInstanceDao.purgeArchivedInstances(Arrays.asList(1L, 5L)));
+        assertEquals(6, rows);
+        assertEquals(2, refCount("hash_a"));
+        assertEquals(0, refCount("hash_b"));
+        assertEquals(0, count("fjs_job_instance_content_archive", "code in ('inst_1', 'inst_5')"));
+    }
+
+    private void insertText(String hash, int refCount) {
+        jdbcTemplate.update("insert into fjs_job_text (text_hash, content, compressed, text_length, ref_count, " +
+                "gmt_created) values (?, ?, 0, 8, ?, now())", hash, "select 1".getBytes(), refCount);
+    }
+
+    // 内容表 id 和实例 id 相同，归档表和实例表的内容 id 不重复
+    private void insertContent(String table, long id, String hash) {
+        jdbcTemplate.update("insert into " + table + " (id, code, job_text, job_config, text_hash) " +
+                "values (?, ?, ?, ?, ?)", id, "inst_" + id, hash == null ? "select 1" : null, "k=v", hash);
+    }
+
+    private Map<String, Object> row(String table, String code) {
+        return jdbcTemplate.queryForMap("select * from " + table + " where code = ?", code);
+    }
+
+    private Map<String, Object> contentRow(String table, String code) {
+        return jdbcTemplate.queryForMap("select id, code, job_text, job_config, error_msg, text_hash from "
+                + table + " where code = ?", code);
+    }
+
+    private int count(String table, String where) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where " + where, Integer.class);
+    }
+
+    private int refCount(String hash) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "select ref_count from fjs_job_text where text_hash = ?", Integer.class, hash);
+        return counts.get(0);
+    }
+}
@@ -0,0 +1,226 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import io.github.melin.flink.jobserver.core.dto.InstanceQuery;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 实例列表 keyset 分页回归测试：分页结果和 mysql 全量排序一致(包括 schedule_time 为空)，
+ * 每个排序字段的执行计划使用 (字段, id) 复合索引、没有 filesort，keyset 深分页读取行数和页深无关
+ */
+@SpringJUnitConfig(MySQLTestConfig.class)
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class JobInstanceDaoPageTest {
+
+    private static final int ROWS_PER_TABLE = 1000;
+
+    @Autowired
+    private JobInstanceDao jobInstanceDao;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    public void setUp() {
+        InstanceTestData.truncate(jdbcTemplate);
+        InstanceTestData.seed(jdbcTemplate, ROWS_PER_TABLE);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"id, true", "id, false", "gmtCreated, true", "gmtCreated, false",
+            "scheduleTime, true", "scheduleTime, false"})
+    public void testKeysetPagesMatchFullOrder(String sortKey, boolean asc) {
+        List<Long> expected = expectedIds(sortKey, asc, "1 = 1");
+        // 143 条空 schedule_time，页大小 50 时有一页在空值中间结束
+        assertEquals(expected, keysetIds(new InstanceQuery(), sortKey, asc, 50));
+        assertEquals(expected, keysetIds(new InstanceQuery(), sortKey, asc, 37));
+
+        InstanceQuery query = new InstanceQuery();
+        query.setStatus(InstanceStatus.FAILED);
+        assertEquals(expectedIds(sortKey, asc, "status = 'FAILED'"), keysetIds(query, sortKey, asc, 37));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"gmtCreated, false", "scheduleTime, true", "scheduleTime, false"})
+    public void testOffsetPagesMatchKeyset(String sortKey, boolean asc) {
+        InstanceQuery query = new InstanceQuery();
+        List<Long> expected = keysetIds(query, sortKey, asc, 40);
+        List<Long> actual = new ArrayList<>();
+        for (int offset = 0; offset < expected.size(); offset += 40) {
+            int pageOffset = offset;
+            actual.addAll(ids(transactionTemplate.execute(status ->
+                    jobInstanceDao.findInstancePage(query, sortKey, asc, null, pageOffset, 40))));
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testUnknownLastIdFallsBackToOffset() {
+        InstanceQuery query = new InstanceQuery();
+        List<Long> expected = expectedIds("gmtCreated", false, "1 = 1").subList(20, 30);
+        List<JobInstance> rows = transactionTemplate.execute(status ->
+                jobInstanceDao.findInstancePage(query, "gmtCreated", false, -1L, 20, 10));
+        assertEquals(expected, ids(rows));
+    }
+
+    @Test
+    public void testDeepOffsetRejected() {
+        InstanceQuery query = new InstanceQuery();
+        assertThrows(IllegalArgumentException.class, () -> transactionTemplate.execute(status ->
+                jobInstanceDao.findInstancePage(query, "gmtCreated", false, null,
+                        JobInstanceDao.MAX_PAGE_OFFSET + 1, 10)));
+    }
+
+    @Test
+    public void testCountInstances() {
+        InstanceQuery query = new InstanceQuery();
+        assertEquals(2L * ROWS_PER_TABLE, count(query));
+
+        query.setStatus(InstanceStatus.FAILED);
+        assertEquals(ROWS_PER_TABLE, count(query));
+
+        query.setClientName("client_a");
+        long expected = jdbcTemplate.queryForObject("select (select count(*) from fjs_job_instance " +
+                "where status = 'FAILED' and client_name = 'client_a') + (select count(*) from " +
+                "fjs_job_instance_archive where status = 'FAILED' and client_name = 'client_a')", Long.class);
+        assertEquals(expected, count(query));
+
+        query.setCode("inst_2");
+        assertEquals(0L, count(query));
+        query = new InstanceQuery();
+        query.setCode("inst_2");
+        assertEquals(1L, count(query));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"id, true, 1 = 1, PRIMARY",
+            "id, false, 1 = 1, PRIMARY",
+            "gmtCreated, true, 1 = 1, idx_gmt_created",
+            "gmtCreated, false, 1 = 1, idx_gmt_created",
+            "scheduleTime, true, 1 = 1, idx_schedule_time",
+            "scheduleTime, false, 1 = 1, idx_schedule_time",
+            "gmtCreated, false, status = 'FAILED', idx_status_gmt_created",
+            "scheduleTime, false, status = 'FAILED', idx_status_schedule_time",
+            "gmtCreated, false, client_name = 'client_a', idx_client_gmt_created"})
+    public void testQueryPlanUsesSortIndex(String sortKey, boolean asc, String where, String index) {
+        String sql = JobInstanceDao.pageSql(where, JobInstanceDao.SORT_COLUMNS.get(sortKey), asc)
+                .replace(":rowLimit", "20");
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("explain " + sql);
+        List<Map<String, Object>> tableRows = plan.stream()
+                .filter(row -> String.valueOf(row.get("table")).startsWith("fjs_job_instance"))
+                .collect(Collectors.toList());
+
+        assertEquals(2, tableRows.size(), plan.toString());
+        for (Map<String, Object> row : tableRows) {
+            assertEquals(index, row.get("key"), plan.toString());
+            assertFalse(String.valueOf(row.get("Extra")).contains("filesort"), plan.toString());
+        }
+    }
+
+    /**
+     * keyset 分页每张表只读取 limit 条左右的索引记录，offset 分页读取 offset + limit 条
+     */
+    @ParameterizedTest
+    @CsvSource({"gmtCreated, false", "scheduleTime, true", "scheduleTime, false"})
+    public void testDeepPageReadCost(String sortKey, boolean asc) {
+        int limit = 20;
+        int offset = 1800;
+        InstanceQuery query = new InstanceQuery();
+        Long lastId = expectedIds(sortKey, asc, "1 = 1").get(offset - 1);
+
+        long keysetReads = handlerReads(() -> jobInstanceDao.findInstancePage(query, sortKey, asc, lastId, 0, limit));
+        long offsetReads = handlerReads(() -> jobInstanceDao.findInstancePage(query, sortKey, asc, null, offset, limit));
+        long firstPageReads = handlerReads(() -> jobInstanceDao.findInstancePage(query, sortKey, asc, null, 0, limit));
+
+        assertTrue(keysetReads <= 3 * firstPageReads, "keyset: " + keysetReads + ", first page: " + firstPageReads);
+        assertTrue(offsetReads >= 2L * offset, "offset: " + offsetReads);
+    }
+
+    private List<Long> keysetIds(InstanceQuery query, String sortKey, boolean asc, int limit) {
+        List<Long> ids = new ArrayList<>();
+        Long lastId = null;
+        while (true) {
+            Long pageLastId = lastId;
+            List<JobInstance> rows = transactionTemplate.execute(status ->
+                    jobInstanceDao.findInstancePage(query, sortKey, asc, pageLastId, 0, limit));
+            ids.addAll(ids(rows));
+            if (rows.size() < limit) {
+                return ids;
+            }
+            lastId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    /**
+     * mysql 按 (字段, id) 排序的全量结果，空值顺序由 mysql 决定
+     */
+    private List<Long> expectedIds(String sortKey, boolean asc, String where) {
+        String column = JobInstanceDao.SORT_COLUMNS.get(sortKey);
+        String columns = "id".equals(column) ? "id" : "id, " + column;
+        String direction = asc ? " asc" : " desc";
+        return jdbcTemplate.queryForList("select id from (select " + columns + " from fjs_job_instance where " +
+                where + " union all select " + columns + " from fjs_job_instance_archive where " + where +
+                ") t order by " + column + direction + ", id" + direction, Long.class);
+    }
+
+    private long count(InstanceQuery query) {
+        return transactionTemplate.execute(status -> jobInstanceDao.countInstances(query));
+    }
+
+    private long handlerReads(Runnable runnable) {
+        return transactionTemplate.execute(status -> {
+            long start = sessionHandlerReads();
+            long overhead = sessionHandlerReads() - start;
+            start = sessionHandlerReads();
+            runnable.run();
+            return sessionHandlerReads() - start - overhead;
+        });
+    }
+
+    private long sessionHandlerReads() {
+        return sessionFactory.getCurrentSession().doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("show session status like 'Handler_read%'")) {
+                long reads = 0;
+                while (rs.next()) {
+                    reads += rs.getLong(2);
+                }
+                return reads;
+            }
+        });
+    }
+
+    private static List<Long> ids(List<JobInstance> rows) {
+        return rows.stream().map(JobInstance::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import io.github.melin.flink.jobserver.core.dto.InstanceQuery;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 实例列表深分页耗时：首页、offset 分页最大深度、同深度 keyset 分页、表尾 keyset 分页、过滤总数。
+ * 默认不执行: mvn test -pl jobserver-common -Dtest=JobInstancePageBenchmark -Dbenchmark=true [-Dbenchmark.rows=500000]
+ */
+@SpringJUnitConfig(MySQLTestConfig.class)
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class JobInstancePageBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    private static final int LIMIT = 20;
+
+    @Autowired
+    private JobInstanceDao jobInstanceDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    public void benchmarkDeepPage() {
+        int rowsPerTable = Integer.getInteger("benchmark.rows", 500000);
+        InstanceTestData.truncate(jdbcTemplate);
+        InstanceTestData.seed(jdbcTemplate, rowsPerTable);
+
+        InstanceQuery query = new InstanceQuery();
+        int offset = JobInstanceDao.MAX_PAGE_OFFSET;
+        Long offsetLastId = lastIdAt(offset);
+        Long tailLastId = lastIdAt(2 * rowsPerTable - LIMIT);
+
+        System.out.printf("rows per table: %d, page size: %d%n", rowsPerTable, LIMIT);
+        report("first page", () -> page(query, null, 0));
+        report("offset " + offset, () -> page(query, null, offset));
+        report("keyset at " + offset, () -> page(query, offsetLastId, 0));
+        report("keyset at tail", () -> page(query, tailLastId, 0));
+        report("count", () -> transactionTemplate.execute(status -> jobInstanceDao.countInstances(query)));
+    }
+
+    private List<JobInstance> page(InstanceQuery query, Long lastId, int offset) {
+        return transactionTemplate.execute(status ->
+                jobInstanceDao.findInstancePage(query, "gmtCreated", false, lastId, offset, LIMIT));
+    }
+
+    private Long lastIdAt(int position) {
+        return jdbcTemplate.queryForObject("select id from (select id, gmt_created from fjs_job_instance " +
+                "union all select id, gmt_created from fjs_job_instance_archive) t " +
+                "order by gmt_created desc, id desc limit 1 offset ?", Long.class, position - 1);
+    }
+
+    private static void report(String name, Supplier<?> supplier) {
+        supplier.get(); // 预热
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            supplier.get();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-20s p50: %8.2fms, p90: %8.2fms%n", name,
+                times[ITERATIONS / 2] / 1e6, times[ITERATIONS * 9 / 10] / 1e6);
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.melin.flink.jobserver.core.dao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.melin.flink.jobserver.core.service.JobInstanceService;
+import org.hibernate.SessionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Properties;
+
+/**
+ * dao 测试使用 testcontainers 启动 mysql 8，表结构从 build/script/flink_jobserver.sql 创建，和线上 sql、索引一致。
+ * 没有 docker 环境时跳过测试: @EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)。连接自动提交，测试数据用 JdbcTemplate 直接写入。
+ * 同时加载 core.service，服务层测试使用 @Transactional 事务
+ */
+@Configuration
+@EnableTransactionManagement(proxyTargetClass = true)
+@ComponentScan(basePackageClasses = {MySQLTestConfig.class, JobInstanceService.class})
+public class MySQLTestConfig {
+
+    public static final String DOCKER_AVAILABLE =
+            "io.github.melin.flink.jobserver.core.dao.MySQLTestConfig#dockerAvailable";
+
+    // surefire 工作目录为模块目录
+    private static final String SCHEMA_SQL = "../build/script/flink_jobserver.sql";
+
+    private static MySQLContainer<?> container;
+
+    public static boolean dockerAvailable() {
+        return DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    private static synchronized MySQLContainer<?> container() {
+        if (container == null) {
+            container = new MySQLContainer<>("mysql:8.0.31")
+                    .withDatabaseName("flink_jobserver")
+                    .withCommand("--character-set-server=utf8mb4", "--collation-server=utf8mb4_general_ci");
+            container.start();
+        }
+        return container;
+    }
+
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource() throws Exception {
+        MySQLContainer<?> mysql = container();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(mysql.getJdbcUrl());
+        dataSource.setUsername(mysql.getUsername());
+        dataSource.setPassword(mysql.getPassword());
+        dataSource.setMaximumPoolSize(2);
+        // 和线上连接参数一致，jdbc 批量写入合并为多值 insert
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+
+        try (Connection connection = dataSource.getConnection()) {
+            EncodedResource schema = new EncodedResource(new FileSystemResource(SCHEMA_SQL), StandardCharsets.UTF_8);
+            ScriptUtils.executeSqlScript(connection, schema);
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public LocalSessionFactoryBean sessionFactory(DataSource dataSource) {
+        LocalSessionFactoryBean sessionFactory = new LocalSessionFactoryBean();
+        sessionFactory.setDataSource(dataSource);
+        sessionFactory.setPackagesToScan("io.github.melin.flink.jobserver.core.entity");
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL8Dialect");
+        properties.setProperty("hibernate.hbm2ddl.auto", "none");
+        sessionFactory.setHibernateProperties(properties);
+        return sessionFactory;
+    }
+
+    @Bean
+    public HibernateTransactionManager transactionManager(SessionFactory sessionFactory) {
+        return new HibernateTransactionManager(sessionFactory);
+    }
+
+    @Bean
+    public TransactionTemplate transactionTemplate(HibernateTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
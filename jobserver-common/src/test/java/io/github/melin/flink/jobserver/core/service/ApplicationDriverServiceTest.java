@@ -0,0 +1,107 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.ApplicationDriverDao;
+import io.github.melin.flink.jobserver.core.entity.ApplicationDriver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * driver 地址缓存：未注册不缓存，删除 driver 后不再返回旧地址
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ApplicationDriverServiceTest {
+
+    // 模拟 driver 表，applicationId -> driver
+    private final Map<String, ApplicationDriver> table = new HashMap<>();
+
+    @Mock
+    private ApplicationDriverDao applicationDriverDao;
+
+    @Spy
+    @InjectMocks
+    private ApplicationDriverService driverService;
+
+    @BeforeEach
+    public void setUp() {
+        doAnswer(invocation -> table.get(invocation.<String>getArgument(0)))
+                .when(driverService).queryDriverByAppId(anyString());
+        doAnswer(invocation -> table.values().stream()
+                .filter(driver -> driver.getId().equals(invocation.getArgument(0)))
+                .findFirst().orElse(null))
+                .when(driverService).getEntity(anyLong());
+        doAnswer(invocation -> {
+            table.remove(invocation.<ApplicationDriver>getArgument(0).getApplicationId());
+            return null;
+        }).when(driverService).deleteEntity(any(ApplicationDriver.class));
+    }
+
+    @Test
+    public void testAddressCached() {
+        table.put("application_1", newDriver(1L, "application_1", "0.0.0.0"));
+        // driver 还没有注册地址
+        assertNull(driverService.queryDriverAddressByAppId("application_1"));
+
+        table.put("application_1", newDriver(1L, "application_1", "10.0.0.1"));
+        assertEquals("http://10.0.0.1:8080", driverService.queryDriverAddressByAppId("application_1"));
+        assertEquals("http://10.0.0.1:8080", driverService.queryDriverAddressByAppId("application_1"));
+        verify(driverService, times(2)).queryDriverByAppId("application_1");
+    }
+
+    @Test
+    public void testReadAfterDelete() {
+        table.put("application_1", newDriver(1L, "application_1", "10.0.0.1"));
+        table.put("application_2", newDriver(2L, "application_2", "10.0.0.2"));
+        assertEquals("http://10.0.0.1:8080", driverService.queryDriverAddressByAppId("application_1"));
+        assertEquals("http://10.0.0.2:8080", driverService.queryDriverAddressByAppId("application_2"));
+
+        driverService.deleteJobServerByAppId("application_1");
+        assertNull(driverService.queryDriverAddressByAppId("application_1"));
+
+        driverService.deleteDriver(2L);
+        assertNull(driverService.queryDriverAddressByAppId("application_2"));
+    }
+
+    @Test
+    public void testDeleteDuringLoad() {
+        table.put("application_1", newDriver(1L, "application_1", "10.0.0.1"));
+        // 读取 driver 后、写入缓存前，其它线程删除 driver
+        doAnswer(invocation -> {
+            ApplicationDriver driver = table.get("application_1");
+            driverService.deleteJobServerByAppId("application_1");
+            return driver;
+        }).doAnswer(invocation -> table.get("application_1"))
+                .when(driverService).queryDriverByAppId("application_1");
+
+        assertEquals("http://10.0.0.1:8080", driverService.queryDriverAddressByAppId("application_1"));
+        assertNull(driverService.queryDriverAddressByAppId("application_1"));
+    }
+
+    private static ApplicationDriver newDriver(Long id, String applicationId, String serverIp) {
+        ApplicationDriver driver = new ApplicationDriver();
+        driver.setId(id);
+        driver.setApplicationId(applicationId);
+        driver.setServerIp(serverIp);
+        driver.setServerPort(8080);
+        return driver;
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.ClusterDao;
+import io.github.melin.flink.jobserver.core.entity.Cluster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 通过 ClusterService 修改集群后，下一次读取返回新值
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ClusterServiceTest {
+
+    // 模拟集群表，每次查询返回新对象
+    private final Map<String, String> table = new HashMap<>();
+
+    @Mock
+    private ClusterDao clusterDao;
+
+    @Spy
+    @InjectMocks
+    private ClusterService clusterService;
+
+    @BeforeEach
+    public void setUp() {
+        doAnswer(invocation -> {
+            String code = invocation.getArgument(1);
+            return table.containsKey(code) ? newCluster(code, table.get(code)) : null;
+        }).when(clusterService).queryByNamedParam(eq("code"), anyString());
+    }
+
+    @Test
+    public void testReadAfterUpdate() {
+        table.put("default", "v1");
+        Cluster cluster = clusterService.getClusterByCode("default");
+        assertEquals("v1", cluster.getName());
+        assertSame(cluster, clusterService.getClusterByCode("default"));
+
+        table.put("default", "v2");
+        clusterService.updateCluster(newCluster("default", "v2"));
+        assertEquals("v2", clusterService.getClusterByCode("default").getName());
+
+        table.remove("default");
+        clusterService.deleteCluster(newCluster("default", "v2"));
+        assertNull(clusterService.getClusterByCode("default"));
+    }
+
+    @Test
+    public void testUpdateDuringLoad() {
+        table.put("default", "v1");
+        // 读取旧记录后、写入缓存前，其它线程修改集群
+        doAnswer(invocation -> {
+            Cluster old = newCluster("default", table.get("default"));
+            table.put("default", "v2");
+            clusterService.updateCluster(newCluster("default", "v2"));
+            return old;
+        }).doAnswer(invocation -> newCluster("default", table.get("default")))
+                .when(clusterService).queryByNamedParam("code", "default");
+
+        assertEquals("v1", clusterService.getClusterByCode("default").getName());
+        assertEquals("v2", clusterService.getClusterByCode("default").getName());
+    }
+
+    private static Cluster newCluster(String code, String name) {
+        Cluster cluster = new Cluster();
+        cluster.setCode(code);
+        cluster.setName(name);
+        return cluster;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.DataConnectorDao;
+import io.github.melin.flink.jobserver.core.entity.DataConnector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * 通过 DataConnectorService 新增、修改、删除数据源后，下一次读取返回新值
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DataConnectorServiceTest {
+
+    // 模拟数据源表，每次查询返回新对象
+    private final Map<String, String> table = new HashMap<>();
+
+    @Mock
+    private DataConnectorDao connectorDao;
+
+    @Spy
+    @InjectMocks
+    private DataConnectorService connectorService;
+
+    @BeforeEach
+    public void setUp() {
+        doAnswer(invocation -> {
+            String code = invocation.getArgument(1);
+            return table.containsKey(code) ? newConnector(code, table.get(code)) : null;
+        }).when(connectorService).queryByNamedParam(eq("code"), anyString());
+        doAnswer(invocation -> {
+            DataConnector connector = invocation.getArgument(0);
+            table.put(connector.getCode(), connector.getJdbcUrl());
+            return null;
+        }).when(connectorService).insertEntity(any(DataConnector.class));
+        doAnswer(invocation -> {
+            DataConnector connector = invocation.getArgument(0);
+            table.put(connector.getCode(), connector.getJdbcUrl());
+            return null;
+        }).when(connectorService).updateEntity(any(DataConnector.class));
+        doAnswer(invocation -> {
+            table.remove(invocation.<DataConnector>getArgument(0).getCode());
+            return null;
+        }).when(connectorService).deleteEntity(any(DataConnector.class));
+    }
+
+    @Test
+    public void testReadAfterWrite() {
+        // 不存在的数据源不缓存
+        assertNull(connectorService.getConnectorByCode("mysql_1"));
+        connectorService.insertConnector(newConnector("mysql_1", "jdbc:mysql://db1:3306/test"));
+        DataConnector connector = connectorService.getConnectorByCode("mysql_1");
+        assertEquals("jdbc:mysql://db1:3306/test", connector.getJdbcUrl());
+        assertSame(connector, connectorService.getConnectorByCode("mysql_1"));
+
+        connectorService.updateConnector(newConnector("mysql_1", "jdbc:mysql://db2:3306/test"));
+        assertEquals("jdbc:mysql://db2:3306/test", connectorService.getConnectorByCode("mysql_1").getJdbcUrl());
+
+        connectorService.deleteConnector(newConnector("mysql_1", "jdbc:mysql://db2:3306/test"));
+        assertNull(connectorService.getConnectorByCode("mysql_1"));
+    }
+
+    @Test
+    public void testUpdateDuringLoad() {
+        table.put("mysql_1", "jdbc:mysql://db1:3306/test");
+        // 读取旧记录后、写入缓存前，其它线程修改数据源
+        doAnswer(invocation -> {
+            DataConnector old = newConnector("mysql_1", table.get("mysql_1"));
+            connectorService.updateConnector(newConnector("mysql_1", "jdbc:mysql://db2:3306/test"));
+            return old;
+        }).doAnswer(invocation -> newConnector("mysql_1", table.get("mysql_1")))
+                .when(connectorService).queryByNamedParam("code", "mysql_1");
+
+        assertEquals("jdbc:mysql://db1:3306/test", connectorService.getConnectorByCode("mysql_1").getJdbcUrl());
+        assertEquals("jdbc:mysql://db2:3306/test", connectorService.getConnectorByCode("mysql_1").getJdbcUrl());
+    }
+
+    private static DataConnector newConnector(String code, String jdbcUrl) {
+        DataConnector connector = new DataConnector();
+        connector.setCode(code);
+        connector.setJdbcUrl(jdbcUrl);
+        return connector;
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.JobInstanceDao;
+import io.github.melin.flink.jobserver.core.entity.JobInstance;
+import io.github.melin.flink.jobserver.core.enums.InstanceStatus;
+import io.github.melin.flink.jobserver.core.event.InstanceStatusEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static io.github.melin.flink.jobserver.core.enums.InstanceStatus.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 状态变更同时更新统计计数、gmtModified 并发布状态事件
+ */
+@ExtendWith(MockitoExtension.class)
+public class JobInstanceServiceTest {
+
+    private static final String INSTANCE_CODE = "instance_code";
+
+    @Mock
+    private JobInstanceDao jobInstanceDao;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private CountingStatisticsService instanceStatisticsService = new CountingStatisticsService();
+
+    @InjectMocks
+    private JobInstanceService instanceService;
+
+    private final JobInstance instance = new JobInstance();
+
+    @BeforeEach
+    public void setUp() {
+        instance.setCode(INSTANCE_CODE);
+        instance.setClusterCode("default");
+        instance.setStatus(WAITING);
+        instance.setRetryCount(0);
+        instance.setGmtCreated(Instant.now());
+    }
+
+    @Test
+    public void testSubmitFailureAndRetryCounters() {
+        when(jobInstanceDao.queryInstanceForUpdate(INSTANCE_CODE)).thenReturn(instance);
+
+        instanceService.insertJobInstance(instance);
+        assertCounters(1, 0, 0);
+
+        // 第一次提交失败，等待重试
+        instanceService.updateJobStatusByCode(INSTANCE_CODE, SUBMITTING);
+        assertCounters(0, 1, 0);
+        Instant submitTime = instance.getGmtModified();
+        instanceService.retryInstance(INSTANCE_CODE);
+        assertCounters(1, 0, 0);
+        assertEquals(1, instance.getRetryCount());
+        assertNotNull(instance.getGmtModified());
+        assertFalse(instance.getGmtModified().isBefore(submitTime));
+
+        // 第二次提交失败，不再重试
+        instanceService.updateJobStatusByCode(INSTANCE_CODE, SUBMITTING);
+        instanceService.failSubmitInstance(INSTANCE_CODE);
+        assertCounters(0, 0, 1);
+        assertEquals(2, instance.getRetryCount());
+
+        ArgumentCaptor<InstanceStatusEvent> captor = ArgumentCaptor.forClass(InstanceStatusEvent.class);
+        verify(eventPublisher, times(4)).publishEvent(captor.capture());
+        assertEquals(Arrays.asList(SUBMITTING, WAITING, SUBMITTING, FAILED), captor.getAllValues().stream()
+                .map(InstanceStatusEvent::getStatus).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testFinishRunningInstance() {
+        instance.setStatus(RUNNING);
+        instance.setStartTime(Instant.now());
+        when(jobInstanceDao.queryInstanceForUpdate(INSTANCE_CODE)).thenReturn(instance);
+        instanceStatisticsService.transition(instance.getGmtCreated(), "default", null, RUNNING);
+
+        assertTrue(instanceService.finishRunningInstance(INSTANCE_CODE));
+        assertEquals(FINISHED, instance.getStatus());
+        assertNotNull(instance.getEndTime());
+        assertEquals(0L, instanceStatisticsService.count(RUNNING));
+        assertEquals(1L, instanceStatisticsService.count(FINISHED));
+
+        // 已经结束的实例不再更新
+        assertFalse(instanceService.finishRunningInstance(INSTANCE_CODE));
+        assertEquals(1L, instanceStatisticsService.count(FINISHED));
+    }
+
+    private void assertCounters(long waiting, long submitting, long failed) {
+        assertEquals(waiting, instanceStatisticsService.count(WAITING), "waiting");
+        assertEquals(submitting, instanceStatisticsService.count(SUBMITTING), "submitting");
+        assertEquals(failed, instanceStatisticsService.count(FAILED), "failed");
+    }
+
+    /**
+     * 统计计数记录在内存中，不访问数据库
+     */
+    static class CountingStatisticsService extends InstanceStatisticsService {
+
+        private final Map<InstanceStatus, Long> counters = new EnumMap<>(InstanceStatus.class);
+
+        @Override
+        public void increment(Instant gmtCreated, String clusterCode, InstanceStatus status, long delta) {
+            counters.merge(status, delta, Long::sum);
+        }
+
+        long count(InstanceStatus status) {
+            return counters.getOrDefault(status, 0L);
+        }
+    }
+}
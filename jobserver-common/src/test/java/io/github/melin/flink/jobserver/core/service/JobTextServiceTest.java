@@ -0,0 +1,182 @@
+package io.github.melin.flink.jobserver.core.service;
+
+import io.github.melin.flink.jobserver.core.dao.MySQLTestConfig;
+import io.github.melin.flink.jobserver.core.entity.JobInstanceContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 作业内容去重存储：相同内容只存一份，引用数随实例保存、修改、重试回滚、清理变化，
+ * 超过 4KB 的内容压缩后读取不变，历史实例内容表中的 job_text 仍可读取
+ */
+@SpringJUnitConfig(MySQLTestConfig.class)
+@EnabledIf(MySQLTestConfig.DOCKER_AVAILABLE)
+public class JobTextServiceTest {
+
+    private static final String SQL_A = "insert into sink_a select * from source_a";
+
+    private static final String SQL_B = "insert into sink_b select * from source_b";
+
+    @Autowired
+    private JobTextService jobTextService;
+
+    @Autowired
+    private JobInstanceService instanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        Arrays.asList("fjs_job_instance", "fjs_job_instance_archive", "fjs_job_instance_content",
+                "fjs_job_instance_content_archive", "fjs_job_instance_dependent", "fjs_job_text")
+                .forEach(table -> jdbcTemplate.execute("truncate table " + table));
+    }
+
+    @Test
+    public void testDedup() {
+        String hashA = jobTextService.retain(SQL_A, 1);
+        assertEquals(JobTextService.hash(SQL_A), hashA);
+        assertEquals(hashA, jobTextService.retain(SQL_A, 2));
+        String hashB = jobTextService.retain(SQL_B, 1);
+
+        assertEquals(2, count("fjs_job_text", "1 = 1"));
+        assertEquals(3, refCount(hashA));
+        assertEquals(1, refCount(hashB));
+        assertNull(jobTextService.retain(null, 1));
+    }
+
+    @Test
+    public void testCompressRoundTrip() {
+        // 小于 4KB 不压缩
+        String smallHash = jobTextService.retain(SQL_A, 1);
+        assertFalse(compressed(smallHash));
+        assertEquals(SQL_A, jobTextService.queryText(smallHash));
+
+        // 超过 4KB 压缩，多字节字符按 text_length 记录字符数
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 20 * 1024; i++) {
+            sb.append("-- 第 ").append(i).append(" 段\n").append(SQL_A).append(" where id = ").append(i).append(";\n");
+        }
+        String bigText = sb.toString();
+        String bigHash = jobTextService.retain(bigText, 1);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select compressed, text_length, length(content) bytes from fjs_job_text where text_hash = ?", bigHash);
+        assertTrue(compressed(bigHash));
+        assertEquals(bigText.length(), ((Number) row.get("text_length")).intValue());
+        assertTrue(((Number) row.get("bytes")).intValue() < bigText.getBytes(UTF_8).length / 4);
+        assertEquals(bigText, jobTextService.queryText(bigHash));
+        // 第二次读取走缓存
+        assertEquals(bigText, jobTextService.queryText(bigHash));
+    }
+
+    @Test
+    public void testRefCountUnderRetryAndPurge() {
+        String hashA = JobTextService.hash(SQL_A);
+        String hashB = JobTextService.hash(SQL_B);
+        insertInstances(1, 2, 3);
+        instanceService.saveJobText("inst_1", SQL_A, null);
+        instanceService.saveJobText("inst_2", SQL_A, null);
+        assertEquals(2, refCount(hashA));
+
+        // 提交失败回滚，重试后引用数只增加一次
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.execute(status -> {
+            instanceService.saveJobText("inst_3", SQL_A, null);
+            throw new IllegalStateException("submit failed");
+        }));
+        assertEquals(2, refCount(hashA));
+        assertEquals(0, count("fjs_job_instance_content", "code = 'inst_3'"));
+        instanceService.saveJobText("inst_3", SQL_A, null);
+        assertEquals(3, refCount(hashA));
+
+        // 内容不变不修改引用，内容变化释放原内容
+        instanceService.updateJobText("inst_1", SQL_A, "k=v");
+        assertEquals(3, refCount(hashA));
+        instanceService.updateJobText("inst_1", SQL_B, "k=v");
+        assertEquals(2, refCount(hashA));
+        assertEquals(1, refCount(hashB));
+        assertEquals(SQL_B, instanceService.queryJobTextByCode("inst_1").getJobText());
+
+        // 清理释放引用，重复清理不重复释放
+        assertEquals(4, instanceService.purgeInstances(Arrays.asList(2L, 3L)));
+        assertEquals(0, refCount(hashA));
+        assertEquals(0, instanceService.purgeInstances(Arrays.asList(2L, 3L)));
+        assertEquals(0, refCount(hashA));
+
+        assertEquals(1, jobTextService.deleteUnreferenced(100));
+        assertEquals(0, count("fjs_job_text", "text_hash = '" + hashA + "'"));
+        assertEquals(1, refCount(hashB));
+    }
+
+    @Test
+    public void testLegacyJobText() {
+        String hashA = jobTextService.retain(SQL_A, 1);
+        // 历史数据 job_text 直接存储在实例内容表，没有 text_hash
+        jdbcTemplate.update("insert into fjs_job_instance_content (code, job_text, job_config) values (?, ?, ?)",
+                "inst_legacy", SQL_B, "k=v");
+        jdbcTemplate.update("insert into fjs_job_instance_content (code, job_config, text_hash) values (?, ?, ?)",
+                "inst_new", "k=v", hashA);
+        jdbcTemplate.update("insert into fjs_job_instance_content_archive (code, job_text, job_config) values (?, ?, ?)",
+                "inst_archived", SQL_A, "k=v");
+
+        JobInstanceContent legacy = instanceService.queryJobTextByCode("inst_legacy");
+        assertEquals(SQL_B, legacy.getJobText());
+        assertEquals("k=v", legacy.getJobConfig());
+        assertEquals(SQL_A, instanceService.queryJobTextByCode("inst_new").getJobText());
+        assertEquals(SQL_A, instanceService.queryJobTextByCode("inst_archived").getJobText());
+        assertNull(instanceService.queryJobTextByCode("inst_missing"));
+
+        // 修改历史实例内容后改为引用 fjs_job_text
+        jdbcTemplate.update("insert into fjs_job_instance (id, code, job_type, instance_type, status, owner, " +
+                "gmt_created, creater) values (100, 'inst_legacy', 'FLINK_SQL', 'SCHEDULE', 'FAILED', 'test', now(), 'test')");
+        instanceService.updateJobText("inst_legacy", SQL_B, "k=v");
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select job_text, text_hash from fjs_job_instance_content where code = 'inst_legacy'");
+        assertNull(row.get("job_text"));
+        assertEquals(JobTextService.hash(SQL_B), row.get("text_hash"));
+        assertEquals(1, refCount(JobTextService.hash(SQL_B)));
+        assertEquals(SQL_B, instanceService.queryJobTextByCode("inst_legacy").getJobText());
+    }
+
+    private void insertInstances(long... ids) {
+        for (long id : ids) {
+            jdbcTemplate.update("insert into fjs_job_instance (id, code, job_type, instance_type, status, owner, " +
+                    "gmt_created, creater) values (?, ?, 'FLINK_SQL', 'SCHEDULE', 'FAILED', 'test', now(), 'test')",
+                    id, "inst_" + id);
+        }
+    }
+
+    private boolean compressed(String hash) {
+        return jdbcTemplate.queryForObject("select compressed from fjs_job_text where text_hash = ?", Boolean.class, hash);
+    }
+
+    private int count(String table, String where) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where " + where, Integer.class);
+    }
+
+    private int refCount(String hash) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "select ref_count from fjs_job_text where text_hash = ?", Integer.class, hash);
+        return counts.get(0);
+    }
+}
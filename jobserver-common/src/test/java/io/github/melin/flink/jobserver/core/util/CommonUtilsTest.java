@@ -0,0 +1,147 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CommonUtilsTest {
+
+    private static final Map<ByteUnit, String[]> BYTE_SUFFIXES = ImmutableMap.<ByteUnit, String[]>builder()
+            .put(ByteUnit.BYTE, new String[]{"b"})
+            .put(ByteUnit.KiB, new String[]{"k", "kb"})
+            .put(ByteUnit.MiB, new String[]{"m", "mb"})
+            .put(ByteUnit.GiB, new String[]{"g", "gb"})
+            .put(ByteUnit.TiB, new String[]{"t", "tb"})
+            .put(ByteUnit.PiB, new String[]{"p", "pb"})
+            .build();
+
+    private static final Map<TimeUnit, String[]> TIME_SUFFIXES = ImmutableMap.<TimeUnit, String[]>builder()
+            .put(TimeUnit.MICROSECONDS, new String[]{"us"})
+            .put(TimeUnit.MILLISECONDS, new String[]{"ms"})
+            .put(TimeUnit.SECONDS, new String[]{"s"})
+            .put(TimeUnit.MINUTES, new String[]{"m", "min"})
+            .put(TimeUnit.HOURS, new String[]{"h"})
+            .put(TimeUnit.DAYS, new String[]{"d"})
+            .build();
+
+    @Test
+    public void testByteStringAs() {
+        assertEquals(1024L, CommonUtils.byteStringAsBytes("1k"));
+        assertEquals(1024L, CommonUtils.byteStringAsBytes("1KB"));
+        assertEquals(100L * 1024 * 1024, CommonUtils.byteStringAsBytes(" 100m "));
+        assertEquals(100L, CommonUtils.byteStringAsBytes("100"));
+        assertEquals(2048L, CommonUtils.byteStringAsMb("2g"));
+        assertEquals(512L, CommonUtils.byteStringAsMb("512"));
+        assertEquals(0L, CommonUtils.byteStringAsMb("512k"));
+        assertEquals(1L, CommonUtils.byteStringAsGb("1024m"));
+    }
+
+    @Test
+    public void testByteStringAsDefaultUnit() {
+        assertEquals(1024L, CommonUtils.byteStringAs("1", ByteUnit.KiB, ByteUnit.BYTE));
+        assertEquals(1L, CommonUtils.byteStringAs("1m", ByteUnit.KiB, ByteUnit.MiB));
+    }
+
+    @Test
+    public void testByteStringAsCached() {
+        // 第二次从缓存读取，结果和转换单位无关
+        assertEquals(2L * 1024 * 1024, CommonUtils.byteStringAsBytes("2m"));
+        assertEquals(2048L, CommonUtils.byteStringAsKb("2m"));
+        assertEquals(2L, CommonUtils.byteStringAsMb("2m"));
+    }
+
+    /**
+     * 随机数值和单位格式化后解析回原值，第一次解析和缓存读取结果一致，换算结果和 ByteUnit 一致
+     */
+    @Test
+    public void testByteStringRoundTrip() {
+        Random random = new Random(43);
+        ByteUnit[] units = ByteUnit.values();
+        for (int i = 0; i < 2000; i++) {
+            ByteUnit unit = units[random.nextInt(units.length)];
+            // PiB 换算为字节不超过 Long.MAX_VALUE
+            long n = random.nextInt(1 << 12) + (long) random.nextInt(1000) * 1000000;
+            if (unit == ByteUnit.PiB || unit == ByteUnit.TiB) {
+                n %= 1 << 12;
+            }
+            String str = format(random, n, BYTE_SUFFIXES.get(unit));
+
+            long parsed = CommonUtils.byteStringAs(str, unit);
+            assertEquals(n, parsed, str);
+            assertEquals(parsed, CommonUtils.byteStringAs(str, unit), str);
+            assertEquals(unit.convertTo(n, ByteUnit.BYTE), CommonUtils.byteStringAsBytes(str), str);
+            assertEquals(unit.convertTo(n, ByteUnit.MiB), CommonUtils.byteStringAsMb(str), str);
+
+            // 没有单位时使用默认单位
+            String plain = String.valueOf(n);
+            assertEquals(unit.convertTo(n, ByteUnit.KiB), CommonUtils.byteStringAs(plain, unit, ByteUnit.KiB), plain);
+            assertEquals(n, CommonUtils.byteStringAs(plain, unit), plain);
+        }
+    }
+
+    @Test
+    public void testTimeStringRoundTrip() {
+        Random random = new Random(43);
+        TimeUnit[] units = TIME_SUFFIXES.keySet().toArray(new TimeUnit[0]);
+        for (int i = 0; i < 2000; i++) {
+            TimeUnit unit = units[random.nextInt(units.length)];
+            long n = random.nextInt(1 << 20);
+            String str = format(random, n, TIME_SUFFIXES.get(unit));
+
+            long parsed = CommonUtils.timeStringAs(str, unit);
+            assertEquals(n, parsed, str);
+            assertEquals(parsed, CommonUtils.timeStringAs(str, unit), str);
+            assertEquals(unit.toMillis(n), CommonUtils.timeStringAsMs(str), str);
+            assertEquals(unit.toSeconds(n), CommonUtils.timeStringAsSec(str), str);
+
+            String plain = String.valueOf(n);
+            assertEquals(n, CommonUtils.timeStringAs(plain, unit), plain);
+            assertEquals(n, CommonUtils.timeStringAsMs(plain), plain);
+        }
+    }
+
+    /**
+     * 随机选择单位写法、大小写，前后加空格
+     */
+    private static String format(Random random, long n, String[] suffixes) {
+        String suffix = suffixes[random.nextInt(suffixes.length)];
+        if (random.nextBoolean()) {
+            suffix = suffix.toUpperCase(Locale.ROOT);
+        }
+        String str = n + suffix;
+        return random.nextInt(4) == 0 ? " " + str + " " : str;
+    }
+
+    @Test
+    public void testByteStringAsInvalid() {
+        assertThrows(NumberFormatException.class, () -> CommonUtils.byteStringAsBytes("1.5g"));
+        assertThrows(NumberFormatException.class, () -> CommonUtils.byteStringAsBytes("10x"));
+        assertThrows(NumberFormatException.class, () -> CommonUtils.byteStringAsBytes(null));
+    }
+
+    @Test
+    public void testTimeStringAs() {
+        assertEquals(10000L, CommonUtils.timeStringAsMs("10s"));
+        assertEquals(60000L, CommonUtils.timeStringAsMs("1min"));
+        assertEquals(60000L, CommonUtils.timeStringAsMs("1m"));
+        assertEquals(500L, CommonUtils.timeStringAsMs("500"));
+        assertEquals(500L, CommonUtils.timeStringAsMs("500ms"));
+        assertEquals(3600L, CommonUtils.timeStringAsSec("1h"));
+        assertEquals(30L, CommonUtils.timeStringAsSec("30"));
+        assertEquals(0L, CommonUtils.timeStringAsSec("500ms"));
+    }
+
+    @Test
+    public void testTimeStringAsInvalid() {
+        assertThrows(NumberFormatException.class, () -> CommonUtils.timeStringAsMs("10x"));
+        assertThrows(NumberFormatException.class, () -> CommonUtils.timeStringAsMs("1.5s"));
+        assertThrows(NumberFormatException.class, () -> CommonUtils.timeStringAsMs(null));
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DependencyUtilsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path repository;
+
+    // ivy 缓存和解析缓存写入临时目录
+    @BeforeEach
+    public void setUp() throws Exception {
+        System.setProperty("ivy.home", tempDir.resolve("ivy").toString());
+        repository = tempDir.resolve("repository");
+        deploy("demo", "<dependencies><dependency><groupId>com.example</groupId><artifactId>dep</artifactId>"
+                + "<version>1.0</version></dependency></dependencies>");
+        deploy("dep", "");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("ivy.home");
+    }
+
+    // 本地目录仓库，maven 目录结构
+    private void deploy(String artifactId, String dependencies) throws Exception {
+        Path dir = repository.resolve("com/example/" + artifactId + "/1.0");
+        Files.createDirectories(dir);
+        String pom = "<project><modelVersion>4.0.0</modelVersion><groupId>com.example</groupId>"
+                + "<artifactId>" + artifactId + "</artifactId><version>1.0</version>" + dependencies + "</project>";
+        Files.write(dir.resolve(artifactId + "-1.0.pom"), pom.getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve(artifactId + "-1.0.jar"), artifactId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testResolveOffline() throws Exception {
+        List<String> jars = DependencyUtils.resolveMavenDependencies(
+                true, "", "com.example:demo:1.0", repository.toString(), true);
+        assertEquals(2, jars.size());
+        assertTrue(jars.stream().anyMatch(jar -> jar.endsWith("com.example_demo-1.0.jar")));
+        assertTrue(jars.stream().anyMatch(jar -> jar.endsWith("com.example_dep-1.0.jar")));
+        jars.forEach(jar -> assertTrue(new File(jar).isFile()));
+
+        // 第二次从解析缓存读取
+        assertEquals(jars, DependencyUtils.resolveMavenDependencies(
+                true, "", "com.example:demo:1.0", repository.toString(), true));
+    }
+
+    @Test
+    public void testResolveOfflineExclusion() throws Exception {
+        List<String> jars = DependencyUtils.resolveMavenDependencies(
+                true, "com.example:dep", "com.example:demo:1.0", repository.toString(), true);
+        assertEquals(1, jars.size());
+        assertTrue(jars.get(0).endsWith("com.example_demo-1.0.jar"));
+    }
+
+    @Test
+    public void testOfflineSkipRemoteRepository() {
+        // 离线模式不访问远程仓库，本地仓库没有的依赖解析失败
+        assertThrows(RuntimeException.class, () -> DependencyUtils.resolveMavenDependencies(
+                true, "", "com.example:missing:1.0", "https://repo1.maven.org/maven2/", true));
+    }
+
+    @Test
+    public void testBlankPackages() throws Exception {
+        assertEquals(Collections.emptyList(), DependencyUtils.resolveMavenDependencies(true, null, " ", null));
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class EntityCacheTest {
+
+    private final Map<String, String> table = new HashMap<>();
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private String load(String code) {
+        loadCount.incrementAndGet();
+        return table.get(code);
+    }
+
+    @Test
+    public void testInvalidateAfterUpdate() {
+        EntityCache<String, String> cache = new EntityCache<>("cluster", 10, Duration.ofMinutes(1));
+        table.put("default", "v1");
+
+        assertEquals("v1", cache.get("default", this::load));
+        assertEquals("v1", cache.get("default", this::load));
+        assertEquals(1, loadCount.get());
+
+        // 管理员修改集群后失效，下次读取最新值
+        table.put("default", "v2");
+        cache.invalidate("default");
+        assertEquals("v2", cache.get("default", this::load));
+        assertEquals(2, loadCount.get());
+
+        table.remove("default");
+        cache.invalidateAll();
+        assertNull(cache.get("default", this::load));
+        assertEquals(1, cache.getCache().stats().hitCount());
+    }
+
+    @Test
+    public void testNullNotCached() {
+        EntityCache<String, String> cache = new EntityCache<>("cluster", 10, Duration.ofMinutes(1));
+        assertNull(cache.get("new", this::load));
+
+        table.put("new", "v1");
+        assertEquals("v1", cache.get("new", this::load));
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() {
+        EntityCache<String, String> cache = new EntityCache<>("cluster", 10, Duration.ofMinutes(1));
+        table.put("default", "v1");
+
+        // 读取旧记录后、写入缓存前集群被修改并失效
+        assertEquals("v1", cache.get("default", code -> {
+            String value = load(code);
+            table.put("default", "v2");
+            cache.invalidate("default");
+            return value;
+        }));
+
+        assertEquals("v2", cache.get("default", this::load));
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidateOnCommit() {
+        EntityCache<String, String> cache = new EntityCache<>("connector", 10, Duration.ofMinutes(1));
+        table.put("mysql_1", "v1");
+        assertEquals("v1", cache.get("mysql_1", this::load));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // 事务中修改后失效，提交前其它线程读取到旧记录重新写入缓存
+            cache.invalidateOnCommit("mysql_1");
+            assertEquals("v1", cache.get("mysql_1", this::load));
+
+            table.put("mysql_1", "v2");
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals("v2", cache.get("mysql_1", this::load));
+        assertEquals(3, loadCount.get());
+    }
+}
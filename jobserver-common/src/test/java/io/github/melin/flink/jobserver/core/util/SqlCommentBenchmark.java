@@ -0,0 +1,75 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import io.github.melin.flink.jobserver.core.util.SqlSplitter.SqlStatement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注释清除耗时和内存分配(gc.alloc.rate.norm)：原 cleanSqlComment 逐字符装箱，对比 stripComments 单遍写入预分配缓冲区；
+ * 先清除注释再拆分，对比拆分时同时清除注释(一次扫描)。
+ * 默认不执行: mvn test -pl jobserver-common -Dtest=SqlCommentBenchmark -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SqlCommentBenchmark {
+
+    @Param({"1KB", "1MB", "10MB"})
+    public String size;
+
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        sql = SqlScripts.script(size);
+    }
+
+    @Benchmark
+    public String legacyCleanSqlComment() {
+        return SqlScripts.legacyCleanSqlComment(sql);
+    }
+
+    @Benchmark
+    public String stripComments() {
+        return SqlSplitter.stripComments(sql);
+    }
+
+    @Benchmark
+    public List<SqlStatement> stripThenSplit() {
+        return SqlSplitter.split(SqlSplitter.stripComments(sql));
+    }
+
+    @Benchmark
+    public List<SqlStatement> splitStripComments() {
+        return SqlSplitter.split(sql, true);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void runBenchmark() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SqlCommentBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * benchmark 使用的 sql 脚本，以及 CommonUtils 原来的注释清除、按关键字逐行拆分实现，用于对比
+ */
+final class SqlScripts {
+
+    private static final String TEMPLATE = "-- load %1$d; refresh daily\n" +
+            "set 'table.exec.mini-batch.enabled' = 'true';\n" +
+            "create temporary view v_%1$d as select id, name, 'a;b' as tag from source_table " +
+            "/* inline ; comment */ where dt = '2023-01-01';\n" +
+            "insert into sink_%1$d\n" +
+            "select id, count(*) as cnt, max(case when name like '%%x%%' then 1 else 0 end) as flag\n" +
+            "from v_%1$d /*+ OPTIONS('lookup.cache' = 'ALL') */\n" +
+            "group by id;\n";
+
+    private static final String[] SQL_SPLIT_WORDKEYS =
+            new String[] {"delete", "update", "drop", "create", "explain",
+                    "alter", "use", "set", "replace", "analyze", "show", "desc", "truncate",
+                    "merge", "call", "sync", "msck", "with", "load", "datatunnel"};
+
+    private SqlScripts() {
+    }
+
+    /**
+     * @param size 脚本大小，例如 1KB、1MB、20MB
+     */
+    static String script(String size) {
+        long bytes = CommonUtils.byteStringAsBytes(size);
+        StringBuilder sb = new StringBuilder((int) bytes + 512);
+        for (int i = 0; sb.length() < bytes; i++) {
+            sb.append(String.format(TEMPLATE, i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 原 CommonUtils.cleanSqlComment，逐个字符装箱到 {@code List<Character>}，再 join 成字符串
+     */
+    static String legacyCleanSqlComment(String sql) {
+        boolean singleLineComment = false;
+        List<Character> chars = Lists.newArrayList();
+        List<Character> delChars = Lists.newArrayList();
+
+        for (int i = 0, len = sql.length(); i < len; i++) {
+            char ch = sql.charAt(i);
+
+            if ((i + 1) < len) {
+                char nextCh = sql.charAt(i + 1);
+                if (ch == '-' && nextCh == '-' && !singleLineComment) {
+                    singleLineComment = true;
+                }
+            }
+
+            if (!singleLineComment) {
+                chars.add(ch);
+            }
+
+            if (singleLineComment && ch == '\n') {
+                singleLineComment = false;
+                chars.add(ch);
+            }
+        }
+
+        sql = StringUtils.join(chars, "");
+
+        chars = Lists.newArrayList();
+        boolean mutilLineComment = false;
+        for (int i = 0, len = sql.length(); i < len; i++) {
+            char ch = sql.charAt(i);
+
+            if ((i + 2) < len) {
+                char nextCh1 = sql.charAt(i + 1);
+                char nextCh2 = sql.charAt(i + 2);
+                if (ch == '/' && nextCh1 == '*' && nextCh2 != '+' && !mutilLineComment) {
+                    mutilLineComment = true;
+                }
+            }
+
+            if (!mutilLineComment) {
+                chars.add(ch);
+
+                if (delChars.size() > 0) {
+                    delChars.clear();
+                }
+            } else {
+                delChars.add(ch);
+            }
+
+            if ((i + 1) < len) {
+                char nextCh1 = sql.charAt(i + 1);
+                if (mutilLineComment && ch == '*' && nextCh1 == '/') {
+                    mutilLineComment = false;
+                    i++;
+                }
+            }
+        }
+
+        if (mutilLineComment) {
+            chars.addAll(delChars);
+            delChars.clear();
+        }
+
+        return StringUtils.join(chars, "");
+    }
+
+    /**
+     * 原 CommonUtils.splitMultiSql，每个换行处对每个关键字调用 indexOfIgnoreCase
+     */
+    static List<String> legacySplitMultiSql(String sql) {
+        List<String> sqls = Lists.newArrayList();
+
+        Character quote = null;
+        Character lastChar = null;
+        int lastIndex = 0;
+        for (int i = 0, len = sql.length(); i < len; i++) {
+            char ch = sql.charAt(i);
+            if (i != 0) {
+                lastChar = sql.charAt(i - 1);
+            }
+
+            if (ch == '\'') {
+                if (quote == null) {
+                    quote = ch;
+                } else if (quote == '\'' && lastChar != '\\') {
+                    quote = null;
+                }
+            } else if (ch == '"') {
+                if (quote == null) {
+                    quote = ch;
+                } else if (quote == '"' && lastChar != '\\') {
+                    quote = null;
+                }
+            } else if (ch == ';' && quote == null) {
+                String content = StringUtils.substring(sql, lastIndex, i).trim();
+                if (StringUtils.isNotBlank(content)) {
+                    sqls.add(content);
+                }
+                lastIndex = i + 1;
+            } else if (ch == '\n') {
+                for (String wordkey : SQL_SPLIT_WORDKEYS) {
+                    int index = StringUtils.indexOfIgnoreCase(sql, wordkey, i);
+                    if ((i + 1) == index) {
+                        String content = StringUtils.substring(sql, lastIndex, i).trim();
+                        if (StringUtils.isNotBlank(content)) {
+                            sqls.add(content);
+                        }
+                        lastIndex = i + 1;
+
+                        break;
+                    }
+                }
+            }
+        }
+
+        String content = StringUtils.substring(sql, lastIndex).trim();
+        if (StringUtils.isNotBlank(content)) {
+            sqls.add(content);
+        }
+
+        return sqls;
+    }
+}
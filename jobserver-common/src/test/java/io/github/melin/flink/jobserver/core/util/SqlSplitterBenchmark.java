@@ -0,0 +1,87 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import io.github.melin.flink.jobserver.core.util.SqlSplitter.SqlStatement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多条 sql 拆分耗时：SqlSplitter 单遍扫描 1KB、1MB、20MB 脚本，原 splitMultiSql 每个换行查找全部关键字，
+ * 耗时随脚本大小平方增长，只测 1KB、100KB。
+ * 默认不执行: mvn test -pl jobserver-common -Dtest=SqlSplitterBenchmark -Dbenchmark=true
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SqlSplitterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Script {
+
+        @Param({"1KB", "1MB", "20MB"})
+        public String size;
+
+        public String sql;
+
+        @Setup
+        public void setUp() {
+            sql = SqlScripts.script(size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LegacyScript {
+
+        @Param({"1KB", "100KB"})
+        public String size;
+
+        public String sql;
+
+        @Setup
+        public void setUp() {
+            sql = SqlScripts.script(size);
+        }
+    }
+
+    @Benchmark
+    public List<SqlStatement> split(Script script) {
+        return SqlSplitter.split(script.sql);
+    }
+
+    @Benchmark
+    public List<SqlStatement> splitAndStripComments(Script script) {
+        return SqlSplitter.split(script.sql, true);
+    }
+
+    @Benchmark
+    public List<String> legacySplitMultiSql(LegacyScript script) {
+        return SqlScripts.legacySplitMultiSql(script.sql);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void runBenchmark() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SqlSplitterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.melin.flink.jobserver.core.util;
+
+import io.github.melin.flink.jobserver.core.util.SqlSplitter.SqlStatement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SqlSplitterTest {
+
+    private static List<String> split(String sql) {
+        return SqlSplitter.split(sql).stream().map(SqlStatement::getSql).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSplitBySemicolon() {
+        List<String> statements = split("select 1;\nselect 'a;b';\nselect `c;d` from t");
+        assertEquals(3, statements.size());
+        assertEquals("select 1", statements.get(0));
+        assertEquals("select 'a;b'", statements.get(1));
+        assertEquals("select `c;d` from t", statements.get(2));
+    }
+
+    @Test
+    public void testSplitByWordKey() {
+        List<String> statements = split("set a=1\ncreate table t(id int)\ninsert into t select 1");
+        assertEquals(2, statements.size());
+        assertEquals("set a=1", statements.get(0));
+        assertEquals("create table t(id int)\ninsert into t select 1", statements.get(1));
+    }
+
+    @Test
+    public void testSemicolonInComment() {
+        List<String> statements = split("select 1 -- a;b\n;/* c;d */select 2");
+        assertEquals(2, statements.size());
+        assertEquals("select 1 -- a;b", statements.get(0));
+        assertEquals("/* c;d */select 2", statements.get(1));
+    }
+
+    @Test
+    public void testBeginEndBlock() {
+        String sql = "create procedure p()\nbegin\n  select 1;\n  if a > 0 then select 2; end if;\nend;\nselect 3";
+        List<String> statements = split(sql);
+        assertEquals(2, statements.size());
+        assertEquals("select 3", statements.get(1));
+    }
+
+    @Test
+    public void testCaseWhen() {
+        List<String> statements = split("select case when a > 0 then 1 else 0 end, (case b when 1 then 2 end) from t;select 2");
+        assertEquals(2, statements.size());
+        assertEquals("select 2", statements.get(1));
+    }
+
+    @Test
+    public void testKeywordAsIdentifier() {
+        List<String> statements = split("select begin from t;\nselect case, t.begin, end from t;\nselect 3");
+        assertEquals(3, statements.size());
+        assertEquals("select begin from t", statements.get(0));
+        assertEquals("select case, t.begin, end from t", statements.get(1));
+        assertEquals("select 3", statements.get(2));
+    }
+
+    @Test
+    public void testBeginTransaction() {
+        List<String> statements = split("begin;\ninsert into t values(1);\ncommit");
+        assertEquals(3, statements.size());
+    }
+
+    @Test
+    public void testLineNumber() {
+        List<SqlStatement> statements = SqlSplitter.split("-- comment\nselect 1;\n\nselect 'a\nb';\nselect 3", true);
+        assertEquals(3, statements.size());
+        assertEquals("select 1", statements.get(0).getSql());
+        assertEquals(2, statements.get(0).getLineNumber());
+        assertEquals(4, statements.get(1).getLineNumber());
+        assertEquals(6, statements.get(2).getLineNumber());
+    }
+
+    @Test
+    public void testStripComments() {
+        String sql = "select 1 -- comment\n/* multi\nline */select /*+ broadcast(t) */ '--a', \"/*b*/\" from t";
+        assertEquals("select 1 \n\nselect /*+ broadcast(t) */ '--a', \"/*b*/\" from t", SqlSplitter.stripComments(sql));
+    }
+
+    @Test
+    public void testStripUnclosedComment() {
+        assertEquals("select 1 ", SqlSplitter.stripComments("select 1 -- comment"));
+        assertEquals("select 1 /* comment", SqlSplitter.stripComments("select 1 /* comment"));
+    }
+}
@@ -1,14 +1,22 @@
 package io.github.melin.flink.jobserver.driver;
 
+import com.google.common.collect.Lists;
 import io.github.melin.flink.jobserver.core.entity.Cluster;
+import io.github.melin.flink.jobserver.core.util.SqlSplitter;
+import io.github.melin.flink.jobserver.core.util.SqlSplitter.SqlStatement;
 import io.github.melin.flink.jobserver.driver.lineage.LineageFlinkJobListener;
 import io.github.melin.flink.jobserver.driver.model.DriverParam;
 import org.apache.calcite.rel.metadata.JaninoRelMetadataProvider;
 import org.apache.calcite.rel.metadata.RelMetadataQueryBase;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.flink.api.common.JobExecutionResult;
+import org.apache.flink.api.common.JobStatus;
+import org.apache.flink.api.common.RuntimeExecutionMode;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.HighAvailabilityOptions;
 import org.apache.flink.configuration.RestOptions;
+import org.apache.flink.core.execution.JobClient;
+import org.apache.flink.core.execution.JobListener;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
 import org.apache.flink.table.api.SqlDialect;
 import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
@@ -23,7 +31,10 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedExceptionAction;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class FlinkDriverEnv {
     private static final Logger LOG = LoggerFactory.getLogger(FlinkDriverEnv.class);
@@ -38,8 +49,36 @@ public class FlinkDriverEnv {
 
     public static volatile String applicationId;
 
+    private static RuntimeExecutionMode runtimeMode;
+
     private static final CountDownLatch countDownLatch = new CountDownLatch(1);
 
+    // 当前实例提交的 flink 作业，流任务提交完成后 jobserver 通过作业状态判断作业是否失败
+    private static final List<JobClient> jobClients = new CopyOnWriteArrayList<>();
+
+    public static final String WARMUP_ENABLED_KEY = "jobserver.driver.warmup.enabled";
+
+    // 自定义预热 sql，ddl 直接执行，其它语句只生成执行计划，不提交作业
+    public static final String WARMUP_SQLS_KEY = "jobserver.driver.warmup.sqls";
+
+    private static final String DEFAULT_WARMUP_SQLS =
+            "CREATE TEMPORARY TABLE default_catalog.default_database.jobserver_warmup_source (\n" +
+            "  id BIGINT, name STRING, amount DOUBLE, ts TIMESTAMP(3)\n" +
+            ") WITH ('connector' = 'datagen', 'number-of-rows' = '10');\n" +
+            "CREATE TEMPORARY TABLE default_catalog.default_database.jobserver_warmup_sink (\n" +
+            "  id BIGINT, name STRING, amount DOUBLE\n" +
+            ") WITH ('connector' = 'blackhole');\n" +
+            "INSERT INTO default_catalog.default_database.jobserver_warmup_sink\n" +
+            "SELECT id, UPPER(name), amount * 2 FROM default_catalog.default_database.jobserver_warmup_source\n" +
+            "WHERE amount > 0 AND name LIKE 'a%';\n" +
+            "INSERT INTO default_catalog.default_database.jobserver_warmup_sink\n" +
+            "SELECT id, MAX(name), SUM(amount) FROM default_catalog.default_database.jobserver_warmup_source GROUP BY id;\n" +
+            "INSERT INTO default_catalog.default_database.jobserver_warmup_sink\n" +
+            "SELECT a.id, b.name, a.amount FROM default_catalog.default_database.jobserver_warmup_source a\n" +
+            "JOIN default_catalog.default_database.jobserver_warmup_source b ON a.id = b.id;\n" +
+            "DROP TEMPORARY TABLE default_catalog.default_database.jobserver_warmup_sink;\n" +
+            "DROP TEMPORARY TABLE default_catalog.default_database.jobserver_warmup_source";
+
     public static void init(Configuration flinkConf, Cluster cluster, DriverParam driverParam) throws Exception {
         if (tableEnvironment == null) {
             if (driverParam.isKerberosEnabled()) {
@@ -55,8 +94,21 @@ public class FlinkDriverEnv {
 
     private static void initFlink(Configuration flinkConf, Cluster cluster, DriverParam driverParam) {
         streamExecutionEnvironment = StreamExecutionEnvironment.getExecutionEnvironment(flinkConf);
-        streamExecutionEnvironment.setRuntimeMode(driverParam.getRuntimeMode());
+        runtimeMode = driverParam.getRuntimeMode();
+        streamExecutionEnvironment.setRuntimeMode(runtimeMode);
         streamExecutionEnvironment.registerJobListener(new LineageFlinkJobListener(streamExecutionEnvironment));
+        streamExecutionEnvironment.registerJobListener(new JobListener() {
+            @Override
+            public void onJobSubmitted(JobClient jobClient, Throwable throwable) {
+                if (jobClient != null) {
+                    jobClients.add(jobClient);
+                }
+            }
+
+            @Override
+            public void onJobExecuted(JobExecutionResult jobExecutionResult, Throwable throwable) {
+            }
+        });
         tableEnvironment = StreamTableEnvironment.create(streamExecutionEnvironment);
 
         flinkConfig = (Configuration) streamExecutionEnvironment.getConfiguration();
@@ -103,6 +155,78 @@ public class FlinkDriverEnv {
         LOG.info("StreamTableEnvironment inited");
     }
 
+    /**
+     * driver 上报 IDLE 前预热：对 datagen/blackhole 表生成典型查询的执行计划，完成 Calcite 优化规则、
+     * Janino 元数据 handler 和算子代码生成的类加载和编译。编译结果缓存在进程内，所有作业共享同一个
+     * StreamTableEnvironment，后续作业直接复用。每条查询规划两次，日志记录首次和预热后的规划耗时。
+     * 每条语句单独处理异常，drop 语句最后执行，预热失败也会清理临时表
+     */
+    public static void warmUp() {
+        if (!Boolean.parseBoolean(getConfig(WARMUP_ENABLED_KEY, "true"))) {
+            return;
+        }
+
+        SqlDialect dialect = tableEnvironment.getConfig().getSqlDialect();
+        long start = System.currentTimeMillis();
+        List<SqlStatement> dropStatements = Lists.newArrayList();
+        try {
+            tableEnvironment.getConfig().setSqlDialect(SqlDialect.DEFAULT);
+            List<SqlStatement> statements = SqlSplitter.split(getConfig(WARMUP_SQLS_KEY, DEFAULT_WARMUP_SQLS), true);
+            for (SqlStatement statement : statements) {
+                String sql = statement.getSql();
+                if (StringUtils.isBlank(sql)) {
+                    continue;
+                }
+                if (StringUtils.startsWithIgnoreCase(sql, "drop")) {
+                    dropStatements.add(statement);
+                    continue;
+                }
+
+                try {
+                    if (StringUtils.startsWithIgnoreCase(sql, "create")) {
+                        tableEnvironment.executeSql(sql);
+                    } else {
+                        long firstStart = System.currentTimeMillis();
+                        tableEnvironment.explainSql(sql);
+                        long firstTimes = System.currentTimeMillis() - firstStart;
+
+                        long warmStart = System.currentTimeMillis();
+                        tableEnvironment.explainSql(sql);
+                        LOG.info("warm-up sql(line {}) planning times, first: {}ms, warm: {}ms",
+                                statement.getLineNumber(), firstTimes, System.currentTimeMillis() - warmStart);
+                    }
+                } catch (Throwable e) {
+                    LOG.warn("warm-up sql(line {}) failed: {}", statement.getLineNumber(), e.getMessage());
+                }
+            }
+        } catch (Throwable e) {
+            LOG.warn("driver warm-up failed: {}", e.getMessage());
+        } finally {
+            for (SqlStatement statement : dropStatements) {
+                try {
+                    tableEnvironment.executeSql(statement.getSql());
+                } catch (Throwable e) {
+                    LOG.warn("warm-up sql(line {}) failed: {}", statement.getLineNumber(), e.getMessage());
+                }
+            }
+            tableEnvironment.getConfig().setSqlDialect(dialect);
+        }
+
+        // 没有启用 hive 时使用预热生成的 provider，作业线程复用
+        if (metadataProvider == null) {
+            metadataProvider = RelMetadataQueryBase.THREAD_PROVIDERS.get();
+        }
+        LOG.info("driver warm-up finished, times: {}ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 优先读取 flink 配置，ConfigClient 只把 flink 配置中不存在的参数设置为系统属性
+     */
+    private static String getConfig(String key, String defaultValue) {
+        String value = flinkConfig == null ? null : flinkConfig.getString(key, null);
+        return value != null ? value : System.getProperty(key, defaultValue);
+    }
+
     public static void waitDriver() throws InterruptedException {
         FlinkDriverEnv.countDownLatch.await();
     }
@@ -122,4 +246,44 @@ public class FlinkDriverEnv {
     public static Configuration getFlinkConfig() {
         return flinkConfig;
     }
+
+    public static void clearJobClients() {
+        jobClients.clear();
+    }
+
+    /**
+     * 当前实例 flink 作业状态：任一作业 FAILED/CANCELED 返回该状态，全部 FINISHED 返回 FINISHED，
+     * 否则返回 RUNNING；没有提交作业或者查询失败返回 null
+     */
+    public static String getJobStatus() {
+        if (jobClients.isEmpty()) {
+            return null;
+        }
+
+        boolean finished = true;
+        for (JobClient jobClient : jobClients) {
+            JobStatus status;
+            try {
+                status = jobClient.getJobStatus().get(3, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                LOG.warn("get job {} status failed: {}", jobClient.getJobID(), e.getMessage());
+                return null;
+            }
+
+            if (JobStatus.FAILED == status || JobStatus.CANCELED == status) {
+                return status.name();
+            }
+            if (JobStatus.FINISHED != status) {
+                finished = false;
+            }
+        }
+        return finished ? JobStatus.FINISHED.name() : JobStatus.RUNNING.name();
+    }
+
+    /**
+     * 流模式 driver 提交作业后作业持续运行，driver 不再接收新作业
+     */
+    public static boolean isStreaming() {
+        return RuntimeExecutionMode.STREAMING == runtimeMode;
+    }
 }
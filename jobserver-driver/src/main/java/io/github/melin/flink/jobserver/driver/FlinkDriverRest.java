@@ -1,7 +1,11 @@
 package io.github.melin.flink.jobserver.driver;
 
 import com.gitee.melin.bee.core.support.Result;
+import io.github.melin.flink.jobserver.core.dto.DriverMemoryStats;
+import io.github.melin.flink.jobserver.core.dto.ResultPage;
 import io.github.melin.flink.jobserver.core.enums.DriverStatus;
+import io.github.melin.flink.jobserver.driver.support.ClassLoaderMonitor;
+import io.github.melin.flink.jobserver.driver.support.ResultStore;
 import io.github.melin.flink.jobserver.driver.task.FlinkAppTask;
 import io.github.melin.flink.jobserver.driver.task.FlinkSqlTask;
 import io.github.melin.flink.jobserver.core.dto.InstanceDto;
@@ -15,16 +19,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * huaixin 2022/4/11 18:22
@@ -34,6 +43,8 @@ public class FlinkDriverRest {
 
     private static final Logger LOG = LoggerFactory.getLogger(FlinkDriverRest.class);
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     private FlinkDriverContext flinkDriverContext;
 
@@ -43,6 +54,12 @@ public class FlinkDriverRest {
     @Autowired
     private FlinkAppTask flinkAppTask;
 
+    @Autowired
+    private ClassLoaderMonitor classLoaderMonitor;
+
+    @Autowired
+    private ResultStore resultStore;
+
     @RequestMapping(value = "/ok", produces = MediaType.TEXT_PLAIN_VALUE)
     @ResponseBody
     public String ok() {
@@ -68,6 +85,42 @@ public class FlinkDriverRest {
         }
     }
 
+    /**
+     * 当前实例 flink 作业状态，流任务提交完成后 driver 为 IDLE 状态，jobserver 心跳检查作业是否失败
+     */
+    @RequestMapping("/flinkDriver/jobStatus")
+    public String jobStatus(String instanceCode) {
+        if (!StringUtils.equals(instanceCode, InstanceContext.getInstanceCode())) {
+            return null;
+        }
+        return FlinkDriverEnv.getJobStatus();
+    }
+
+    /**
+     * driver Metaspace 和作业 classloader 统计，jobserver 根据内存压力回收 driver
+     */
+    @RequestMapping("/flinkDriver/memoryStats")
+    public DriverMemoryStats memoryStats() {
+        return classLoaderMonitor.getMemoryStats();
+    }
+
+    /**
+     * 分页获取 select 查询结果，statementId 为 select 语句所在行号，page 从 1 开始
+     */
+    @RequestMapping("/flinkDriver/fetchResult")
+    public Result<ResultPage> fetchResult(String instanceCode, int statementId, int page) {
+        try {
+            ResultPage resultPage = resultStore.fetchPage(instanceCode, statementId, page);
+            if (resultPage == null) {
+                return Result.failureResult("实例 " + instanceCode + " 语句(line " + statementId + ") 没有查询结果");
+            }
+            return Result.successDataResult(resultPage);
+        } catch (Exception e) {
+            LOG.error("fetch result failed: " + instanceCode, e);
+            return Result.failureResult(e.getMessage());
+        }
+    }
+
     /**
      * control端抽取日志接口
      */
@@ -82,6 +135,7 @@ public class FlinkDriverRest {
     @PostMapping("/flinkDriver/runFlinkJob")
     public Result<String> runFlinkJob(@RequestBody InstanceDto instanceDto) {
         LogUtils.clearLog(instanceDto.getInstanceCode());
+        FlinkDriverEnv.clearJobClients();
 
         InstanceContext.setInstanceType(instanceDto.getInstanceType());
         InstanceContext.setAccessKey(instanceDto.getAccessKey());
@@ -144,33 +198,95 @@ public class FlinkDriverRest {
         }
     }
 
+    /**
+     * 下载容器日志，支持 Range 请求头、tail=N 读取末尾字节，客户端支持时 gzip 压缩
+     */
     @RequestMapping("/flinkDriver/downloadYarnLog")
-    public void downloadYanLog(HttpServletResponse response) {
-        FileInputStream inputStream = null;
-        BufferedOutputStream out = null;
-        try {
-            String localLogDir = System.getProperty("spark.yarn.app.container.log.dir");
-            String filePath = localLogDir + "/stderr";
-            File logFile = new File(filePath);
-            if (logFile.exists()) {
-                inputStream = new FileInputStream(logFile);
-
-                response.reset();
-                response.setContentType("application/x-download");
-                response.addHeader("Content-Disposition", "attachment;filename=spark.log");
-                response.addHeader("Content-Length", "" + logFile.length());
-                out = new BufferedOutputStream(response.getOutputStream());
-
-                IOUtils.copyLarge(inputStream, out);
+    public void downloadYanLog(Long tail, HttpServletRequest request, HttpServletResponse response) {
+        File logFile = getContainerLogFile();
+        if (logFile == null || !logFile.exists()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = logFile.length();
+        long start = 0;
+        long end = length - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (tail != null && tail > 0) {
+            start = Math.max(0, length - tail);
+        } else if (StringUtils.isNotBlank(range)) {
+            boolean satisfiable = true;
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    partial = true;
+                    // 起始位置超过文件长度(包括空文件)
+                    satisfiable = start < length && end >= start;
+                }
+            } catch (IllegalArgumentException e) {
+                satisfiable = false;
+            }
+
+            if (!satisfiable) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        // Range 请求按原始字节返回，不压缩
+        boolean gzip = !partial && StringUtils.containsIgnoreCase(request.getHeader(HttpHeaders.ACCEPT_ENCODING), "gzip");
+        long count = end - start + 1;
+
+        response.reset();
+        response.setContentType("application/x-download");
+        response.addHeader("Content-Disposition", "attachment;filename=" + logFile.getName());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (partial) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        } else {
+            response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(count));
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "r");
+             OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE)
+                     : new BufferedOutputStream(response.getOutputStream(), BUFFER_SIZE)) {
+            file.seek(start);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (count > 0) {
+                int len = file.read(buffer, 0, (int) Math.min(buffer.length, count));
+                if (len == -1) {
+                    break;
+                }
+                out.write(buffer, 0, len);
+                count -= len;
             }
         } catch (IOException ex) {
             LOG.error(ex.getMessage(), ex);
-        } finally {
-            IOUtils.closeQuietly(inputStream);
-            IOUtils.closeQuietly(out);
         }
     }
 
+    /**
+     * yarn 容器 stderr，不存在时使用 flink 日志文件(log.file)
+     */
+    private File getContainerLogFile() {
+        String localLogDir = System.getProperty("spark.yarn.app.container.log.dir");
+        if (StringUtils.isNotBlank(localLogDir)) {
+            return new File(localLogDir + "/stderr");
+        }
+
+        String logFile = System.getProperty("log.file");
+        return StringUtils.isNotBlank(logFile) ? new File(logFile) : null;
+    }
+
     @RequestMapping(value = "/gitInfo", produces = "text/plain;charset=UTF-8")
     @ResponseBody
     public String gitInfo() throws IOException {
@@ -51,6 +51,7 @@ public class FlinkDriverServer extends SpringBootServletInitializer {
         Configuration flinkConf = new Configuration();
         ConfigClient.init(configText, flinkConf);
         FlinkDriverEnv.init(flinkConf, cluster, driverParam);
+        FlinkDriverEnv.warmUp();
 
         flinkDriverContext.initFlinkDriver(driverParam);
 
@@ -0,0 +1,303 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.sun.management.GcInfo;
+import io.github.melin.flink.jobserver.core.dto.DriverMemoryStats;
+import io.github.melin.flink.jobserver.core.dto.DriverMemoryStats.JobMetaspace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.beans.Introspector;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLStreamHandlerFactory;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 作业 classloader 泄漏检测和 Metaspace 统计：弱引用跟踪作业 classloader，关闭后经过了能卸载类的 gc(full gc、
+ * 老年代并发收集)仍然没有回收认为泄漏，只有年轻代 gc 时关闭的 classloader 不会回收，不算泄漏；
+ * 记录每个作业执行前后 Metaspace 和加载类数量变化；作业结束和 classloader 关闭时清理已知的泄漏点。
+ * 同时采集堆内存和 gc 统计，jobserver 据此回收内存压力大的 driver
+ */
+@Component
+public class ClassLoaderMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClassLoaderMonitor.class);
+
+    private static final long LEAK_THRESHOLD_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAX_RECENT_JOBS = 20;
+
+    // 会卸载类的收集器。G1 在 JDK 20 之前并发标记没有对应的 GarbageCollectorMXBean，只能按 full gc 判断
+    private static final Set<String> CLASS_UNLOADING_COLLECTORS = Sets.newHashSet("PS MarkSweep",
+            "MarkSweepCompact", "ConcurrentMarkSweep", "G1 Old Generation", "G1 Concurrent GC",
+            "ZGC", "ZGC Cycles", "ZGC Major Cycles", "Shenandoah Cycles");
+
+    private final ReferenceQueue<ClassLoader> referenceQueue = new ReferenceQueue<>();
+
+    private final Set<TrackedClassLoader> trackedLoaders = ConcurrentHashMap.newKeySet();
+
+    private final LinkedList<JobMetaspace> recentJobs = new LinkedList<>();
+
+    private long jobMetaspaceUsed;
+
+    private int jobLoadedClassCount;
+
+    private long lastGcTimeMs = 0;
+
+    private long lastSampleTime = System.currentTimeMillis();
+
+    private double gcTimeRatio = 0;
+
+    public void track(ClassLoader loader) {
+        expungeCollected();
+        trackedLoaders.add(new TrackedClassLoader(loader, referenceQueue));
+    }
+
+    /**
+     * classloader 关闭，注销 classloader 加载的 jdbc driver，清理缓存
+     */
+    public void closed(ClassLoader loader, ClassLoader parent) {
+        for (TrackedClassLoader tracked : trackedLoaders) {
+            if (tracked.get() == loader) {
+                tracked.closeTime = System.currentTimeMillis();
+                tracked.closeGcCount = getClassUnloadingGcCount();
+            }
+        }
+
+        deregisterJdbcDrivers(loader);
+        ResourceBundle.clearCache(loader);
+        resetContextClassLoaders(loader, parent);
+    }
+
+    public synchronized void beginJob() {
+        jobMetaspaceUsed = getMetaspaceUsage() == null ? 0 : getMetaspaceUsage().getUsed();
+        jobLoadedClassCount = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+    }
+
+    public synchronized void endJob(String instanceCode) {
+        Introspector.flushCaches();
+        checkUrlStreamHandlerFactory();
+        expungeCollected();
+
+        JobMetaspace job = new JobMetaspace();
+        job.setInstanceCode(instanceCode);
+        MemoryUsage metaspace = getMetaspaceUsage();
+        job.setMetaspaceDelta(metaspace == null ? 0 : metaspace.getUsed() - jobMetaspaceUsed);
+        job.setLoadedClassDelta(ManagementFactory.getClassLoadingMXBean().getLoadedClassCount() - jobLoadedClassCount);
+        job.setEndTime(System.currentTimeMillis());
+        recentJobs.addFirst(job);
+        if (recentJobs.size() > MAX_RECENT_JOBS) {
+            recentJobs.removeLast();
+        }
+        LOG.info("job {} metaspace delta: {}, loaded class delta: {}, live classloaders: {}",
+                instanceCode, job.getMetaspaceDelta(), job.getLoadedClassDelta(), trackedLoaders.size());
+    }
+
+    public synchronized DriverMemoryStats getMemoryStats() {
+        expungeCollected();
+        DriverMemoryStats stats = new DriverMemoryStats();
+        MemoryUsage metaspace = getMetaspaceUsage();
+        if (metaspace != null) {
+            stats.setMetaspaceUsed(metaspace.getUsed());
+            stats.setMetaspaceCommitted(metaspace.getCommitted());
+            stats.setMetaspaceMax(metaspace.getMax());
+        }
+
+        fillHeapAndGcStats(stats);
+
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        stats.setLoadedClassCount(classLoading.getLoadedClassCount());
+        stats.setUnloadedClassCount(classLoading.getUnloadedClassCount());
+
+        long now = System.currentTimeMillis();
+        long gcCount = getClassUnloadingGcCount();
+        int leaked = 0;
+        for (TrackedClassLoader tracked : trackedLoaders) {
+            // 关闭后完成过能卸载类的 gc 仍然可达
+            if (tracked.closeTime > 0 && now - tracked.closeTime > LEAK_THRESHOLD_MS
+                    && gcCount > tracked.closeGcCount && tracked.get() != null) {
+                leaked++;
+            }
+        }
+        stats.setLiveClassLoaderCount(trackedLoaders.size());
+        stats.setLeakedClassLoaderCount(leaked);
+        stats.setRecentJobs(Lists.newArrayList(recentJobs));
+        return stats;
+    }
+
+    private void fillHeapAndGcStats(DriverMemoryStats stats) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        stats.setHeapUsed(heap.getUsed());
+        stats.setHeapMax(heap.getMax() > 0 ? heap.getMax() : heap.getCommitted());
+
+        fillHeapUsedAfterGc(stats);
+
+        long gcCount = 0;
+        long gcTimeMs = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(gc.getCollectionCount(), 0);
+            gcTimeMs += Math.max(gc.getCollectionTime(), 0);
+        }
+        stats.setGcCount(gcCount);
+        stats.setGcTimeMs(gcTimeMs);
+
+        // 采样间隔太短时使用上次计算的比例
+        long now = System.currentTimeMillis();
+        if (now - lastSampleTime >= 1000) {
+            gcTimeRatio = (double) (gcTimeMs - lastGcTimeMs) / (now - lastSampleTime);
+            lastGcTimeMs = gcTimeMs;
+            lastSampleTime = now;
+        }
+        stats.setGcTimeRatio(gcTimeRatio);
+    }
+
+    /**
+     * 取所有收集器中最近一次 gc 后的老年代使用量。MemoryPoolMXBean.getCollectionUsage 只在收集该内存池时更新，
+     * 老年代的值只有 full/mixed gc 后才变化，可能几个小时不更新；GcInfo 中年轻代 gc 也会记录老年代使用量
+     */
+    private void fillHeapUsedAfterGc(DriverMemoryStats stats) {
+        GcInfo lastGcInfo = null;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof com.sun.management.GarbageCollectorMXBean) {
+                GcInfo gcInfo = ((com.sun.management.GarbageCollectorMXBean) gc).getLastGcInfo();
+                if (gcInfo != null && (lastGcInfo == null || gcInfo.getEndTime() > lastGcInfo.getEndTime())) {
+                    lastGcInfo = gcInfo;
+                }
+            }
+        }
+
+        if (lastGcInfo == null) {
+            stats.setHeapUsedAfterGc(stats.getHeapUsed());
+            stats.setHeapUsedAfterGcAgeMs(-1);
+            return;
+        }
+
+        long oldGenUsed = -1;
+        long heapUsed = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = lastGcInfo.getMemoryUsageAfterGc().get(pool.getName());
+            if (pool.getType() != MemoryType.HEAP || usage == null) {
+                continue;
+            }
+
+            heapUsed += usage.getUsed();
+            if (pool.getName().contains("Old") || pool.getName().contains("Tenured")) {
+                oldGenUsed = usage.getUsed();
+            }
+        }
+        stats.setHeapUsedAfterGc(oldGenUsed >= 0 ? oldGenUsed : heapUsed);
+
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        stats.setHeapUsedAfterGcAgeMs(Math.max(uptime - lastGcInfo.getEndTime(), 0));
+    }
+
+    private void expungeCollected() {
+        Object ref;
+        while ((ref = referenceQueue.poll()) != null) {
+            trackedLoaders.remove(ref);
+        }
+    }
+
+    private void deregisterJdbcDrivers(ClassLoader loader) {
+        Enumeration<Driver> drivers = DriverManager.getDrivers();
+        while (drivers.hasMoreElements()) {
+            Driver driver = drivers.nextElement();
+            if (driver.getClass().getClassLoader() == loader) {
+                try {
+                    DriverManager.deregisterDriver(driver);
+                    LOG.info("deregister jdbc driver {}", driver.getClass().getName());
+                } catch (Exception e) {
+                    LOG.warn("deregister jdbc driver {} failed: {}", driver.getClass().getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 作业创建的线程上下文 classloader 指向已关闭的 classloader，重置为父 classloader
+     */
+    private void resetContextClassLoaders(ClassLoader loader, ClassLoader parent) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getContextClassLoader() == loader) {
+                thread.setContextClassLoader(parent);
+                LOG.warn("thread {} context classloader reference closed classloader, reset to parent", thread.getName());
+            }
+        }
+    }
+
+    /**
+     * 作业通过 URL.setURLStreamHandlerFactory 注册的 factory 会一直持有作业 classloader，只能告警
+     */
+    private void checkUrlStreamHandlerFactory() {
+        try {
+            for (Field field : URL.class.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType().equals(URLStreamHandlerFactory.class)) {
+                    field.setAccessible(true);
+                    Object factory = field.get(null);
+                    if (factory != null && isTracked(factory.getClass().getClassLoader())) {
+                        LOG.warn("URLStreamHandlerFactory {} loaded by job classloader, classloader can not be unloaded",
+                                factory.getClass().getName());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.debug("check URLStreamHandlerFactory failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean isTracked(ClassLoader loader) {
+        return loader != null && trackedLoaders.stream().anyMatch(tracked -> tracked.get() == loader);
+    }
+
+    private static long getClassUnloadingGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (CLASS_UNLOADING_COLLECTORS.contains(gc.getName())) {
+                count += Math.max(gc.getCollectionCount(), 0);
+            }
+        }
+        return count;
+    }
+
+    private static MemoryUsage getMetaspaceUsage() {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage();
+            }
+        }
+        return null;
+    }
+
+    private static class TrackedClassLoader extends WeakReference<ClassLoader> {
+
+        private volatile long closeTime = 0;
+
+        // 关闭时能卸载类的 gc 次数
+        private volatile long closeGcCount = 0;
+
+        TrackedClassLoader(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+        }
+    }
+}
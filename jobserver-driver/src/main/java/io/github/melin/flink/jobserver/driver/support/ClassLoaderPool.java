@@ -0,0 +1,176 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import com.google.common.collect.Lists;
+import io.github.melin.flink.jobserver.driver.support.JarCache.CachedJar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URL;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 作业 classloader 池，作业配置 jobserver.driver.classloader.reuse=true 时，jar 内容相同的作业复用 classloader，
+ * 避免重复加载类和 JIT 预热。复用的 classloader 中类的静态变量(单例、连接池、缓存等)在作业之间共享，
+ * 只有确认作业代码没有依赖静态状态时才开启，默认每个作业使用独立的 classloader，作业结束后关闭。
+ * 超过池大小(jobserver.driver.classloader.pool.size)关闭最久未使用的 classloader，
+ * 关闭后没有其它引用时类卸载，释放 Metaspace
+ */
+@Component
+public class ClassLoaderPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClassLoaderPool.class);
+
+    public static final String POOL_SIZE_KEY = "jobserver.driver.classloader.pool.size";
+
+    // 作业配置，是否复用 classloader，默认不复用
+    public static final String REUSE_KEY = "jobserver.driver.classloader.reuse";
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+
+    @Autowired
+    private JarCache jarCache;
+
+    @Autowired
+    private ClassLoaderMonitor classLoaderMonitor;
+
+    // jar 内容 hash 列表 -> classloader，按访问顺序排列
+    private final LinkedHashMap<String, PooledClassLoader> loaders = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 不复用的 classloader，归还时关闭
+    private final Map<FlinkClassLoader, PooledClassLoader> exclusiveLoaders = new IdentityHashMap<>();
+
+    /**
+     * jar 下载不持有锁，避免一个作业下载大 jar 阻塞其它作业获取和归还 classloader
+     * @param reuse 是否复用池中 jar 内容相同的 classloader
+     */
+    public FlinkClassLoader borrow(List<String> jarPaths, ClassLoader parent, boolean reuse) throws IOException {
+        List<CachedJar> jars = Lists.newArrayList();
+        try {
+            for (String jarPath : jarPaths) {
+                jars.add(jarCache.acquire(jarPath));
+            }
+        } catch (IOException e) {
+            jars.forEach(jarCache::release);
+            throw e;
+        }
+
+        if (!reuse) {
+            PooledClassLoader exclusive = new PooledClassLoader(new FlinkClassLoader(toUrls(jars), parent), parent, jars);
+            synchronized (this) {
+                exclusiveLoaders.put(exclusive.loader, exclusive);
+            }
+            classLoaderMonitor.track(exclusive.loader);
+            return exclusive.loader;
+        }
+
+        String key = jars.stream().map(CachedJar::getHash).sorted().collect(Collectors.joining(","));
+        synchronized (this) {
+            PooledClassLoader pooled = loaders.get(key);
+            if (pooled != null) {
+                jars.forEach(jarCache::release); // 池中 classloader 已经持有 jar 引用
+                LOG.info("reuse classloader for jars: {}", jarPaths);
+            } else {
+                pooled = new PooledClassLoader(new FlinkClassLoader(toUrls(jars), parent), parent, jars);
+                loaders.put(key, pooled);
+                classLoaderMonitor.track(pooled.loader);
+            }
+
+            pooled.inUse++;
+            evict();
+            return pooled.loader;
+        }
+    }
+
+    public synchronized void giveBack(FlinkClassLoader loader) {
+        PooledClassLoader exclusive = exclusiveLoaders.remove(loader);
+        if (exclusive != null) {
+            close(exclusive);
+            return;
+        }
+
+        for (PooledClassLoader pooled : loaders.values()) {
+            if (pooled.loader == loader) {
+                pooled.inUse--;
+                break;
+            }
+        }
+        evict();
+    }
+
+    private static URL[] toUrls(List<CachedJar> jars) throws IOException {
+        URL[] urls = new URL[jars.size()];
+        for (int i = 0; i < jars.size(); i++) {
+            urls[i] = jars.get(i).getFile().toURI().toURL();
+        }
+        return urls;
+    }
+
+    public synchronized int size() {
+        return loaders.size();
+    }
+
+    private void evict() {
+        int poolSize = Integer.getInteger(POOL_SIZE_KEY, DEFAULT_POOL_SIZE);
+        int count = loaders.size();
+        Iterator<PooledClassLoader> iter = loaders.values().iterator();
+        while (count > poolSize && iter.hasNext()) {
+            PooledClassLoader pooled = iter.next();
+            if (pooled.inUse > 0) {
+                continue;
+            }
+            iter.remove();
+            close(pooled);
+            count--;
+        }
+    }
+
+    private void close(PooledClassLoader pooled) {
+        Thread thread = Thread.currentThread();
+        if (thread.getContextClassLoader() == pooled.loader) {
+            thread.setContextClassLoader(pooled.parent);
+        }
+
+        try {
+            pooled.loader.close();
+        } catch (IOException e) {
+            LOG.warn("close classloader failed: {}", e.getMessage());
+        }
+        classLoaderMonitor.closed(pooled.loader, pooled.parent);
+        pooled.jars.forEach(jarCache::release);
+        LOG.info("close classloader, jars: {}", pooled.jars.size());
+    }
+
+    @PreDestroy
+    public synchronized void closeAll() {
+        loaders.values().forEach(this::close);
+        loaders.clear();
+        exclusiveLoaders.values().forEach(this::close);
+        exclusiveLoaders.clear();
+    }
+
+    private static class PooledClassLoader {
+
+        private final FlinkClassLoader loader;
+
+        private final ClassLoader parent;
+
+        private final List<CachedJar> jars;
+
+        private int inUse = 0;
+
+        PooledClassLoader(FlinkClassLoader loader, ClassLoader parent, List<CachedJar> jars) {
+            this.loader = loader;
+            this.parent = parent;
+            this.jars = jars;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.github.melin.flink.jobserver.core.util.CommonUtils;
+import io.github.melin.flink.jobserver.driver.util.DriverUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * driver 本地 jar 缓存，按内容 sha256 保存，相同内容的 jar 只保存一份。远程文件长度和修改时间不变时不重新下载，
+ * 超过缓存大小(jobserver.driver.jar.cache.size)按最近访问淘汰没有 classloader 引用的 jar
+ */
+@Component
+public class JarCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JarCache.class);
+
+    public static final String JAR_CACHE_SIZE_KEY = "jobserver.driver.jar.cache.size";
+
+    private static final String DEFAULT_JAR_CACHE_SIZE = "2g";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File cacheDir = new File(DriverUtils.CURRENT_PATH, "jar-cache");
+
+    private final Configuration hadoopConf = new Configuration();
+
+    // 远程路径、长度和修改时间 -> 内容 hash
+    private final Map<String, String> remoteIndex = new LinkedHashMap<>();
+
+    // 内容 hash -> 本地 jar，按访问顺序排列
+    private final LinkedHashMap<String, CachedJar> jars = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 获取远程 jar 的本地缓存，引用计数加一，使用完调用 release。
+     * 下载不持有锁，其它作业可以同时读取缓存，同一个 jar 并发下载时按内容 hash 只保留一份
+     */
+    public CachedJar acquire(String jarPath) throws IOException {
+        Path remotePath = new Path(jarPath);
+        FileSystem fs = remotePath.getFileSystem(hadoopConf);
+        FileStatus status = fs.getFileStatus(remotePath);
+        String remoteKey = status.getPath() + "|" + status.getLen() + "|" + status.getModificationTime();
+
+        synchronized (this) {
+            String hash = remoteIndex.get(remoteKey);
+            CachedJar jar = hash == null ? null : jars.get(hash);
+            if (jar != null && jar.getFile().isFile()) {
+                LOG.info("jar cache hit: {} -> {}", jarPath, jar.getFile().getName());
+                jar.refCount++;
+                return jar;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        File tmpFile = new File(cacheDir, UUID.randomUUID() + ".tmp");
+        String hash = download(fs, remotePath, tmpFile);
+
+        CachedJar jar;
+        synchronized (this) {
+            jar = jars.get(hash);
+            if (jar != null && jar.getFile().isFile()) { // 不同路径相同内容，或者并发下载
+                Files.deleteIfExists(tmpFile.toPath());
+            } else {
+                File file = new File(cacheDir, hash + ".jar");
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                jar = new CachedJar(hash, file);
+                jars.put(hash, jar);
+            }
+            remoteIndex.put(remoteKey, hash);
+            jar.refCount++;
+            evict();
+        }
+        LOG.info("cache jar {} as {}, size: {}, times: {}ms",
+                jarPath, jar.getFile().getName(), jar.getSize(), System.currentTimeMillis() - start);
+        return jar;
+    }
+
+    public synchronized void release(CachedJar jar) {
+        jar.refCount--;
+        evict();
+    }
+
+    /**
+     * 下载到临时文件
+     * @return 文件内容 sha256
+     */
+    private String download(FileSystem fs, Path remotePath, File tmpFile) throws IOException {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("create jar cache dir failed: " + cacheDir);
+        }
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        try (InputStream input = fs.open(remotePath);
+             OutputStream output = new FileOutputStream(tmpFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = input.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, len);
+                output.write(buffer, 0, len);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+        return hasher.hash().toString();
+    }
+
+    private void evict() {
+        long maxBytes = getMaxBytes();
+        long totalBytes = jars.values().stream().mapToLong(CachedJar::getSize).sum();
+        Iterator<CachedJar> iter = jars.values().iterator();
+        while (totalBytes > maxBytes && iter.hasNext()) {
+            CachedJar jar = iter.next();
+            if (jar.refCount > 0) {
+                continue;
+            }
+
+            iter.remove();
+            remoteIndex.values().removeIf(jar.getHash()::equals);
+            totalBytes -= jar.getSize();
+            try {
+                Files.deleteIfExists(jar.getFile().toPath());
+                LOG.info("evict cached jar {}, size: {}", jar.getFile().getName(), jar.getSize());
+            } catch (IOException e) {
+                LOG.warn("delete cached jar {} failed: {}", jar.getFile(), e.getMessage());
+            }
+        }
+    }
+
+    private long getMaxBytes() {
+        return CommonUtils.byteStringAsBytes(System.getProperty(JAR_CACHE_SIZE_KEY, DEFAULT_JAR_CACHE_SIZE));
+    }
+
+    public static class CachedJar {
+
+        private final String hash;
+
+        private final File file;
+
+        private final long size;
+
+        // classloader 引用数量，大于 0 不能淘汰
+        private int refCount = 0;
+
+        public CachedJar(String hash, File file) {
+            this.hash = hash;
+            this.file = file;
+            this.size = file.length();
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
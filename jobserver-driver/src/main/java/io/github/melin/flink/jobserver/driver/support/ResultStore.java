@@ -0,0 +1,270 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import com.google.common.collect.Lists;
+import io.github.melin.flink.jobserver.core.dto.ResultPage;
+import io.github.melin.flink.jobserver.driver.util.DriverUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * select 查询结果写入 driver 本地 csv 文件，一行一条记录(值中的换行转义)，记录每页起始偏移，按页读取。
+ * null 写为不加引号的 \N，空字符串写为 ""，读取时区分。
+ * 按实例和语句(语句所在行号)保存，只保留最近 MAX_RESULT_COUNT 个查询的结果
+ */
+@Component
+public class ResultStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResultStore.class);
+
+    private static final int MAX_RESULT_COUNT = 20;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String NULL_VALUE = "\\N";
+
+    private final File resultDir = new File(DriverUtils.CURRENT_PATH, "results");
+
+    // 实例 code-语句 id -> 结果，按写入顺序淘汰
+    private final LinkedHashMap<String, ResultMeta> results = new LinkedHashMap<>();
+
+    /**
+     * @param statementId 语句 id，使用语句在作业中的行号
+     */
+    public ResultWriter createWriter(String instanceCode, int statementId, List<String> columns, int pageSize)
+            throws IOException {
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IOException("create result dir failed: " + resultDir);
+        }
+
+        String key = resultKey(instanceCode, statementId);
+        ResultMeta meta = new ResultMeta(new File(resultDir, key + ".csv"), columns, pageSize);
+        synchronized (this) {
+            ResultMeta last = results.remove(key);
+            if (last != null && !last.file.equals(meta.file)) {
+                Files.deleteIfExists(last.file.toPath());
+            }
+            results.put(key, meta);
+            evict();
+        }
+        return new ResultWriter(meta);
+    }
+
+    /**
+     * @param page 从 1 开始
+     * @return 结果不存在或者查询没有成功完成返回 null
+     */
+    public ResultPage fetchPage(String instanceCode, int statementId, int page) throws IOException {
+        ResultMeta meta;
+        synchronized (this) {
+            meta = results.get(resultKey(instanceCode, statementId));
+        }
+        if (meta == null || !meta.completed || !meta.file.isFile()) {
+            return null;
+        }
+
+        ResultPage resultPage = new ResultPage();
+        resultPage.setInstanceCode(instanceCode);
+        resultPage.setStatementId(statementId);
+        resultPage.setColumns(meta.columns);
+        resultPage.setPage(page);
+        resultPage.setPageSize(meta.pageSize);
+        resultPage.setTotalRows(meta.rowCount);
+        resultPage.setTotalPages(meta.pageOffsets.size());
+        resultPage.setTruncated(meta.truncated);
+
+        List<List<String>> rows = Lists.newArrayList();
+        if (page >= 1 && page <= meta.pageOffsets.size()) {
+            try (FileInputStream input = new FileInputStream(meta.file)) {
+                input.getChannel().position(meta.pageOffsets.get(page - 1));
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+                String line;
+                while (rows.size() < meta.pageSize && (line = reader.readLine()) != null) {
+                    rows.add(parseCsvLine(line));
+                }
+            }
+        }
+        resultPage.setRows(rows);
+        return resultPage;
+    }
+
+    private static String resultKey(String instanceCode, int statementId) {
+        return instanceCode + "-" + statementId;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, ResultMeta>> iter = results.entrySet().iterator();
+        while (results.size() > MAX_RESULT_COUNT && iter.hasNext()) {
+            ResultMeta meta = iter.next().getValue();
+            iter.remove();
+            try {
+                Files.deleteIfExists(meta.file.toPath());
+            } catch (IOException e) {
+                LOG.warn("delete result file {} failed: {}", meta.file, e.getMessage());
+            }
+        }
+    }
+
+    static String toCsvLine(String[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            if (values[i] == null) {
+                builder.append(NULL_VALUE);
+                continue;
+            }
+            String value = values[i].replace("\\", "\\\\").replace("\r", "\\r").replace("\n", "\\n");
+            if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+                builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                builder.append(value);
+            }
+        }
+        return builder.append('\n').toString();
+    }
+
+    static List<String> parseCsvLine(String line) {
+        List<String> values = Lists.newArrayList();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        // 值中有引号部分，不是 null
+        boolean hasQuote = false;
+        for (int i = 0, len = line.length(); i < len; i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < len && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    value.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+                hasQuote = true;
+            } else if (ch == ',') {
+                values.add(toValue(value, hasQuote));
+                value.setLength(0);
+                hasQuote = false;
+            } else {
+                value.append(ch);
+            }
+        }
+        values.add(toValue(value, hasQuote));
+        return values;
+    }
+
+    private static String toValue(CharSequence value, boolean hasQuote) {
+        if (!hasQuote && NULL_VALUE.contentEquals(value)) {
+            return null;
+        }
+        return unescape(value);
+    }
+
+    private static String unescape(CharSequence value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char ch = value.charAt(i);
+            if (ch == '\\' && i + 1 < len) {
+                char next = value.charAt(++i);
+                builder.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                builder.append(ch);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class ResultMeta {
+
+        private final File file;
+
+        private final List<String> columns;
+
+        private final int pageSize;
+
+        // 每页第一条记录在文件中的偏移
+        private final List<Long> pageOffsets = Lists.newArrayList();
+
+        private volatile long rowCount = 0;
+
+        private volatile boolean truncated = false;
+
+        private volatile boolean completed = false;
+
+        ResultMeta(File file, List<String> columns, int pageSize) {
+            this.file = file;
+            this.columns = columns;
+            this.pageSize = pageSize;
+        }
+    }
+
+    public static class ResultWriter implements Closeable {
+
+        private final ResultMeta meta;
+
+        private final OutputStream output;
+
+        private long offset = 0;
+
+        ResultWriter(ResultMeta meta) throws IOException {
+            this.meta = meta;
+            this.output = new BufferedOutputStream(new FileOutputStream(meta.file), BUFFER_SIZE);
+            write(meta.columns.toArray(new String[0]));
+        }
+
+        public void writeRow(String[] values) throws IOException {
+            if (meta.rowCount % meta.pageSize == 0) {
+                meta.pageOffsets.add(offset);
+            }
+            write(values);
+            meta.rowCount++;
+        }
+
+        /**
+         * 查询成功读取完结果后调用，之后才可以分页获取
+         * @param truncated 超过最大行数，还有未读取的记录
+         */
+        public void complete(boolean truncated) throws IOException {
+            output.flush();
+            meta.truncated = truncated;
+            meta.completed = true;
+        }
+
+        private void write(String[] values) throws IOException {
+            byte[] bytes = toCsvLine(values).getBytes(StandardCharsets.UTF_8);
+            output.write(bytes);
+            offset += bytes.length;
+        }
+
+        /**
+         * 没有调用 complete 的结果(查询失败或者取消)不可读取，删除结果文件
+         */
+        @Override
+        public void close() throws IOException {
+            output.close();
+            if (!meta.completed) {
+                Files.deleteIfExists(meta.file.toPath());
+            }
+        }
+    }
+}
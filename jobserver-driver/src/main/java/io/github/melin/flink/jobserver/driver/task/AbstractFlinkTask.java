@@ -15,6 +15,7 @@ import io.github.melin.flink.jobserver.core.util.CommonUtils;
 import io.github.melin.flink.jobserver.driver.FlinkDriverContext;
 import io.github.melin.flink.jobserver.driver.FlinkDriverEnv;
 import io.github.melin.flink.jobserver.driver.ServerPortService;
+import io.github.melin.flink.jobserver.driver.support.ClassLoaderMonitor;
 import io.github.melin.flink.jobserver.driver.util.LogUtils;
 import org.apache.calcite.rel.metadata.RelMetadataQueryBase;
 import org.apache.commons.lang3.StringUtils;
@@ -51,6 +52,9 @@ public abstract class AbstractFlinkTask {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private ClassLoaderMonitor classLoaderMonitor;
+
     private Long startTime = 0L;
 
     public Result<String> runTask(InstanceDto instanceDto) {
@@ -189,16 +193,25 @@ public abstract class AbstractFlinkTask {
         @Override
         public void run() {
             String instanceCode = instanceDto.getInstanceCode();
+            boolean streamingSubmitted = false;
             try {
                 RelMetadataQueryBase.THREAD_PROVIDERS.set(FlinkDriverEnv.getMetadataProvider());
 
                 LOG.info("Sql Job: {} begined, submit from {}", instanceCode, instanceDto.getFlinkDriverUrl());
+                classLoaderMonitor.beginJob();
                 startJob(instanceDto);
                 setConf(instanceDto.getJobConfig());
 
                 executeJobText(instanceDto);
 
-                exitSuccess(instanceCode);
+                if (FlinkDriverEnv.isStreaming()) {
+                    // 流作业提交后持续运行，实例和 driver 保持运行状态，由 admin 流任务日志线程心跳判断结束
+                    streamingSubmitted = true;
+                    LogUtils.info("流任务提交成功: {}", instanceCode);
+                    LogUtils.sendTaskStatusFlag(TASK_END_FLAG);
+                } else {
+                    exitSuccess(instanceCode);
+                }
             } catch (Throwable e) {
                 if (!sparkDriverContext.isUserStopTask()) {
                     LOG.warn("Sql执行错误({}): {}", instanceCode, ExceptionUtils.getStackTrace(e));
@@ -216,7 +229,10 @@ public abstract class AbstractFlinkTask {
                 String errMsg = ExceptionUtils.getStackTrace(e).trim();
                 LOG.error("Job: {} failed: {}", instanceCode, errMsg);
             } finally {
-                sparkDriverContext.stopDriver(instanceDto);
+                classLoaderMonitor.endJob(instanceCode);
+                if (!streamingSubmitted) {
+                    sparkDriverContext.stopDriver(instanceDto);
+                }
             }
 
             LOG.info("Job: {} ended: {}:{}", instanceCode, NetUtils.getLocalHost(), serverPortService.getPort());
@@ -242,21 +258,25 @@ public abstract class AbstractFlinkTask {
     }
 
     private void setConf(String jobConfig) {
+        Properties properties = loadJobConfig(jobConfig);
+        for (Object key : properties.keySet()) {
+            String propKey = (String) key;
+            String value = properties.getProperty(propKey);
+            LogUtils.info("set param {} = {}", propKey, value);
+        }
+    }
+
+    protected Properties loadJobConfig(String jobConfig) {
+        Properties properties = new Properties();
         if (StringUtils.isBlank(jobConfig)) {
-            return;
+            return properties;
         }
 
         try {
-            Properties properties = new Properties();
             properties.load(new StringReader(jobConfig));
-
-            for (Object key : properties.keySet()) {
-                String propKey = (String) key;
-                String value = properties.getProperty(propKey);
-                LogUtils.info("set param {} = {}", propKey, value);
-            }
         } catch (Exception e) {
             LOG.error("parse job config failure", e);
         }
+        return properties;
     }
 }
@@ -4,30 +4,59 @@ import com.github.melin.superior.sql.parser.job.JobTaskHelper;
 import com.github.melin.superior.sql.parser.model.JobData;
 import com.github.melin.superior.sql.parser.model.Statement;
 import com.github.melin.superior.sql.parser.model.StatementData;
+import com.google.common.collect.Lists;
 import io.github.melin.flink.jobserver.api.FlinkJob;
 import io.github.melin.flink.jobserver.api.FlinkJobServerException;
 import io.github.melin.flink.jobserver.core.dto.InstanceDto;
 import io.github.melin.flink.jobserver.core.util.CommonUtils;
+import io.github.melin.flink.jobserver.core.util.DependencyUtils;
 import io.github.melin.flink.jobserver.driver.FlinkDriverEnv;
 import io.github.melin.flink.jobserver.driver.InstanceContext;
+import io.github.melin.flink.jobserver.driver.support.ClassLoaderPool;
 import io.github.melin.flink.jobserver.driver.support.FlinkClassLoader;
 import io.github.melin.flink.jobserver.driver.util.LogUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URL;
+import java.io.File;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.Properties;
+import java.util.stream.Collectors;
 
 @Service
 public class FlinkAppTask extends AbstractFlinkTask {
     private static final Logger LOG = LoggerFactory.getLogger(FlinkAppTask.class);
 
+    // 作业依赖的 maven 坐标(groupId:artifactId:version)，逗号分隔，和作业 jar 一起加载
+    public static final String PACKAGES_KEY = "jobserver.driver.packages";
+
+    public static final String PACKAGES_EXCLUSIONS_KEY = "jobserver.driver.packages.exclusions";
+
+    // 额外的 maven 仓库，逗号分隔，没有 scheme 的为本地目录
+    public static final String PACKAGES_REPOSITORIES_KEY = "jobserver.driver.packages.repositories";
+
+    public static final String PACKAGES_TRANSITIVE_KEY = "jobserver.driver.packages.transitive";
+
+    // 离线解析，只使用本地仓库，driver 不能访问远程仓库时开启
+    public static final String PACKAGES_OFFLINE_KEY = "jobserver.driver.packages.offline";
+
+    @Autowired
+    private ClassLoaderPool classLoaderPool;
+
     @Override
     protected void executeJobText(InstanceDto instanceDto) throws Exception {
         String jarHdfsPath = null;
+        FlinkClassLoader loader = null;
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
         try {
+            Properties jobConfig = loadJobConfig(instanceDto.getJobConfig());
+            boolean reuseClassLoader = Boolean.parseBoolean(
+                    jobConfig.getProperty(ClassLoaderPool.REUSE_KEY, "false"));
+            List<String> packageJars = resolvePackages(jobConfig);
             final String defaultFs = FlinkDriverEnv.getFlinkConfig().getString("flink.hadoop.fs.defaultFS", "");
             LogUtils.info("fs.defaultFs : {}", defaultFs);
             String noCommentJobText = CommonUtils.cleanSqlComment(instanceDto.getJobText());
@@ -42,16 +71,21 @@ public class FlinkAppTask extends AbstractFlinkTask {
                     List<String> params = data.getParams();
                     InstanceContext.setJobClassName(className);
 
-                    FlinkClassLoader loader = new FlinkClassLoader(new URL[]{}, this.getClass().getClassLoader());
-                    Thread.currentThread().setContextClassLoader(loader);
-
                     LogUtils.info("load jar: " + filePath);
 
                     //String destPath = createTempHdfsFile(hadoopConf, instanceDto, filePath);
                     jarHdfsPath = defaultFs + filePath;
-                    loader.addJar(jarHdfsPath);
+                    long start = System.currentTimeMillis();
+                    // jar 缓存到本地，开启复用时相同 jar 复用 classloader(共享类静态变量)
+                    if (loader != null) {
+                        classLoaderPool.giveBack(loader);
+                    }
+                    List<String> jarPaths = Lists.newArrayList(jarHdfsPath);
+                    jarPaths.addAll(packageJars);
+                    loader = classLoaderPool.borrow(jarPaths, this.getClass().getClassLoader(), reuseClassLoader);
+                    Thread.currentThread().setContextClassLoader(loader);
                     Class<?> clazz = loader.loadClass(className);
-                    String groupId = "sg-" + UUID.randomUUID();
+                    LogUtils.info("load class {} times: {}ms", className, String.valueOf(System.currentTimeMillis() - start));
 
                     Object job = clazz.newInstance();
                     LOG.info("exec job classname: {}", className);
@@ -73,8 +107,34 @@ public class FlinkAppTask extends AbstractFlinkTask {
                 LogUtils.warn("no job has executed!");
             }
         } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            if (loader != null) {
+                classLoaderPool.giveBack(loader);
+            }
             InstanceContext.setJobClassName("");
             //deleteJarHdfsPath(jarHdfsPath);
         }
     }
+
+    /**
+     * 解析作业依赖，解析结果缓存在 driver 的 ivy 目录，相同依赖再次提交不再解析
+     * @return 本地 jar 路径(file URI)
+     */
+    private List<String> resolvePackages(Properties jobConfig) throws Exception {
+        String packages = jobConfig.getProperty(PACKAGES_KEY);
+        if (StringUtils.isBlank(packages)) {
+            return Collections.emptyList();
+        }
+
+        long start = System.currentTimeMillis();
+        List<String> jars = DependencyUtils.resolveMavenDependencies(
+                Boolean.parseBoolean(jobConfig.getProperty(PACKAGES_TRANSITIVE_KEY, "true")),
+                jobConfig.getProperty(PACKAGES_EXCLUSIONS_KEY),
+                packages,
+                jobConfig.getProperty(PACKAGES_REPOSITORIES_KEY),
+                Boolean.parseBoolean(jobConfig.getProperty(PACKAGES_OFFLINE_KEY, "false")));
+        LogUtils.info("resolve packages {}, jars: {}, times: {}ms", packages,
+                String.valueOf(jars.size()), String.valueOf(System.currentTimeMillis() - start));
+        return jars.stream().map(jar -> new File(jar).toURI().toString()).collect(Collectors.toList());
+    }
 }
@@ -1,49 +1,262 @@
 package io.github.melin.flink.jobserver.driver.task;
 
+import com.google.common.collect.Lists;
 import io.github.melin.flink.jobserver.core.dto.InstanceDto;
-import io.github.melin.flink.jobserver.core.util.CommonUtils;
+import io.github.melin.flink.jobserver.core.util.SqlSplitter;
+import io.github.melin.flink.jobserver.core.util.SqlSplitter.SqlStatement;
 import io.github.melin.flink.jobserver.driver.FlinkDriverEnv;
+import io.github.melin.flink.jobserver.driver.support.ResultStore;
+import io.github.melin.flink.jobserver.driver.support.ResultStore.ResultWriter;
 import io.github.melin.flink.jobserver.driver.util.LogUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.flink.table.api.StatementSet;
+import org.apache.flink.table.api.TableResult;
 import org.apache.flink.table.api.internal.TableResultImpl;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.utils.print.PrintStyle;
+import org.apache.flink.table.utils.print.RowDataToStringConverter;
 import org.apache.flink.table.utils.print.TableauStyle;
+import org.apache.flink.util.CloseableIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 public class FlinkSqlTask extends AbstractFlinkTask {
 
     private static final Logger LOG = LoggerFactory.getLogger(FlinkSqlTask.class);
 
+    // select 最多读取行数，超过后取消查询
+    public static final String RESULT_MAX_ROWS_KEY = "jobserver.result.max.rows";
+
+    public static final String RESULT_PAGE_SIZE_KEY = "jobserver.result.page.size";
+
+    // 是否将结果写入 driver 本地文件，通过 /flinkDriver/fetchResult 分页获取
+    public static final String RESULT_SPILL_KEY = "jobserver.result.spill.enabled";
+
+    // 执行模式，开启后连续的 insert 合并到一个 StatementSet，作为一个作业提交，其中一个 insert 失败整个作业失败；
+    // 流作业拓扑和作业 id 变化，不能从原来的 savepoint 恢复，默认关闭，每个 insert 单独提交
+    public static final String STATEMENT_SET_ENABLED_KEY = "jobserver.sql.statement.set.enabled";
+
+    private static final Pattern INSERT_PATTERN = Pattern.compile(
+            "^insert\\s+(?:into|overwrite)\\s+(?:table\\s+)?([\\w.`]+)", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private ResultStore resultStore;
+
     @Override
     protected void executeJobText(InstanceDto instanceDto) throws Exception {
-        String noCommentJobText = CommonUtils.cleanSqlComment(instanceDto.getJobText());
-        List<String> sqls = CommonUtils.splitMultiSql(noCommentJobText);
-
-        for (String row : sqls) {
-            String sql = StringUtils.trim(row);
-            if (StringUtils.isNotBlank(sql)) {
-                LogUtils.stdout("execute sql: " + sql);
-                if (StringUtils.startsWithIgnoreCase(sql, "select")) {
-                    TableResultImpl tableResult = (TableResultImpl) FlinkDriverEnv.getTableEnvironment().executeSql(sql);
-                    Iterator<RowData> it = tableResult.collectInternal();
-                    TableauStyle printStyle = PrintStyle.tableauWithDataInferredColumnWidths(
-                            tableResult.getResolvedSchema(), tableResult.getRowDataToStringConverter());
-                    StringWriter stringWriter = new StringWriter();
-                    printStyle.print(it, new PrintWriter(stringWriter));
-                    LogUtils.stdout("query result:\n" + stringWriter);
-                } else {
-                    FlinkDriverEnv.getTableEnvironment().executeSql(sql);
+        Properties jobConfig = loadJobConfig(instanceDto.getJobConfig());
+
+        // 拆分同时清除注释，行号对应原作业内容
+        List<SqlStatement> statements = SqlSplitter.split(instanceDto.getJobText(), true);
+
+        boolean statementSetEnabled = Boolean.parseBoolean(jobConfig.getProperty(STATEMENT_SET_ENABLED_KEY, "false"));
+        PendingInserts pending = new PendingInserts();
+        for (SqlStatement statement : statements) {
+            String sql = statement.getSql();
+            if (StringUtils.isBlank(sql)) {
+                continue;
+            }
+
+            String targetTable = statementSetEnabled ? getInsertTable(sql) : null;
+            if (targetTable != null) {
+                // 批模式读取了前面 insert 写入的表，等待前面的 insert 完成后再提交；
+                // 流模式作业持续运行，无法保证先后顺序，合并到同一个作业
+                if (!FlinkDriverEnv.isStreaming() && pending.dependsOn(sql)) {
+                    LogUtils.info("insert sql(line {}) reads table written by pending insert, " +
+                            "submit pending insert first and wait finished", statement.getLineNumber());
+                    pending.execute(true);
                 }
+                pending.add(statement, targetTable);
+                continue;
+            }
+
+            // ddl 等语句可能影响后面的 insert，先提交前面的 insert，批模式等待完成，保持语句顺序
+            pending.execute(!FlinkDriverEnv.isStreaming());
+            LogUtils.stdout("execute sql(line " + statement.getLineNumber() + "): " + sql);
+            long start = System.currentTimeMillis();
+            if (StringUtils.startsWithIgnoreCase(sql, "select")) {
+                executeQuery(instanceDto.getInstanceCode(), statement.getLineNumber(), sql, jobConfig);
+            } else {
+                FlinkDriverEnv.getTableEnvironment().executeSql(sql);
             }
+            LogUtils.info("sql(line {}) finished, times: {}ms", statement.getLineNumber(), System.currentTimeMillis() - start);
+        }
+        pending.execute(false);
+    }
+
+    /**
+     * @return insert 语句的目标表(小写，去掉反引号)，不是 insert 返回 null
+     */
+    static String getInsertTable(String sql) {
+        Matcher matcher = INSERT_PATTERN.matcher(sql);
+        if (matcher.find()) {
+            return StringUtils.remove(matcher.group(1), '`').toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    /**
+     * 逐行读取查询结果，内存中只保留第一页用于打印，其余写入结果文件，达到最大行数后关闭迭代器取消查询。
+     * 结果通过 /flinkDriver/fetchResult 按实例和语句 id(行号)分页获取
+     */
+    private void executeQuery(String instanceCode, int statementId, String sql, Properties jobConfig) throws Exception {
+        int maxRows = Math.max(getIntProperty(jobConfig, RESULT_MAX_ROWS_KEY, 1000), 1);
+        int pageSize = Math.max(getIntProperty(jobConfig, RESULT_PAGE_SIZE_KEY, 100), 1);
+        boolean spill = Boolean.parseBoolean(jobConfig.getProperty(RESULT_SPILL_KEY, "true"));
+
+        TableResultImpl tableResult = (TableResultImpl) FlinkDriverEnv.getTableEnvironment().executeSql(sql);
+        RowDataToStringConverter converter = tableResult.getRowDataToStringConverter();
+        ResultWriter writer = spill ? resultStore.createWriter(instanceCode, statementId,
+                tableResult.getResolvedSchema().getColumnNames(), pageSize) : null;
+
+        List<RowData> firstPage = Lists.newArrayList();
+        long rowCount = 0;
+        boolean truncated = false;
+        try (CloseableIterator<RowData> it = tableResult.collectInternal()) {
+            while (it.hasNext()) {
+                // 读满最大行数后还有记录才算截断
+                if (rowCount >= maxRows) {
+                    truncated = true;
+                    break;
+                }
+                RowData row = it.next();
+                if (firstPage.size() < pageSize) {
+                    firstPage.add(row);
+                }
+                if (writer != null) {
+                    writer.writeRow(toValues(converter, row));
+                }
+                rowCount++;
+            }
+            if (writer != null) {
+                writer.complete(truncated);
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        TableauStyle printStyle = PrintStyle.tableauWithDataInferredColumnWidths(
+                tableResult.getResolvedSchema(), converter);
+        StringWriter stringWriter = new StringWriter();
+        printStyle.print(firstPage.iterator(), new PrintWriter(stringWriter));
+        LogUtils.stdout("query result:\n" + stringWriter);
+
+        long pageCount = (rowCount + pageSize - 1) / pageSize;
+        if (truncated) {
+            LogUtils.warn("query result reach max rows {}, the rest is discarded", maxRows);
+        }
+        if (spill && pageCount > 1) {
+            LogUtils.info("query result(statement id {}) rows: {}, pages: {}, only show first page",
+                    statementId, rowCount, pageCount);
+        }
+    }
+
+    /**
+     * converter 把 null 转为字符串 NULL，结果文件中 null 和字符串 'NULL' 需要区分，null 值保留为 null
+     */
+    private static String[] toValues(RowDataToStringConverter converter, RowData row) {
+        String[] values = converter.convert(row);
+        for (int i = 0; i < values.length; i++) {
+            if (row.isNullAt(i)) {
+                values[i] = null;
+            }
+        }
+        return values;
+    }
+
+    private static int getIntProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LogUtils.warn("invalid {} value: {}, use default value {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 等待合并提交的 insert 语句
+     */
+    private static class PendingInserts {
+
+        private final List<SqlStatement> statements = Lists.newArrayList();
+
+        private final List<Pattern> tablePatterns = Lists.newArrayList();
+
+        private StatementSet statementSet;
+
+        void add(SqlStatement statement, String targetTable) {
+            if (statementSet == null) {
+                statementSet = FlinkDriverEnv.getTableEnvironment().createStatementSet();
+            }
+
+            LogUtils.stdout("add insert sql(line " + statement.getLineNumber() + "): " + statement.getSql());
+            long start = System.currentTimeMillis();
+            statementSet.addInsertSql(statement.getSql());
+            LogUtils.info("insert sql(line {}) planned, times: {}ms",
+                    statement.getLineNumber(), System.currentTimeMillis() - start);
+
+            statements.add(statement);
+            // 只按表名(不含库名)匹配，宁可多拆分也不能打乱有依赖的 insert
+            String tableName = StringUtils.substringAfterLast(targetTable, ".");
+            tableName = StringUtils.isEmpty(tableName) ? targetTable : tableName;
+            tablePatterns.add(Pattern.compile("[\\s.`(,]" + Pattern.quote(tableName) + "(?![\\w])",
+                    Pattern.CASE_INSENSITIVE));
+        }
+
+        /**
+         * 是否引用了已加入的 insert 的目标表
+         */
+        boolean dependsOn(String sql) {
+            return tablePatterns.stream().anyMatch(pattern -> pattern.matcher(sql).find());
+        }
+
+        /**
+         * StatementSet.execute 异步提交作业
+         * @param await 是否等待作业完成，批模式后面的语句依赖前面 insert 结果时需要等待
+         */
+        void execute(boolean await) throws Exception {
+            if (statements.isEmpty()) {
+                return;
+            }
+
+            String lines = statements.stream().map(statement -> String.valueOf(statement.getLineNumber()))
+                    .collect(Collectors.joining(","));
+            long start = System.currentTimeMillis();
+            TableResult result = statementSet.execute();
+            String jobId = result.getJobClient().map(client -> client.getJobID().toString()).orElse("");
+            if (statements.size() > 1) {
+                LogUtils.info("submit {} insert sql(line {}) as one job {}, any insert failed will fail all of them, " +
+                        "set {}=false to submit separately", statements.size(), lines, jobId, STATEMENT_SET_ENABLED_KEY);
+            } else {
+                LogUtils.info("submit insert sql(line {}) as job {}", lines, jobId);
+            }
+            if (await) {
+                result.await();
+            }
+            LogUtils.info("insert sql(line {}) {}, times: {}ms", lines, await ? "finished" : "submitted",
+                    System.currentTimeMillis() - start);
+
+            statements.clear();
+            tablePatterns.clear();
+            statementSet = null;
         }
     }
 }
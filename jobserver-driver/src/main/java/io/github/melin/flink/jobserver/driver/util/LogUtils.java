@@ -30,7 +30,7 @@ public class LogUtils {
 
     public static List<LogRecord> getMessage(String instanceCode){
         LOG_CACHE.clear();
-        while (LOG_CACHE.size() < 10) {
+        while (LOG_CACHE.size() < LogRecord.MAX_RECORDS_PER_FETCH) {
             LogRecord log = getLogQueue(instanceCode).poll();
             if (log != null) {
                 LOG_CACHE.add(log);
@@ -0,0 +1,83 @@
+package io.github.melin.flink.jobserver.driver;
+
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.table.api.bridge.java.StreamTableEnvironment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * driver 第一条作业 sql 的规划耗时：每个 fork 是新的 jvm，只规划一次，对比不预热和 FlinkDriverEnv.warmUp 预热后；
+ * 以及多次规划后的稳定耗时。作业 sql 和预热 sql 不同，预热的是 Calcite 规则、Janino 元数据 handler 和代码生成。
+ * 默认不执行: mvn test -pl jobserver-driver -Dtest=PlannerWarmUpBenchmark -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PlannerWarmUpBenchmark {
+
+    private static final String SOURCE_DDL = "CREATE TEMPORARY TABLE orders (\n" +
+            "  order_id BIGINT, user_id BIGINT, amount DECIMAL(10, 2), ts TIMESTAMP(3)\n" +
+            ") WITH ('connector' = 'datagen')";
+
+    private static final String QUERY = "SELECT user_id, COUNT(*) AS cnt, SUM(amount) AS total FROM orders " +
+            "WHERE amount > 10 GROUP BY user_id";
+
+    @Param({"false", "true"})
+    public boolean warmUp;
+
+    private StreamTableEnvironment tableEnv;
+
+    @Setup
+    public void setUp() throws Exception {
+        tableEnv = StreamTableEnvironment.create(StreamExecutionEnvironment.getExecutionEnvironment());
+        if (warmUp) {
+            // driver 启动时 initFlink 创建的 StreamTableEnvironment
+            Field field = FlinkDriverEnv.class.getDeclaredField("tableEnvironment");
+            field.setAccessible(true);
+            field.set(null, tableEnv);
+            FlinkDriverEnv.warmUp();
+        }
+        tableEnv.executeSql(SOURCE_DDL);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public String firstQuery() {
+        return tableEnv.explainSql(QUERY);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public String steadyQuery() {
+        return tableEnv.explainSql(QUERY);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void runBenchmark() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PlannerWarmUpBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 重复提交同一个 jobserver-examples jar：FlinkAppTask 从获取 jar、创建 classloader 到加载 jar 中全部类并创建作业实例的耗时，
+ * 以及 Metaspace 增长，对比每次新建 classloader 和复用 classloader。
+ * 只覆盖 driver 端作业启动前的开销，作业第一条记录的耗时依赖 flink 集群和作业数据源，不在此测试。
+ * 默认不执行: mvn package -pl jobserver-examples -DskipTests，
+ * mvn test -pl jobserver-driver -Dtest=ClassLoaderPoolBenchmark -Dbenchmark=true
+ * [-Dbenchmark.jar=../jobserver-examples/target/xxx.jar -Dbenchmark.submits=20]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ClassLoaderPoolBenchmark {
+
+    private static final String JOB_CLASS = "io.github.melin.flink.jobserver.examples.FlinkBatchDemo";
+
+    private final JarCache jarCache = new JarCache();
+
+    private final ClassLoaderPool classLoaderPool = new ClassLoaderPool();
+
+    private String jarPath;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        File jar = benchmarkJar();
+        assumeTrue(jar != null && jar.isFile(), "jobserver-examples jar not found, build it first");
+        jarPath = jar.toURI().toString();
+
+        inject("jarCache", jarCache);
+        inject("classLoaderMonitor", new ClassLoaderMonitor());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        classLoaderPool.closeAll();
+    }
+
+    @Test
+    public void benchmarkRepeatedSubmit() throws Exception {
+        int submits = Integer.getInteger("benchmark.submits", 20);
+        List<String> classNames = classNames(new File(URI.create(jarPath)));
+        System.out.printf("jar: %s, classes: %d, submits: %d%n", jarPath, classNames.size(), submits);
+
+        run("new classloader", submits, classNames, false);
+        run("reuse classloader", submits, classNames, true);
+    }
+
+    private void run(String name, int submits, List<String> classNames, boolean reuse) throws Exception {
+        classLoaderPool.closeAll();
+        System.gc();
+        long metaspaceBefore = metaspaceUsed();
+
+        long[] times = new long[submits];
+        for (int i = 0; i < submits; i++) {
+            long start = System.nanoTime();
+            FlinkClassLoader loader = classLoaderPool.borrow(Collections.singletonList(jarPath),
+                    getClass().getClassLoader(), reuse);
+            for (String className : classNames) {
+                try {
+                    Class.forName(className, true, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // 依赖在 flink 集群或者 hive 中，driver 测试 classpath 中没有
+                }
+            }
+            loader.loadClass(JOB_CLASS).getDeclaredConstructor().newInstance();
+            times[i] = System.nanoTime() - start;
+            classLoaderPool.giveBack(loader);
+        }
+        long metaspaceAfter = metaspaceUsed();
+
+        classLoaderPool.closeAll();
+        System.gc();
+        long metaspaceReleased = metaspaceUsed();
+
+        long[] steady = Arrays.copyOfRange(times, 1, times.length);
+        Arrays.sort(steady);
+        System.out.printf("%-18s first: %8.2fms, p50: %8.2fms, metaspace growth: %6dKB, after close: %6dKB%n",
+                name, times[0] / 1e6, steady[steady.length / 2] / 1e6,
+                (metaspaceAfter - metaspaceBefore) / 1024, (metaspaceReleased - metaspaceBefore) / 1024);
+    }
+
+    private void inject(String fieldName, Object value) throws Exception {
+        Field field = ClassLoaderPool.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(classLoaderPool, value);
+    }
+
+    private static File benchmarkJar() {
+        String path = System.getProperty("benchmark.jar");
+        if (path != null) {
+            return new File(path);
+        }
+        File[] jars = new File("../jobserver-examples/target")
+                .listFiles((dir, fileName) -> fileName.endsWith(".jar") && !fileName.startsWith("original-"));
+        return jars == null || jars.length == 0 ? null : jars[0];
+    }
+
+    private static List<String> classNames(File jar) throws Exception {
+        try (JarFile jarFile = new JarFile(jar)) {
+            return Collections.list(jarFile.entries()).stream()
+                    .map(JarEntry::getName)
+                    .filter(name -> name.endsWith(".class") && !name.contains("-") && !name.startsWith("META-INF"))
+                    .map(name -> name.substring(0, name.length() - 6).replace('/', '.'))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long metaspaceUsed() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> "Metaspace".equals(pool.getName()))
+                .mapToLong(pool -> pool.getUsage().getUsed())
+                .sum();
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import io.github.melin.flink.jobserver.driver.support.JarCache.CachedJar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * jar 本地缓存命中、相同内容不同路径共享缓存、释放后淘汰。
+ * 未验证：编写时构建环境无法下载依赖，本测试还没有执行过，首次在完整环境运行时需要确认结果
+ */
+public class JarCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final JarCache jarCache = new JarCache();
+
+    // 释放后立即淘汰，测试结束不留下缓存文件
+    @BeforeEach
+    public void setUp() {
+        System.setProperty(JarCache.JAR_CACHE_SIZE_KEY, "0");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(JarCache.JAR_CACHE_SIZE_KEY);
+    }
+
+    private String createJar(String name, String content) throws Exception {
+        File file = tempDir.resolve(name).toFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.toURI().toString();
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        String jarPath = createJar("a.jar", "a");
+        CachedJar first = jarCache.acquire(jarPath);
+        CachedJar second = jarCache.acquire(jarPath);
+        assertSame(first, second);
+        assertTrue(first.getFile().isFile());
+
+        jarCache.release(first);
+        assertTrue(first.getFile().isFile());
+        jarCache.release(second);
+        assertFalse(first.getFile().exists());
+    }
+
+    @Test
+    public void testSameContentDifferentPath() throws Exception {
+        CachedJar first = jarCache.acquire(createJar("b1.jar", "b"));
+        CachedJar second = jarCache.acquire(createJar("b2.jar", "b"));
+        CachedJar other = jarCache.acquire(createJar("c.jar", "c"));
+        assertSame(first, second);
+        assertNotSame(first, other);
+
+        jarCache.release(first);
+        jarCache.release(second);
+        jarCache.release(other);
+    }
+
+    @Test
+    public void testEvictReleasedJar() throws Exception {
+        CachedJar jar = jarCache.acquire(createJar("d.jar", "d"));
+        // 被 classloader 引用的 jar 不淘汰
+        assertTrue(jar.getFile().isFile());
+        assertEquals(1, jar.getSize());
+
+        jarCache.release(jar);
+        assertFalse(jar.getFile().exists());
+    }
+}
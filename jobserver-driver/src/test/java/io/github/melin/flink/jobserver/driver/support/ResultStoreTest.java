@@ -0,0 +1,77 @@
+package io.github.melin.flink.jobserver.driver.support;
+
+import io.github.melin.flink.jobserver.core.dto.ResultPage;
+import io.github.melin.flink.jobserver.driver.support.ResultStore.ResultWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 结果文件 null、空字符串、转义字符写入后按页读取不变。
+ * 未验证：编写时构建环境无法下载依赖，本测试还没有执行过，首次在完整环境运行时需要确认结果
+ */
+public class ResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String[][] ROWS = {
+            {null, "", "NULL"},
+            {"", null, "\\N"},
+            {"a,b", "say \"hi\"", "line1\nline2\r\\"},
+            {"\"\"", "\\", "中文"},
+            {null, null, null},
+            {"", "", ""}
+    };
+
+    @Test
+    public void testCsvLineRoundTrip() {
+        for (String[] row : ROWS) {
+            String line = ResultStore.toCsvLine(row);
+            assertEquals(line.length() - 1, line.indexOf('\n'));
+            assertEquals(Arrays.asList(row), ResultStore.parseCsvLine(line.substring(0, line.length() - 1)));
+        }
+
+        assertEquals("\\N,\"\",NULL\n", ResultStore.toCsvLine(ROWS[0]));
+        assertNull(ResultStore.parseCsvLine("\\N").get(0));
+        assertEquals("", ResultStore.parseCsvLine("\"\"").get(0));
+        assertEquals("\\N", ResultStore.parseCsvLine("\"\\\\N\"").get(0));
+    }
+
+    @Test
+    public void testFetchPage() throws Exception {
+        ResultStore resultStore = new ResultStore();
+        Field field = ResultStore.class.getDeclaredField("resultDir");
+        field.setAccessible(true);
+        field.set(resultStore, tempDir.toFile());
+
+        List<String> columns = Arrays.asList("c1", "c2", "c3");
+        try (ResultWriter writer = resultStore.createWriter("inst_1", 3, columns, 4)) {
+            for (String[] row : ROWS) {
+                writer.writeRow(row);
+            }
+            writer.complete(false);
+        }
+        assertEquals(1, tempDir.toFile().listFiles(File::isFile).length);
+
+        ResultPage first = resultStore.fetchPage("inst_1", 3, 1);
+        assertEquals(columns, first.getColumns());
+        assertEquals(6, first.getTotalRows());
+        assertEquals(2, first.getTotalPages());
+        assertEquals(4, first.getRows().size());
+        ResultPage second = resultStore.fetchPage("inst_1", 3, 2);
+        assertEquals(2, second.getRows().size());
+        for (int i = 0; i < ROWS.length; i++) {
+            List<String> row = i < 4 ? first.getRows().get(i) : second.getRows().get(i - 4);
+            assertEquals(Arrays.asList(ROWS[i]), row);
+        }
+    }
+}